@@ -0,0 +1,352 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.os.Build;
+import android.webkit.MimeTypeMap;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import io.flutter.view.FlutterMain;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves Flutter assets and app files under a virtual `https` host, e.g.
+ * `https://appassets.local/`.
+ *
+ * <p>Loading local content from a regular origin instead of `file://` URLs keeps origin based web
+ * APIs (e.g. storage, fetch and service workers) working. Every mapping serves the paths under its
+ * path prefix from either a directory of the Flutter asset bundle or a directory on disk.
+ *
+ * <p>Responses are streamed straight from the APK or the file, bodies are never read into the
+ * heap. `Range` requests are answered with partial content so that media elements can seek.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class AssetServer implements RequestInterceptor {
+  // Indices of the WebViewAssetSource enum.
+  private static final int SOURCE_FLUTTER_ASSETS = 0;
+  private static final int SOURCE_DIRECTORY = 1;
+  private static final String INDEX_FILE = "index.html";
+
+  // MimeTypeMap misses some of these on older Android versions.
+  private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+  static {
+    MIME_TYPES.put("html", "text/html");
+    MIME_TYPES.put("htm", "text/html");
+    MIME_TYPES.put("js", "application/javascript");
+    MIME_TYPES.put("mjs", "application/javascript");
+    MIME_TYPES.put("css", "text/css");
+    MIME_TYPES.put("json", "application/json");
+    MIME_TYPES.put("map", "application/json");
+    MIME_TYPES.put("wasm", "application/wasm");
+    MIME_TYPES.put("svg", "image/svg+xml");
+    MIME_TYPES.put("webp", "image/webp");
+    MIME_TYPES.put("woff", "font/woff");
+    MIME_TYPES.put("woff2", "font/woff2");
+    MIME_TYPES.put("ttf", "font/ttf");
+    MIME_TYPES.put("mp4", "video/mp4");
+    MIME_TYPES.put("webm", "video/webm");
+    MIME_TYPES.put("m3u8", "application/vnd.apple.mpegurl");
+    MIME_TYPES.put("mp3", "audio/mpeg");
+  }
+
+  private final AssetManager assetManager;
+  private final String host;
+  private final List<Mapping> mappings;
+
+  private AssetServer(AssetManager assetManager, String host, List<Mapping> mappings) {
+    this.assetManager = assetManager;
+    this.host = host;
+    this.mappings = mappings;
+  }
+
+  /** Creates a server from the map built by the Dart `WebViewAssetServer`. */
+  @SuppressWarnings("unchecked")
+  static AssetServer fromConfig(Context context, Map<String, Object> config) {
+    List<Mapping> mappings = new ArrayList<>();
+    for (Map<String, Object> mapping : (List<Map<String, Object>>) config.get("mappings")) {
+      mappings.add(
+          new Mapping(
+              (String) mapping.get("pathPrefix"),
+              (Integer) mapping.get("source"),
+              (String) mapping.get("root")));
+    }
+    return new AssetServer(
+        context.getAssets(), ((String) config.get("host")).toLowerCase(Locale.US), mappings);
+  }
+
+  @Override
+  public WebResourceResponse intercept(WebView view, WebResourceRequest request) {
+    Uri url = request.getUrl();
+    if (!"https".equalsIgnoreCase(url.getScheme()) || !host.equalsIgnoreCase(url.getHost())) {
+      return null;
+    }
+    String method = request.getMethod();
+    if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+      return error(405, "Method Not Allowed");
+    }
+    String path = url.getPath();
+    if (path == null || path.isEmpty()) {
+      path = "/";
+    }
+    if (path.endsWith("/")) {
+      path += INDEX_FILE;
+    }
+    for (Mapping mapping : mappings) {
+      if (path.startsWith(mapping.pathPrefix)) {
+        String relativePath = path.substring(mapping.pathPrefix.length());
+        try {
+          Source source = mapping.open(assetManager, relativePath);
+          if (source == null) {
+            return error(404, "Not Found");
+          }
+          return respond(source, mimeType(relativePath), rangeHeader(request));
+        } catch (IOException e) {
+          return error(404, "Not Found");
+        }
+      }
+    }
+    return error(404, "Not Found");
+  }
+
+  private static WebResourceResponse respond(Source source, String mimeType, String range)
+      throws IOException {
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("Accept-Ranges", "bytes");
+    String encoding = isText(mimeType) ? "utf-8" : null;
+    long[] bounds = range == null || source.length < 0 ? null : parseRange(range, source.length);
+    if (bounds == null && range != null && source.length >= 0) {
+      source.stream.close();
+      headers.put("Content-Range", "bytes */" + source.length);
+      return new WebResourceResponse(
+          mimeType,
+          encoding,
+          416,
+          "Range Not Satisfiable",
+          headers,
+          new ByteArrayInputStream(new byte[0]));
+    }
+    if (bounds == null) {
+      if (source.length >= 0) {
+        headers.put("Content-Length", String.valueOf(source.length));
+      }
+      return new WebResourceResponse(mimeType, encoding, 200, "OK", headers, source.stream);
+    }
+
+    long start = bounds[0];
+    long end = bounds[1];
+    long skipped = 0;
+    while (skipped < start) {
+      long count = source.stream.skip(start - skipped);
+      if (count <= 0) {
+        throw new IOException("Failed to skip to the requested range");
+      }
+      skipped += count;
+    }
+    headers.put("Content-Range", "bytes " + start + "-" + end + "/" + source.length);
+    headers.put("Content-Length", String.valueOf(end - start + 1));
+    return new WebResourceResponse(
+        mimeType,
+        encoding,
+        206,
+        "Partial Content",
+        headers,
+        new BoundedInputStream(source.stream, end - start + 1));
+  }
+
+  // Returns the inclusive [start, end] of a single `bytes=` range, or null when it can't be
+  // satisfied.
+  static long[] parseRange(String range, long length) {
+    range = range.trim().toLowerCase(Locale.US);
+    if (!range.startsWith("bytes=") || range.contains(",") || length == 0) {
+      return null;
+    }
+    String spec = range.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      String first = spec.substring(0, dash).trim();
+      String last = spec.substring(dash + 1).trim();
+      long start;
+      long end;
+      if (first.isEmpty()) {
+        // A suffix range, the last `last` bytes.
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0) {
+          return null;
+        }
+        start = Math.max(0, length - suffix);
+        end = length - 1;
+      } else {
+        start = Long.parseLong(first);
+        end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+      }
+      if (start > end || start >= length) {
+        return null;
+      }
+      return new long[] {start, end};
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static String rangeHeader(WebResourceRequest request) {
+    for (Map.Entry<String, String> header : request.getRequestHeaders().entrySet()) {
+      if (header.getKey().equalsIgnoreCase("range")) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
+  static String mimeType(String path) {
+    int dot = path.lastIndexOf('.');
+    if (dot < 0) {
+      return "application/octet-stream";
+    }
+    String extension = path.substring(dot + 1).toLowerCase(Locale.US);
+    String mimeType = MIME_TYPES.get(extension);
+    if (mimeType == null) {
+      mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+    }
+    return mimeType == null ? "application/octet-stream" : mimeType;
+  }
+
+  private static boolean isText(String mimeType) {
+    return mimeType.startsWith("text/")
+        || mimeType.equals("application/javascript")
+        || mimeType.equals("application/json")
+        || mimeType.equals("image/svg+xml");
+  }
+
+  private static WebResourceResponse error(int statusCode, String reasonPhrase) {
+    return new WebResourceResponse(
+        "text/plain",
+        "utf-8",
+        statusCode,
+        reasonPhrase,
+        new HashMap<String, String>(),
+        new ByteArrayInputStream(new byte[0]));
+  }
+
+  private static class Mapping {
+    final String pathPrefix;
+    final int source;
+    final String root;
+
+    Mapping(String pathPrefix, int source, String root) {
+      if (source != SOURCE_FLUTTER_ASSETS && source != SOURCE_DIRECTORY) {
+        throw new IllegalArgumentException("Unknown asset source: " + source);
+      }
+      this.pathPrefix = pathPrefix;
+      this.source = source;
+      this.root = root;
+    }
+
+    // Returns null when the path escapes the mapping's root.
+    Source open(AssetManager assetManager, String relativePath) throws IOException {
+      if (source == SOURCE_DIRECTORY) {
+        File rootDirectory = new File(root).getCanonicalFile();
+        File file = new File(rootDirectory, relativePath).getCanonicalFile();
+        if (!file.getPath().startsWith(rootDirectory.getPath() + File.separator)
+            || !file.isFile()) {
+          return null;
+        }
+        return new Source(new FileInputStream(file), file.length());
+      }
+
+      if (relativePath.contains("..")) {
+        return null;
+      }
+      String assetKey = FlutterMain.getLookupKeyForAsset(root + relativePath);
+      try {
+        // Only uncompressed assets can be opened as a file descriptor, which gives their length
+        // and makes skipping cheap.
+        AssetFileDescriptor descriptor = assetManager.openFd(assetKey);
+        return new Source(descriptor.createInputStream(), descriptor.getLength());
+      } catch (IOException e) {
+        InputStream stream = assetManager.open(assetKey, AssetManager.ACCESS_STREAMING);
+        // Compressed assets report their uncompressed remaining length.
+        return new Source(stream, stream.available());
+      }
+    }
+  }
+
+  private static class Source {
+    final InputStream stream;
+    // -1 when unknown.
+    final long length;
+
+    Source(InputStream stream, long length) {
+      this.stream = stream;
+      this.length = length;
+    }
+  }
+
+  /** Reads at most `limit` bytes of the wrapped stream. */
+  static class BoundedInputStream extends FilterInputStream {
+    private long remaining;
+
+    BoundedInputStream(InputStream in, long limit) {
+      super(in);
+      this.remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int value = super.read();
+      if (value >= 0) {
+        remaining--;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int count = super.read(bytes, offset, (int) Math.min(length, remaining));
+      if (count > 0) {
+        remaining -= count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skipped = super.skip(Math.min(count, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(super.available(), remaining);
+    }
+  }
+}
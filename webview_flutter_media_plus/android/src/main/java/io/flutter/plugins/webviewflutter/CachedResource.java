@@ -0,0 +1,229 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The metadata of a response stored by {@link ResourceCache}, and its body while it is in the
+ * memory tier.
+ */
+class CachedResource {
+  /** The response must not be stored. */
+  static final long NOT_STORABLE = -1;
+
+  final String key;
+  final String url;
+  final String mimeType;
+  final String encoding;
+  final int statusCode;
+  final String reasonPhrase;
+  final Map<String, String> headers;
+  // Lower case names of the request headers the response varies by.
+  final List<String> varyHeaders;
+  final String etag;
+  final String lastModified;
+  final long size;
+  volatile long expiresAt;
+  // Null while the resource is only in the disk tier.
+  byte[] body;
+
+  CachedResource(
+      String key,
+      String url,
+      String mimeType,
+      String encoding,
+      int statusCode,
+      String reasonPhrase,
+      Map<String, String> headers,
+      List<String> varyHeaders,
+      String etag,
+      String lastModified,
+      long size,
+      long expiresAt) {
+    this.key = key;
+    this.url = url;
+    this.mimeType = mimeType;
+    this.encoding = encoding;
+    this.statusCode = statusCode;
+    this.reasonPhrase = reasonPhrase;
+    this.headers = headers;
+    this.varyHeaders = varyHeaders;
+    this.etag = etag;
+    this.lastModified = lastModified;
+    this.size = size;
+    this.expiresAt = expiresAt;
+  }
+
+  boolean isFresh(long now) {
+    return now < expiresAt;
+  }
+
+  boolean canRevalidate() {
+    return etag != null || lastModified != null;
+  }
+
+  CachedResource withBody(byte[] body) {
+    CachedResource resource =
+        new CachedResource(
+            key,
+            url,
+            mimeType,
+            encoding,
+            statusCode,
+            reasonPhrase,
+            headers,
+            varyHeaders,
+            etag,
+            lastModified,
+            size,
+            expiresAt);
+    resource.body = body;
+    return resource;
+  }
+
+  /**
+   * Returns when a response with the given headers stops being fresh, or {@link #NOT_STORABLE}.
+   *
+   * <p>Follows `Cache-Control: no-store`, `no-cache` and `max-age`, falling back to `Expires`. A
+   * response without explicit freshness is stale right away, it is only worth storing when it can
+   * be revalidated.
+   */
+  static long expiresAt(Map<String, String> headers, long now) {
+    String cacheControl = headers.get("cache-control");
+    if (cacheControl != null) {
+      long maxAgeSeconds = -1;
+      for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+        directive = directive.trim();
+        if (directive.equals("no-store")) {
+          return NOT_STORABLE;
+        } else if (directive.equals("no-cache")) {
+          return now;
+        } else if (directive.startsWith("max-age=")) {
+          try {
+            maxAgeSeconds = Long.parseLong(directive.substring("max-age=".length()).trim());
+          } catch (NumberFormatException e) {
+            return now;
+          }
+        }
+      }
+      if (maxAgeSeconds >= 0) {
+        return now + maxAgeSeconds * 1000;
+      }
+    }
+    String expires = headers.get("expires");
+    if (expires != null) {
+      try {
+        return httpDateFormat().parse(expires).getTime();
+      } catch (ParseException e) {
+        return now;
+      }
+    }
+    return now;
+  }
+
+  /** Returns whether a request carrying `headers` asks to bypass caches. */
+  static boolean bypassesCache(Map<String, String> headers) {
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      String name = header.getKey().toLowerCase(Locale.US);
+      String value = header.getValue() == null ? "" : header.getValue().toLowerCase(Locale.US);
+      if (name.equals("cache-control")
+          && (value.contains("no-cache") || value.contains("no-store"))) {
+        return true;
+      }
+      if (name.equals("pragma") && value.contains("no-cache")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeUTF(key);
+    out.writeUTF(url);
+    writeNullableUTF(out, mimeType);
+    writeNullableUTF(out, encoding);
+    out.writeInt(statusCode);
+    out.writeUTF(reasonPhrase);
+    out.writeInt(headers.size());
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      out.writeUTF(header.getKey());
+      out.writeUTF(header.getValue());
+    }
+    out.writeInt(varyHeaders.size());
+    for (String name : varyHeaders) {
+      out.writeUTF(name);
+    }
+    writeNullableUTF(out, etag);
+    writeNullableUTF(out, lastModified);
+    out.writeLong(size);
+    out.writeLong(expiresAt);
+  }
+
+  static CachedResource read(DataInputStream in) throws IOException {
+    String key = in.readUTF();
+    String url = in.readUTF();
+    String mimeType = readNullableUTF(in);
+    String encoding = readNullableUTF(in);
+    int statusCode = in.readInt();
+    String reasonPhrase = in.readUTF();
+    int headerCount = in.readInt();
+    Map<String, String> headers = new LinkedHashMap<>();
+    for (int i = 0; i < headerCount; i++) {
+      headers.put(in.readUTF(), in.readUTF());
+    }
+    int varyCount = in.readInt();
+    List<String> varyHeaders = new ArrayList<>(varyCount);
+    for (int i = 0; i < varyCount; i++) {
+      varyHeaders.add(in.readUTF());
+    }
+    String etag = readNullableUTF(in);
+    String lastModified = readNullableUTF(in);
+    long size = in.readLong();
+    long expiresAt = in.readLong();
+    return new CachedResource(
+        key,
+        url,
+        mimeType,
+        encoding,
+        statusCode,
+        reasonPhrase,
+        headers,
+        Collections.unmodifiableList(varyHeaders),
+        etag,
+        lastModified,
+        size,
+        expiresAt);
+  }
+
+  private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullableUTF(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  // SimpleDateFormat isn't thread safe.
+  private static SimpleDateFormat httpDateFormat() {
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format;
+  }
+}
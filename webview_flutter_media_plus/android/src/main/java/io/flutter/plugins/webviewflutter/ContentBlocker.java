@@ -0,0 +1,131 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.webkit.WebResourceRequest;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the content blocking filter list shared by all webviews.
+ *
+ * <p>Filter lists are set through the `plugins.flutter.io/webview_content_blocker` channel. Large
+ * lists take a while to compile, so they are compiled on a background thread and swapped in once
+ * they are ready, requests keep being matched against the previous list in the meantime.
+ *
+ * <p>Main frame requests are never blocked, only the subresources and subframes of a page are.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ContentBlocker implements MethodCallHandler {
+  private final MethodChannel methodChannel;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler platformThreadHandler = new Handler(Looper.getMainLooper());
+  private volatile ContentFilter filter = ContentFilter.EMPTY;
+  private final AtomicLong checkedRequests = new AtomicLong();
+  private final AtomicLong blockedRequests = new AtomicLong();
+  private final AtomicLong matchNanos = new AtomicLong();
+
+  ContentBlocker(BinaryMessenger messenger) {
+    methodChannel = new MethodChannel(messenger, "plugins.flutter.io/webview_content_blocker");
+    methodChannel.setMethodCallHandler(this);
+  }
+
+  @Override
+  public void onMethodCall(MethodCall methodCall, Result result) {
+    switch (methodCall.method) {
+      case "setRules":
+        setRules(
+            methodCall.<List<String>>argument("blockedHosts"),
+            methodCall.<List<String>>argument("urlFilters"),
+            methodCall.<List<String>>argument("allowedHosts"),
+            result);
+        break;
+      case "getStats":
+        result.success(getStats());
+        break;
+      default:
+        result.notImplemented();
+    }
+  }
+
+  /** Compiles the rules off the platform thread and replies once they are in use. */
+  private void setRules(
+      final List<String> blockedHosts,
+      final List<String> urlFilters,
+      final List<String> allowedHosts,
+      final Result result) {
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            filter =
+                new ContentFilter(
+                    blockedHosts == null ? Collections.<String>emptyList() : blockedHosts,
+                    urlFilters == null ? Collections.<String>emptyList() : urlFilters,
+                    allowedHosts == null ? Collections.<String>emptyList() : allowedHosts);
+            platformThreadHandler.post(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    result.success(null);
+                  }
+                });
+          }
+        });
+  }
+
+  Map<String, Object> getStats() {
+    ContentFilter filter = this.filter;
+    long checked = checkedRequests.get();
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("hostRules", filter.hostRuleCount());
+    stats.put("urlRules", filter.urlRuleCount());
+    stats.put("checked", checked);
+    stats.put("blocked", blockedRequests.get());
+    stats.put("averageMatchNanos", checked == 0 ? 0 : matchNanos.get() / checked);
+    return stats;
+  }
+
+  /** Returns whether `request` matches the filter list. Called on the WebView's network threads. */
+  boolean shouldBlock(WebResourceRequest request) {
+    ContentFilter filter = this.filter;
+    if (filter.isEmpty() || request.isForMainFrame()) {
+      return false;
+    }
+    Uri url = request.getUrl();
+    String scheme = url.getScheme();
+    if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+      return false;
+    }
+    long start = System.nanoTime();
+    boolean blocked = filter.matches(url.getHost(), url.toString());
+    matchNanos.addAndGet(System.nanoTime() - start);
+    checkedRequests.incrementAndGet();
+    if (blocked) {
+      blockedRequests.incrementAndGet();
+    }
+    return blocked;
+  }
+
+  void dispose() {
+    methodChannel.setMethodCallHandler(null);
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,329 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, compiled content blocking filter list.
+ *
+ * <p>Host rules block a host and all of its subdomains, allowed hosts take precedence over them.
+ * URL rules block every URL containing them. Matching is case insensitive for ASCII letters.
+ *
+ * <p>Compiling a list allocates, matching a request doesn't: host rules live in an open addressing
+ * hash table that is probed for every suffix of the host at a label boundary, the hashes of all the
+ * suffixes come out of a single backwards pass over the host. URL rules are compiled into an
+ * Aho-Corasick automaton stored in flat arrays, which finds any of them in a single pass over the
+ * URL regardless of how many rules there are.
+ *
+ * <p>Instances are safe to use from any thread.
+ */
+final class ContentFilter {
+  static final ContentFilter EMPTY =
+      new ContentFilter(
+          Collections.<String>emptyList(),
+          Collections.<String>emptyList(),
+          Collections.<String>emptyList());
+
+  private final HostSuffixSet blockedHosts;
+  private final HostSuffixSet allowedHosts;
+  private final SubstringMatcher urlRules;
+
+  ContentFilter(
+      Collection<String> blockedHosts,
+      Collection<String> urlRules,
+      Collection<String> allowedHosts) {
+    this.blockedHosts = new HostSuffixSet(blockedHosts);
+    this.allowedHosts = new HostSuffixSet(allowedHosts);
+    this.urlRules = new SubstringMatcher(urlRules);
+  }
+
+  boolean isEmpty() {
+    return blockedHosts.size() == 0 && urlRules.size() == 0;
+  }
+
+  int hostRuleCount() {
+    return blockedHosts.size();
+  }
+
+  int urlRuleCount() {
+    return urlRules.size();
+  }
+
+  /**
+   * Returns whether a request for `url` should be blocked.
+   *
+   * @param host the host of `url`, null when it has none
+   */
+  boolean matches(String host, String url) {
+    if (host != null) {
+      if (allowedHosts.containsSuffixOf(host)) {
+        return false;
+      }
+      if (blockedHosts.containsSuffixOf(host)) {
+        return true;
+      }
+    }
+    return urlRules.matches(url);
+  }
+
+  private static char toLowerCase(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static String toLowerCase(String value) {
+    char[] chars = value.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = toLowerCase(chars[i]);
+    }
+    return new String(chars);
+  }
+
+  /** A set of hosts that can be queried for any suffix of a host without allocating. */
+  static final class HostSuffixSet {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 0 marks an empty slot.
+    private final long[] hashes;
+    private final String[] hosts;
+    private final int mask;
+    private int size;
+
+    HostSuffixSet(Collection<String> rules) {
+      int capacity = Integer.highestOneBit(Math.max(4, rules.size() * 2 - 1)) << 1;
+      hashes = new long[capacity];
+      hosts = new String[capacity];
+      mask = capacity - 1;
+      for (String rule : rules) {
+        String host = normalize(rule);
+        if (!host.isEmpty()) {
+          add(host);
+        }
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    /** Returns whether `host`, or any of its parent domains, is in the set. */
+    boolean containsSuffixOf(String host) {
+      if (size == 0) {
+        return false;
+      }
+      int end = host.length();
+      long hash = FNV_OFFSET_BASIS;
+      for (int i = end - 1; i >= 0; i--) {
+        char c = host.charAt(i);
+        if (c == '.' && contains(finish(hash), host, i + 1, end)) {
+          return true;
+        }
+        hash = (hash ^ toLowerCase(c)) * FNV_PRIME;
+      }
+      return end > 0 && contains(finish(hash), host, 0, end);
+    }
+
+    private void add(String host) {
+      long hash = hash(host);
+      int slot = slot(hash);
+      while (hashes[slot] != 0) {
+        if (hashes[slot] == hash && hosts[slot].equals(host)) {
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      hashes[slot] = hash;
+      hosts[slot] = host;
+      size++;
+    }
+
+    private boolean contains(long hash, String host, int start, int end) {
+      int length = end - start;
+      if (length == 0) {
+        return false;
+      }
+      int slot = slot(hash);
+      while (hashes[slot] != 0) {
+        if (hashes[slot] == hash
+            && hosts[slot].length() == length
+            && host.regionMatches(true, start, hosts[slot], 0, length)) {
+          return true;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return false;
+    }
+
+    private int slot(long hash) {
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Hashes from the last character backwards, like containsSuffixOf.
+    private static long hash(String host) {
+      long hash = FNV_OFFSET_BASIS;
+      for (int i = host.length() - 1; i >= 0; i--) {
+        hash = (hash ^ host.charAt(i)) * FNV_PRIME;
+      }
+      return finish(hash);
+    }
+
+    private static long finish(long hash) {
+      return hash == 0 ? 1 : hash;
+    }
+
+    // Accepts `example.com`, `.example.com` and `*.example.com`.
+    private static String normalize(String rule) {
+      String host = toLowerCase(rule.trim());
+      if (host.startsWith("*.")) {
+        host = host.substring(2);
+      } else if (host.startsWith(".")) {
+        host = host.substring(1);
+      }
+      if (host.endsWith(".")) {
+        host = host.substring(0, host.length() - 1);
+      }
+      return host;
+    }
+  }
+
+  /** An Aho-Corasick automaton that finds whether a text contains any of a set of substrings. */
+  static final class SubstringMatcher {
+    private final int size;
+    // The outgoing edges of state s are edgeChars[edgeStart[s]..edgeStart[s + 1]), sorted by char,
+    // leading to the states at the same indices of edgeTargets.
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] failure;
+    // Whether reaching a state means a rule was found, either ending at the state or at one of its
+    // failure states.
+    private final boolean[] output;
+
+    SubstringMatcher(Collection<String> rules) {
+      // Builds the trie with its edges keyed by `state << 16 | char`.
+      Map<Long, Integer> edges = new HashMap<>();
+      BitSet terminal = new BitSet();
+      int stateCount = 1;
+      int ruleCount = 0;
+      for (String rule : rules) {
+        String pattern = toLowerCase(rule);
+        if (pattern.isEmpty()) {
+          continue;
+        }
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+          long key = ((long) state << 16) | pattern.charAt(i);
+          Integer next = edges.get(key);
+          if (next == null) {
+            next = stateCount++;
+            edges.put(key, next);
+          }
+          state = next;
+        }
+        if (!terminal.get(state)) {
+          terminal.set(state);
+          ruleCount++;
+        }
+      }
+      size = ruleCount;
+
+      long[] keys = new long[edges.size()];
+      int k = 0;
+      for (long key : edges.keySet()) {
+        keys[k++] = key;
+      }
+      Arrays.sort(keys);
+      edgeStart = new int[stateCount + 1];
+      edgeChars = new char[keys.length];
+      edgeTargets = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        edgeChars[i] = (char) keys[i];
+        edgeTargets[i] = edges.get(keys[i]);
+        edgeStart[(int) (keys[i] >>> 16) + 1]++;
+      }
+      for (int s = 0; s < stateCount; s++) {
+        edgeStart[s + 1] += edgeStart[s];
+      }
+
+      failure = new int[stateCount];
+      output = new boolean[stateCount];
+      // Breadth first, so that the failure state of a state is always computed before it.
+      int[] queue = new int[stateCount];
+      int head = 0;
+      int tail = 0;
+      for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+        int child = edgeTargets[e];
+        output[child] = terminal.get(child);
+        queue[tail++] = child;
+      }
+      while (head < tail) {
+        int state = queue[head++];
+        for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+          int child = edgeTargets[e];
+          int fallback = next(failure[state], edgeChars[e]);
+          failure[child] = fallback;
+          output[child] = terminal.get(child) || output[fallback];
+          queue[tail++] = child;
+        }
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    boolean matches(String text) {
+      if (size == 0) {
+        return false;
+      }
+      int state = 0;
+      for (int i = 0; i < text.length(); i++) {
+        state = next(state, toLowerCase(text.charAt(i)));
+        if (output[state]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    // Follows failure links until a state has an edge for `c`.
+    private int next(int state, char c) {
+      while (true) {
+        int target = edge(state, c);
+        if (target >= 0) {
+          return target;
+        }
+        if (state == 0) {
+          return 0;
+        }
+        state = failure[state];
+      }
+    }
+
+    // Returns the target of the edge of `state` for `c`, or -1.
+    private int edge(int state, char c) {
+      int low = edgeStart[state];
+      int high = edgeStart[state + 1] - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        char value = edgeChars[middle];
+        if (value < c) {
+          low = middle + 1;
+        } else if (value > c) {
+          high = middle - 1;
+        } else {
+          return edgeTargets[middle];
+        }
+      }
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,314 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The disk tier of {@link ResourceCache}.
+ *
+ * <p>Every body is stored in its own file, named after a hash of the resource's key, and is read
+ * back through a memory mapping so that serving it never copies it into the Java heap. The
+ * metadata of all resources lives in memory and is persisted to a single binary index file, in
+ * least recently used order, so that eviction order survives restarts. Index writes are coalesced
+ * and happen at most once per second.
+ *
+ * <p>Body files are never rewritten in place: a new body is written to a temporary file that is
+ * renamed over the old one, so that the mappings of responses still being served stay valid.
+ *
+ * <p>All methods are synchronized, they are called from the WebView's network threads.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class DiskResourceCache {
+  private static final String TAG = "DiskResourceCache";
+  private static final String INDEX_FILE = "index";
+  private static final String BODY_SUFFIX = ".body";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int INDEX_VERSION = 1;
+  private static final long INDEX_WRITE_DELAY_MS = 1000;
+
+  private final File directory;
+  private final ScheduledExecutorService executor;
+  private final LinkedHashMap<String, CachedResource> index = new LinkedHashMap<>(16, 0.75f, true);
+  private long capacityBytes;
+  private long sizeBytes;
+  private boolean loaded;
+  private boolean indexWriteScheduled;
+
+  private final Runnable indexWriter =
+      new Runnable() {
+        @Override
+        public void run() {
+          synchronized (DiskResourceCache.this) {
+            indexWriteScheduled = false;
+            writeIndex();
+          }
+        }
+      };
+
+  /**
+   * @param directory the directory holding the index and body files, created when missing
+   * @param executor runs the coalesced index writes
+   */
+  DiskResourceCache(File directory, long capacityBytes, ScheduledExecutorService executor) {
+    this.directory = directory;
+    this.capacityBytes = capacityBytes;
+    this.executor = executor;
+  }
+
+  synchronized void setCapacity(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+    ensureLoaded();
+    if (trim()) {
+      scheduleIndexWrite();
+    }
+  }
+
+  synchronized CachedResource get(String key) {
+    ensureLoaded();
+    return index.get(key);
+  }
+
+  /** Returns all stored resources, least recently used first. */
+  synchronized List<CachedResource> entries() {
+    ensureLoaded();
+    return new ArrayList<>(index.values());
+  }
+
+  /**
+   * Opens the body of `resource` through a read only memory mapping.
+   *
+   * @return null when the body file is gone, in which case the resource is dropped
+   */
+  synchronized InputStream openBody(CachedResource resource) {
+    File file = bodyFile(resource.key);
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      // The mapping stays valid after the channel is closed.
+      return new ByteBufferInputStream(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException e) {
+      remove(resource.key);
+      return null;
+    }
+  }
+
+  synchronized void put(CachedResource resource, byte[] body) {
+    ensureLoaded();
+    if (body.length > capacityBytes) {
+      return;
+    }
+    // The previous body may be mapped by a response being served, truncating its file would fault
+    // the reads past its new end. Renaming over it keeps the mapped file intact until unmapped.
+    File file = bodyFile(resource.key);
+    File tmpFile = new File(directory, file.getName() + TMP_SUFFIX);
+    try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+      out.write(body);
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to store " + resource.url, e);
+      tmpFile.delete();
+      return;
+    }
+    if (!tmpFile.renameTo(file)) {
+      Log.w(TAG, "Failed to store " + resource.url);
+      tmpFile.delete();
+      return;
+    }
+    CachedResource previous = index.put(resource.key, resource.withBody(null));
+    if (previous != null) {
+      sizeBytes -= previous.size;
+    }
+    sizeBytes += resource.size;
+    trim();
+    scheduleIndexWrite();
+  }
+
+  /** Persists a changed expiry, e.g. after the resource was revalidated. */
+  synchronized void updateExpiry(String key, long expiresAt) {
+    CachedResource resource = index.get(key);
+    if (resource != null) {
+      resource.expiresAt = expiresAt;
+      scheduleIndexWrite();
+    }
+  }
+
+  synchronized void remove(String key) {
+    CachedResource resource = index.remove(key);
+    if (resource != null) {
+      sizeBytes -= resource.size;
+      bodyFile(key).delete();
+      scheduleIndexWrite();
+    }
+  }
+
+  synchronized void clear() {
+    index.clear();
+    sizeBytes = 0;
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    loaded = true;
+  }
+
+  synchronized long sizeBytes() {
+    ensureLoaded();
+    return sizeBytes;
+  }
+
+  synchronized int entryCount() {
+    ensureLoaded();
+    return index.size();
+  }
+
+  // Evicts the least recently used resources, returns whether any was evicted.
+  private boolean trim() {
+    boolean trimmed = false;
+    Iterator<CachedResource> iterator = index.values().iterator();
+    while (sizeBytes > capacityBytes && iterator.hasNext()) {
+      CachedResource eldest = iterator.next();
+      iterator.remove();
+      sizeBytes -= eldest.size;
+      bodyFile(eldest.key).delete();
+      trimmed = true;
+    }
+    return trimmed;
+  }
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Failed to create " + directory);
+      return;
+    }
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        // Bodies whose write was interrupted.
+        if (file.getName().endsWith(BODY_SUFFIX + TMP_SUFFIX)) {
+          file.delete();
+        }
+      }
+    }
+    File indexFile = new File(directory, INDEX_FILE);
+    if (!indexFile.exists()) {
+      return;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+      if (in.readInt() != INDEX_VERSION) {
+        clear();
+        return;
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        CachedResource resource = CachedResource.read(in);
+        if (bodyFile(resource.key).exists()) {
+          index.put(resource.key, resource);
+          sizeBytes += resource.size;
+        }
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Discarding the unreadable resource cache index", e);
+      clear();
+    }
+  }
+
+  private void scheduleIndexWrite() {
+    if (indexWriteScheduled) {
+      return;
+    }
+    indexWriteScheduled = true;
+    executor.schedule(indexWriter, INDEX_WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private void writeIndex() {
+    File indexFile = new File(directory, INDEX_FILE);
+    File tmpFile = new File(directory, INDEX_FILE + TMP_SUFFIX);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+      out.writeInt(INDEX_VERSION);
+      out.writeInt(index.size());
+      for (CachedResource resource : index.values()) {
+        resource.write(out);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write the resource cache index", e);
+      tmpFile.delete();
+      return;
+    }
+    if (!tmpFile.renameTo(indexFile)) {
+      Log.w(TAG, "Failed to replace the resource cache index");
+    }
+  }
+
+  private File bodyFile(String key) {
+    return new File(directory, ResourceCache.hash(key) + BODY_SUFFIX);
+  }
+
+  /** Reads a {@link ByteBuffer}, e.g. a memory mapped file, without copying it. */
+  static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.min(count, buffer.remaining());
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -4,8 +4,11 @@
 
 package io.flutter.plugins.webviewflutter;
 
+import android.net.Uri;
 import android.os.Build;
 import android.os.Build.VERSION_CODES;
+import android.os.Handler;
+import android.os.Looper;
 import android.webkit.CookieManager;
 import android.webkit.ValueCallback;
 import io.flutter.plugin.common.BinaryMessenger;
@@ -13,9 +16,50 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Handles the `plugins.flutter.io/cookie_manager` channel.
+ *
+ * <p>The bulk methods handle any number of cookies per call. They run on a background thread, since
+ * the synchronous {@link CookieManager} methods block on the WebView's cookie store, and persist
+ * their writes with a single flush once all of them are done.
+ *
+ * <p>Snapshots hold the cookies of a set of origins, so that a session can be restored on the next
+ * start with a single call. A snapshot is a {@link #SNAPSHOT_VERSION} int, the time it was taken
+ * and the time it expires at as epoch milliseconds, the number of origins, and for each origin its
+ * URL, the number of its cookies and their names, values and attributes.
+ *
+ * <p>CookieManager only reads back the names and values of cookies. The attributes of the cookies
+ * set through `setCookies` are remembered so that snapshots can keep them, the attributes of other
+ * cookies, e.g. set by pages, are unknown.
+ */
 class FlutterCookieManager implements MethodCallHandler {
+  private static final int SNAPSHOT_VERSION = 2;
+  // Snapshots without attributes, still restored.
+  private static final int SNAPSHOT_VERSION_WITHOUT_ATTRIBUTES = 1;
+
   private final MethodChannel methodChannel;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler platformThreadHandler = new Handler(Looper.getMainLooper());
+  // The cookies set through setCookies, by name. Guarded by itself.
+  private final Map<String, List<Map<String, Object>>> knownCookies = new HashMap<>();
 
   FlutterCookieManager(BinaryMessenger messenger) {
     methodChannel = new MethodChannel(messenger, "plugins.flutter.io/cookie_manager");
@@ -23,11 +67,36 @@ class FlutterCookieManager implements MethodCallHandler {
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public void onMethodCall(MethodCall methodCall, Result result) {
     switch (methodCall.method) {
       case "clearCookies":
         clearCookies(result);
         break;
+      case "setCookies":
+        setCookies((List<Map<String, Object>>) methodCall.arguments, result);
+        break;
+      case "getCookies":
+        getCookies((List<String>) methodCall.arguments, result);
+        break;
+      case "removeCookies":
+        removeCookies(
+            methodCall.<List<String>>argument("urls"),
+            methodCall.<List<String>>argument("names"),
+            result);
+        break;
+      case "exportCookies":
+        exportCookies(
+            methodCall.<List<String>>argument("origins"),
+            ((Number) methodCall.argument("maxAgeMs")).longValue(),
+            result);
+        break;
+      case "restoreCookies":
+        restoreCookies(
+            methodCall.<byte[]>argument("snapshot"),
+            !Boolean.FALSE.equals(methodCall.argument("httpOnly")),
+            result);
+        break;
       default:
         result.notImplemented();
     }
@@ -35,9 +104,13 @@ class FlutterCookieManager implements MethodCallHandler {
 
   void dispose() {
     methodChannel.setMethodCallHandler(null);
+    executor.shutdown();
   }
 
-  private static void clearCookies(final Result result) {
+  private void clearCookies(final Result result) {
+    synchronized (knownCookies) {
+      knownCookies.clear();
+    }
     CookieManager cookieManager = CookieManager.getInstance();
     final boolean hasCookies = cookieManager.hasCookies();
     if (Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
@@ -53,4 +126,419 @@ class FlutterCookieManager implements MethodCallHandler {
       result.success(hasCookies);
     }
   }
+
+  private void setCookies(final List<Map<String, Object>> cookies, final Result result) {
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            CookieManager cookieManager = CookieManager.getInstance();
+            for (Map<String, Object> cookie : cookies) {
+              cookieManager.setCookie(cookieUrl(cookie), setCookieHeader(cookie));
+              remember(cookie);
+            }
+            flush(cookieManager);
+            reply(result, null);
+          }
+        });
+  }
+
+  /** Replies with the names and values of the cookies sent to each of `urls`, by URL. */
+  private void getCookies(final List<String> urls, final Result result) {
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            CookieManager cookieManager = CookieManager.getInstance();
+            Map<String, Object> cookiesByUrl = new LinkedHashMap<>();
+            for (String url : urls) {
+              cookiesByUrl.put(url, parseCookies(cookieManager.getCookie(url)));
+            }
+            reply(result, cookiesByUrl);
+          }
+        });
+  }
+
+  /**
+   * Removes the cookies sent to each of `urls`, only those named in `names` when it isn't null, and
+   * replies with the number of cookies removed.
+   *
+   * <p>CookieManager can't remove a single cookie, a cookie is removed by overwriting it with an
+   * expired one. As only the names of the stored cookies can be read back, the expired cookie is
+   * set for every domain and path the cookie could have been set for.
+   */
+  private void removeCookies(
+      final List<String> urls, final List<String> names, final Result result) {
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            CookieManager cookieManager = CookieManager.getInstance();
+            int removed = 0;
+            for (String url : urls) {
+              Map<String, String> cookies = parseCookies(cookieManager.getCookie(url));
+              if (cookies.isEmpty()) {
+                continue;
+              }
+              List<String> expiredHeaders = new ArrayList<>();
+              for (String name : cookies.keySet()) {
+                if (names == null || names.contains(name)) {
+                  expiredHeaders.addAll(expiredCookieHeaders(name, Uri.parse(url)));
+                }
+              }
+              for (String header : expiredHeaders) {
+                cookieManager.setCookie(url, header);
+              }
+              Map<String, String> remaining = parseCookies(cookieManager.getCookie(url));
+              for (String name : cookies.keySet()) {
+                if (!remaining.containsKey(name)) {
+                  removed++;
+                  forget(name, url);
+                }
+              }
+            }
+            flush(cookieManager);
+            reply(result, removed);
+          }
+        });
+  }
+
+  /** Replies with a snapshot of the cookies of `origins` that expires after `maxAgeMs`. */
+  private void exportCookies(final List<String> origins, final long maxAgeMs, final Result result) {
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            CookieManager cookieManager = CookieManager.getInstance();
+            long now = System.currentTimeMillis();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+              out.writeInt(SNAPSHOT_VERSION);
+              out.writeLong(now);
+              out.writeLong(now + maxAgeMs);
+              out.writeInt(origins.size());
+              for (String origin : origins) {
+                Map<String, String> cookies = parseCookies(cookieManager.getCookie(origin));
+                out.writeUTF(origin);
+                out.writeInt(cookies.size());
+                for (Map.Entry<String, String> cookie : cookies.entrySet()) {
+                  out.writeUTF(cookie.getKey());
+                  out.writeUTF(cookie.getValue());
+                  writeAttributes(out, knownCookie(cookie.getKey(), origin, now));
+                }
+              }
+            } catch (IOException e) {
+              replyError(result, "exportFailed", e.getMessage());
+              return;
+            }
+            reply(result, bytes.toByteArray());
+          }
+        });
+  }
+
+  /**
+   * Sets the cookies of `snapshot`, and replies with the number of cookies set.
+   *
+   * <p>Snapshots of another version, and expired ones, are ignored. Cookies are restored with the
+   * attributes they were set with through `setCookies`. Cookies whose attributes are unknown are
+   * restored for their origin's host and the `/` path, secure for `https` origins, HttpOnly when
+   * `httpOnly` is true, and expire with the snapshot.
+   */
+  private void restoreCookies(final byte[] snapshot, final boolean httpOnly, final Result result) {
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            CookieManager cookieManager = CookieManager.getInstance();
+            int restored = 0;
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+              int version = in.readInt();
+              if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_WITHOUT_ATTRIBUTES) {
+                reply(result, 0);
+                return;
+              }
+              in.readLong();
+              long now = System.currentTimeMillis();
+              long expiresAt = in.readLong();
+              if (expiresAt <= now) {
+                reply(result, 0);
+                return;
+              }
+              String attributes =
+                  "; Path=/; Expires=" + httpDate(expiresAt) + (httpOnly ? "; HttpOnly" : "");
+              int originCount = in.readInt();
+              for (int i = 0; i < originCount; i++) {
+                String origin = in.readUTF();
+                String secure = origin.startsWith("https:") ? "; Secure" : "";
+                int cookieCount = in.readInt();
+                for (int j = 0; j < cookieCount; j++) {
+                  String name = in.readUTF();
+                  String value = in.readUTF();
+                  Map<String, Object> cookie =
+                      version == SNAPSHOT_VERSION ? readAttributes(in, name, value) : null;
+                  if (cookie == null) {
+                    cookieManager.setCookie(origin, name + "=" + value + attributes + secure);
+                  } else {
+                    Number cookieExpiresMs = (Number) cookie.get("expiresMs");
+                    if (cookieExpiresMs != null && cookieExpiresMs.longValue() <= now) {
+                      continue;
+                    }
+                    cookieManager.setCookie(cookieUrl(cookie), setCookieHeader(cookie));
+                    remember(cookie);
+                  }
+                  restored++;
+                }
+              }
+            } catch (IOException e) {
+              replyError(result, "invalidSnapshot", "The cookie snapshot is corrupt");
+              return;
+            }
+            flush(cookieManager);
+            reply(result, restored);
+          }
+        });
+  }
+
+  private void reply(final Result result, final Object value) {
+    platformThreadHandler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            result.success(value);
+          }
+        });
+  }
+
+  private void replyError(final Result result, final String code, final String message) {
+    platformThreadHandler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            result.error(code, message, null);
+          }
+        });
+  }
+
+  // Replaces the attributes remembered for a cookie of the same name, domain and path.
+  private void remember(Map<String, Object> cookie) {
+    String name = (String) cookie.get("name");
+    synchronized (knownCookies) {
+      List<Map<String, Object>> cookies = knownCookies.get(name);
+      if (cookies == null) {
+        cookies = new ArrayList<>();
+        knownCookies.put(name, cookies);
+      }
+      for (Iterator<Map<String, Object>> i = cookies.iterator(); i.hasNext(); ) {
+        Map<String, Object> known = i.next();
+        if (known.get("domain").equals(cookie.get("domain"))
+            && cookiePath(known).equals(cookiePath(cookie))) {
+          i.remove();
+        }
+      }
+      cookies.add(cookie);
+    }
+  }
+
+  private void forget(String name, String url) {
+    Uri uri = Uri.parse(url);
+    synchronized (knownCookies) {
+      List<Map<String, Object>> cookies = knownCookies.get(name);
+      if (cookies == null) {
+        return;
+      }
+      for (Iterator<Map<String, Object>> i = cookies.iterator(); i.hasNext(); ) {
+        if (isSentTo(i.next(), uri)) {
+          i.remove();
+        }
+      }
+    }
+  }
+
+  // The unexpired cookie named `name` set through setCookies that is sent to `url`, or null.
+  private Map<String, Object> knownCookie(String name, String url, long now) {
+    Uri uri = Uri.parse(url);
+    synchronized (knownCookies) {
+      List<Map<String, Object>> cookies = knownCookies.get(name);
+      if (cookies == null) {
+        return null;
+      }
+      // The most recently set cookie wins.
+      for (int i = cookies.size() - 1; i >= 0; i--) {
+        Map<String, Object> cookie = cookies.get(i);
+        Number expiresMs = (Number) cookie.get("expiresMs");
+        if (isSentTo(cookie, uri) && (expiresMs == null || expiresMs.longValue() > now)) {
+          return cookie;
+        }
+      }
+      return null;
+    }
+  }
+
+  private static boolean isSentTo(Map<String, Object> cookie, Uri url) {
+    String host = url.getHost();
+    String domain = ((String) cookie.get("domain")).toLowerCase(Locale.US);
+    if (host == null) {
+      return false;
+    }
+    host = host.toLowerCase(Locale.US);
+    boolean domainMatches =
+        domain.startsWith(".")
+            ? host.equals(domain.substring(1)) || host.endsWith(domain)
+            : host.equals(domain);
+    String path = url.getPath();
+    return domainMatches
+        && (!Boolean.TRUE.equals(cookie.get("secure")) || "https".equals(url.getScheme()))
+        && (path == null || path.isEmpty() ? "/" : path).startsWith(cookiePath(cookie));
+  }
+
+  private static String cookiePath(Map<String, Object> cookie) {
+    String path = (String) cookie.get("path");
+    return path == null ? "/" : path;
+  }
+
+  // A flag for whether the attributes are known, followed by the domain, path, secure and httpOnly
+  // flags, expiry as epoch milliseconds or -1 for session cookies, and SameSite or an empty string.
+  private static void writeAttributes(DataOutputStream out, Map<String, Object> cookie)
+      throws IOException {
+    out.writeBoolean(cookie != null);
+    if (cookie == null) {
+      return;
+    }
+    out.writeUTF((String) cookie.get("domain"));
+    out.writeUTF(cookiePath(cookie));
+    out.writeBoolean(Boolean.TRUE.equals(cookie.get("secure")));
+    out.writeBoolean(Boolean.TRUE.equals(cookie.get("httpOnly")));
+    Number expiresMs = (Number) cookie.get("expiresMs");
+    out.writeLong(expiresMs == null ? -1 : expiresMs.longValue());
+    String sameSite = (String) cookie.get("sameSite");
+    out.writeUTF(sameSite == null ? "" : sameSite);
+  }
+
+  // Reads what writeAttributes wrote, returns the cookie in the shape setCookies receives or null
+  // when its attributes are unknown.
+  private static Map<String, Object> readAttributes(DataInputStream in, String name, String value)
+      throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    Map<String, Object> cookie = new HashMap<>();
+    cookie.put("name", name);
+    cookie.put("value", value);
+    cookie.put("domain", in.readUTF());
+    cookie.put("path", in.readUTF());
+    cookie.put("secure", in.readBoolean());
+    cookie.put("httpOnly", in.readBoolean());
+    long expiresMs = in.readLong();
+    cookie.put("expiresMs", expiresMs < 0 ? null : expiresMs);
+    String sameSite = in.readUTF();
+    cookie.put("sameSite", sameSite.isEmpty() ? null : sameSite);
+    return cookie;
+  }
+
+  private static void flush(CookieManager cookieManager) {
+    // Before Lollipop the cookies are persisted periodically by CookieSyncManager.
+    if (Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+      cookieManager.flush();
+    }
+  }
+
+  // The URL a cookie is set for, a cookie whose domain starts with a dot is sent to the domain's
+  // subdomains as well.
+  private static String cookieUrl(Map<String, Object> cookie) {
+    String domain = (String) cookie.get("domain");
+    if (domain.startsWith(".")) {
+      domain = domain.substring(1);
+    }
+    Boolean secure = (Boolean) cookie.get("secure");
+    String path = (String) cookie.get("path");
+    return (secure != null && secure ? "https://" : "http://")
+        + domain
+        + (path == null ? "/" : path);
+  }
+
+  private static String setCookieHeader(Map<String, Object> cookie) {
+    StringBuilder header = new StringBuilder();
+    header.append(cookie.get("name")).append('=').append(cookie.get("value"));
+    String domain = (String) cookie.get("domain");
+    if (domain.startsWith(".")) {
+      header.append("; Domain=").append(domain);
+    }
+    String path = (String) cookie.get("path");
+    header.append("; Path=").append(path == null ? "/" : path);
+    Number expiresMs = (Number) cookie.get("expiresMs");
+    if (expiresMs != null) {
+      header.append("; Expires=").append(httpDate(expiresMs.longValue()));
+    }
+    if (Boolean.TRUE.equals(cookie.get("secure"))) {
+      header.append("; Secure");
+    }
+    if (Boolean.TRUE.equals(cookie.get("httpOnly"))) {
+      header.append("; HttpOnly");
+    }
+    String sameSite = (String) cookie.get("sameSite");
+    if (sameSite != null) {
+      header.append("; SameSite=").append(sameSite);
+    }
+    return header.toString();
+  }
+
+  // Expired cookies named `name` for the URL's host and its parent domains, and for every prefix of
+  // the URL's path.
+  private static List<String> expiredCookieHeaders(String name, Uri url) {
+    List<String> domains = new ArrayList<>();
+    // Host only cookies have no Domain attribute.
+    domains.add(null);
+    String parent = url.getHost();
+    // Cookies can't be set for top level domains.
+    while (parent != null && parent.indexOf('.') > 0) {
+      domains.add(parent);
+      parent = parent.substring(parent.indexOf('.') + 1);
+    }
+    List<String> paths = new ArrayList<>();
+    paths.add("/");
+    String path = url.getPath();
+    if (path != null) {
+      for (int slash = path.indexOf('/', 1); slash > 0; slash = path.indexOf('/', slash + 1)) {
+        paths.add(path.substring(0, slash));
+      }
+      if (path.length() > 1 && !path.endsWith("/")) {
+        paths.add(path);
+      }
+    }
+    List<String> headers = new ArrayList<>();
+    for (String domain : domains) {
+      for (String cookiePath : paths) {
+        StringBuilder header = new StringBuilder(name);
+        header.append("=; Expires=Thu, 01 Jan 1970 00:00:00 GMT; Max-Age=0; Path=");
+        header.append(cookiePath);
+        if (domain != null) {
+          header.append("; Domain=").append(domain);
+        }
+        headers.add(header.toString());
+      }
+    }
+    return headers;
+  }
+
+  // Parses a Cookie request header, the first cookie of a name is the one with the longest path.
+  private static Map<String, String> parseCookies(String cookieHeader) {
+    Map<String, String> cookies = new LinkedHashMap<>();
+    if (cookieHeader == null) {
+      return cookies;
+    }
+    for (String pair : cookieHeader.split(";")) {
+      int separator = pair.indexOf('=');
+      String name = (separator < 0 ? pair : pair.substring(0, separator)).trim();
+      if (!name.isEmpty() && !cookies.containsKey(name)) {
+        cookies.put(name, separator < 0 ? "" : pair.substring(separator + 1).trim());
+      }
+    }
+    return cookies;
+  }
+
+  private static String httpDate(long millis) {
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format.format(new Date(millis));
+  }
 }
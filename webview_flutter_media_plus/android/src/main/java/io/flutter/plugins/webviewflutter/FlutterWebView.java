@@ -7,15 +7,14 @@ package io.flutter.plugins.webviewflutter;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
-import android.hardware.display.DisplayManager;
 import android.os.Build;
 import android.os.Handler;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
-import android.view.WindowManager;
-import android.webkit.WebStorage;
+import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.widget.FrameLayout;
@@ -25,8 +24,10 @@ import androidx.annotation.RequiresApi;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
@@ -36,16 +37,41 @@ import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.platform.PlatformView;
 
 public class FlutterWebView implements PlatformView, MethodCallHandler {
+  private static final String TAG = "FlutterWebView";
   private static final String JS_CHANNEL_NAMES_FIELD = "javascriptChannelNames";
-  private final InputAwareWebView webView;
+  private static final String JS_CHANNEL_QUEUE_POLICIES_FIELD = "javascriptChannelQueuePolicies";
+  // Index of the JavascriptChannelTransport enum.
+  private static final int JS_CHANNEL_TRANSPORT_WEB_MESSAGE = 1;
+  // Index of the WebViewEventTransport enum.
+  private static final int EVENT_TRANSPORT_EVENT_CHANNEL = 1;
+  // Replaced when a prerendered page is shown.
+  private InputAwareWebView webView;
+  private final WebViewPool webViewPool;
+  private final Set<String> javaScriptChannelNames = new HashSet<>();
+  private final WebSettingsMirror settingsMirror = new WebSettingsMirror();
   private final MethodChannel methodChannel;
   private final FlutterWebViewClient flutterWebViewClient;
   private final Handler platformThreadHandler;
+  private final JavaScriptMessageDispatcher javaScriptMessageDispatcher;
+  // Null when JavaScript channels are bound with addJavascriptInterface.
+  private final WebMessageChannelTransport webMessageChannelTransport;
+  // Null when the webview doesn't block content.
+  private final PageContentBlocker pageContentBlocker;
+  // Null when events are sent with method channel calls.
+  private final WebViewEventStream eventStream;
+  // Null when the webview doesn't use the resource cache.
+  private final ResourceCache resourceCache;
+  // Null when the webview doesn't prerender pages.
+  private final Prerenderer prerenderer;
+  private final WebsiteDataRemover websiteDataRemover;
+  private final WebStorageQuota webStorageQuota;
+  private final VideoTracker videoTracker;
+  private final MediaSuspender mediaSuspender;
   private final RelativeLayout root;
   private final FrameLayout frameLayout;
-  private final ViewGroup videoLayout;
-  private final View loadingView;
-  private VideoEnabledWebChromeClient webChromeClient;
+  private final VideoEnabledWebChromeClient webChromeClient;
+  private WebViewClient webViewClient;
+  private View containerView;
 
   @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
   @SuppressWarnings("unchecked")
@@ -54,13 +80,14 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
       BinaryMessenger messenger,
       int id,
       Map<String, Object> params,
-      View containerView) {
+      WebViewPool webViewPool,
+      ResourceCache resourceCache,
+      ContentBlocker contentBlocker,
+      WebStorageQuota webStorageQuota,
+      MediaSuspensionCoordinator mediaSuspensionCoordinator) {
 
-    DisplayListenerProxy displayListenerProxy = new DisplayListenerProxy();
-    DisplayManager displayManager =
-        (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
-    displayListenerProxy.onPreWebViewInitialization(displayManager);
-    webView = new InputAwareWebView(context, containerView);
+    this.webViewPool = webViewPool;
+    webView = webViewPool.acquire(context);
 
     root = new RelativeLayout(context);
     frameLayout = new FrameLayout(context);
@@ -72,13 +99,9 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
             RelativeLayout.LayoutParams.MATCH_PARENT,
             RelativeLayout.LayoutParams.MATCH_PARENT));
 
-    LayoutInflater inflater = LayoutInflater.from(context);
-    loadingView = inflater.inflate(R.layout.view_loading_video, null);
-
-    inflater.inflate(R.layout.video_parent, root, true);
-    videoLayout = root.findViewById(R.id.videoLayout);
-
-    displayListenerProxy.onPostWebViewInitialization(displayManager);
+    // Set once, settings updates and prerendered webviews reuse it.
+    webChromeClient = createWebChromeClient();
+    webView.setWebChromeClient(webChromeClient);
 
     platformThreadHandler = new Handler(context.getMainLooper());
     // Allow local storage.
@@ -88,9 +111,125 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     methodChannel = new MethodChannel(messenger, "plugins.flutter.io/webview_" + id);
     methodChannel.setMethodCallHandler(this);
 
+    javaScriptMessageDispatcher =
+        JavaScriptMessageDispatcher.fromConfig(
+            methodChannel,
+            platformThreadHandler,
+            (Map<String, Object>) params.get("javascriptMessageBatching"));
+
     flutterWebViewClient = new FlutterWebViewClient(methodChannel);
+    Integer eventTransport = (Integer) params.get("eventTransport");
+    if (eventTransport != null && eventTransport == EVENT_TRANSPORT_EVENT_CHANNEL) {
+      eventStream = new WebViewEventStream(messenger, id, platformThreadHandler);
+      flutterWebViewClient.setEventStream(eventStream);
+      javaScriptMessageDispatcher.setEventStream(eventStream);
+    } else {
+      eventStream = null;
+    }
+    try {
+      flutterWebViewClient.setNavigationRules(
+          (List<Map<String, Object>>) params.get("navigationRules"));
+    } catch (IllegalArgumentException e) {
+      // Dart validates the rules, a pattern Java can't compile still mustn't fail the view's
+      // creation. Without rules the navigation delegate decides every navigation.
+      Log.e(TAG, "Ignoring the navigation rules", e);
+    }
+    Boolean contentBlocking = (Boolean) params.get("contentBlocking");
+    if (contentBlocker != null && contentBlocking != null && contentBlocking) {
+      // First, so that blocked requests never reach the other stages.
+      pageContentBlocker = new PageContentBlocker(contentBlocker, methodChannel);
+      flutterWebViewClient.addRequestInterceptor(pageContentBlocker);
+      flutterWebViewClient.addPageLifecycleListener(pageContentBlocker);
+    } else {
+      pageContentBlocker = null;
+    }
+    this.webStorageQuota = webStorageQuota;
+    flutterWebViewClient.addPageLifecycleListener(webStorageQuota);
+    Map<String, Object> assetServer = (Map<String, Object>) params.get("assetServer");
+    if (assetServer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      flutterWebViewClient.addRequestInterceptor(AssetServer.fromConfig(context, assetServer));
+    }
+    Boolean useResourceCache = (Boolean) params.get("useResourceCache");
+    if (resourceCache != null && useResourceCache != null && useResourceCache) {
+      this.resourceCache = resourceCache;
+      flutterWebViewClient.addRequestInterceptor(resourceCache);
+      flutterWebViewClient.addPageLifecycleListener(resourceCache);
+    } else {
+      this.resourceCache = null;
+    }
+    websiteDataRemover = new WebsiteDataRemover(resourceCache, platformThreadHandler);
+    Boolean reportPagePerformance = (Boolean) params.get("reportPagePerformance");
+    flutterWebViewClient.setPagePerformanceReporting(
+        reportPagePerformance != null && reportPagePerformance);
+    flutterWebViewClient.setSubframeNavigationReporting(
+        (Map<String, Object>) params.get("subframeNavigationReporting"));
+    Map<String, Object> navigationDeadline = (Map<String, Object>) params.get("navigationDeadline");
+    if (navigationDeadline != null) {
+      flutterWebViewClient.setNavigationDeadline(
+          ((Number) navigationDeadline.get("timeoutMs")).longValue(),
+          (Boolean) navigationDeadline.get("fallbackToNavigate"));
+    }
+    Boolean trackVideos = (Boolean) params.get("trackVideos");
+    videoTracker =
+        new VideoTracker(
+            methodChannel,
+            eventStream,
+            platformThreadHandler,
+            trackVideos != null && trackVideos,
+            new Runnable() {
+              @Override
+              public void run() {
+                // Leaves the custom view, when the video is shown in one.
+                webChromeClient.onHideCustomView();
+              }
+            },
+            VideoQualityMonitor.fromConfig(
+                methodChannel,
+                platformThreadHandler,
+                (Map<String, Object>) params.get("videoQualityReporting")));
+    videoTracker.attach(webView);
+    flutterWebViewClient.addPageLifecycleListener(videoTracker);
+    Boolean suspendMediaWhenHidden = (Boolean) params.get("suspendMediaWhenHidden");
+    mediaSuspender =
+        new MediaSuspender(
+            mediaSuspensionCoordinator,
+            webView,
+            suspendMediaWhenHidden != null && suspendMediaWhenHidden);
+    flutterWebViewClient.addPageLifecycleListener(mediaSuspender);
+    Integer transport = (Integer) params.get("javascriptChannelTransport");
+    if (transport != null
+        && transport == JS_CHANNEL_TRANSPORT_WEB_MESSAGE
+        && WebMessageChannelTransport.isSupported()) {
+      webMessageChannelTransport =
+          new WebMessageChannelTransport(webView, javaScriptMessageDispatcher);
+      flutterWebViewClient.addPageLifecycleListener(webMessageChannelTransport);
+    } else {
+      webMessageChannelTransport = null;
+    }
+    Integer maxPrerenders = (Integer) params.get("maxPrerenders");
+    // Message ports are bound to the visible webview, prerendered pages can't be connected.
+    if (maxPrerenders != null && maxPrerenders > 0 && webMessageChannelTransport == null) {
+      prerenderer =
+          new Prerenderer(
+              context,
+              webViewPool,
+              frameLayout,
+              javaScriptMessageDispatcher,
+              videoTracker,
+              mediaSuspensionCoordinator,
+              platformThreadHandler,
+              maxPrerenders);
+      flutterWebViewClient.setPrerenderer(prerenderer);
+      videoTracker.setPrerenderer(prerenderer);
+    } else {
+      prerenderer = null;
+    }
     applySettings((Map<String, Object>) params.get("settings"));
 
+    if (params.get(JS_CHANNEL_QUEUE_POLICIES_FIELD) != null) {
+      javaScriptMessageDispatcher.setQueuePolicies(
+          (Map<String, Object>) params.get(JS_CHANNEL_QUEUE_POLICIES_FIELD));
+    }
     if (params.containsKey(JS_CHANNEL_NAMES_FIELD)) {
       registerJavaScriptChannelNames((List<String>) params.get(JS_CHANNEL_NAMES_FIELD));
     }
@@ -98,7 +237,7 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     updateAutoMediaPlaybackPolicy((Integer) params.get("autoMediaPlaybackPolicy"));
     if (params.containsKey("userAgent")) {
       String userAgent = (String) params.get("userAgent");
-      updateUserAgent(userAgent);
+      applySettings(Collections.<String, Object>singletonMap("userAgent", userAgent));
     }
     if (params.containsKey("initialUrl")) {
       String url = (String) params.get("initialUrl");
@@ -138,6 +277,7 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   // of Flutter but used as an override anyway wherever it's actually defined.
   // TODO(mklim): Add the @Override annotation once stable passes v1.10.9.
   public void onFlutterViewAttached(View flutterView) {
+    containerView = flutterView;
     webView.setContainerView(flutterView);
   }
 
@@ -148,6 +288,7 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   // of Flutter but used as an override anyway wherever it's actually defined.
   // TODO(mklim): Add the @Override annotation once stable passes v1.10.9.
   public void onFlutterViewDetached() {
+    containerView = null;
     webView.setContainerView(null);
   }
 
@@ -187,14 +328,68 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
       case "removeJavascriptChannels":
         removeJavaScriptChannels(methodCall, result);
         break;
+      case "getNavigationDecisionStats":
+        result.success(flutterWebViewClient.getNavigationDecisionStats());
+        break;
+      case "getPerformanceStats":
+        result.success(flutterWebViewClient.getPageLoadStats());
+        break;
+      case "updateNavigationRules":
+        updateNavigationRules(methodCall, result);
+        break;
+      case "postMessageToJavascript":
+        postMessageToJavaScript(methodCall, result);
+        break;
+      case "updateJavascriptChannelQueuePolicies":
+        updateJavaScriptChannelQueuePolicies(methodCall, result);
+        break;
+      case "prefetch":
+        prefetch(methodCall, result);
+        break;
+      case "cancelPrefetch":
+        cancelPrefetch(result);
+        break;
+      case "prerender":
+        prerender(methodCall, result);
+        break;
+      case "cancelPrerenders":
+        if (prerenderer != null) {
+          prerenderer.discardAll();
+        }
+        result.success(null);
+        break;
+      case "getPrerenderStats":
+        result.success(prerenderer == null ? null : prerenderer.getStats());
+        break;
       case "clearCache":
         clearCache(result);
         break;
+      case "clearData":
+        websiteDataRemover.remove(
+            webView,
+            methodCall.<List<Integer>>argument("types"),
+            methodCall.<List<String>>argument("origins"),
+            result);
+        break;
       case "getTitle":
         getTitle(result);
         break;
+      case "setVisible":
+        mediaSuspender.setVisible((Boolean) methodCall.arguments);
+        result.success(null);
+        break;
+      case "getMediaSuspensionStats":
+        result.success(mediaSuspender.getStats());
+        break;
+      case "getSettingsStats":
+        result.success(settingsMirror.getStats());
+        break;
       case "restoreOriginalVideo":
         webChromeClient.onBackPressed();
+        result.success(null);
+        break;
+      case "batch":
+        new MethodCallBatch(this, methodCall, result).run();
         break;
       default:
         result.notImplemented();
@@ -209,10 +404,61 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
     if (headers == null) {
       headers = Collections.emptyMap();
     }
-    webView.loadUrl(url, headers);
+    // Late navigation delegate decisions no longer apply.
+    flutterWebViewClient.onNavigationStarted();
+    Prerenderer.Prerender prerender = prerenderer == null ? null : prerenderer.take(url, headers);
+    if (prerender != null) {
+      showPrerender(prerender);
+    } else {
+      webView.loadUrl(url, headers);
+    }
+    result.success(null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void prerender(MethodCall methodCall, Result result) {
+    if (prerenderer == null) {
+      result.error(
+          "prerenderDisabled",
+          "Prerendering requires maxPrerenders to be positive and the default JavaScript channel"
+              + " transport",
+          null);
+      return;
+    }
+    Map<String, Object> request = (Map<String, Object>) methodCall.arguments;
+    Map<String, String> headers = (Map<String, String>) request.get("headers");
+    if (headers == null) {
+      headers = Collections.emptyMap();
+    }
+    prerenderer.prerender(
+        (String) request.get("url"), headers, webView, webViewClient, javaScriptChannelNames);
     result.success(null);
   }
 
+  // Swaps the prerendered webview in for the visible one. It is already laid out beneath it, so
+  // removing the visible webview shows it within the same frame.
+  private void showPrerender(Prerenderer.Prerender prerender) {
+    InputAwareWebView previousWebView = webView;
+    webView = prerender.getWebView();
+    if (containerView != null) {
+      webView.setContainerView(containerView);
+    }
+    // Leaves the full-screen video of the replaced page.
+    webChromeClient.onHideCustomView();
+    webChromeClient.setWebView(webView);
+    webView.setWebChromeClient(webChromeClient);
+    mediaSuspender.setWebView(webView);
+    frameLayout.removeView(previousWebView);
+    for (String channelName : javaScriptChannelNames) {
+      previousWebView.removeJavascriptInterface(channelName);
+    }
+    videoTracker.detach(previousWebView);
+    previousWebView.dispose();
+    webStorageQuota.releaseWebView(previousWebView);
+    webViewPool.release(previousWebView);
+    prerender.show();
+  }
+
   private void canGoBack(Result result) {
     result.success(webView.canGoBack());
   }
@@ -247,7 +493,10 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   @RequiresApi(api = Build.VERSION_CODES.KITKAT)
   @SuppressWarnings("unchecked")
   private void updateSettings(MethodCall methodCall, Result result) {
-    applySettings((Map<String, Object>) methodCall.arguments);
+    if (applySettings((Map<String, Object>) methodCall.arguments) && prerenderer != null) {
+      // Prerendered pages were loaded with the previous settings.
+      prerenderer.discardAll();
+    }
     result.success(null);
   }
 
@@ -270,6 +519,9 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   @SuppressWarnings("unchecked")
   private void addJavaScriptChannels(MethodCall methodCall, Result result) {
     List<String> channelNames = (List<String>) methodCall.arguments;
+    if (prerenderer != null) {
+      prerenderer.discardAll();
+    }
     registerJavaScriptChannelNames(channelNames);
     result.success(null);
   }
@@ -277,18 +529,94 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   @SuppressWarnings("unchecked")
   private void removeJavaScriptChannels(MethodCall methodCall, Result result) {
     List<String> channelNames = (List<String>) methodCall.arguments;
-    for (String channelName : channelNames) {
-      webView.removeJavascriptInterface(channelName);
+    if (prerenderer != null) {
+      prerenderer.discardAll();
+    }
+    if (webMessageChannelTransport != null) {
+      webMessageChannelTransport.removeChannels(channelNames);
+    } else {
+      for (String channelName : channelNames) {
+        webView.removeJavascriptInterface(channelName);
+        javaScriptChannelNames.remove(channelName);
+      }
     }
     result.success(null);
   }
 
-  private void clearCache(Result result) {
-    webView.clearCache(true);
-    WebStorage.getInstance().deleteAllData();
+  @SuppressWarnings("unchecked")
+  private void updateNavigationRules(MethodCall methodCall, Result result) {
+    try {
+      flutterWebViewClient.setNavigationRules((List<Map<String, Object>>) methodCall.arguments);
+    } catch (IllegalArgumentException e) {
+      // The previous rules stay in effect.
+      result.error("invalidNavigationRule", e.getMessage(), null);
+      return;
+    }
     result.success(null);
   }
 
+  @SuppressWarnings("unchecked")
+  private void postMessageToJavaScript(MethodCall methodCall, Result result) {
+    if (webMessageChannelTransport == null) {
+      result.error(
+          "unsupportedTransport",
+          "Posting messages to JavaScript requires the webMessage JavaScript channel transport",
+          null);
+      return;
+    }
+    Map<String, Object> request = (Map<String, Object>) methodCall.arguments;
+    boolean posted =
+        webMessageChannelTransport.postMessageToPage(
+            (String) request.get("channel"), (String) request.get("message"));
+    if (!posted) {
+      result.error("notConnected", "The page's JavaScript channels are not connected yet", null);
+      return;
+    }
+    result.success(null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void updateJavaScriptChannelQueuePolicies(MethodCall methodCall, Result result) {
+    javaScriptMessageDispatcher.setQueuePolicies((Map<String, Object>) methodCall.arguments);
+    result.success(null);
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private void prefetch(MethodCall methodCall, Result result) {
+    if (resourceCache == null) {
+      result.error(
+          "resourceCacheDisabled",
+          "Prefetching requires the webview to use the resource cache",
+          null);
+      return;
+    }
+    Map<String, String> requestHeaders = new HashMap<>();
+    requestHeaders.put("User-Agent", webView.getSettings().getUserAgentString());
+    Boolean includeSubresources = methodCall.argument("includeSubresources");
+    resourceCache
+        .getPrefetcher()
+        .prefetch(
+            this,
+            methodCall.<List<String>>argument("urls"),
+            (Integer) methodCall.argument("priority"),
+            ((Number) methodCall.argument("maxBytes")).longValue(),
+            includeSubresources != null && includeSubresources,
+            requestHeaders,
+            result);
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private void cancelPrefetch(Result result) {
+    if (resourceCache != null) {
+      resourceCache.getPrefetcher().cancel(this);
+    }
+    result.success(null);
+  }
+
+  private void clearCache(Result result) {
+    websiteDataRemover.removeAll(webView, result);
+  }
+
   private void getTitle(Result result) {
     result.success(webView.getTitle());
   }
@@ -301,82 +629,103 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
       throw new IllegalStateException("Context is not an Activity context!");
   }
 
-  private void onVideoFullScreen(boolean fullscreen) {
+  /** @param latencyMs -1 when the latency is unknown */
+  private void onVideoFullScreen(boolean fullscreen, long latencyMs) {
+    if (eventStream != null) {
+      eventStream.videoFullScreen(fullscreen, latencyMs);
+      return;
+    }
     Map<String, Object> args = new HashMap<>();
     args.put("fullscreen", fullscreen);
+    args.put("latencyMs", latencyMs >= 0 ? latencyMs : null);
     methodChannel.invokeMethod("onVideoFullScreen", args);
   }
 
+  /**
+   * Applies the settings whose values differ from the ones already applied, and the process-global
+   * ones which another webview may have changed.
+   *
+   * @return whether any setting of this webview changed
+   */
   @RequiresApi(api = Build.VERSION_CODES.KITKAT)
-  private void applySettings(Map<String, Object> settings) {
-    for (String key : settings.keySet()) {
-      switch (key) {
-        case "jsMode":
-          updateJsMode((Integer) settings.get(key));
-          break;
-        case "hasNavigationDelegate":
-          final boolean hasNavigationDelegate = (boolean) settings.get(key);
-
-          final WebViewClient webViewClient =
-              flutterWebViewClient.createWebViewClient(hasNavigationDelegate);
-
-          webView.setWebViewClient(webViewClient);
-
-          webChromeClient = new VideoEnabledWebChromeClient(frameLayout, videoLayout, loadingView, webView);
-          webChromeClient.setOnToggledFullscreen(new VideoEnabledWebChromeClient.ToggledFullscreenCallback()
-          {
-            @Override
-            public void toggledFullscreen(boolean fullscreen)
-            {
-
-              onVideoFullScreen(fullscreen);
-
-              //!!! context: io.flutter.plugin.platform.SingleViewPresentation$PresentationContext
-              System.out.println(">>> context: " + root.getContext().getClass().getName());
-              // Your code to handle the full-screen change, for example showing and hiding the title bar. Example:
-              /*if (fullscreen)
-              {
-                WindowManager.LayoutParams attrs = getWindow().getAttributes();
-                attrs.flags |= WindowManager.LayoutParams.FLAG_FULLSCREEN;
-                attrs.flags |= WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON;
-                getWindow().setAttributes(attrs);
-                getWindow().getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_LOW_PROFILE);
-              }
-              else
-              {
-                WindowManager.LayoutParams attrs = getWindow().getAttributes();
-                attrs.flags &= ~WindowManager.LayoutParams.FLAG_FULLSCREEN;
-                attrs.flags &= ~WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON;
-                getWindow().setAttributes(attrs);
-                getWindow().getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_VISIBLE);
-              }*/
-            }
-          });
-          webView.setWebChromeClient(webChromeClient);
-          break;
-        case "debuggingEnabled":
-          final boolean debuggingEnabled = (boolean) settings.get(key);
-
-          webView.setWebContentsDebuggingEnabled(debuggingEnabled);
-          break;
-        case "gestureNavigationEnabled":
-          break;
-        case "userAgent":
-          updateUserAgent((String) settings.get(key));
-          break;
-        default:
-          throw new IllegalArgumentException("Unknown WebView setting: " + key);
+  private boolean applySettings(Map<String, Object> settings) {
+    Map<String, Object> changes = settingsMirror.diff(settings);
+    if (changes.isEmpty()) {
+      // Counts the skipped settings.
+      settingsMirror.commit(settings);
+      return false;
+    }
+    // The WebSettings mutations are applied together, before the client is replaced.
+    WebSettings webSettings = webView.getSettings();
+    if (changes.containsKey("jsMode")) {
+      updateJsMode(webSettings, (Integer) changes.get("jsMode"));
+    }
+    if (changes.containsKey("userAgent")) {
+      updateUserAgent(webSettings, (String) changes.get("userAgent"));
+    }
+    if (changes.containsKey("hasNavigationDelegate")) {
+      final boolean hasNavigationDelegate = (boolean) changes.get("hasNavigationDelegate");
+
+      WebViewClient client =
+          flutterWebViewClient.updateWebViewClient(webViewClient, hasNavigationDelegate);
+      if (client != webViewClient) {
+        webViewClient = client;
+        webView.setWebViewClient(webViewClient);
+      }
+    }
+    if (changes.containsKey("debuggingEnabled")) {
+      final boolean debuggingEnabled = (boolean) changes.get("debuggingEnabled");
+
+      WebView.setWebContentsDebuggingEnabled(debuggingEnabled);
+    }
+    // gestureNavigationEnabled only applies to iOS.
+    // Only mirrored once applied, so that a failed update isn't skipped when it is sent again.
+    settingsMirror.commit(settings);
+    for (String key : changes.keySet()) {
+      if (!WebSettingsMirror.isProcessGlobal(key)) {
+        return true;
       }
     }
+    return false;
+  }
+
+  private VideoEnabledWebChromeClient createWebChromeClient() {
+    VideoEnabledWebChromeClient client =
+        new VideoEnabledWebChromeClient(
+            frameLayout,
+            new VideoEnabledWebChromeClient.VideoViewsFactory() {
+              @Override
+              public ViewGroup createVideoView() {
+                // Laid out over the webview from now on, so that later videos show without a
+                // relayout.
+                LayoutInflater.from(root.getContext()).inflate(R.layout.video_parent, root, true);
+                return root.findViewById(R.id.videoContainer);
+              }
+
+              @Override
+              public View createLoadingView() {
+                return LayoutInflater.from(root.getContext())
+                    .inflate(R.layout.view_loading_video, null);
+              }
+            },
+            webView);
+    client.setOnToggledFullscreen(
+        new VideoEnabledWebChromeClient.ToggledFullscreenCallback() {
+          @Override
+          public void toggledFullscreen(boolean fullscreen, long latencyMs) {
+            onVideoFullScreen(fullscreen, latencyMs);
+          }
+        });
+    return client;
   }
 
-  private void updateJsMode(int mode) {
+  private void updateJsMode(WebSettings webSettings, int mode) {
     switch (mode) {
       case 0: // disabled
-        webView.getSettings().setJavaScriptEnabled(false);
+        webSettings.setJavaScriptEnabled(false);
         break;
       case 1: // unrestricted
-        webView.getSettings().setJavaScriptEnabled(true);
+        webSettings.setJavaScriptEnabled(true);
         break;
       default:
         throw new IllegalArgumentException("Trying to set unknown JavaScript mode: " + mode);
@@ -392,20 +741,51 @@ public class FlutterWebView implements PlatformView, MethodCallHandler {
   }
 
   private void registerJavaScriptChannelNames(List<String> channelNames) {
+    if (webMessageChannelTransport != null) {
+      webMessageChannelTransport.addChannels(channelNames);
+      return;
+    }
     for (String channelName : channelNames) {
       webView.addJavascriptInterface(
-          new JavaScriptChannel(methodChannel, channelName, platformThreadHandler), channelName);
+          new JavaScriptChannel(javaScriptMessageDispatcher, channelName), channelName);
+      javaScriptChannelNames.add(channelName);
     }
   }
 
-  private void updateUserAgent(String userAgent) {
-    webView.getSettings().setUserAgentString(userAgent);
+  private void updateUserAgent(WebSettings webSettings, String userAgent) {
+    webSettings.setUserAgentString(userAgent);
   }
 
   @Override
   public void dispose() {
     methodChannel.setMethodCallHandler(null);
+    javaScriptMessageDispatcher.dispose();
+    flutterWebViewClient.dispose();
+    if (pageContentBlocker != null) {
+      pageContentBlocker.dispose();
+    }
+    if (webMessageChannelTransport != null) {
+      webMessageChannelTransport.dispose();
+    }
+    if (eventStream != null) {
+      eventStream.dispose();
+    }
+    if (resourceCache != null) {
+      resourceCache.getPrefetcher().cancel(this);
+    }
+    if (prerenderer != null) {
+      prerenderer.dispose();
+    }
+    websiteDataRemover.dispose();
+    videoTracker.dispose();
+    mediaSuspender.dispose();
     webView.dispose();
-    webView.destroy();
+    for (String channelName : javaScriptChannelNames) {
+      webView.removeJavascriptInterface(channelName);
+    }
+    javaScriptChannelNames.clear();
+    videoTracker.detach(webView);
+    webStorageQuota.releaseWebView(webView);
+    webViewPool.release(webView);
   }
 }
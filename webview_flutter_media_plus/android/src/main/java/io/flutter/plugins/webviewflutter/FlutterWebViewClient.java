@@ -6,8 +6,10 @@ package io.flutter.plugins.webviewflutter;
 
 import android.annotation.TargetApi;
 import android.graphics.Bitmap;
+import android.net.Uri;
 import android.net.http.SslError;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.webkit.SslErrorHandler;
@@ -18,8 +20,11 @@ import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import androidx.webkit.WebViewClientCompat;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 // We need to use WebViewClientCompat to get
 // shouldOverrideUrlLoading(WebView view, WebResourceRequest request)
@@ -27,15 +32,142 @@ import java.util.Map;
 // be broken when a navigationDelegate is set on Android version earlier than N.
 class FlutterWebViewClient {
   private static final String TAG = "FlutterWebViewClient";
+  private static final int DECISION_LATENCY_SAMPLES = 128;
   private final MethodChannel methodChannel;
+  private final SubframeNavigationReporter subframeNavigationReporter;
+  private final PageLoadMetrics pageLoadMetrics;
+  // Null when page events are sent with method channel calls.
+  private WebViewEventStream eventStream;
+  // Null when the webview doesn't prerender pages.
+  private Prerenderer prerenderer;
+  private final List<PageLifecycleListener> pageLifecycleListeners = new ArrayList<>();
+  // Read from the WebView's network threads.
+  private final List<RequestInterceptor> requestInterceptors = new CopyOnWriteArrayList<>();
+  private final NavigationPolicy navigationPolicy = new NavigationPolicy();
+  private final LatencySamples decisionLatencies = new LatencySamples(DECISION_LATENCY_SAMPLES);
   private boolean hasNavigationDelegate;
+  // 0 when main frame navigations wait for the delegate's decision without a deadline.
+  private long decisionTimeoutMs;
+  private boolean fallbackToNavigate;
+  // Identifies the most recent main frame navigation, whether it went through the delegate, was
+  // decided by a navigation rule or was started by loadUrl, so that decisions arriving late are
+  // only applied while no other navigation started.
+  private int navigationId;
+  // The URL the latest navigation request loaded itself, its page start isn't another navigation.
+  private String requestedNavigationUrl;
+  private int decisions;
+  private int timedOutDecisions;
+  private int lateAllowedNavigations;
+  private int lateRevertedNavigations;
+
+  /** Native observers of the page load events that are forwarded to Dart. */
+  interface PageLifecycleListener {
+    void onPageStarted(WebView view, String url);
+
+    void onPageFinished(WebView view, String url);
+  }
 
   FlutterWebViewClient(MethodChannel methodChannel) {
     this.methodChannel = methodChannel;
+    this.subframeNavigationReporter = new SubframeNavigationReporter(methodChannel);
+    this.pageLoadMetrics = new PageLoadMetrics(methodChannel);
+  }
+
+  void addPageLifecycleListener(PageLifecycleListener listener) {
+    pageLifecycleListeners.add(listener);
+  }
+
+  /** Appends `interceptor` to the stages requests go through before the WebView loads them. */
+  void addRequestInterceptor(RequestInterceptor interceptor) {
+    requestInterceptors.add(interceptor);
+  }
+
+  /**
+   * Sets how long main frame navigations wait for the navigation delegate's decision.
+   *
+   * <p>When the delegate doesn't decide within `timeoutMs` the navigation is allowed when
+   * `fallbackToNavigate` is set and prevented otherwise. When the delegate's decision arrives late
+   * and differs from the fallback it is still applied, unless another navigation was requested in
+   * the meantime: a late allow loads the URL, a late prevent stops the page and goes back if the
+   * URL is still the one being shown.
+   *
+   * @param timeoutMs the deadline in milliseconds, or 0 to always wait for the decision
+   */
+  void setNavigationDeadline(long timeoutMs, boolean fallbackToNavigate) {
+    this.decisionTimeoutMs = timeoutMs;
+    this.fallbackToNavigate = fallbackToNavigate;
+  }
+
+  /**
+   * Sets how subframe navigation requests are reported to the navigation delegate.
+   *
+   * <p>See {@link SubframeNavigationReporter#configure}.
+   */
+  void setSubframeNavigationReporting(Map<String, Object> config) {
+    subframeNavigationReporter.configure(config);
+  }
+
+  /** Sends the page events through `eventStream` instead of with method channel calls. */
+  void setEventStream(WebViewEventStream eventStream) {
+    this.eventStream = eventStream;
+  }
+
+  /** Buffers the page events of the webviews `prerenderer` keeps hidden until they are shown. */
+  void setPrerenderer(Prerenderer prerenderer) {
+    this.prerenderer = prerenderer;
+  }
+
+  /** Sets whether a performance record of every page load is sent with `onPagePerformance`. */
+  void setPagePerformanceReporting(boolean enabled) {
+    pageLoadMetrics.setReportEnabled(enabled);
+  }
+
+  void dispose() {
+    subframeNavigationReporter.dispose();
+  }
+
+  /** Returns the aggregate performance of the most recent page loads. */
+  Map<String, Object> getPageLoadStats() {
+    return pageLoadMetrics.getStats();
+  }
+
+  /** Returns the navigation delegate's decision counters and latency percentiles. */
+  Map<String, Object> getNavigationDecisionStats() {
+    long[] percentiles = decisionLatencies.percentiles(50, 90, 99);
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("decisions", decisions);
+    stats.put("timedOut", timedOutDecisions);
+    stats.put("lateAllowed", lateAllowedNavigations);
+    stats.put("lateReverted", lateRevertedNavigations);
+    stats.put("p50Ms", percentiles[0]);
+    stats.put("p90Ms", percentiles[1]);
+    stats.put("p99Ms", percentiles[2]);
+    return stats;
+  }
+
+  /**
+   * Sets the rules that decide navigations without a round trip to the navigation delegate.
+   *
+   * <p>See {@link NavigationPolicy#setRules}.
+   */
+  void setNavigationRules(List<Map<String, Object>> rules) {
+    navigationPolicy.setRules(rules);
   }
 
   @TargetApi(Build.VERSION_CODES.LOLLIPOP)
   private boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+        && request.isForMainFrame()
+        && request.isRedirect()
+        && !isPrerendering(view)) {
+      pageLoadMetrics.onRedirect();
+    }
+    int decision = navigationPolicy.evaluate(request.getUrl());
+    if (decision != NavigationPolicy.NO_MATCH) {
+      // A rule decided the navigation, there is no need to involve the Dart delegate. Unlike
+      // delegate decisions, rules can also prevent subframe navigations.
+      return decision == NavigationPolicy.PREVENT;
+    }
     if (!hasNavigationDelegate) {
       return false;
     }
@@ -56,6 +188,10 @@ class FlutterWebViewClient {
   }
 
   private boolean shouldOverrideUrlLoading(WebView view, String url) {
+    int decision = navigationPolicy.evaluate(Uri.parse(url));
+    if (decision != NavigationPolicy.NO_MATCH) {
+      return decision == NavigationPolicy.PREVENT;
+    }
     if (!hasNavigationDelegate) {
       return false;
     }
@@ -71,36 +207,156 @@ class FlutterWebViewClient {
     return true;
   }
 
-  private void onPageStarted(WebView view, String url) {
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+    // The requests of a hidden page don't count towards the visible one.
+    PageLoadMetrics.PageLoad pageLoad =
+        isPrerendering(view) ? null : pageLoadMetrics.onRequest(request);
+    for (RequestInterceptor interceptor : requestInterceptors) {
+      WebResourceResponse response = interceptor.intercept(view, request);
+      if (response != null) {
+        return pageLoad == null ? response : pageLoad.countBytes(response);
+      }
+    }
+    return null;
+  }
+
+  private void onPageStarted(final WebView view, final String url) {
+    if (deferWhilePrerendering(
+        view,
+        new Runnable() {
+          @Override
+          public void run() {
+            // The prerendered load wasn't measured, the swapped in page's remaining events aren't
+            // measured either.
+            pageLoadMetrics.onPrerenderShown();
+            dispatchPageStarted(view, url);
+          }
+        })) {
+      return;
+    }
+    pageLoadMetrics.onPageStarted(url);
+    dispatchPageStarted(view, url);
+  }
+
+  /** Called when a navigation starts natively, e.g. by `loadUrl`, outdating pending requests. */
+  void onNavigationStarted() {
+    navigationId++;
+    requestedNavigationUrl = null;
+  }
+
+  private void dispatchPageStarted(WebView view, String url) {
+    if (url.equals(requestedNavigationUrl)) {
+      requestedNavigationUrl = null;
+    } else {
+      onNavigationStarted();
+    }
+    for (PageLifecycleListener listener : pageLifecycleListeners) {
+      listener.onPageStarted(view, url);
+    }
+    if (eventStream != null) {
+      eventStream.pageStarted(url);
+      return;
+    }
     Map<String, Object> args = new HashMap<>();
     args.put("url", url);
     methodChannel.invokeMethod("onPageStarted", args);
   }
 
-  private void onPageFinished(WebView view, String url) {
+  private void onPageCommitVisible(WebView view, String url) {
+    // Replaying the event once shown would measure the time since the replayed onPageStarted.
+    if (isPrerendering(view)) {
+      return;
+    }
+    pageLoadMetrics.onPageCommitVisible();
+  }
+
+  private void onPageFinished(final WebView view, final String url) {
+    if (deferWhilePrerendering(
+        view,
+        new Runnable() {
+          @Override
+          public void run() {
+            dispatchPageFinished(view, url);
+          }
+        })) {
+      return;
+    }
+    pageLoadMetrics.onPageFinished(view);
+    dispatchPageFinished(view, url);
+  }
+
+  private void dispatchPageFinished(WebView view, String url) {
+    for (PageLifecycleListener listener : pageLifecycleListeners) {
+      listener.onPageFinished(view, url);
+    }
+    if (eventStream != null) {
+      eventStream.pageFinished(url);
+      return;
+    }
     Map<String, Object> args = new HashMap<>();
     args.put("url", url);
     methodChannel.invokeMethod("onPageFinished", args);
   }
 
-  private void onPageFailed(WebView view, String url, Map<String, Object> error) {
+  private void onReceivedHttpError(WebView view) {
+    // Prerendered loads aren't measured.
+    if (isPrerendering(view)) {
+      return;
+    }
+    pageLoadMetrics.onHttpError();
+  }
+
+  private void onPageFailed(
+      final WebView view, final String url, final Map<String, Object> error) {
+    if (deferWhilePrerendering(
+        view,
+        new Runnable() {
+          @Override
+          public void run() {
+            onPageFailed(view, url, error);
+          }
+        })) {
+      return;
+    }
+    if (eventStream != null) {
+      Object description = error.get("description");
+      eventStream.pageFailed(
+          url,
+          (String) error.get("type"),
+          (Integer) error.get("errorCode"),
+          description == null ? null : description.toString());
+      return;
+    }
     Map<String, Object> args = new HashMap<>();
     args.put("url", url);
     args.put("error", error);
     methodChannel.invokeMethod("onPageFailed", args);
   }
 
+  private boolean isPrerendering(WebView view) {
+    return prerenderer != null && prerenderer.isPrerendering(view);
+  }
+
+  // Returns whether `event` was buffered because `view` is a hidden prerender, it runs again once
+  // the webview is shown.
+  private boolean deferWhilePrerendering(WebView view, Runnable event) {
+    return prerenderer != null && prerenderer.defer(view, event);
+  }
+
   private void notifyOnNavigationRequest(
       String url, Map<String, String> headers, WebView webview, boolean isMainFrame) {
+    if (!isMainFrame) {
+      subframeNavigationReporter.report(url);
+      return;
+    }
     HashMap<String, Object> args = new HashMap<>();
     args.put("url", url);
-    args.put("isForMainFrame", isMainFrame);
-    if (isMainFrame) {
-      methodChannel.invokeMethod(
-          "navigationRequest", args, new OnNavigationRequestResult(url, headers, webview));
-    } else {
-      methodChannel.invokeMethod("navigationRequest", args);
-    }
+    args.put("isForMainFrame", true);
+    OnNavigationRequestResult result =
+        new OnNavigationRequestResult(++navigationId, url, headers, webview);
+    methodChannel.invokeMethod("navigationRequest", args, result);
+    result.startDeadline();
   }
 
   // This method attempts to avoid using WebViewClientCompat due to bug
@@ -109,13 +365,33 @@ class FlutterWebViewClient {
   WebViewClient createWebViewClient(boolean hasNavigationDelegate) {
     this.hasNavigationDelegate = hasNavigationDelegate;
 
-    if (!hasNavigationDelegate || android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+    if (!usesWebViewClientCompat(hasNavigationDelegate)) {
       return internalCreateWebViewClient();
     }
 
     return internalCreateWebViewClientCompat();
   }
 
+  /**
+   * Returns the client for `hasNavigationDelegate`, which is `current` when it already is of the
+   * right kind. The clients delegate to this instance, so only the kind depends on the setting.
+   *
+   * @param current null when the webview has no client of this instance yet
+   */
+  WebViewClient updateWebViewClient(WebViewClient current, boolean hasNavigationDelegate) {
+    if (current == null
+        || current instanceof WebViewClientCompat
+            != usesWebViewClientCompat(hasNavigationDelegate)) {
+      return createWebViewClient(hasNavigationDelegate);
+    }
+    this.hasNavigationDelegate = hasNavigationDelegate;
+    return current;
+  }
+
+  private static boolean usesWebViewClientCompat(boolean hasNavigationDelegate) {
+    return hasNavigationDelegate && Build.VERSION.SDK_INT < Build.VERSION_CODES.N;
+  }
+
   private WebViewClient internalCreateWebViewClient() {
     return new WebViewClient() {
       @TargetApi(Build.VERSION_CODES.N)
@@ -124,11 +400,30 @@ class FlutterWebViewClient {
         return FlutterWebViewClient.this.shouldOverrideUrlLoading(view, request);
       }
 
+      // Only invoked before N, where navigation rules still apply without a navigation delegate.
+      @Override
+      public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return FlutterWebViewClient.this.shouldOverrideUrlLoading(view, url);
+      }
+
+      @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+      @Override
+      public WebResourceResponse shouldInterceptRequest(
+          WebView view, WebResourceRequest request) {
+        return FlutterWebViewClient.this.shouldInterceptRequest(view, request);
+      }
+
       @Override
       public void onPageStarted(WebView view, String url, Bitmap favicon) {
         FlutterWebViewClient.this.onPageStarted(view, url);
       }
 
+      @TargetApi(Build.VERSION_CODES.M)
+      @Override
+      public void onPageCommitVisible(WebView view, String url) {
+        FlutterWebViewClient.this.onPageCommitVisible(view, url);
+      }
+
       @Override
       public void onPageFinished(WebView view, String url) {
         FlutterWebViewClient.this.onPageFinished(view, url);
@@ -160,6 +455,7 @@ class FlutterWebViewClient {
         Map<String, Object> dict = new HashMap<>();
         dict.put("type", "HttpError");
         dict.put("errorCode", errorResponse.getStatusCode());
+        FlutterWebViewClient.this.onReceivedHttpError(view);
         FlutterWebViewClient.this.onPageFailed(view, request.getUrl().toString(), dict);
       }
 
@@ -189,16 +485,35 @@ class FlutterWebViewClient {
         return FlutterWebViewClient.this.shouldOverrideUrlLoading(view, url);
       }
 
+      @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+      @Override
+      public WebResourceResponse shouldInterceptRequest(
+          WebView view, WebResourceRequest request) {
+        return FlutterWebViewClient.this.shouldInterceptRequest(view, request);
+      }
+
       @Override
       public void onPageStarted(WebView view, String url, Bitmap favicon) {
         FlutterWebViewClient.this.onPageStarted(view, url);
       }
 
+      @TargetApi(Build.VERSION_CODES.M)
+      @Override
+      public void onPageCommitVisible(WebView view, String url) {
+        FlutterWebViewClient.this.onPageCommitVisible(view, url);
+      }
+
       @Override
       public void onPageFinished(WebView view, String url) {
         FlutterWebViewClient.this.onPageFinished(view, url);
       }
 
+      @Override
+      public void onReceivedHttpError(
+          WebView view, WebResourceRequest request, WebResourceResponse errorResponse) {
+        FlutterWebViewClient.this.onReceivedHttpError(view);
+      }
+
       @Override
       public void onUnhandledKeyEvent(WebView view, KeyEvent event) {
         // Deliberately empty. Occasionally the webview will mark events as having failed to be
@@ -208,22 +523,65 @@ class FlutterWebViewClient {
     };
   }
 
-  private static class OnNavigationRequestResult implements MethodChannel.Result {
+  private class OnNavigationRequestResult implements MethodChannel.Result, Runnable {
+    private final int id;
     private final String url;
     private final Map<String, String> headers;
     private final WebView webView;
+    private final long requestedAt = SystemClock.uptimeMillis();
+    private boolean timedOut;
+    private boolean answered;
 
-    private OnNavigationRequestResult(String url, Map<String, String> headers, WebView webView) {
+    private OnNavigationRequestResult(
+        int id, String url, Map<String, String> headers, WebView webView) {
+      this.id = id;
       this.url = url;
       this.headers = headers;
       this.webView = webView;
     }
 
+    void startDeadline() {
+      if (decisionTimeoutMs > 0 && !answered) {
+        webView.postDelayed(this, decisionTimeoutMs);
+      }
+    }
+
+    // Runs when the deadline passes before the delegate decided.
+    @Override
+    public void run() {
+      if (answered) {
+        return;
+      }
+      timedOut = true;
+      timedOutDecisions++;
+      if (fallbackToNavigate && isLatestRequest()) {
+        loadUrl();
+      }
+    }
+
     @Override
     public void success(Object shouldLoad) {
+      answered = true;
+      webView.removeCallbacks(this);
+      decisions++;
+      decisionLatencies.add(SystemClock.uptimeMillis() - requestedAt);
+
       Boolean typedShouldLoad = (Boolean) shouldLoad;
+      if (!timedOut) {
+        if (typedShouldLoad) {
+          loadUrl();
+        }
+        return;
+      }
+      if (typedShouldLoad == fallbackToNavigate || !isLatestRequest()) {
+        return;
+      }
       if (typedShouldLoad) {
+        lateAllowedNavigations++;
         loadUrl();
+      } else {
+        lateRevertedNavigations++;
+        revert();
       }
     }
 
@@ -238,12 +596,30 @@ class FlutterWebViewClient {
           "navigationRequest must be implemented by the webview method channel");
     }
 
+    private boolean isLatestRequest() {
+      return id == navigationId;
+    }
+
     private void loadUrl() {
+      if (isLatestRequest()) {
+        requestedNavigationUrl = url;
+      }
       if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
         webView.loadUrl(url, headers);
       } else {
         webView.loadUrl(url);
       }
     }
+
+    // Undoes a navigation that was allowed by the deadline's fallback.
+    private void revert() {
+      if (!url.equals(webView.getUrl())) {
+        return;
+      }
+      webView.stopLoading();
+      if (webView.canGoBack()) {
+        webView.goBack();
+      }
+    }
   }
 }
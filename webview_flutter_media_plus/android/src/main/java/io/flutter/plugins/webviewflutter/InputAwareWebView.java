@@ -8,8 +8,6 @@ import static android.content.Context.INPUT_METHOD_SERVICE;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
@@ -20,8 +18,6 @@ import android.webkit.WebView;
 
 import androidx.annotation.Nullable;
 
-import java.util.Map;
-
 /**
  * A WebView subclass that mirrors the same implementation hacks that the system WebView does in
  * order to correctly create an InputConnection.
@@ -41,7 +37,6 @@ final class InputAwareWebView extends WebView {
 
   public InputAwareWebView(Context context, View containerView) {
     super(context);
-    addedJavascriptInterface = false;
     this.containerView = containerView;
   }
 
@@ -200,29 +195,7 @@ final class InputAwareWebView extends WebView {
   }
 
   ////// Taken from https://github.com/cprcrack/VideoEnabledWebView
-  public class JavascriptInterface
-  {
-    @android.webkit.JavascriptInterface @SuppressWarnings("unused")
-    public void notifyVideoEnd() // Must match Javascript interface method of VideoEnabledWebChromeClient
-    {
-      Log.d("___", "GOT IT");
-      // This code is not executed in the UI thread, so we must force that to happen
-      new Handler(Looper.getMainLooper()).post(new Runnable()
-      {
-        @Override
-        public void run()
-        {
-          if (videoEnabledWebChromeClient != null)
-          {
-            videoEnabledWebChromeClient.onHideCustomView();
-          }
-        }
-      });
-    }
-  }
-
   private VideoEnabledWebChromeClient videoEnabledWebChromeClient;
-  private boolean addedJavascriptInterface;
 
   /**
    * Indicates if the video is being displayed using a custom view (typically full-screen)
@@ -249,44 +222,4 @@ final class InputAwareWebView extends WebView {
 
     super.setWebChromeClient(client);
   }
-
-  @Override
-  public void loadData(String data, String mimeType, String encoding)
-  {
-    addJavascriptInterface();
-    super.loadData(data, mimeType, encoding);
-  }
-
-  @Override
-  public void loadDataWithBaseURL(String baseUrl, String data, String mimeType, String encoding, String historyUrl)
-  {
-    addJavascriptInterface();
-    super.loadDataWithBaseURL(baseUrl, data, mimeType, encoding, historyUrl);
-  }
-
-  @Override
-  public void loadUrl(String url)
-  {
-    addJavascriptInterface();
-    super.loadUrl(url);
-  }
-
-  @Override
-  public void loadUrl(String url, Map<String, String> additionalHttpHeaders)
-  {
-    addJavascriptInterface();
-    super.loadUrl(url, additionalHttpHeaders);
-  }
-
-  private void addJavascriptInterface()
-  {
-    if (!addedJavascriptInterface)
-    {
-      // Add javascript interface to be called when the video ends (must be done before page load)
-      //noinspection all
-      addJavascriptInterface(new JavascriptInterface(), "_VideoEnabledWebView"); // Must match Javascript interface name of VideoEnabledWebChromeClient
-
-      addedJavascriptInterface = true;
-    }
-  }
 }
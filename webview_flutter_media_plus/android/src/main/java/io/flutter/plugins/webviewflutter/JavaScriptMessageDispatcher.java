@@ -0,0 +1,410 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers the messages posted to a webview's {@link JavaScriptChannel}s to the Dart code.
+ *
+ * <p>Posted messages are queued and delivered on the platform thread. By default every message is
+ * sent with its own `javascriptChannelMessage` method call. When batching is enabled the queued
+ * messages are flushed as a single `javascriptChannelMessages` call holding the channel names and
+ * messages in posting order. The queue is flushed on the next frame, or after a fixed interval, and
+ * as soon as it holds {@link #capacity} messages.
+ *
+ * <p>Each channel can have a limit on the number of its messages waiting for delivery, and a policy
+ * for what happens to messages posted while it is reached, see {@link #setQueuePolicy}. Messages
+ * that are dropped or coalesced are counted and reported to the Dart code with a
+ * `javascriptChannelOverflow` method call after the next delivery.
+ *
+ * <p>{@link #dispatch} may be called from any thread, messages are always delivered on the
+ * platform thread.
+ */
+class JavaScriptMessageDispatcher {
+  static final int DEFAULT_CAPACITY = 256;
+
+  // The overflow policies, these match the indices of the Dart JavascriptChannelOverflowPolicy.
+  static final int POLICY_DROP_OLDEST = 0;
+  static final int POLICY_DROP_NEWEST = 1;
+  static final int POLICY_COALESCE_BY_KEY = 2;
+  static final int POLICY_BLOCK_JAVASCRIPT = 3;
+
+  // How long a JavaScript thread is blocked at most before its message is dropped.
+  private static final long MAX_BLOCK_MS = 1000;
+
+  private final MethodChannel methodChannel;
+  private final Handler platformThreadHandler;
+  private final boolean batching;
+  private final long flushIntervalMs;
+  private final int capacity;
+  // Null when messages are delivered with method channel calls.
+  private WebViewEventStream eventStream;
+
+  // Guarded by this.
+  private final ArrayDeque<PendingMessage> pendingMessages = new ArrayDeque<>();
+  private final Map<String, ChannelQueue> channelQueues = new HashMap<>();
+  private boolean deliveryScheduled;
+  private boolean overflowed;
+
+  private final Runnable deliverRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          deliver();
+        }
+      };
+
+  private final Runnable scheduleFrameDeliveryRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+      };
+
+  private final Choreographer.FrameCallback frameCallback =
+      new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          deliver();
+        }
+      };
+
+  /** Creates a dispatcher that sends every message right away. */
+  JavaScriptMessageDispatcher(MethodChannel methodChannel, Handler platformThreadHandler) {
+    this.methodChannel = methodChannel;
+    this.platformThreadHandler = platformThreadHandler;
+    this.batching = false;
+    this.flushIntervalMs = 0;
+    this.capacity = 0;
+  }
+
+  /**
+   * Creates a dispatcher that batches messages.
+   *
+   * @param flushIntervalMs how long messages are buffered for, 0 flushes them on the next frame
+   * @param capacity the number of buffered messages that triggers a flush regardless of the
+   *     interval
+   */
+  JavaScriptMessageDispatcher(
+      MethodChannel methodChannel,
+      Handler platformThreadHandler,
+      long flushIntervalMs,
+      int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The message buffer capacity must be positive");
+    }
+    this.methodChannel = methodChannel;
+    this.platformThreadHandler = platformThreadHandler;
+    this.batching = true;
+    this.flushIntervalMs = flushIntervalMs;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Creates a dispatcher as described by the `javascriptMessageBatching` creation parameter, or a
+   * non batching one when `config` is null.
+   */
+  static JavaScriptMessageDispatcher fromConfig(
+      MethodChannel methodChannel, Handler platformThreadHandler, Map<String, Object> config) {
+    if (config == null) {
+      return new JavaScriptMessageDispatcher(methodChannel, platformThreadHandler);
+    }
+    Number flushIntervalMs = (Number) config.get("flushIntervalMs");
+    Number capacity = (Number) config.get("capacity");
+    return new JavaScriptMessageDispatcher(
+        methodChannel,
+        platformThreadHandler,
+        flushIntervalMs == null ? 0 : flushIntervalMs.longValue(),
+        capacity == null ? DEFAULT_CAPACITY : capacity.intValue());
+  }
+
+  /**
+   * Limits the number of messages of `channel` that can wait for delivery.
+   *
+   * @param maxPendingMessages the limit, 0 for no limit
+   * @param overflowPolicy one of the `POLICY_` constants, what to do with a message posted while
+   *     the limit is reached
+   */
+  synchronized void setQueuePolicy(String channel, int maxPendingMessages, int overflowPolicy) {
+    if (overflowPolicy < POLICY_DROP_OLDEST || overflowPolicy > POLICY_BLOCK_JAVASCRIPT) {
+      throw new IllegalArgumentException("Unknown overflow policy: " + overflowPolicy);
+    }
+    ChannelQueue queue = channelQueue(channel);
+    queue.maxPendingMessages = maxPendingMessages;
+    queue.overflowPolicy = overflowPolicy;
+    notifyAll();
+  }
+
+  /**
+   * Applies the policies of a `javascriptChannelQueuePolicies` map, keyed by channel name with
+   * `maxPendingMessages` and `overflowPolicy` values. A null policy removes the channel's limit.
+   */
+  @SuppressWarnings("unchecked")
+  void setQueuePolicies(Map<String, Object> policies) {
+    for (Map.Entry<String, Object> entry : policies.entrySet()) {
+      Map<String, Object> policy = (Map<String, Object>) entry.getValue();
+      if (policy == null) {
+        setQueuePolicy(entry.getKey(), 0, POLICY_DROP_OLDEST);
+      } else {
+        setQueuePolicy(
+            entry.getKey(),
+            (Integer) policy.get("maxPendingMessages"),
+            (Integer) policy.get("overflowPolicy"));
+      }
+    }
+  }
+
+  /** Queues a message with no coalescing key, such messages are coalesced per channel. */
+  void dispatch(String channel, String message) {
+    dispatch(channel, message, null);
+  }
+
+  /**
+   * Queues a message for delivery.
+   *
+   * @param key messages of the same channel and key can replace each other when the channel uses
+   *     {@link #POLICY_COALESCE_BY_KEY}, may be null
+   */
+  void dispatch(String channel, String message, String key) {
+    boolean onPlatformThread = platformThreadHandler.getLooper() == Looper.myLooper();
+    synchronized (this) {
+      ChannelQueue queue = channelQueue(channel);
+      if (queue.isFull() && !makeRoom(queue, channel, message, key, onPlatformThread)) {
+        overflowed = true;
+        scheduleDelivery(false);
+        return;
+      }
+      pendingMessages.addLast(new PendingMessage(channel, message, key));
+      queue.pendingMessages++;
+      if (!batching && onPlatformThread && pendingMessages.size() == 1) {
+        // Nothing is waiting, deliver it without a trip through the looper.
+        deliveryScheduled = true;
+      } else {
+        scheduleDelivery(batching && pendingMessages.size() >= capacity);
+        return;
+      }
+    }
+    deliver();
+  }
+
+  /** Delivers messages through `eventStream` instead of with method channel calls. */
+  void setEventStream(WebViewEventStream eventStream) {
+    this.eventStream = eventStream;
+  }
+
+  /** Drops any queued message and stops pending deliveries. */
+  void dispose() {
+    platformThreadHandler.removeCallbacks(deliverRunnable);
+    platformThreadHandler.removeCallbacks(scheduleFrameDeliveryRunnable);
+    if (batching) {
+      Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+    synchronized (this) {
+      pendingMessages.clear();
+      channelQueues.clear();
+      notifyAll();
+    }
+  }
+
+  // Applies the channel's overflow policy, returns whether the new message should be queued.
+  private boolean makeRoom(
+      ChannelQueue queue, String channel, String message, String key, boolean onPlatformThread) {
+    switch (queue.overflowPolicy) {
+      case POLICY_DROP_OLDEST:
+        removeOldest(channel);
+        queue.dropped++;
+        overflowed = true;
+        return true;
+      case POLICY_DROP_NEWEST:
+        queue.dropped++;
+        return false;
+      case POLICY_COALESCE_BY_KEY:
+        for (PendingMessage pending : pendingMessages) {
+          if (pending.channel.equals(channel) && equalKeys(pending.key, key)) {
+            pending.message = message;
+            queue.coalesced++;
+            return false;
+          }
+        }
+        removeOldest(channel);
+        queue.dropped++;
+        overflowed = true;
+        return true;
+      case POLICY_BLOCK_JAVASCRIPT:
+        // The platform thread is the one draining the queue, it must never wait for it.
+        if (!onPlatformThread) {
+          long deadline = SystemClock.uptimeMillis() + MAX_BLOCK_MS;
+          long remaining = MAX_BLOCK_MS;
+          while (queue.isFull() && remaining > 0) {
+            scheduleDelivery(true);
+            try {
+              wait(remaining);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              break;
+            }
+            remaining = deadline - SystemClock.uptimeMillis();
+          }
+          if (!queue.isFull()) {
+            return true;
+          }
+        }
+        queue.dropped++;
+        return false;
+      default:
+        throw new IllegalStateException("Unknown overflow policy: " + queue.overflowPolicy);
+    }
+  }
+
+  private void removeOldest(String channel) {
+    Iterator<PendingMessage> iterator = pendingMessages.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().channel.equals(channel)) {
+        iterator.remove();
+        channelQueues.get(channel).pendingMessages--;
+        return;
+      }
+    }
+  }
+
+  // Must be called while holding the lock.
+  private void scheduleDelivery(boolean now) {
+    if (now) {
+      deliveryScheduled = true;
+      platformThreadHandler.removeCallbacks(deliverRunnable);
+      platformThreadHandler.post(deliverRunnable);
+      return;
+    }
+    if (deliveryScheduled) {
+      return;
+    }
+    deliveryScheduled = true;
+    if (!batching) {
+      platformThreadHandler.post(deliverRunnable);
+    } else if (flushIntervalMs > 0) {
+      platformThreadHandler.postDelayed(deliverRunnable, flushIntervalMs);
+    } else {
+      platformThreadHandler.post(scheduleFrameDeliveryRunnable);
+    }
+  }
+
+  private void deliver() {
+    List<PendingMessage> messages;
+    List<Map<String, Object>> overflows = null;
+    synchronized (this) {
+      deliveryScheduled = false;
+      messages = new ArrayList<>(pendingMessages);
+      pendingMessages.clear();
+      for (ChannelQueue queue : channelQueues.values()) {
+        queue.pendingMessages = 0;
+      }
+      if (overflowed) {
+        overflowed = false;
+        overflows = takeOverflows();
+      }
+      notifyAll();
+    }
+
+    if (eventStream != null) {
+      // The stream already sends everything emitted within a platform thread turn at once.
+      for (PendingMessage message : messages) {
+        eventStream.javascriptChannelMessage(message.channel, message.message);
+      }
+    } else if (batching && !messages.isEmpty()) {
+      List<String> channels = new ArrayList<>(messages.size());
+      List<String> texts = new ArrayList<>(messages.size());
+      for (PendingMessage message : messages) {
+        channels.add(message.channel);
+        texts.add(message.message);
+      }
+      Map<String, Object> arguments = new HashMap<>();
+      arguments.put("channels", channels);
+      arguments.put("messages", texts);
+      methodChannel.invokeMethod("javascriptChannelMessages", arguments);
+    } else {
+      for (PendingMessage message : messages) {
+        HashMap<String, String> arguments = new HashMap<>();
+        arguments.put("channel", message.channel);
+        arguments.put("message", message.message);
+        methodChannel.invokeMethod("javascriptChannelMessage", arguments);
+      }
+    }
+
+    if (overflows != null) {
+      for (Map<String, Object> overflow : overflows) {
+        methodChannel.invokeMethod("javascriptChannelOverflow", overflow);
+      }
+    }
+  }
+
+  // Must be called while holding the lock.
+  private List<Map<String, Object>> takeOverflows() {
+    List<Map<String, Object>> overflows = new ArrayList<>();
+    for (Map.Entry<String, ChannelQueue> entry : channelQueues.entrySet()) {
+      ChannelQueue queue = entry.getValue();
+      if (queue.dropped == 0 && queue.coalesced == 0) {
+        continue;
+      }
+      Map<String, Object> overflow = new HashMap<>();
+      overflow.put("channel", entry.getKey());
+      overflow.put("dropped", queue.dropped);
+      overflow.put("coalesced", queue.coalesced);
+      overflows.add(overflow);
+      queue.dropped = 0;
+      queue.coalesced = 0;
+    }
+    return overflows;
+  }
+
+  // Must be called while holding the lock.
+  private ChannelQueue channelQueue(String channel) {
+    ChannelQueue queue = channelQueues.get(channel);
+    if (queue == null) {
+      queue = new ChannelQueue();
+      channelQueues.put(channel, queue);
+    }
+    return queue;
+  }
+
+  private static boolean equalKeys(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  private static class PendingMessage {
+    final String channel;
+    final String key;
+    String message;
+
+    PendingMessage(String channel, String message, String key) {
+      this.channel = channel;
+      this.message = message;
+      this.key = key;
+    }
+  }
+
+  private static class ChannelQueue {
+    int maxPendingMessages;
+    int overflowPolicy = POLICY_DROP_OLDEST;
+    int pendingMessages;
+    int dropped;
+    int coalesced;
+
+    boolean isFull() {
+      return maxPendingMessages > 0 && pendingMessages >= maxPendingMessages;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a fixed size ring buffer and computes percentiles over
+ * them.
+ */
+class LatencySamples {
+  private final long[] samples;
+  private int next;
+  private int size;
+
+  LatencySamples(int capacity) {
+    samples = new long[capacity];
+  }
+
+  void add(long latencyMs) {
+    samples[next] = latencyMs;
+    next = (next + 1) % samples.length;
+    size = Math.min(size + 1, samples.length);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the given percentiles, in the same order, using the nearest rank method.
+   *
+   * <p>All percentiles are 0 when there are no samples.
+   */
+  long[] percentiles(double... percentiles) {
+    long[] values = new long[percentiles.length];
+    if (size == 0) {
+      return values;
+    }
+    long[] sorted = Arrays.copyOf(samples, size);
+    Arrays.sort(sorted);
+    for (int i = 0; i < percentiles.length; i++) {
+      int rank = (int) Math.ceil(percentiles[i] / 100 * size);
+      values[i] = sorted[Math.max(0, Math.min(size, rank) - 1)];
+    }
+    return values;
+  }
+}
@@ -0,0 +1,201 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.webkit.ValueCallback;
+import android.webkit.WebView;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Suspends a webview while it is hidden or the app is in the background, and resumes it once it is
+ * visible again.
+ *
+ * <p>Suspending pauses the page's playing `<video>` and `<audio>` elements with an injected script
+ * and pauses the webview with {@link WebView#onPause}. Resuming plays the elements that were
+ * paused by the suspension again, media paused by the user stays paused. Pages that finish loading
+ * while suspended are paused as well. The {@link MediaSuspensionCoordinator} pauses the JavaScript
+ * timers once all webviews are suspended.
+ *
+ * <p>Visibility within the app, e.g. a webview scrolled away or in an inactive tab, is set by Dart.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+class MediaSuspender implements FlutterWebViewClient.PageLifecycleListener {
+  // Evaluates to the number of elements paused.
+  private static final String PAUSE_SCRIPT =
+      "(function() {"
+          + "var media = document.querySelectorAll('video, audio'), paused = 0;"
+          + "for (var i = 0; i < media.length; i++) {"
+          + "  if (!media[i].paused && !media[i].ended) {"
+          + "    media[i].__flutterSuspended = true;"
+          + "    media[i].pause();"
+          + "    paused++;"
+          + "  }"
+          + "}"
+          + "return paused;"
+          + "})();";
+
+  // Evaluates to the number of elements resumed.
+  private static final String RESUME_SCRIPT =
+      "(function() {"
+          + "var media = document.querySelectorAll('video, audio'), resumed = 0;"
+          + "for (var i = 0; i < media.length; i++) {"
+          + "  if (media[i].__flutterSuspended) {"
+          + "    delete media[i].__flutterSuspended;"
+          + "    var playing = media[i].play();"
+          + "    if (playing && playing.catch) { playing.catch(function() {}); }"
+          + "    resumed++;"
+          + "  }"
+          + "}"
+          + "return resumed;"
+          + "})();";
+
+  private final MediaSuspensionCoordinator coordinator;
+  private final boolean enabled;
+  private WebView webView;
+  private boolean visible = true;
+  private boolean suspended;
+  private long suspendedAt;
+  private int suspensions;
+  private long suspendedMs;
+  private int pausedMedia;
+  private int resumedMedia;
+
+  /**
+   * @param enabled whether the webview is suspended at all, a webview that isn't still keeps the
+   *     JavaScript timers of all webviews running
+   */
+  MediaSuspender(MediaSuspensionCoordinator coordinator, WebView webView, boolean enabled) {
+    this.coordinator = coordinator;
+    this.webView = webView;
+    this.enabled = enabled;
+    coordinator.register(this);
+    update();
+  }
+
+  WebView getWebView() {
+    return webView;
+  }
+
+  boolean isSuspended() {
+    return suspended;
+  }
+
+  /** Sets whether the webview is visible within the app. */
+  void setVisible(boolean visible) {
+    this.visible = visible;
+    update();
+  }
+
+  /** Suspends or resumes the webview when its visibility or the app's changed. */
+  void update() {
+    boolean suspend = enabled && (!visible || !coordinator.isInForeground());
+    if (suspend == suspended) {
+      return;
+    }
+    suspended = suspend;
+    if (suspend) {
+      suspensions++;
+      suspendedAt = SystemClock.uptimeMillis();
+      pauseMedia();
+      webView.onPause();
+    } else {
+      suspendedMs += SystemClock.uptimeMillis() - suspendedAt;
+      webView.onResume();
+    }
+    // Resumes the timers before the media plays again.
+    coordinator.update(this);
+    if (!suspend) {
+      evaluate(
+          RESUME_SCRIPT,
+          new ValueCallback<String>() {
+            @Override
+            public void onReceiveValue(String resumed) {
+              resumedMedia += parseCount(resumed);
+            }
+          });
+    }
+  }
+
+  /** Moves the suspension to the webview replacing the current one, e.g. a prerendered one. */
+  void setWebView(WebView webView) {
+    if (suspended) {
+      this.webView.onResume();
+      webView.onPause();
+    }
+    this.webView = webView;
+    if (suspended) {
+      pauseMedia();
+    }
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url) {}
+
+  @Override
+  public void onPageFinished(WebView view, String url) {
+    if (suspended) {
+      // Pages that autoplay would otherwise play while hidden.
+      pauseMedia();
+    }
+  }
+
+  Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("suspended", suspended);
+    stats.put("suspensions", suspensions);
+    stats.put(
+        "suspendedMs",
+        suspendedMs + (suspended ? SystemClock.uptimeMillis() - suspendedAt : 0));
+    stats.put("pausedMedia", pausedMedia);
+    stats.put("resumedMedia", resumedMedia);
+    stats.put("timersPausedMs", coordinator.getTimersPausedMs());
+    return stats;
+  }
+
+  /** Resumes the webview, so that it can be reused, and stops following the app's visibility. */
+  void dispose() {
+    if (suspended) {
+      suspended = false;
+      webView.onResume();
+    }
+    coordinator.unregister(this);
+  }
+
+  private void pauseMedia() {
+    evaluate(
+        PAUSE_SCRIPT,
+        new ValueCallback<String>() {
+          @Override
+          public void onReceiveValue(String paused) {
+            pausedMedia += parseCount(paused);
+          }
+        });
+  }
+
+  private void evaluate(String script, ValueCallback<String> callback) {
+    if (!webView.getSettings().getJavaScriptEnabled()) {
+      return;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      webView.evaluateJavascript(script, callback);
+    } else {
+      // Without a result, the media counters aren't updated. The result must be discarded, or it
+      // would replace the page.
+      webView.loadUrl("javascript:void " + script);
+    }
+  }
+
+  private static int parseCount(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
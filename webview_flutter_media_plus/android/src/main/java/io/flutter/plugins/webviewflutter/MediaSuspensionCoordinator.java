@@ -0,0 +1,152 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.webkit.WebView;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Tracks whether the app is in the foreground for the {@link MediaSuspender} of every webview, and
+ * pauses the JavaScript timers of all webviews while all of them are suspended.
+ *
+ * <p>{@link android.webkit.WebView#pauseTimers} applies to every webview of the process, so it is
+ * only safe once no webview needs its timers. Webviews that don't suspend their media never get
+ * suspended, and keep the timers running. Hidden prerendered webviews have no {@link
+ * MediaSuspender} but are loading their page, the timers keep running while any of them is live.
+ * Idle webviews of the {@link WebViewPool} have no page, and get a suspender once acquired.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+class MediaSuspensionCoordinator {
+  private final Application application;
+  private final Set<MediaSuspender> suspenders = new LinkedHashSet<>();
+  private final Set<WebView> prerenderingWebViews = new LinkedHashSet<>();
+  // Activities started minus stopped since the coordinator was created, the activity that is
+  // already started then is counted once it stops.
+  private int startedActivities;
+  private boolean inForeground = true;
+  private boolean timersPaused;
+  private long timersPausedAt;
+  private long timersPausedMs;
+
+  private final Application.ActivityLifecycleCallbacks activityCallbacks =
+      new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityStarted(Activity activity) {
+          startedActivities = Math.max(startedActivities, 0) + 1;
+          setInForeground(true);
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+          if (--startedActivities <= 0) {
+            startedActivities = 0;
+            setInForeground(false);
+          }
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+        @Override
+        public void onActivityResumed(Activity activity) {}
+
+        @Override
+        public void onActivityPaused(Activity activity) {}
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {}
+      };
+
+  MediaSuspensionCoordinator(Context applicationContext) {
+    application = (Application) applicationContext;
+    application.registerActivityLifecycleCallbacks(activityCallbacks);
+  }
+
+  boolean isInForeground() {
+    return inForeground;
+  }
+
+  void register(MediaSuspender suspender) {
+    suspenders.add(suspender);
+    update(suspender);
+  }
+
+  /** Must be called while the suspender's webview can still resume the timers. */
+  void unregister(MediaSuspender suspender) {
+    suspenders.remove(suspender);
+    update(suspender);
+  }
+
+  /** Keeps the timers running while `webView` is prerendering a page. */
+  void addPrerender(WebView webView) {
+    prerenderingWebViews.add(webView);
+    update(webView);
+  }
+
+  /** Must be called while `webView` can still resume the timers, before it is released. */
+  void removePrerender(WebView webView) {
+    if (prerenderingWebViews.remove(webView)) {
+      update(webView);
+    }
+  }
+
+  /**
+   * Pauses or resumes the timers of all webviews after `changed` was suspended, resumed or
+   * unregistered.
+   */
+  void update(MediaSuspender changed) {
+    update(changed.getWebView());
+  }
+
+  /** The time the timers of all webviews were paused, including the ongoing pause. */
+  long getTimersPausedMs() {
+    return timersPausedMs + (timersPaused ? SystemClock.uptimeMillis() - timersPausedAt : 0);
+  }
+
+  void dispose() {
+    application.unregisterActivityLifecycleCallbacks(activityCallbacks);
+    suspenders.clear();
+    prerenderingWebViews.clear();
+  }
+
+  private void update(WebView webView) {
+    boolean allSuspended = !suspenders.isEmpty() && prerenderingWebViews.isEmpty();
+    for (MediaSuspender suspender : suspenders) {
+      allSuspended &= suspender.isSuspended();
+    }
+    if (allSuspended == timersPaused) {
+      return;
+    }
+    timersPaused = allSuspended;
+    // The timers are global, any webview pauses and resumes them for all.
+    if (allSuspended) {
+      webView.pauseTimers();
+      timersPausedAt = SystemClock.uptimeMillis();
+    } else {
+      webView.resumeTimers();
+      timersPausedMs += SystemClock.uptimeMillis() - timersPausedAt;
+    }
+  }
+
+  private void setInForeground(boolean inForeground) {
+    if (this.inForeground == inForeground) {
+      return;
+    }
+    this.inForeground = inForeground;
+    for (MediaSuspender suspender : suspenders) {
+      suspender.update();
+    }
+  }
+}
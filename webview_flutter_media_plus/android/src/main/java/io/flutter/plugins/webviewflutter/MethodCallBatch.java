@@ -0,0 +1,157 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs an ordered list of method calls against a {@link MethodCallHandler} and replies once with
+ * the outcome of every call.
+ *
+ * <p>Calls are dispatched in order on the calling thread. Calls that reply synchronously are all
+ * handled within the same pass, calls that reply asynchronously (e.g. `evaluateJavascript`) are
+ * collected as their replies arrive.
+ *
+ * <p>When `stopOnError` is set, a call is only dispatched once the previous call has replied
+ * successfully, the remaining calls are reported as skipped after the first failure. Otherwise all
+ * calls are dispatched right away regardless of the outcome of the previous ones.
+ *
+ * <p>Every call is reported with a map holding a `status` of `success`, `error`, `notImplemented`
+ * or `skipped`, along with the `result`, or the error's `code`, `message` and `details`.
+ */
+class MethodCallBatch {
+  private static final String METHOD = "batch";
+
+  private final MethodCallHandler handler;
+  private final List<MethodCall> calls;
+  private final boolean stopOnError;
+  private final Result result;
+  private final Object[] replies;
+
+  private int next;
+  private int pending;
+  private boolean failed;
+  private boolean dispatching;
+
+  @SuppressWarnings("unchecked")
+  MethodCallBatch(MethodCallHandler handler, MethodCall batchCall, Result result) {
+    Map<String, Object> arguments = (Map<String, Object>) batchCall.arguments;
+    List<Map<String, Object>> commands = (List<Map<String, Object>>) arguments.get("commands");
+    Boolean stopOnError = (Boolean) arguments.get("stopOnError");
+
+    this.handler = handler;
+    this.calls = new ArrayList<>(commands.size());
+    for (Map<String, Object> command : commands) {
+      calls.add(new MethodCall((String) command.get("method"), command.get("arguments")));
+    }
+    this.stopOnError = stopOnError == null || stopOnError;
+    this.result = result;
+    this.replies = new Object[calls.size()];
+    this.pending = calls.size();
+  }
+
+  void run() {
+    if (pending == 0) {
+      result.success(new ArrayList<>());
+      return;
+    }
+    dispatch();
+  }
+
+  private void dispatch() {
+    dispatching = true;
+    while (next < calls.size()) {
+      int index = next++;
+      if (failed && stopOnError) {
+        complete(index, reply("skipped"), false);
+        continue;
+      }
+
+      MethodCall call = calls.get(index);
+      CallResult callResult = new CallResult(index);
+      if (METHOD.equals(call.method)) {
+        callResult.error("nestedBatch", "A batch cannot contain another batch", null);
+      } else {
+        try {
+          handler.onMethodCall(call, callResult);
+        } catch (RuntimeException e) {
+          callResult.error(e.getClass().getSimpleName(), e.getMessage(), null);
+        }
+      }
+
+      if (stopOnError && !callResult.completed) {
+        // Resumed from the call's reply.
+        break;
+      }
+    }
+    dispatching = false;
+  }
+
+  private void complete(int index, Map<String, Object> reply, boolean isError) {
+    replies[index] = reply;
+    failed |= isError;
+    pending--;
+    if (pending == 0) {
+      result.success(Arrays.asList(replies));
+    } else if (stopOnError && !dispatching) {
+      dispatch();
+    }
+  }
+
+  private static Map<String, Object> reply(String status) {
+    Map<String, Object> reply = new HashMap<>();
+    reply.put("status", status);
+    return reply;
+  }
+
+  private class CallResult implements Result {
+    private final int index;
+    private boolean completed;
+
+    CallResult(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void success(Object value) {
+      if (completed) {
+        return;
+      }
+      completed = true;
+      Map<String, Object> reply = reply("success");
+      reply.put("result", value);
+      complete(index, reply, false);
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+      if (completed) {
+        return;
+      }
+      completed = true;
+      Map<String, Object> reply = reply("error");
+      reply.put("code", errorCode);
+      reply.put("message", errorMessage);
+      reply.put("details", errorDetails);
+      complete(index, reply, true);
+    }
+
+    @Override
+    public void notImplemented() {
+      if (completed) {
+        return;
+      }
+      completed = true;
+      complete(index, reply("notImplemented"), true);
+    }
+  }
+}
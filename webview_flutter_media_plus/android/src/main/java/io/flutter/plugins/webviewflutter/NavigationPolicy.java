@@ -0,0 +1,147 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An ordered list of navigation rules that lets {@link FlutterWebViewClient} decide navigations
+ * without asking the Dart navigation delegate.
+ *
+ * <p>A rule matches a URL when all of its conditions match: the URL's scheme is one of the rule's
+ * schemes, its host equals the rule's host (or is a subdomain of it when the host starts with
+ * `*.`), its path starts with the rule's path prefix, and the rule's pattern is found in the URL.
+ * Conditions a rule doesn't set always match. The first matching rule decides the navigation.
+ *
+ * <p>Rules are set and evaluated on the platform thread.
+ */
+class NavigationPolicy {
+  /** No rule matched the URL, the navigation delegate decides. */
+  static final int NO_MATCH = -1;
+  // Indices of the NavigationDecision enum.
+  static final int PREVENT = 0;
+  static final int NAVIGATE = 1;
+
+  private List<Rule> rules = Collections.emptyList();
+
+  /**
+   * Replaces the rules with the ones described by `rules`.
+   *
+   * <p>Every rule is a map with a `decision` and optional `schemes`, `host`, `pathPrefix` and
+   * `pattern` entries.
+   *
+   * @throws IllegalArgumentException if a rule's pattern is not a valid regular expression, the
+   *     rules are left unchanged then
+   */
+  @SuppressWarnings("unchecked")
+  void setRules(List<Map<String, Object>> rules) {
+    if (rules == null || rules.isEmpty()) {
+      this.rules = Collections.emptyList();
+      return;
+    }
+    List<Rule> compiled = new ArrayList<>(rules.size());
+    for (Map<String, Object> rule : rules) {
+      compiled.add(
+          new Rule(
+              (Integer) rule.get("decision"),
+              (List<String>) rule.get("schemes"),
+              (String) rule.get("host"),
+              (String) rule.get("pathPrefix"),
+              (String) rule.get("pattern")));
+    }
+    this.rules = compiled;
+  }
+
+  /** Returns the decision of the first rule matching `url`, or {@link #NO_MATCH}. */
+  int evaluate(Uri url) {
+    if (rules.isEmpty()) {
+      return NO_MATCH;
+    }
+    String urlString = url.toString();
+    for (Rule rule : rules) {
+      if (rule.matches(url, urlString)) {
+        return rule.decision;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  private static class Rule {
+    private static final String WILDCARD_PREFIX = "*.";
+
+    final int decision;
+    final Set<String> schemes;
+    final String host;
+    final boolean includeSubdomains;
+    final String pathPrefix;
+    final Pattern pattern;
+
+    Rule(int decision, List<String> schemes, String host, String pathPrefix, String pattern) {
+      if (decision != PREVENT && decision != NAVIGATE) {
+        throw new IllegalArgumentException("Unknown navigation decision: " + decision);
+      }
+      this.decision = decision;
+      if (schemes == null) {
+        this.schemes = null;
+      } else {
+        this.schemes = new HashSet<>();
+        for (String scheme : schemes) {
+          this.schemes.add(scheme.toLowerCase(Locale.US));
+        }
+      }
+      if (host != null && host.startsWith(WILDCARD_PREFIX)) {
+        this.host = host.substring(WILDCARD_PREFIX.length()).toLowerCase(Locale.US);
+        this.includeSubdomains = true;
+      } else {
+        this.host = host == null ? null : host.toLowerCase(Locale.US);
+        this.includeSubdomains = false;
+      }
+      this.pathPrefix = pathPrefix;
+      // Throws a PatternSyntaxException, which is an IllegalArgumentException.
+      this.pattern = pattern == null ? null : Pattern.compile(pattern);
+    }
+
+    boolean matches(Uri url, String urlString) {
+      if (schemes != null) {
+        String scheme = url.getScheme();
+        if (scheme == null || !schemes.contains(scheme.toLowerCase(Locale.US))) {
+          return false;
+        }
+      }
+      if (host != null && !matchesHost(url.getHost())) {
+        return false;
+      }
+      if (pathPrefix != null) {
+        String path = url.getPath();
+        if (path == null || !path.startsWith(pathPrefix)) {
+          return false;
+        }
+      }
+      return pattern == null || pattern.matcher(urlString).find();
+    }
+
+    private boolean matchesHost(String urlHost) {
+      if (urlHost == null) {
+        return false;
+      }
+      if (urlHost.equalsIgnoreCase(host)) {
+        return true;
+      }
+      // "*.example.com" matches "a.example.com" but not "badexample.com".
+      return includeSubdomains
+          && urlHost.length() > host.length()
+          && urlHost.charAt(urlHost.length() - host.length() - 1) == '.'
+          && urlHost.regionMatches(true, urlHost.length() - host.length(), host, 0, host.length());
+    }
+  }
+}
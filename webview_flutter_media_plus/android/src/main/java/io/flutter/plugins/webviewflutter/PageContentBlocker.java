@@ -0,0 +1,104 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The content blocking stage of a single webview.
+ *
+ * <p>Answers the requests matching the {@link ContentBlocker}'s filter list with an empty response,
+ * and reports how many requests were blocked on the current page with `onContentBlocked` calls.
+ * Reports are coalesced, at most one is sent per interval and one when the page finishes loading.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class PageContentBlocker
+    implements RequestInterceptor, FlutterWebViewClient.PageLifecycleListener {
+  private static final long REPORT_INTERVAL_MS = 500;
+
+  private final ContentBlocker contentBlocker;
+  private final MethodChannel methodChannel;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  // Updated on the WebView's network threads.
+  private final AtomicInteger blockedOnPage = new AtomicInteger();
+  private final AtomicBoolean reportScheduled = new AtomicBoolean();
+  // Only accessed on the platform thread.
+  private String pageUrl;
+  private int reportedCount;
+
+  private final Runnable report =
+      new Runnable() {
+        @Override
+        public void run() {
+          reportScheduled.set(false);
+          sendReport();
+        }
+      };
+
+  PageContentBlocker(ContentBlocker contentBlocker, MethodChannel methodChannel) {
+    this.contentBlocker = contentBlocker;
+    this.methodChannel = methodChannel;
+  }
+
+  @Override
+  public WebResourceResponse intercept(WebView view, WebResourceRequest request) {
+    if (!contentBlocker.shouldBlock(request)) {
+      return null;
+    }
+    blockedOnPage.incrementAndGet();
+    if (reportScheduled.compareAndSet(false, true)) {
+      handler.postDelayed(report, REPORT_INTERVAL_MS);
+    }
+    return new WebResourceResponse(
+        "text/plain",
+        "utf-8",
+        204,
+        "No Content",
+        new HashMap<String, String>(),
+        new ByteArrayInputStream(new byte[0]));
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url) {
+    // Settles the previous page's count before starting over.
+    sendReport();
+    pageUrl = url;
+    blockedOnPage.set(0);
+    reportedCount = 0;
+  }
+
+  @Override
+  public void onPageFinished(WebView view, String url) {
+    sendReport();
+  }
+
+  void dispose() {
+    handler.removeCallbacks(report);
+  }
+
+  private void sendReport() {
+    int blocked = blockedOnPage.get();
+    if (pageUrl == null || blocked == reportedCount) {
+      return;
+    }
+    reportedCount = blocked;
+    Map<String, Object> args = new HashMap<>();
+    args.put("url", pageUrl);
+    args.put("blockedCount", blocked);
+    methodChannel.invokeMethod("onContentBlocked", args);
+  }
+}
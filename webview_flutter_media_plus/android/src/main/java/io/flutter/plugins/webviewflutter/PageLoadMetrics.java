@@ -0,0 +1,293 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.webkit.ValueCallback;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Measures the page loads of a webview.
+ *
+ * <p>Every main frame navigation is measured from `onPageStarted` to `onPageCommitVisible` and to
+ * `onPageFinished`, and counts the requests the page made, the bytes served by the request
+ * interceptors, the HTTP errors and the redirects it went through. When reporting is enabled, the
+ * page's Navigation Timing values are read once it finished loading, and the record is sent to Dart
+ * with an `onPagePerformance` call. The aggregate of the most recent page loads is kept either way.
+ * Pages loaded by a prerendered webview aren't measured.
+ *
+ * <p>All methods but {@link #onRequest} must be called on the platform thread.
+ */
+class PageLoadMetrics {
+  private static final int LATENCY_SAMPLES = 64;
+
+  // Returns the Navigation Timing values relative to the navigation's start, values that weren't
+  // reached yet are left for the platform to drop.
+  private static final String NAVIGATION_TIMING_SCRIPT =
+      "(function() {"
+          + "  var performance = window.performance;"
+          + "  if (!performance || !performance.timing) {"
+          + "    return null;"
+          + "  }"
+          + "  var timing = performance.timing;"
+          + "  var start = timing.navigationStart;"
+          + "  var values = {"
+          + "    responseStart: timing.responseStart - start,"
+          + "    domInteractive: timing.domInteractive - start,"
+          + "    domContentLoaded: timing.domContentLoadedEventEnd - start,"
+          + "    loadEvent: timing.loadEventEnd - start"
+          + "  };"
+          + "  if (performance.getEntriesByName) {"
+          + "    var paints = performance.getEntriesByName('first-contentful-paint');"
+          + "    if (paints.length > 0) {"
+          + "      values.firstContentfulPaint = Math.round(paints[0].startTime);"
+          + "    }"
+          + "  }"
+          + "  return values;"
+          + "})()";
+
+  private final MethodChannel methodChannel;
+  private final LatencySamples commitLatencies = new LatencySamples(LATENCY_SAMPLES);
+  private final LatencySamples finishLatencies = new LatencySamples(LATENCY_SAMPLES);
+  private boolean reportEnabled;
+  // Read from the WebView's network threads.
+  private volatile PageLoad current;
+  private boolean redirectPending;
+  private int pageLoads;
+  private long subresources;
+  // Updated on the WebView's network threads, including after the page load finished.
+  private final AtomicLong interceptedBytes = new AtomicLong();
+  private long httpErrors;
+  private long redirects;
+
+  PageLoadMetrics(MethodChannel methodChannel) {
+    this.methodChannel = methodChannel;
+  }
+
+  /** Sets whether a record of every page load is sent to Dart. */
+  void setReportEnabled(boolean reportEnabled) {
+    this.reportEnabled = reportEnabled;
+  }
+
+  void onPageStarted(String url) {
+    PageLoad load = current;
+    if (load != null && redirectPending && load.finishedAt < 0) {
+      // The page that redirected never finished, keep measuring from its start.
+      load.url = url;
+    } else {
+      current = new PageLoad(url);
+    }
+    redirectPending = false;
+  }
+
+  /**
+   * Stops measuring the current page load when a prerendered page is swapped in. Its events were
+   * buffered and are replayed back to back, they don't reflect its load times.
+   */
+  void onPrerenderShown() {
+    current = null;
+    redirectPending = false;
+  }
+
+  void onPageCommitVisible() {
+    PageLoad load = current;
+    if (load != null && load.committedAt < 0) {
+      load.committedAt = SystemClock.uptimeMillis();
+    }
+  }
+
+  void onRedirect() {
+    PageLoad load = current;
+    if (load != null && load.finishedAt < 0) {
+      load.redirects++;
+      redirectPending = true;
+    }
+  }
+
+  void onHttpError() {
+    PageLoad load = current;
+    if (load != null) {
+      load.httpErrors.incrementAndGet();
+    }
+  }
+
+  /**
+   * Counts a request of the current page. Called on the WebView's network threads.
+   *
+   * @return the page load the request belongs to, null when no page started loading yet
+   */
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  PageLoad onRequest(WebResourceRequest request) {
+    PageLoad load = current;
+    if (load != null && !request.isForMainFrame()) {
+      load.subresources.incrementAndGet();
+    }
+    return load;
+  }
+
+  void onPageFinished(WebView view) {
+    final PageLoad load = current;
+    if (load == null || load.finishedAt >= 0) {
+      return;
+    }
+    load.finishedAt = SystemClock.uptimeMillis();
+    pageLoads++;
+    if (load.committedAt >= 0) {
+      commitLatencies.add(load.committedAt - load.startedAt);
+    }
+    finishLatencies.add(load.finishedAt - load.startedAt);
+    subresources += load.subresources.get();
+    httpErrors += load.httpErrors.get();
+    redirects += load.redirects;
+
+    if (!reportEnabled) {
+      return;
+    }
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+      report(load, null);
+      return;
+    }
+    evaluateNavigationTiming(view, load);
+  }
+
+  /** Returns the aggregate of the most recent page loads. */
+  Map<String, Object> getStats() {
+    long[] commit = commitLatencies.percentiles(50, 90);
+    long[] finish = finishLatencies.percentiles(50, 90);
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("pageLoads", pageLoads);
+    stats.put("commitP50Ms", commit[0]);
+    stats.put("commitP90Ms", commit[1]);
+    stats.put("finishP50Ms", finish[0]);
+    stats.put("finishP90Ms", finish[1]);
+    stats.put("subresources", subresources);
+    stats.put("interceptedBytes", interceptedBytes.get());
+    stats.put("httpErrors", httpErrors);
+    stats.put("redirects", redirects);
+    return stats;
+  }
+
+  @TargetApi(Build.VERSION_CODES.KITKAT)
+  private void evaluateNavigationTiming(WebView view, final PageLoad load) {
+    view.evaluateJavascript(
+        NAVIGATION_TIMING_SCRIPT,
+        new ValueCallback<String>() {
+          @Override
+          public void onReceiveValue(String value) {
+            report(load, parseNavigationTiming(value));
+          }
+        });
+  }
+
+  private void report(PageLoad load, Map<String, Object> navigationTiming) {
+    Map<String, Object> args = new HashMap<>();
+    args.put("url", load.url);
+    if (load.committedAt >= 0) {
+      args.put("commitMs", load.committedAt - load.startedAt);
+    }
+    args.put("finishMs", load.finishedAt - load.startedAt);
+    args.put("subresources", load.subresources.get());
+    args.put("interceptedBytes", load.interceptedBytes.get());
+    args.put("httpErrors", load.httpErrors.get());
+    args.put("redirects", load.redirects);
+    args.put("navigationTiming", navigationTiming);
+    methodChannel.invokeMethod("onPagePerformance", args);
+  }
+
+  // Returns the positive values of the script's result, or null when there are none.
+  private static Map<String, Object> parseNavigationTiming(String json) {
+    if (json == null || json.equals("null")) {
+      return null;
+    }
+    try {
+      JSONObject values = new JSONObject(json);
+      Map<String, Object> timing = new HashMap<>();
+      Iterator<String> keys = values.keys();
+      while (keys.hasNext()) {
+        String key = keys.next();
+        long value = values.getLong(key);
+        if (value > 0) {
+          timing.put(key, value);
+        }
+      }
+      return timing.isEmpty() ? null : timing;
+    } catch (JSONException e) {
+      return null;
+    }
+  }
+
+  /** A main frame navigation being measured. */
+  class PageLoad {
+    private final long startedAt = SystemClock.uptimeMillis();
+    private final AtomicInteger subresources = new AtomicInteger();
+    private final AtomicInteger httpErrors = new AtomicInteger();
+    private final AtomicLong interceptedBytes = new AtomicLong();
+    private String url;
+    private long committedAt = -1;
+    private long finishedAt = -1;
+    private int redirects;
+
+    private PageLoad(String url) {
+      this.url = url;
+    }
+
+    /** Counts the body bytes of `response` as the WebView reads them. */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    WebResourceResponse countBytes(WebResourceResponse response) {
+      InputStream data = response.getData();
+      if (data != null) {
+        response.setData(new CountingInputStream(data, this));
+      }
+      return response;
+    }
+
+    private void addInterceptedBytes(long count) {
+      interceptedBytes.addAndGet(count);
+      PageLoadMetrics.this.interceptedBytes.addAndGet(count);
+    }
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    private final PageLoad load;
+
+    CountingInputStream(InputStream in, PageLoad load) {
+      super(in);
+      this.load = load;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+      if (value >= 0) {
+        load.addInterceptedBytes(1);
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int count = super.read(bytes, offset, length);
+      if (count > 0) {
+        load.addInterceptedBytes(count);
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,340 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Handler;
+import android.view.ViewGroup;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+import android.widget.FrameLayout;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Loads pages into hidden webviews ahead of the navigations to them, for a single {@link
+ * FlutterWebView}.
+ *
+ * <p>A prerendered webview gets the settings, the WebViewClient, the JavaScript channels and the
+ * {@link VideoTracker} of the visible one, and is laid out beneath it so that its page is parsed,
+ * laid out and painted by the time it is shown. The page events, JavaScript channel messages and
+ * video events of a prerendered page are buffered, and delivered in order once {@link
+ * FlutterWebView} swaps the webview in. Navigation requests still go through the navigation rules
+ * and the navigation delegate right away.
+ *
+ * <p>Hidden webviews are bounded in number, expire when they aren't shown in time, and are all
+ * destroyed when the system runs low on memory.
+ *
+ * <p>All methods must be called on the platform thread, except {@link #isPrerendering} and {@link
+ * #defer} which may be called from the WebView's threads.
+ */
+@TargetApi(Build.VERSION_CODES.KITKAT)
+class Prerenderer {
+  private static final long TIME_TO_LIVE_MS = 60 * 1000;
+  // A page posting more events than this while hidden isn't worth keeping.
+  private static final int MAX_BUFFERED_EVENTS = 512;
+
+  private final Context context;
+  private final WebViewPool webViewPool;
+  private final ViewGroup container;
+  private final JavaScriptMessageDispatcher javaScriptMessageDispatcher;
+  private final VideoTracker videoTracker;
+  private final MediaSuspensionCoordinator mediaSuspensionCoordinator;
+  private final Handler platformThreadHandler;
+  private final int maxPrerenders;
+  // Read from the WebView's network threads.
+  private final List<Prerender> prerenders = new CopyOnWriteArrayList<>();
+  private int started;
+  private int shown;
+  private int discarded;
+
+  private final ComponentCallbacks2 memoryCallbacks =
+      new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+          if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            discardAll();
+          }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {}
+
+        @Override
+        public void onLowMemory() {
+          discardAll();
+        }
+      };
+
+  /**
+   * @param container the view the visible webview is in, prerendered webviews are laid out beneath
+   *     it
+   * @param maxPrerenders how many prerendered webviews may be kept hidden at once
+   */
+  Prerenderer(
+      Context context,
+      WebViewPool webViewPool,
+      ViewGroup container,
+      JavaScriptMessageDispatcher javaScriptMessageDispatcher,
+      VideoTracker videoTracker,
+      MediaSuspensionCoordinator mediaSuspensionCoordinator,
+      Handler platformThreadHandler,
+      int maxPrerenders) {
+    this.context = context;
+    this.webViewPool = webViewPool;
+    this.container = container;
+    this.javaScriptMessageDispatcher = javaScriptMessageDispatcher;
+    this.videoTracker = videoTracker;
+    this.mediaSuspensionCoordinator = mediaSuspensionCoordinator;
+    this.platformThreadHandler = platformThreadHandler;
+    this.maxPrerenders = maxPrerenders;
+    context.getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+  }
+
+  /**
+   * Starts loading `url` into a hidden webview configured like `visibleWebView`.
+   *
+   * <p>Prerendering a URL that is already prerendered only extends its lifetime. The oldest
+   * prerender is discarded when the budget is reached.
+   */
+  void prerender(
+      String url,
+      Map<String, String> headers,
+      WebView visibleWebView,
+      WebViewClient webViewClient,
+      Collection<String> javaScriptChannelNames) {
+    if (maxPrerenders <= 0) {
+      return;
+    }
+    Prerender existing = find(url, headers);
+    if (existing != null) {
+      platformThreadHandler.removeCallbacks(existing.expire);
+      platformThreadHandler.postDelayed(existing.expire, TIME_TO_LIVE_MS);
+      return;
+    }
+    while (prerenders.size() >= maxPrerenders) {
+      discard(prerenders.get(0));
+    }
+
+    InputAwareWebView webView = webViewPool.acquire(context);
+    copySettings(visibleWebView.getSettings(), webView.getSettings());
+    final Prerender prerender = new Prerender(url, headers, webView, javaScriptChannelNames);
+    prerenders.add(prerender);
+    started++;
+    webView.setWebViewClient(webViewClient);
+    for (String channelName : prerender.javaScriptChannelNames) {
+      webView.addJavascriptInterface(
+          new BufferedJavaScriptChannel(prerender, channelName), channelName);
+    }
+    videoTracker.attach(webView);
+    mediaSuspensionCoordinator.addPrerender(webView);
+    container.addView(
+        webView,
+        0,
+        new FrameLayout.LayoutParams(
+            FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+    webView.loadUrl(url, headers);
+    platformThreadHandler.postDelayed(prerender.expire, TIME_TO_LIVE_MS);
+  }
+
+  /**
+   * Removes and returns the prerender of a navigation to `url` with `headers`.
+   *
+   * @return null when there is none, the navigation then loads in the visible webview
+   */
+  Prerender take(String url, Map<String, String> headers) {
+    Prerender prerender = find(url, headers);
+    if (prerender != null) {
+      prerenders.remove(prerender);
+      platformThreadHandler.removeCallbacks(prerender.expire);
+      // The visible webview's MediaSuspender takes it over once it is shown.
+      mediaSuspensionCoordinator.removePrerender(prerender.webView);
+      shown++;
+    }
+    return prerender;
+  }
+
+  /** Returns whether `view` is a hidden prerendered webview. */
+  boolean isPrerendering(WebView view) {
+    for (Prerender prerender : prerenders) {
+      if (prerender.webView == view) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Buffers `event` when `view` is a hidden prerendered webview, to run it once it is shown.
+   *
+   * @return whether the event was buffered
+   */
+  boolean defer(WebView view, Runnable event) {
+    for (Prerender prerender : prerenders) {
+      if (prerender.webView == view) {
+        return prerender.defer(event);
+      }
+    }
+    return false;
+  }
+
+  /** Discards all prerenders, e.g. when the settings or JavaScript channels they copied changed. */
+  void discardAll() {
+    for (Prerender prerender : prerenders) {
+      discard(prerender);
+    }
+  }
+
+  Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("pending", prerenders.size());
+    stats.put("started", started);
+    stats.put("shown", shown);
+    stats.put("discarded", discarded);
+    return stats;
+  }
+
+  void dispose() {
+    context.getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+    discardAll();
+  }
+
+  private Prerender find(String url, Map<String, String> headers) {
+    for (Prerender prerender : prerenders) {
+      if (prerender.url.equals(url) && prerender.headers.equals(headers)) {
+        return prerender;
+      }
+    }
+    return null;
+  }
+
+  private void discard(Prerender prerender) {
+    if (!prerenders.remove(prerender)) {
+      return;
+    }
+    discarded++;
+    platformThreadHandler.removeCallbacks(prerender.expire);
+    prerender.webView.stopLoading();
+    for (String channelName : prerender.javaScriptChannelNames) {
+      prerender.webView.removeJavascriptInterface(channelName);
+    }
+    videoTracker.detach(prerender.webView);
+    mediaSuspensionCoordinator.removePrerender(prerender.webView);
+    prerender.webView.dispose();
+    webViewPool.release(prerender.webView);
+  }
+
+  private static void copySettings(WebSettings from, WebSettings to) {
+    to.setJavaScriptEnabled(from.getJavaScriptEnabled());
+    to.setDomStorageEnabled(from.getDomStorageEnabled());
+    to.setJavaScriptCanOpenWindowsAutomatically(from.getJavaScriptCanOpenWindowsAutomatically());
+    to.setMediaPlaybackRequiresUserGesture(from.getMediaPlaybackRequiresUserGesture());
+    to.setUserAgentString(from.getUserAgentString());
+  }
+
+  /** A page loading in a hidden webview. */
+  class Prerender {
+    private final String url;
+    private final Map<String, String> headers;
+    private final InputAwareWebView webView;
+    private final List<String> javaScriptChannelNames;
+    // Guarded by this, null once the prerender is shown.
+    private List<Runnable> bufferedEvents = new ArrayList<>();
+
+    private final Runnable expire =
+        new Runnable() {
+          @Override
+          public void run() {
+            discard(Prerender.this);
+          }
+        };
+
+    private Prerender(
+        String url,
+        Map<String, String> headers,
+        InputAwareWebView webView,
+        Collection<String> javaScriptChannelNames) {
+      this.url = url;
+      this.headers = headers == null ? Collections.<String, String>emptyMap() : headers;
+      this.webView = webView;
+      this.javaScriptChannelNames = new ArrayList<>(javaScriptChannelNames);
+    }
+
+    InputAwareWebView getWebView() {
+      return webView;
+    }
+
+    /**
+     * Delivers the buffered events in order, later events are delivered as they happen.
+     *
+     * <p>Must be called once the webview is visible, after it was removed with {@link #take}.
+     */
+    synchronized void show() {
+      List<Runnable> events = bufferedEvents;
+      bufferedEvents = null;
+      // Still holding the lock, so that messages posted meanwhile are delivered after these.
+      for (Runnable event : events) {
+        event.run();
+      }
+    }
+
+    private synchronized boolean defer(Runnable event) {
+      if (bufferedEvents == null) {
+        return false;
+      }
+      bufferedEvents.add(event);
+      if (bufferedEvents.size() > MAX_BUFFERED_EVENTS) {
+        bufferedEvents.clear();
+        platformThreadHandler.post(expire);
+      }
+      return true;
+    }
+  }
+
+  /** The JavaScript channel object of a prerendered page, buffering its messages while hidden. */
+  private class BufferedJavaScriptChannel {
+    private final Prerender prerender;
+    private final String channelName;
+
+    BufferedJavaScriptChannel(Prerender prerender, String channelName) {
+      this.prerender = prerender;
+      this.channelName = channelName;
+    }
+
+    // Suppressing unused warning as this is invoked from JavaScript.
+    @SuppressWarnings("unused")
+    @JavascriptInterface
+    public void postMessage(String message) {
+      postMessage(message, null);
+    }
+
+    // Suppressing unused warning as this is invoked from JavaScript.
+    @SuppressWarnings("unused")
+    @JavascriptInterface
+    public void postMessage(final String message, final String key) {
+      Runnable delivery =
+          new Runnable() {
+            @Override
+            public void run() {
+              javaScriptMessageDispatcher.dispatch(channelName, message, key);
+            }
+          };
+      if (!prerender.defer(delivery)) {
+        delivery.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+/**
+ * A stage of {@link FlutterWebViewClient}'s `shouldInterceptRequest` chain.
+ *
+ * <p>Interceptors are consulted in the order they were added, the first one returning a response
+ * handles the request. Requests no interceptor handles are loaded by the WebView.
+ *
+ * <p>Interceptors are called on the WebView's network threads, not on the platform thread.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+interface RequestInterceptor {
+  /**
+   * Returns the response for `request`, or null to pass the request to the next stage.
+   *
+   * @param view the webview making the request, which must not be used off the platform thread
+   */
+  WebResourceResponse intercept(WebView view, WebResourceRequest request);
+}
@@ -0,0 +1,793 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * An HTTP cache for the subresources of the webviews that opt in to it, shared by all webviews.
+ *
+ * <p>Responses are kept in two tiers: a memory tier holding the bodies of the most recently stored
+ * resources within a byte budget, over a {@link DiskResourceCache} that serves the rest without
+ * copying them into the heap. Resources are keyed by their URL plus the values of the request
+ * headers named by the response's `Vary` header, and are served while they are fresh according to
+ * `Cache-Control` or `Expires`. Stale resources with a validator are revalidated with a conditional
+ * request.
+ *
+ * <p>Only GET requests for subresources are handled, range requests and requests that ask to
+ * bypass caches are left to the WebView. Misses are fetched without following redirects, since
+ * redirect responses can't be returned from `shouldInterceptRequest`. A URL that redirected, or
+ * whose response must not be stored, is left to the WebView from then on.
+ *
+ * <p>Resources can also be fetched ahead of time by the {@link ResourcePrefetcher}. Main frame
+ * navigations are only ever served from a prefetched document, once, and left to the WebView
+ * otherwise.
+ *
+ * <p>Cookies are only sent and stored for requests that are same-site with the page's main frame,
+ * approximated without the public suffix list: the hosts must be equal or one a subdomain of the
+ * other. Other requests are fetched without cookies when the webview doesn't accept third-party
+ * cookies, the same as the WebView would, and are left to the WebView otherwise so that its
+ * third-party cookie and SameSite rules apply.
+ *
+ * <p>The cache is configured through the `plugins.flutter.io/webview_resource_cache` channel.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ResourceCache
+    implements MethodCallHandler, RequestInterceptor, FlutterWebViewClient.PageLifecycleListener {
+  private static final String DIRECTORY = "webview_resource_cache";
+  private static final long DEFAULT_MEMORY_CAPACITY_BYTES = 8 * 1024 * 1024;
+  private static final long DEFAULT_DISK_CAPACITY_BYTES = 64 * 1024 * 1024;
+  private static final int MAX_BYPASSED_URLS = 512;
+  private static final int TIMEOUT_MS = 15000;
+  // Documents are rarely cacheable, a prefetched one is kept fresh this long for the navigation it
+  // was prefetched for.
+  private static final long PREFETCHED_DOCUMENT_FRESHNESS_MS = 5 * 60 * 1000;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final MethodChannel methodChannel;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final DiskResourceCache diskCache;
+  private final ResourcePrefetcher prefetcher;
+
+  // Guarded by this.
+  private final LinkedHashMap<String, CachedResource> memoryCache =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, List<String>> varyHeadersByUrl = new HashMap<>();
+  private final LinkedHashMap<String, Boolean> bypassedUrls =
+      new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+          return size() > MAX_BYPASSED_URLS;
+        }
+      };
+  private long memoryCapacityBytes = DEFAULT_MEMORY_CAPACITY_BYTES;
+  private long memorySizeBytes;
+  // The prefetched documents that weren't navigated to yet, by key, with the expiry their own
+  // headers gave them.
+  private final Map<String, Long> prefetchedDocuments = new HashMap<>();
+  // The main frame of the webviews using the cache.
+  private final Map<WebView, Page> pages = new WeakHashMap<>();
+  private boolean varyHeadersLoaded;
+  private long memoryHits;
+  private long diskHits;
+  private long misses;
+  private long revalidations;
+  private long bytesServed;
+  private long prefetched;
+  private long prefetchedDocumentHits;
+
+  ResourceCache(BinaryMessenger messenger, Context applicationContext) {
+    diskCache =
+        new DiskResourceCache(
+            new File(applicationContext.getCacheDir(), DIRECTORY),
+            DEFAULT_DISK_CAPACITY_BYTES,
+            executor);
+    prefetcher = new ResourcePrefetcher(this);
+    methodChannel = new MethodChannel(messenger, "plugins.flutter.io/webview_resource_cache");
+    methodChannel.setMethodCallHandler(this);
+  }
+
+  @Override
+  public void onMethodCall(MethodCall methodCall, Result result) {
+    switch (methodCall.method) {
+      case "configure":
+        configure(
+            ((Number) methodCall.argument("memoryCapacityBytes")).longValue(),
+            ((Number) methodCall.argument("diskCapacityBytes")).longValue());
+        result.success(null);
+        break;
+      case "getStats":
+        result.success(getStats());
+        break;
+      case "clear":
+        clear();
+        result.success(null);
+        break;
+      default:
+        result.notImplemented();
+    }
+  }
+
+  synchronized void configure(long memoryCapacityBytes, long diskCapacityBytes) {
+    this.memoryCapacityBytes = memoryCapacityBytes;
+    trimMemory();
+    diskCache.setCapacity(diskCapacityBytes);
+  }
+
+  synchronized Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("memoryHits", memoryHits);
+    stats.put("diskHits", diskHits);
+    stats.put("misses", misses);
+    stats.put("revalidations", revalidations);
+    stats.put("bytesServed", bytesServed);
+    stats.put("memoryBytes", memorySizeBytes);
+    stats.put("diskBytes", diskCache.sizeBytes());
+    stats.put("diskEntries", diskCache.entryCount());
+    stats.put("prefetched", prefetched);
+    stats.put("prefetchedDocumentHits", prefetchedDocumentHits);
+    return stats;
+  }
+
+  synchronized void clear() {
+    memoryCache.clear();
+    memorySizeBytes = 0;
+    varyHeadersByUrl.clear();
+    bypassedUrls.clear();
+    prefetchedDocuments.clear();
+    diskCache.clear();
+  }
+
+  /**
+   * Removes the resources of the URLs whose origin is in `origins`, or all of them when it is null.
+   *
+   * <p>Must not be called on the platform thread, the body files are deleted right away.
+   *
+   * @return the bytes freed on disk
+   */
+  long remove(Set<String> origins) {
+    if (origins == null) {
+      long freed = diskCache.sizeBytes();
+      clear();
+      return freed;
+    }
+    synchronized (this) {
+      Iterator<CachedResource> resources = memoryCache.values().iterator();
+      while (resources.hasNext()) {
+        CachedResource resource = resources.next();
+        if (origins.contains(WebsiteDataRemover.originOf(resource.url))) {
+          resources.remove();
+          memorySizeBytes -= resource.size;
+        }
+      }
+      removeUrls(varyHeadersByUrl.keySet(), origins);
+      removeUrls(bypassedUrls.keySet(), origins);
+      removeUrls(prefetchedDocuments.keySet(), origins);
+    }
+    // Disk deletes happen outside of the cache's lock, DiskResourceCache has its own.
+    long freed = 0;
+    for (CachedResource resource : diskCache.entries()) {
+      if (origins.contains(WebsiteDataRemover.originOf(resource.url))) {
+        diskCache.remove(resource.key);
+        freed += resource.size;
+      }
+    }
+    return freed;
+  }
+
+  void dispose() {
+    methodChannel.setMethodCallHandler(null);
+    prefetcher.dispose();
+    executor.shutdown();
+  }
+
+  ResourcePrefetcher getPrefetcher() {
+    return prefetcher;
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url) {
+    // Third-party cookie acceptance can only be read on the platform thread.
+    boolean acceptsThirdPartyCookies = CookieManager.getInstance().acceptThirdPartyCookies(view);
+    synchronized (this) {
+      pages.put(view, new Page(url, acceptsThirdPartyCookies));
+    }
+  }
+
+  @Override
+  public void onPageFinished(WebView view, String url) {}
+
+  @Override
+  public WebResourceResponse intercept(WebView view, WebResourceRequest request) {
+    String url = request.getUrl().toString();
+    Map<String, String> requestHeaders = request.getRequestHeaders();
+    if (request.isForMainFrame()) {
+      // Precedes onPageStarted, which isn't called for prerendered pages until they are shown.
+      // Until it is known, cross-site requests are left to the WebView.
+      synchronized (this) {
+        Page page = pages.get(view);
+        pages.put(view, new Page(url, page == null || page.acceptsThirdPartyCookies));
+      }
+    }
+    if (!"GET".equalsIgnoreCase(request.getMethod())
+        || !isCacheable(url)
+        || headerValue(requestHeaders, "range") != null
+        || CachedResource.bypassesCache(requestHeaders)) {
+      return null;
+    }
+    if (request.isForMainFrame()) {
+      return servePrefetchedDocument(url, requestHeaders);
+    }
+
+    CachedResource cached;
+    boolean sameSite;
+    synchronized (this) {
+      if (bypassedUrls.containsKey(url)) {
+        return null;
+      }
+      cached = lookup(url, requestHeaders);
+      if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+        WebResourceResponse response = serve(cached);
+        if (response != null) {
+          return response;
+        }
+        cached = null;
+      }
+      Page page = pages.get(view);
+      sameSite = page != null && isSameSite(url, page.url);
+      if (!sameSite && (page == null || page.acceptsThirdPartyCookies)) {
+        // The WebView applies its third-party cookie and SameSite rules.
+        return null;
+      }
+      misses++;
+    }
+
+    try {
+      return fetch(url, requestHeaders, cached, sameSite);
+    } catch (IOException e) {
+      // Let the WebView load the resource and report the error.
+      return null;
+    }
+  }
+
+  /**
+   * Fetches and stores `url` ahead of a request for it. Called on the prefetcher's threads.
+   *
+   * @param documentUrl the URL of the document the resource is prefetched for, `url` itself for
+   *     documents
+   * @param maxBytes the largest body to store, larger ones are abandoned without being read fully
+   * @return the stored resource carrying its body, or null when nothing was stored
+   */
+  CachedResource prefetch(
+      String url,
+      String documentUrl,
+      Map<String, String> requestHeaders,
+      boolean isDocument,
+      long maxBytes)
+      throws IOException {
+    synchronized (this) {
+      if (bypassedUrls.containsKey(url)) {
+        return null;
+      }
+    }
+    // Whether the webview would send the jar's cookies cross-site isn't known here, a copy fetched
+    // without them could differ from what the page gets.
+    boolean sameSite = isSameSite(url, documentUrl);
+    if (!sameSite && CookieManager.getInstance().getCookie(url) != null) {
+      return null;
+    }
+    HttpURLConnection connection = openConnection(url, requestHeaders, null, sameSite);
+    try {
+      int statusCode = connection.getResponseCode();
+      Map<String, List<String>> headerFields = connection.getHeaderFields();
+      boolean setsCookies = syncCookies(url, headerFields, sameSite);
+      Map<String, String> headers = responseHeaders(headerFields);
+      long now = System.currentTimeMillis();
+      long expiresAt = CachedResource.expiresAt(headers, now);
+      String vary = headers.get("vary");
+      if (statusCode >= 300 && statusCode < 400) {
+        bypass(url);
+        return null;
+      }
+      // The document's cookies are already in the cookie jar when it is navigated to.
+      if (statusCode != HttpURLConnection.HTTP_OK
+          || expiresAt == CachedResource.NOT_STORABLE
+          || (setsCookies && !isDocument)
+          || (vary != null && vary.contains("*"))) {
+        return null;
+      }
+      if (expiresAt <= now && !isDocument) {
+        // Revalidating it would take a request anyway.
+        return null;
+      }
+      long storedExpiresAt =
+          isDocument ? Math.max(expiresAt, now + PREFETCHED_DOCUMENT_FRESHNESS_MS) : expiresAt;
+
+      maxBytes = Math.min(maxBytes, maxStoredBodyBytes());
+      String contentLength = connection.getHeaderField("content-length");
+      if (contentLength != null && Long.parseLong(contentLength.trim()) > maxBytes) {
+        return null;
+      }
+      InputStream body = connection.getInputStream();
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      byte[] chunk = new byte[8192];
+      int read;
+      while ((read = body.read(chunk)) != -1) {
+        buffer.write(chunk, 0, read);
+        if (buffer.size() > maxBytes) {
+          return null;
+        }
+      }
+      body.close();
+
+      byte[] bytes = buffer.toByteArray();
+      String contentType = headers.get("content-type");
+      List<String> varyHeaders = varyHeaders(vary);
+      String reasonPhrase = connection.getResponseMessage();
+      CachedResource resource =
+          new CachedResource(
+              key(url, varyHeaders, requestHeaders),
+              url,
+              mimeType(contentType),
+              charset(contentType),
+              statusCode,
+              reasonPhrase == null || reasonPhrase.isEmpty() ? "OK" : reasonPhrase,
+              headers,
+              varyHeaders,
+              headers.get("etag"),
+              headers.get("last-modified"),
+              bytes.length,
+              storedExpiresAt);
+      store(resource, bytes);
+      synchronized (this) {
+        prefetched++;
+        if (isDocument) {
+          prefetchedDocuments.put(resource.key, expiresAt);
+        }
+      }
+      return resource.withBody(bytes);
+    } catch (NumberFormatException e) {
+      return null;
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Returns whether a request for `url` would be served from the cache, a document only is when it
+   * was prefetched.
+   */
+  synchronized boolean contains(
+      String url, Map<String, String> requestHeaders, boolean isDocument) {
+    CachedResource cached = lookup(url, requestHeaders);
+    return cached != null
+        && cached.isFresh(System.currentTimeMillis())
+        && (!isDocument || prefetchedDocuments.containsKey(cached.key));
+  }
+
+  static boolean isCacheable(String url) {
+    String lowerCaseUrl = url.toLowerCase(Locale.US);
+    return lowerCaseUrl.startsWith("http://") || lowerCaseUrl.startsWith("https://");
+  }
+
+  /**
+   * Returns whether `url` is same-site with the page at `pageUrl`: same scheme, and hosts that are
+   * equal or where one is a subdomain of the other. Sibling subdomains count as cross-site.
+   */
+  static boolean isSameSite(String url, String pageUrl) {
+    Uri uri = Uri.parse(url);
+    Uri pageUri = Uri.parse(pageUrl);
+    String host = uri.getHost();
+    String pageHost = pageUri.getHost();
+    if (host == null
+        || pageHost == null
+        || uri.getScheme() == null
+        || !uri.getScheme().equalsIgnoreCase(pageUri.getScheme())) {
+      return false;
+    }
+    host = host.toLowerCase(Locale.US);
+    pageHost = pageHost.toLowerCase(Locale.US);
+    return host.equals(pageHost)
+        || host.endsWith("." + pageHost)
+        || pageHost.endsWith("." + host);
+  }
+
+  // Serves a navigation to a prefetched document, the document goes back to the expiry of its own
+  // headers afterwards so that later navigations revalidate it.
+  private synchronized WebResourceResponse servePrefetchedDocument(
+      String url, Map<String, String> requestHeaders) {
+    CachedResource cached = lookup(url, requestHeaders);
+    if (cached == null) {
+      return null;
+    }
+    Long expiresAt = prefetchedDocuments.remove(cached.key);
+    if (expiresAt == null || !cached.isFresh(System.currentTimeMillis())) {
+      return null;
+    }
+    WebResourceResponse response = serve(cached);
+    if (response != null) {
+      prefetchedDocumentHits++;
+      cached.expiresAt = expiresAt;
+      diskCache.updateExpiry(cached.key, expiresAt);
+    }
+    return response;
+  }
+
+  // Returns the stored resource matching the request, from the memory or the disk tier.
+  private CachedResource lookup(String url, Map<String, String> requestHeaders) {
+    loadVaryHeaders();
+    List<String> varyHeaders = varyHeadersByUrl.get(url);
+    if (varyHeaders == null) {
+      return null;
+    }
+    String key = key(url, varyHeaders, requestHeaders);
+    CachedResource resource = memoryCache.get(key);
+    if (resource != null) {
+      return resource;
+    }
+    return diskCache.get(key);
+  }
+
+  private WebResourceResponse serve(CachedResource resource) {
+    InputStream body;
+    if (resource.body != null) {
+      memoryHits++;
+      body = new ByteArrayInputStream(resource.body);
+    } else {
+      body = diskCache.openBody(resource);
+      if (body == null) {
+        return null;
+      }
+      diskHits++;
+    }
+    bytesServed += resource.size;
+    return new WebResourceResponse(
+        resource.mimeType,
+        resource.encoding,
+        resource.statusCode,
+        resource.reasonPhrase,
+        resource.headers,
+        body);
+  }
+
+  /** @param withCookies whether the jar's cookies are sent and the response's ones stored */
+  private WebResourceResponse fetch(
+      String url, Map<String, String> requestHeaders, CachedResource cached, boolean withCookies)
+      throws IOException {
+    HttpURLConnection connection = openConnection(url, requestHeaders, cached, withCookies);
+    int statusCode = connection.getResponseCode();
+    Map<String, List<String>> headerFields = connection.getHeaderFields();
+    boolean setsCookies = syncCookies(url, headerFields, withCookies);
+    Map<String, String> headers = responseHeaders(headerFields);
+    long now = System.currentTimeMillis();
+    long expiresAt = CachedResource.expiresAt(headers, now);
+
+    if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+      connection.disconnect();
+      synchronized (this) {
+        revalidations++;
+        cached.expiresAt = Math.max(expiresAt, now);
+        diskCache.updateExpiry(cached.key, cached.expiresAt);
+        WebResourceResponse response = serve(cached);
+        if (response != null) {
+          return response;
+        }
+      }
+      return null;
+    }
+    if (statusCode >= 300 && statusCode < 400) {
+      connection.disconnect();
+      bypass(url);
+      return null;
+    }
+
+    String contentType = headers.get("content-type");
+    String mimeType = mimeType(contentType);
+    String encoding = charset(contentType);
+    String reasonPhrase = connection.getResponseMessage();
+    if (reasonPhrase == null || reasonPhrase.isEmpty()) {
+      reasonPhrase = statusCode < 400 ? "OK" : "Error";
+    }
+    InputStream body =
+        statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+    if (body == null) {
+      body = new ByteArrayInputStream(new byte[0]);
+    }
+
+    String vary = headers.get("vary");
+    boolean canRevalidate = headers.get("etag") != null || headers.get("last-modified") != null;
+    if (statusCode != HttpURLConnection.HTTP_OK
+        || expiresAt == CachedResource.NOT_STORABLE
+        || (expiresAt <= now && !canRevalidate)
+        || setsCookies
+        || (vary != null && vary.contains("*"))) {
+      if (expiresAt == CachedResource.NOT_STORABLE || setsCookies) {
+        bypass(url);
+      }
+      return new WebResourceResponse(mimeType, encoding, statusCode, reasonPhrase, headers, body);
+    }
+
+    // Buffer the body as long as it fits in the memory tier, larger bodies are streamed without
+    // being stored.
+    long maxBodyBytes = maxStoredBodyBytes();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int read;
+    while ((read = body.read(chunk)) != -1) {
+      buffer.write(chunk, 0, read);
+      if (buffer.size() > maxBodyBytes) {
+        InputStream buffered = new ByteArrayInputStream(buffer.toByteArray());
+        return new WebResourceResponse(
+            mimeType,
+            encoding,
+            statusCode,
+            reasonPhrase,
+            headers,
+            new SequenceInputStream(buffered, body));
+      }
+    }
+    body.close();
+
+    byte[] bytes = buffer.toByteArray();
+    List<String> varyHeaders = varyHeaders(vary);
+    CachedResource resource =
+        new CachedResource(
+            key(url, varyHeaders, requestHeaders),
+            url,
+            mimeType,
+            encoding,
+            statusCode,
+            reasonPhrase,
+            headers,
+            varyHeaders,
+            headers.get("etag"),
+            headers.get("last-modified"),
+            bytes.length,
+            expiresAt);
+    store(resource, bytes);
+    return new WebResourceResponse(
+        mimeType, encoding, statusCode, reasonPhrase, headers, new ByteArrayInputStream(bytes));
+  }
+
+  private static HttpURLConnection openConnection(
+      String url, Map<String, String> requestHeaders, CachedResource cached, boolean withCookies)
+      throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setInstanceFollowRedirects(false);
+    connection.setUseCaches(false);
+    connection.setConnectTimeout(TIMEOUT_MS);
+    connection.setReadTimeout(TIMEOUT_MS);
+    for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+      // Leaving Accept-Encoding to HttpURLConnection makes it decompress bodies transparently.
+      if (!header.getKey().equalsIgnoreCase("accept-encoding")) {
+        connection.setRequestProperty(header.getKey(), header.getValue());
+      }
+    }
+    String cookies = withCookies ? CookieManager.getInstance().getCookie(url) : null;
+    if (cookies != null) {
+      connection.setRequestProperty("Cookie", cookies);
+    }
+    if (cached != null && cached.etag != null) {
+      connection.setRequestProperty("If-None-Match", cached.etag);
+    }
+    if (cached != null && cached.lastModified != null) {
+      connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+    }
+    return connection;
+  }
+
+  // Stores the response's cookies in the WebView's cookie jar when `store` is true, returns whether
+  // there were any.
+  private static boolean syncCookies(
+      String url, Map<String, List<String>> headerFields, boolean store) {
+    boolean setsCookies = false;
+    for (Map.Entry<String, List<String>> field : headerFields.entrySet()) {
+      if ("set-cookie".equalsIgnoreCase(field.getKey())) {
+        setsCookies = true;
+        if (!store) {
+          continue;
+        }
+        for (String cookie : field.getValue()) {
+          CookieManager.getInstance().setCookie(url, cookie);
+        }
+      }
+    }
+    return setsCookies;
+  }
+
+  private void store(CachedResource resource, byte[] body) {
+    synchronized (this) {
+      varyHeadersByUrl.put(resource.url, resource.varyHeaders);
+      CachedResource previous = memoryCache.put(resource.key, resource.withBody(body));
+      if (previous != null && previous.body != null) {
+        memorySizeBytes -= previous.size;
+      }
+      memorySizeBytes += resource.size;
+      trimMemory();
+    }
+    // Disk writes happen outside of the cache's lock, DiskResourceCache has its own.
+    diskCache.put(resource, body);
+  }
+
+  // Removes the URLs, or keys starting with a URL, whose origin is in `origins`.
+  private static void removeUrls(Set<String> urls, Set<String> origins) {
+    Iterator<String> iterator = urls.iterator();
+    while (iterator.hasNext()) {
+      String key = iterator.next();
+      int end = key.indexOf('\n');
+      if (origins.contains(WebsiteDataRemover.originOf(end < 0 ? key : key.substring(0, end)))) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private synchronized void bypass(String url) {
+    bypassedUrls.put(url, Boolean.TRUE);
+  }
+
+  // Bodies larger than this are not worth evicting a large part of the memory tier for.
+  private synchronized long maxStoredBodyBytes() {
+    return Math.max(memoryCapacityBytes / 4, 64 * 1024);
+  }
+
+  private void trimMemory() {
+    Iterator<CachedResource> iterator = memoryCache.values().iterator();
+    while (memorySizeBytes > memoryCapacityBytes && iterator.hasNext()) {
+      CachedResource eldest = iterator.next();
+      iterator.remove();
+      memorySizeBytes -= eldest.size;
+    }
+  }
+
+  private void loadVaryHeaders() {
+    if (varyHeadersLoaded) {
+      return;
+    }
+    varyHeadersLoaded = true;
+    for (CachedResource resource : diskCache.entries()) {
+      varyHeadersByUrl.put(resource.url, resource.varyHeaders);
+    }
+  }
+
+  // Lower cases header names, keeping the first value of every header.
+  private static Map<String, String> responseHeaders(Map<String, List<String>> headerFields) {
+    Map<String, String> headers = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> field : headerFields.entrySet()) {
+      // The status line has a null name.
+      if (field.getKey() == null || field.getValue().isEmpty()) {
+        continue;
+      }
+      String name = field.getKey().toLowerCase(Locale.US);
+      if (name.equals("set-cookie")
+          || name.equals("content-length")
+          || name.equals("content-encoding")
+          || name.equals("transfer-encoding")
+          || name.equals("connection")) {
+        continue;
+      }
+      headers.put(name, field.getValue().get(0));
+    }
+    return headers;
+  }
+
+  private static List<String> varyHeaders(String vary) {
+    if (vary == null) {
+      return Collections.emptyList();
+    }
+    List<String> names = new ArrayList<>();
+    for (String name : vary.split(",")) {
+      name = name.trim().toLowerCase(Locale.US);
+      if (!name.isEmpty()) {
+        names.add(name);
+      }
+    }
+    Collections.sort(names);
+    return Collections.unmodifiableList(names);
+  }
+
+  private static String key(
+      String url, List<String> varyHeaders, Map<String, String> requestHeaders) {
+    if (varyHeaders.isEmpty()) {
+      return url;
+    }
+    StringBuilder key = new StringBuilder(url);
+    for (String name : varyHeaders) {
+      String value = headerValue(requestHeaders, name);
+      key.append('\n').append(name).append(':').append(value == null ? "" : value);
+    }
+    return key.toString();
+  }
+
+  private static String headerValue(Map<String, String> headers, String lowerCaseName) {
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      if (header.getKey().equalsIgnoreCase(lowerCaseName)) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static String mimeType(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    int separator = contentType.indexOf(';');
+    return (separator < 0 ? contentType : contentType.substring(0, separator)).trim();
+  }
+
+  private static String charset(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    for (String parameter : contentType.split(";")) {
+      parameter = parameter.trim();
+      if (parameter.toLowerCase(Locale.US).startsWith("charset=")) {
+        return parameter.substring("charset=".length()).replace("\"", "");
+      }
+    }
+    return null;
+  }
+
+  /** Returns the hex encoded SHA-1 of `value`, used to name the files of the disk tier. */
+  static String hash(String value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+        hex.append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** The main frame of a webview, as far as cookies are concerned. */
+  private static class Page {
+    final String url;
+    final boolean acceptsThirdPartyCookies;
+
+    Page(String url, boolean acceptsThirdPartyCookies) {
+      this.url = url;
+      this.acceptsThirdPartyCookies = acceptsThirdPartyCookies;
+    }
+  }
+}
@@ -0,0 +1,311 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches documents, and the subresources they need to render, into the {@link ResourceCache}
+ * ahead of the navigations to them.
+ *
+ * <p>Every `prefetch` call is a batch of documents sharing a byte budget. Each document is fetched,
+ * and its scripts, stylesheets and preloaded resources are found in the start of its markup and
+ * fetched after it. Fetches of all webviews run on a small pool of threads, higher priority batches
+ * first and, within a priority, documents before subresources and in the order they were asked for.
+ * A batch replies once all its fetches completed, were skipped or were cancelled.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ResourcePrefetcher {
+  private static final int THREADS = 2;
+  private static final int MAX_SUBRESOURCES_PER_DOCUMENT = 16;
+  // Critical subresources are referenced from the head of the document.
+  private static final int MAX_SCANNED_BYTES = 64 * 1024;
+  private static final String DOCUMENT_ACCEPT =
+      "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Pattern TAG =
+      Pattern.compile("<(script|link)\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+  private static final Pattern ATTRIBUTE =
+      Pattern.compile(
+          "\\b(src|href|rel|as)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))",
+          Pattern.CASE_INSENSITIVE);
+
+  private final ResourceCache cache;
+  private final ThreadPoolExecutor executor =
+      new ThreadPoolExecutor(
+          THREADS, THREADS, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
+  private final Handler platformThreadHandler = new Handler(Looper.getMainLooper());
+  private final AtomicLong sequence = new AtomicLong();
+  // Guarded by this.
+  private final Set<Batch> batches = new LinkedHashSet<>();
+
+  ResourcePrefetcher(ResourceCache cache) {
+    this.cache = cache;
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Prefetches `urls` on behalf of `owner`, replying to `result` with the batch's counts.
+   *
+   * @param requestHeaders the headers the owner's requests carry, e.g. its User-Agent
+   */
+  void prefetch(
+      Object owner,
+      List<String> urls,
+      int priority,
+      long maxBytes,
+      boolean includeSubresources,
+      Map<String, String> requestHeaders,
+      Result result) {
+    Batch batch =
+        new Batch(owner, priority, maxBytes, includeSubresources, requestHeaders, result);
+    synchronized (this) {
+      batches.add(batch);
+    }
+    Set<String> distinctUrls = new LinkedHashSet<>(urls);
+    batch.pending.set(distinctUrls.size() + 1);
+    for (String url : distinctUrls) {
+      enqueue(batch, url, url, true);
+    }
+    // Replies right away to an empty batch.
+    batch.complete();
+  }
+
+  /** Cancels the pending fetches of `owner`, fetches in flight still complete. */
+  synchronized void cancel(Object owner) {
+    for (Batch batch : batches) {
+      if (batch.owner == owner) {
+        batch.cancelled = true;
+      }
+    }
+  }
+
+  void dispose() {
+    synchronized (this) {
+      for (Batch batch : batches) {
+        batch.cancelled = true;
+      }
+    }
+    executor.shutdown();
+  }
+
+  private void enqueue(Batch batch, String url, String documentUrl, boolean isDocument) {
+    batch.requested.incrementAndGet();
+    if (batch.cancelled || !ResourceCache.isCacheable(url)) {
+      batch.skipped.incrementAndGet();
+      batch.complete();
+      return;
+    }
+    try {
+      executor.execute(
+          new Fetch(batch, url, documentUrl, isDocument, sequence.getAndIncrement()));
+    } catch (RejectedExecutionException e) {
+      // Disposed.
+      batch.skipped.incrementAndGet();
+      batch.complete();
+    }
+  }
+
+  private void fetch(Batch batch, String url, String documentUrl, boolean isDocument) {
+    Map<String, String> requestHeaders = new HashMap<>(batch.requestHeaders);
+    requestHeaders.put("Accept", isDocument ? DOCUMENT_ACCEPT : "*/*");
+    long remainingBytes = batch.maxBytes - batch.bytes.get();
+    if (batch.cancelled || remainingBytes <= 0) {
+      batch.skipped.incrementAndGet();
+      return;
+    }
+    if (cache.contains(url, requestHeaders, isDocument)) {
+      batch.alreadyCached.incrementAndGet();
+      return;
+    }
+    CachedResource resource;
+    try {
+      resource = cache.prefetch(url, documentUrl, requestHeaders, isDocument, remainingBytes);
+    } catch (IOException e) {
+      batch.failed.incrementAndGet();
+      return;
+    }
+    if (resource == null) {
+      batch.skipped.incrementAndGet();
+      return;
+    }
+    batch.fetched.incrementAndGet();
+    batch.bytes.addAndGet(resource.size);
+    if (isDocument && batch.includeSubresources && "text/html".equals(resource.mimeType)) {
+      for (String subresource : criticalSubresources(url, resource.body)) {
+        batch.pending.incrementAndGet();
+        enqueue(batch, subresource, url, false);
+      }
+    }
+  }
+
+  /** Returns the absolute URLs of the scripts, stylesheets and preloads in the start of `html`. */
+  static List<String> criticalSubresources(String documentUrl, byte[] html) {
+    List<String> urls = new ArrayList<>();
+    URL base;
+    try {
+      base = new URL(documentUrl);
+    } catch (MalformedURLException e) {
+      return urls;
+    }
+    String markup = new String(html, 0, Math.min(html.length, MAX_SCANNED_BYTES), UTF_8);
+    Matcher tag = TAG.matcher(markup);
+    while (tag.find() && urls.size() < MAX_SUBRESOURCES_PER_DOCUMENT) {
+      Map<String, String> attributes = new HashMap<>();
+      Matcher attribute = ATTRIBUTE.matcher(tag.group(2));
+      while (attribute.find()) {
+        String value = attribute.group(2);
+        if (value == null) {
+          value = attribute.group(3);
+        }
+        if (value == null) {
+          value = attribute.group(4);
+        }
+        attributes.put(attribute.group(1).toLowerCase(Locale.US), value.trim());
+      }
+      String reference;
+      if (tag.group(1).equalsIgnoreCase("script")) {
+        reference = attributes.get("src");
+      } else {
+        String rel = attributes.get("rel");
+        boolean critical =
+            rel != null
+                && (rel.equalsIgnoreCase("stylesheet")
+                    || rel.equalsIgnoreCase("preload")
+                    || rel.equalsIgnoreCase("modulepreload"));
+        reference = critical ? attributes.get("href") : null;
+      }
+      if (reference == null || reference.isEmpty()) {
+        continue;
+      }
+      try {
+        String url = new URL(base, reference).toString();
+        if (ResourceCache.isCacheable(url) && !urls.contains(url)) {
+          urls.add(url);
+        }
+      } catch (MalformedURLException e) {
+        // Not a URL the WebView would load either.
+      }
+    }
+    return urls;
+  }
+
+  /** The documents of a `prefetch` call, and the subresources found in them. */
+  private class Batch {
+    final Object owner;
+    final int priority;
+    final long maxBytes;
+    final boolean includeSubresources;
+    final Map<String, String> requestHeaders;
+    final Result result;
+    final AtomicInteger pending = new AtomicInteger();
+    final AtomicInteger requested = new AtomicInteger();
+    final AtomicInteger fetched = new AtomicInteger();
+    final AtomicInteger alreadyCached = new AtomicInteger();
+    final AtomicInteger skipped = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final AtomicLong bytes = new AtomicLong();
+    volatile boolean cancelled;
+
+    Batch(
+        Object owner,
+        int priority,
+        long maxBytes,
+        boolean includeSubresources,
+        Map<String, String> requestHeaders,
+        Result result) {
+      this.owner = owner;
+      this.priority = priority;
+      this.maxBytes = maxBytes;
+      this.includeSubresources = includeSubresources;
+      this.requestHeaders = requestHeaders;
+      this.result = result;
+    }
+
+    // Called once per fetch, and once by prefetch, the last call replies.
+    void complete() {
+      if (pending.decrementAndGet() != 0) {
+        return;
+      }
+      synchronized (ResourcePrefetcher.this) {
+        batches.remove(this);
+      }
+      final Map<String, Object> counts = new HashMap<>();
+      counts.put("requested", requested.get());
+      counts.put("fetched", fetched.get());
+      counts.put("alreadyCached", alreadyCached.get());
+      counts.put("skipped", skipped.get());
+      counts.put("failed", failed.get());
+      counts.put("bytes", bytes.get());
+      counts.put("cancelled", cancelled);
+      platformThreadHandler.post(
+          new Runnable() {
+            @Override
+            public void run() {
+              result.success(counts);
+            }
+          });
+    }
+  }
+
+  private class Fetch implements Runnable, Comparable<Fetch> {
+    private final Batch batch;
+    private final String url;
+    private final String documentUrl;
+    private final boolean isDocument;
+    private final long sequence;
+
+    Fetch(Batch batch, String url, String documentUrl, boolean isDocument, long sequence) {
+      this.batch = batch;
+      this.url = url;
+      this.documentUrl = documentUrl;
+      this.isDocument = isDocument;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      try {
+        fetch(batch, url, documentUrl, isDocument);
+      } finally {
+        batch.complete();
+      }
+    }
+
+    @Override
+    public int compareTo(Fetch other) {
+      if (batch.priority != other.batch.priority) {
+        return batch.priority > other.batch.priority ? -1 : 1;
+      }
+      if (isDocument != other.isDocument) {
+        return isDocument ? -1 : 1;
+      }
+      return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports subframe navigation requests to Dart.
+ *
+ * <p>The navigation delegate can't prevent subframe navigations, so pages with many frames (e.g.
+ * ads) can flood the channel with notifications nobody acts on. Depending on the mode, every
+ * request is reported with its own `navigationRequest` call, requests aren't reported at all,
+ * repeated requests for the same URL within a window are only reported once, or the distinct URLs
+ * requested during a window are reported together with a single `subframeNavigationSummary` call.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+class SubframeNavigationReporter {
+  // Indices of the SubframeNavigationMode enum.
+  static final int MODE_ALL = 0;
+  static final int MODE_SUPPRESS = 1;
+  static final int MODE_DEDUPLICATE = 2;
+  static final int MODE_SUMMARIZE = 3;
+
+  // Bounds the URLs remembered for deduplication.
+  private static final int MAX_TRACKED_URLS = 256;
+  private static final long DEFAULT_WINDOW_MS = 1000;
+
+  private final MethodChannel methodChannel;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private int mode = MODE_ALL;
+  private long windowMs = DEFAULT_WINDOW_MS;
+  private boolean summaryScheduled;
+
+  // URL to the time it was last reported, in least recently reported order.
+  private final LinkedHashMap<String, Long> reportedAt =
+      new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+          return size() > MAX_TRACKED_URLS;
+        }
+      };
+
+  // URL to the number of times it was requested since the last summary.
+  private final LinkedHashMap<String, Integer> summary = new LinkedHashMap<>();
+
+  private final Runnable sendSummary =
+      new Runnable() {
+        @Override
+        public void run() {
+          summaryScheduled = false;
+          if (summary.isEmpty()) {
+            return;
+          }
+          List<String> urls = new ArrayList<>(summary.keySet());
+          List<Integer> counts = new ArrayList<>(summary.values());
+          summary.clear();
+          Map<String, Object> args = new HashMap<>();
+          args.put("urls", urls);
+          args.put("counts", counts);
+          methodChannel.invokeMethod("subframeNavigationSummary", args);
+        }
+      };
+
+  SubframeNavigationReporter(MethodChannel methodChannel) {
+    this.methodChannel = methodChannel;
+  }
+
+  /** Configures the reporter from the map built by the Dart `SubframeNavigationReporting`. */
+  void configure(Map<String, Object> config) {
+    if (config == null) {
+      return;
+    }
+    int mode = (Integer) config.get("mode");
+    if (mode < MODE_ALL || mode > MODE_SUMMARIZE) {
+      throw new IllegalArgumentException("Unknown subframe navigation mode: " + mode);
+    }
+    this.mode = mode;
+    this.windowMs = ((Number) config.get("windowMs")).longValue();
+  }
+
+  void report(String url) {
+    if (mode == MODE_SUPPRESS) {
+      return;
+    }
+    if (mode == MODE_SUMMARIZE) {
+      Integer count = summary.get(url);
+      summary.put(url, count == null ? 1 : count + 1);
+      if (!summaryScheduled) {
+        summaryScheduled = true;
+        handler.postDelayed(sendSummary, windowMs);
+      }
+      return;
+    }
+    if (mode == MODE_DEDUPLICATE) {
+      long now = SystemClock.uptimeMillis();
+      Long lastReported = reportedAt.get(url);
+      if (lastReported != null && now - lastReported < windowMs) {
+        return;
+      }
+      reportedAt.put(url, now);
+    }
+    HashMap<String, Object> args = new HashMap<>();
+    args.put("url", url);
+    args.put("isForMainFrame", false);
+    methodChannel.invokeMethod("navigationRequest", args);
+  }
+
+  void dispose() {
+    handler.removeCallbacks(sendSummary);
+    summary.clear();
+    reportedAt.clear();
+  }
+}
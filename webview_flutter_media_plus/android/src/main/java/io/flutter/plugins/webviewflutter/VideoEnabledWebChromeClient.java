@@ -1,9 +1,11 @@
 package io.flutter.plugins.webviewflutter;
 
 import android.media.MediaPlayer;
+import android.os.SystemClock;
 import android.view.SurfaceView;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.webkit.WebChromeClient;
 import android.widget.FrameLayout;
 
@@ -28,13 +30,33 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
 {
     public interface ToggledFullscreenCallback
     {
-        public void toggledFullscreen(boolean fullscreen);
+        /**
+         * @param latencyMs the time from the toggle to the first frame drawn after it, -1 when nothing was drawn because the views aren't attached to a window
+         */
+        public void toggledFullscreen(boolean fullscreen, long latencyMs);
+    }
+
+    /**
+     * Creates the views used to display videos the first time they are needed, so that pages that never play a video don't inflate them.
+     */
+    public interface VideoViewsFactory
+    {
+        /**
+         * @return A ViewGroup that will display the video, see the activityVideoView constructor parameter.
+         */
+        public ViewGroup createVideoView();
+
+        /**
+         * @return A View to be shown while the video is loading, see the loadingView constructor parameter. May be null.
+         */
+        public View createLoadingView();
     }
 
     private View activityNonVideoView;
     private ViewGroup activityVideoView;
     private View loadingView;
     private InputAwareWebView webView;
+    private VideoViewsFactory videoViewsFactory;
 
     private boolean isVideoFullscreen; // Indicates if the video is being displayed using a custom view (typically full-screen)
     private FrameLayout videoViewContainer;
@@ -85,7 +107,7 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
     /**
      * Builds a video enabled WebChromeClient.
      * @param activityNonVideoView A View in the activity's layout that contains every other view that should be hidden when the video goes full-screen.
-     * @param activityVideoView A ViewGroup in the activity's layout that will display the video. Typically you would like this to fill the whole layout.
+     * @param activityVideoView A ViewGroup in the activity's layout that will display the video. Typically you would like this to fill the whole layout, on top of activityNonVideoView and invisible, so that going full-screen doesn't lay out the layout again.
      * @param loadingView A View to be shown while the video is loading (typically only used in API level <11). Must be already inflated and not attached to a parent view.
      * @param webView The owner VideoEnabledWebView. Passing it will enable the VideoEnabledWebChromeClient to detect the HTML5 video ended event and exit full-screen.
      * Note: The web page must only contain one video tag in order for the HTML5 video ended event to work. This could be improved if needed (see Javascript code).
@@ -100,6 +122,20 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
         this.isVideoFullscreen = false;
     }
 
+    /**
+     * Builds a video enabled WebChromeClient that creates its video views on first use.
+     * @param activityNonVideoView A View in the activity's layout that contains every other view that should be hidden when the video goes full-screen.
+     * @param videoViewsFactory Creates the activityVideoView and the loadingView the first time a video is loaded or shown.
+     * @param webView The owner VideoEnabledWebView, see the webView parameter of the other constructors.
+     */
+    public VideoEnabledWebChromeClient(View activityNonVideoView, VideoViewsFactory videoViewsFactory, InputAwareWebView webView)
+    {
+        this.activityNonVideoView = activityNonVideoView;
+        this.videoViewsFactory = videoViewsFactory;
+        this.webView = webView;
+        this.isVideoFullscreen = false;
+    }
+
     public VideoEnabledWebChromeClient(ViewGroup root, InputAwareWebView webView) {
 
     }
@@ -123,11 +159,22 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
         this.toggledFullscreenCallback = callback;
     }
 
+    /**
+     * Replaces the owner VideoEnabledWebView, e.g. when the webview displayed is swapped for another one. The full-screen video must be hidden first.
+     * @param webView The new owner VideoEnabledWebView
+     */
+    public void setWebView(InputAwareWebView webView)
+    {
+        this.webView = webView;
+    }
+
     @Override
     public void onShowCustomView(View view, CustomViewCallback callback)
     {
         if (view instanceof FrameLayout)
         {
+            long toggledAt = SystemClock.uptimeMillis();
+
             // A video wants to be shown
             FrameLayout frameLayout = (FrameLayout) view;
             View focusedChild = frameLayout.getFocusedChild();
@@ -137,9 +184,14 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
             this.videoViewContainer = frameLayout;
             this.videoViewCallback = callback;
 
-            // Hide the non-video view, add the video view, and show it
-            activityNonVideoView.setVisibility(View.INVISIBLE);
-            activityVideoView.addView(videoViewContainer, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            if (activityVideoView == null && videoViewsFactory != null)
+            {
+                activityVideoView = videoViewsFactory.createVideoView();
+            }
+
+            // Add the video to the video view, which is already laid out on top of the non-video view, and show it.
+            // The non-video view stays visible beneath it, so that neither is laid out again nor loses its surface.
+            activityVideoView.addView(videoViewContainer, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
             activityVideoView.setVisibility(View.VISIBLE);
 
             if (focusedChild instanceof android.widget.VideoView)
@@ -163,30 +215,13 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
                 // Test case: TextureView of Sony Xperia T API level 16 doesn't work fullscreen when loading the javascript below
                 if (webView != null && webView.getSettings().getJavaScriptEnabled() && focusedChild instanceof SurfaceView)
                 {
-                    // Run javascript code that detects the video end and notifies the Javascript interface
-                    String js = "javascript:";
-                    js += "var _ytrp_html5_video_last;";
-                    js += "var _ytrp_html5_video = document.getElementsByTagName('video')[0];";
-                    js += "if (_ytrp_html5_video != undefined && _ytrp_html5_video != _ytrp_html5_video_last) {";
-                    {
-                        js += "_ytrp_html5_video_last = _ytrp_html5_video;";
-                        js += "function _ytrp_html5_video_ended() {";
-                        {
-                            js += "_VideoEnabledWebView.notifyVideoEnd();"; // Must match Javascript interface name and method of VideoEnableWebView
-                        }
-                        js += "}";
-                        js += "_ytrp_html5_video.addEventListener('ended', _ytrp_html5_video_ended);";
-                    }
-                    js += "}";
-                    webView.loadUrl(js);
+                    // Install the tracker that detects the video end and closes the custom view
+                    VideoTracker.install(webView);
                 }
             }
 
             // Notify full-screen change
-            if (toggledFullscreenCallback != null)
-            {
-                toggledFullscreenCallback.toggledFullscreen(true);
-            }
+            notifyToggledAfterDraw(true, toggledAt);
         }
     }
 
@@ -205,10 +240,11 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
 
         if (isVideoFullscreen)
         {
-            // Hide the video view, remove it, and show the non-video view
+            long toggledAt = SystemClock.uptimeMillis();
+
+            // Hide the video view and remove the video from it, which uncovers the non-video view
             activityVideoView.setVisibility(View.INVISIBLE);
             activityVideoView.removeView(videoViewContainer);
-            activityNonVideoView.setVisibility(View.VISIBLE);
 
             // Call back (only in API level <19, because in API level 19+ with chromium webview it crashes)
             if (videoViewCallback != null && !videoViewCallback.getClass().getName().contains(".chromium."))
@@ -222,16 +258,47 @@ public class VideoEnabledWebChromeClient extends WebChromeClient implements Medi
             videoViewCallback = null;
 
             // Notify full-screen change
-            if (toggledFullscreenCallback != null)
+            notifyToggledAfterDraw(false, toggledAt);
+        }
+    }
+
+    /**
+     * Notifies the full-screen change once the first frame after it is about to be drawn, with the time it took.
+     */
+    private void notifyToggledAfterDraw(final boolean fullscreen, final long toggledAt)
+    {
+        if (toggledFullscreenCallback == null)
+        {
+            return;
+        }
+        if (activityVideoView.getWindowToken() == null)
+        {
+            // Nothing is drawn, the latency can't be measured
+            toggledFullscreenCallback.toggledFullscreen(fullscreen, -1);
+            return;
+        }
+        activityVideoView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener()
+        {
+            @Override
+            public boolean onPreDraw()
             {
-                toggledFullscreenCallback.toggledFullscreen(false);
+                activityVideoView.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (toggledFullscreenCallback != null)
+                {
+                    toggledFullscreenCallback.toggledFullscreen(fullscreen, SystemClock.uptimeMillis() - toggledAt);
+                }
+                return true;
             }
-        }
+        });
     }
 
     @Override
     public View getVideoLoadingProgressView() // Video will start loading
     {
+        if (loadingView == null && videoViewsFactory != null)
+        {
+            loadingView = videoViewsFactory.createLoadingView();
+        }
         if (loadingView != null)
         {
             loadingView.setVisibility(View.VISIBLE);
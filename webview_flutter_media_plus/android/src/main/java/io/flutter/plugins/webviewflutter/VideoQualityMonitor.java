@@ -0,0 +1,241 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Aggregates the playback quality samples of a webview's videos, and reports them to Dart once per
+ * interval with a single `onVideoQuality` call.
+ *
+ * <p>Pages sample every playing video at a short interval (see {@link VideoTracker}), each sample
+ * carrying the video's cumulative counters. The monitor turns them into per interval deltas, so a
+ * lost or late sample only shifts counts between intervals. Videos without samples during an
+ * interval aren't reported.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+class VideoQualityMonitor {
+  private static final String TAG = "VideoQualityMonitor";
+  // Bounds the videos followed per document, feeds recycle their players rather than growing.
+  private static final int MAX_VIDEOS = 64;
+
+  private final MethodChannel methodChannel;
+  private final Handler platformThreadHandler;
+  private final long intervalMs;
+  private final long sampleIntervalMs;
+  // Video id to its latest sample.
+  private final Map<Integer, Sample> latest = new HashMap<>();
+  // Video id to its aggregate since the last report, in first sampled order.
+  private final Map<Integer, Aggregate> aggregates = new LinkedHashMap<>();
+  private long periodStart;
+  private boolean reportScheduled;
+
+  private final Runnable report =
+      new Runnable() {
+        @Override
+        public void run() {
+          reportScheduled = false;
+          report();
+        }
+      };
+
+  private VideoQualityMonitor(
+      MethodChannel methodChannel,
+      Handler platformThreadHandler,
+      long intervalMs,
+      long sampleIntervalMs) {
+    this.methodChannel = methodChannel;
+    this.platformThreadHandler = platformThreadHandler;
+    this.intervalMs = intervalMs;
+    this.sampleIntervalMs = sampleIntervalMs;
+  }
+
+  /**
+   * Builds a monitor from the map built by the Dart `VideoQualityReporting`.
+   *
+   * @return null when `config` is null, the playback quality then isn't sampled
+   */
+  static VideoQualityMonitor fromConfig(
+      MethodChannel methodChannel, Handler platformThreadHandler, Map<String, Object> config) {
+    if (config == null) {
+      return null;
+    }
+    return new VideoQualityMonitor(
+        methodChannel,
+        platformThreadHandler,
+        ((Number) config.get("intervalMs")).longValue(),
+        ((Number) config.get("sampleIntervalMs")).longValue());
+  }
+
+  long getSampleIntervalMs() {
+    return sampleIntervalMs;
+  }
+
+  void add(JSONObject json) {
+    Sample sample;
+    try {
+      sample = new Sample(json);
+    } catch (JSONException e) {
+      Log.w(TAG, "Ignoring a malformed playback quality sample", e);
+      return;
+    }
+    if (!latest.containsKey(sample.id) && latest.size() >= MAX_VIDEOS) {
+      return;
+    }
+    Sample previous = latest.put(sample.id, sample);
+    if (aggregates.isEmpty()) {
+      periodStart = SystemClock.uptimeMillis();
+    }
+    Aggregate aggregate = aggregates.get(sample.id);
+    if (aggregate == null) {
+      aggregate = new Aggregate();
+      aggregates.put(sample.id, aggregate);
+    }
+    aggregate.add(previous, sample);
+    if (!reportScheduled) {
+      reportScheduled = true;
+      platformThreadHandler.postDelayed(report, intervalMs);
+    }
+  }
+
+  /** Reports the pending samples, and forgets the videos of the previous document. */
+  void reset() {
+    platformThreadHandler.removeCallbacks(report);
+    reportScheduled = false;
+    report();
+    latest.clear();
+  }
+
+  void dispose() {
+    platformThreadHandler.removeCallbacks(report);
+    latest.clear();
+    aggregates.clear();
+  }
+
+  private void report() {
+    if (aggregates.isEmpty()) {
+      return;
+    }
+    long periodMs = SystemClock.uptimeMillis() - periodStart;
+    List<Map<String, Object>> reports = new ArrayList<>();
+    for (Map.Entry<Integer, Aggregate> entry : aggregates.entrySet()) {
+      reports.add(entry.getValue().toMap(entry.getKey(), periodMs));
+    }
+    aggregates.clear();
+    methodChannel.invokeMethod("onVideoQuality", reports);
+  }
+
+  // Counters can go back when a video loads a new source, the new counts then start from zero.
+  private static long delta(long current, long previous) {
+    return current >= previous ? current - previous : current;
+  }
+
+  /** The cumulative counters of a video, as sampled by the page. */
+  private static class Sample {
+    private final int id;
+    private final String src;
+    private final long positionMs;
+    private final long droppedFrames;
+    private final long totalFrames;
+    private final long decodedBytes;
+    private final long bufferingMs;
+    private final int stalls;
+    // Null until the video rendered its first frame.
+    private final Long startupMs;
+    private final int switches;
+    private final int width;
+    private final int height;
+
+    Sample(JSONObject json) throws JSONException {
+      id = json.getInt("id");
+      src = json.isNull("src") ? null : json.getString("src");
+      positionMs = json.optLong("positionMs");
+      droppedFrames = json.optLong("droppedFrames");
+      totalFrames = json.optLong("totalFrames");
+      decodedBytes = json.optLong("decodedBytes");
+      bufferingMs = json.optLong("bufferingMs");
+      stalls = json.optInt("stalls");
+      startupMs = json.isNull("startupMs") ? null : json.getLong("startupMs");
+      switches = json.optInt("switches");
+      width = json.optInt("width");
+      height = json.optInt("height");
+    }
+  }
+
+  /** The playback of a video during the current interval. */
+  private static class Aggregate {
+    private String src;
+    private long droppedFrames;
+    private long totalFrames;
+    // The bytes decoded while the position advanced, over the time it advanced.
+    private long playedBytes;
+    private long playedMs;
+    private long bufferingMs;
+    private long stalls;
+    private long switches;
+    private Long startupMs;
+    private int width;
+    private int height;
+
+    /** @param previous the sample before `sample`, null when it is the video's first one */
+    void add(Sample previous, Sample sample) {
+      if (previous == null) {
+        droppedFrames += sample.droppedFrames;
+        totalFrames += sample.totalFrames;
+        bufferingMs += sample.bufferingMs;
+        stalls += sample.stalls;
+        switches += sample.switches;
+        startupMs = sample.startupMs;
+      } else {
+        droppedFrames += delta(sample.droppedFrames, previous.droppedFrames);
+        totalFrames += delta(sample.totalFrames, previous.totalFrames);
+        // Seeking back isn't playback.
+        if (sample.positionMs > previous.positionMs) {
+          playedBytes += delta(sample.decodedBytes, previous.decodedBytes);
+          playedMs += sample.positionMs - previous.positionMs;
+        }
+        bufferingMs += delta(sample.bufferingMs, previous.bufferingMs);
+        stalls += delta(sample.stalls, previous.stalls);
+        switches += delta(sample.switches, previous.switches);
+        if (previous.startupMs == null && sample.startupMs != null) {
+          startupMs = sample.startupMs;
+        }
+      }
+      src = sample.src;
+      width = sample.width;
+      height = sample.height;
+    }
+
+    Map<String, Object> toMap(int id, long periodMs) {
+      Map<String, Object> map = new HashMap<>();
+      map.put("id", id);
+      map.put("src", src);
+      map.put("periodMs", periodMs);
+      map.put("droppedFrames", droppedFrames);
+      map.put("totalFrames", totalFrames);
+      map.put("bufferingMs", bufferingMs);
+      map.put("stalls", stalls);
+      map.put("startupMs", startupMs);
+      map.put("resolutionSwitches", switches);
+      map.put("width", width);
+      map.put("height", height);
+      // Decoded bytes per second of media played, the closest to a bitrate pages expose.
+      map.put(
+          "bitrate", playedMs > 0 && playedBytes > 0 ? playedBytes * 8 * 1000 / playedMs : null);
+      return map;
+    }
+  }
+}
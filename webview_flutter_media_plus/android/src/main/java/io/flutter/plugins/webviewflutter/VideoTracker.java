@@ -0,0 +1,344 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Build;
+import android.os.Handler;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Follows the playback of every `<video>` element of a webview's pages.
+ *
+ * <p>A script installed once per document tags every video element, including the ones added later
+ * on which it finds with a `MutationObserver`, and listens to their play, pause, ended, waiting and
+ * error events. Events are batched by the page and posted as one JSON array to the {@link
+ * #JAVASCRIPT_INTERFACE} object every webview gets, so a feed with many players costs a single
+ * bridge call per batch.
+ *
+ * <p>The script is installed when a video goes fullscreen, so that the end of the fullscreen video
+ * closes the custom view, and after every page load when the events or the playback quality are
+ * reported to Dart. The script also keeps the startup time, stalls and resolution switches of every
+ * video, and when the playback quality is reported samples them together with the frame counters
+ * of the videos that are playing, for the {@link VideoQualityMonitor} to aggregate. Events of a
+ * prerendered page are delivered once it is shown.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+class VideoTracker implements FlutterWebViewClient.PageLifecycleListener {
+  private static final String TAG = "VideoTracker";
+  static final String JAVASCRIPT_INTERFACE = "FlutterVideoTracker";
+  private static final long FLUSH_DELAY_MS = 100;
+
+  private static final String SCRIPT =
+      "(function() {"
+          + "if (window.__flutterVideoTracker || !window." + JAVASCRIPT_INTERFACE + ") {"
+          + "  return;"
+          + "}"
+          + "var nextId = 1, videos = [], queue = [], flushScheduled = false, sampler = null;"
+          + "var flush = function() {"
+          + "  flushScheduled = false;"
+          + "  var events = queue;"
+          + "  queue = [];"
+          + "  " + JAVASCRIPT_INTERFACE + ".postEvents(JSON.stringify(events));"
+          + "};"
+          + "var post = function(event) {"
+          + "  queue.push(event);"
+          + "  if (!flushScheduled) {"
+          + "    flushScheduled = true;"
+          + "    setTimeout(flush, " + FLUSH_DELAY_MS + ");"
+          + "  }"
+          + "};"
+          + "var isFullscreen = function(video) {"
+          + "  var element = document.fullscreenElement || document.webkitFullscreenElement;"
+          + "  return !!element && (element === video || element.contains(video));"
+          + "};"
+          + "var report = function(video, type) {"
+          + "  post({"
+          + "    id: video.__flutterVideoId,"
+          + "    type: type,"
+          + "    positionMs: Math.round(video.currentTime * 1000) || 0,"
+          + "    src: video.currentSrc || video.src || null,"
+          + "    fullscreen: isFullscreen(video)"
+          + "  });"
+          + "};"
+          // Startup time, stalls and resolution switches, which the quality samples report.
+          + "var observe = function(video) {"
+          + "  var q = video.__flutterVideoQuality = {"
+          + "    playAt: null, startupMs: null, waitingAt: null, bufferingMs: 0, stalls: 0,"
+          + "    width: 0, height: 0, switches: 0, changed: false"
+          + "  };"
+          + "  var endStall = function() {"
+          + "    if (q.waitingAt !== null) {"
+          + "      q.bufferingMs += Date.now() - q.waitingAt;"
+          + "      q.waitingAt = null;"
+          + "    }"
+          + "  };"
+          + "  video.addEventListener('play', function() {"
+          + "    if (q.startupMs === null) { q.playAt = Date.now(); }"
+          + "    q.changed = true;"
+          + "  });"
+          + "  video.addEventListener('playing', function() {"
+          + "    if (q.startupMs === null && q.playAt !== null) {"
+          + "      q.startupMs = Date.now() - q.playAt;"
+          + "    }"
+          + "    endStall();"
+          + "  });"
+          + "  video.addEventListener('waiting', function() {"
+          + "    if (q.startupMs !== null && !video.paused && q.waitingAt === null) {"
+          + "      q.stalls++;"
+          + "      q.waitingAt = Date.now();"
+          + "    }"
+          + "  });"
+          + "  ['pause', 'ended', 'emptied'].forEach(function(type) {"
+          + "    video.addEventListener(type, function() { endStall(); q.changed = true; });"
+          + "  });"
+          + "  video.addEventListener('resize', function() {"
+          + "    if (q.width && (q.width !== video.videoWidth || q.height !== video.videoHeight)) {"
+          + "      q.switches++;"
+          + "    }"
+          + "    q.width = video.videoWidth;"
+          + "    q.height = video.videoHeight;"
+          + "  });"
+          + "};"
+          + "var sample = function(video) {"
+          + "  var q = video.__flutterVideoQuality;"
+          + "  if (video.paused && !q.changed) { return; }"
+          + "  q.changed = false;"
+          + "  var quality = video.getVideoPlaybackQuality ? video.getVideoPlaybackQuality() : {"
+          + "    droppedVideoFrames: video.webkitDroppedFrameCount,"
+          + "    totalVideoFrames: video.webkitDecodedFrameCount"
+          + "  };"
+          + "  post({"
+          + "    id: video.__flutterVideoId,"
+          + "    type: 'quality',"
+          + "    positionMs: Math.round(video.currentTime * 1000) || 0,"
+          + "    src: video.currentSrc || video.src || null,"
+          + "    droppedFrames: quality.droppedVideoFrames || 0,"
+          + "    totalFrames: quality.totalVideoFrames || 0,"
+          + "    decodedBytes: video.webkitVideoDecodedByteCount || 0,"
+          + "    bufferingMs: q.bufferingMs"
+          + "        + (q.waitingAt === null ? 0 : Date.now() - q.waitingAt),"
+          + "    stalls: q.stalls,"
+          + "    startupMs: q.startupMs,"
+          + "    switches: q.switches,"
+          + "    width: video.videoWidth,"
+          + "    height: video.videoHeight"
+          + "  });"
+          + "};"
+          + "var track = function(video) {"
+          + "  if (video.__flutterVideoId) {"
+          // A video that was moved within the page.
+          + "    if (videos.indexOf(video) < 0) { videos.push(video); }"
+          + "    return;"
+          + "  }"
+          + "  video.__flutterVideoId = nextId++;"
+          + "  videos.push(video);"
+          + "  observe(video);"
+          + "  ['play', 'pause', 'ended', 'waiting', 'error'].forEach(function(type) {"
+          + "    video.addEventListener(type, function() { report(video, type); });"
+          + "  });"
+          + "  if (!video.paused && !video.ended) { report(video, 'play'); }"
+          + "};"
+          + "var scan = function(node) {"
+          + "  if (node.nodeName === 'VIDEO') {"
+          + "    track(node);"
+          + "  } else if (node.getElementsByTagName) {"
+          + "    var found = node.getElementsByTagName('video');"
+          + "    for (var i = 0; i < found.length; i++) { track(found[i]); }"
+          + "  }"
+          + "};"
+          + "window.__flutterVideoTracker = {"
+          + "  sampleQuality: function(intervalMs) {"
+          + "    if (sampler !== null) { return; }"
+          + "    sampler = setInterval(function() {"
+          // Forgets the videos that were removed from the page.
+          + "      videos = videos.filter(function(video) { return document.contains(video); });"
+          + "      videos.forEach(sample);"
+          + "    }, intervalMs);"
+          + "  }"
+          + "};"
+          + "scan(document);"
+          + "new MutationObserver(function(mutations) {"
+          + "  mutations.forEach(function(mutation) {"
+          + "    for (var i = 0; i < mutation.addedNodes.length; i++) {"
+          + "      scan(mutation.addedNodes[i]);"
+          + "    }"
+          + "  });"
+          + "}).observe(document.documentElement, {childList: true, subtree: true});"
+          + "})();";
+
+  private static final String SAMPLE_QUALITY_SCRIPT =
+      "window.__flutterVideoTracker && window.__flutterVideoTracker.sampleQuality(";
+
+  private final MethodChannel methodChannel;
+  // Null when events are sent with method channel calls.
+  private final WebViewEventStream eventStream;
+  private final Handler platformThreadHandler;
+  private final boolean report;
+  private final Runnable fullscreenVideoEnded;
+  // Null when the playback quality isn't reported.
+  private final VideoQualityMonitor qualityMonitor;
+  // Null when the webview doesn't prerender pages.
+  private Prerenderer prerenderer;
+
+  /**
+   * @param report whether the events are sent to Dart
+   * @param fullscreenVideoEnded run when a video that is fullscreen ended
+   * @param qualityMonitor aggregates the playback quality samples, null when they aren't taken
+   */
+  VideoTracker(
+      MethodChannel methodChannel,
+      WebViewEventStream eventStream,
+      Handler platformThreadHandler,
+      boolean report,
+      Runnable fullscreenVideoEnded,
+      VideoQualityMonitor qualityMonitor) {
+    this.methodChannel = methodChannel;
+    this.eventStream = eventStream;
+    this.platformThreadHandler = platformThreadHandler;
+    this.report = report;
+    this.fullscreenVideoEnded = fullscreenVideoEnded;
+    this.qualityMonitor = qualityMonitor;
+  }
+
+  void setPrerenderer(Prerenderer prerenderer) {
+    this.prerenderer = prerenderer;
+  }
+
+  /** Adds the tracker's JavaScript interface, which pages loaded from now on can post events to. */
+  void attach(WebView webView) {
+    webView.addJavascriptInterface(new Bridge(webView), JAVASCRIPT_INTERFACE);
+  }
+
+  void detach(WebView webView) {
+    webView.removeJavascriptInterface(JAVASCRIPT_INTERFACE);
+  }
+
+  /**
+   * Installs the tracking script into the current document of `webView`, when it isn't already.
+   *
+   * <p>Does nothing on webviews that weren't attached to a tracker before the page loaded.
+   */
+  static void install(WebView webView) {
+    evaluate(webView, SCRIPT);
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url) {
+    if (qualityMonitor != null) {
+      // Video ids are only unique within a document.
+      qualityMonitor.reset();
+    }
+  }
+
+  @Override
+  public void onPageFinished(WebView view, String url) {
+    if (report || qualityMonitor != null) {
+      install(view);
+    }
+    if (qualityMonitor != null) {
+      evaluate(view, SAMPLE_QUALITY_SCRIPT + qualityMonitor.getSampleIntervalMs() + ")");
+    }
+  }
+
+  void dispose() {
+    if (qualityMonitor != null) {
+      qualityMonitor.dispose();
+    }
+  }
+
+  private static void evaluate(WebView webView, String script) {
+    if (!webView.getSettings().getJavaScriptEnabled()) {
+      return;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      webView.evaluateJavascript(script, null);
+    } else {
+      webView.loadUrl("javascript:" + script);
+    }
+  }
+
+  private void deliver(
+      List<Map<String, Object>> events, List<JSONObject> samples, boolean fullscreenEnded) {
+    if (fullscreenEnded) {
+      fullscreenVideoEnded.run();
+    }
+    if (qualityMonitor != null) {
+      for (JSONObject sample : samples) {
+        qualityMonitor.add(sample);
+      }
+    }
+    if (!report || events.isEmpty()) {
+      return;
+    }
+    if (eventStream != null) {
+      eventStream.videoEvents(events);
+      return;
+    }
+    methodChannel.invokeMethod("onVideoEvents", events);
+  }
+
+  /** The JavaScript interface of a single webview. */
+  private class Bridge {
+    private final WebView webView;
+
+    Bridge(WebView webView) {
+      this.webView = webView;
+    }
+
+    // Suppressing unused warning as this is invoked from JavaScript.
+    @SuppressWarnings("unused")
+    @JavascriptInterface
+    public void postEvents(String json) {
+      final List<Map<String, Object>> events = new ArrayList<>();
+      final List<JSONObject> samples = new ArrayList<>();
+      boolean fullscreenEnded = false;
+      try {
+        JSONArray array = new JSONArray(json);
+        for (int i = 0; i < array.length(); i++) {
+          JSONObject object = array.getJSONObject(i);
+          if ("quality".equals(object.getString("type"))) {
+            samples.add(object);
+            continue;
+          }
+          Map<String, Object> event = new HashMap<>();
+          event.put("id", object.getInt("id"));
+          event.put("type", object.getString("type"));
+          event.put("positionMs", object.optInt("positionMs"));
+          event.put("src", object.isNull("src") ? null : object.getString("src"));
+          events.add(event);
+          if ("ended".equals(object.getString("type")) && object.optBoolean("fullscreen")) {
+            fullscreenEnded = true;
+          }
+        }
+      } catch (JSONException e) {
+        Log.w(TAG, "Ignoring malformed video events", e);
+        return;
+      }
+      final boolean endedFullscreen = fullscreenEnded;
+      Runnable delivery =
+          new Runnable() {
+            @Override
+            public void run() {
+              deliver(events, samples, endedFullscreen);
+            }
+          };
+      Prerenderer prerenderer = VideoTracker.this.prerenderer;
+      if (prerenderer == null || !prerenderer.defer(webView, delivery)) {
+        platformThreadHandler.post(delivery);
+      }
+    }
+  }
+}
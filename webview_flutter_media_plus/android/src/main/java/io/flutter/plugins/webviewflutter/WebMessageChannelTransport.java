@@ -0,0 +1,232 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+import android.webkit.ValueCallback;
+import android.webkit.WebView;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Implements JavaScript channels on top of HTML5 message ports instead of {@link
+ * WebView#addJavascriptInterface}.
+ *
+ * <p>A small script defines a `window[name]` object for every channel, with the same `postMessage`
+ * method a {@link JavaScriptChannel} exposes. Messages are sent over a {@link WebMessagePortCompat}
+ * that is handed to every document, so unlike Java bridge objects new channels are available
+ * without reloading the page and messages don't go through the Java bridge thread. The port also
+ * carries messages from Dart to the page, delivered to the channel's `onmessage` handler.
+ *
+ * <p>The script is installed when a page starts loading, and again once it finished in case the
+ * first install still reached the previous document. Scripts the page runs before the first install
+ * don't see the channels yet, Java bridge objects are defined before any of the page's scripts.
+ *
+ * <p>Messages are JSON arrays of strings: `[channel, message, key]` from the page and `[channel,
+ * message]` to the page. Messages posted before the port reaches the page are queued by the script.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+@TargetApi(Build.VERSION_CODES.KITKAT)
+class WebMessageChannelTransport implements FlutterWebViewClient.PageLifecycleListener {
+  private static final String TAG = "WebMessageChannels";
+  private static final String PORT_MESSAGE = "__flutter_javascript_channels_port__";
+
+  // Defines the channels named by the JSON array that is appended to it, and evaluates to whether
+  // the page already has its port.
+  private static final String INSTALL_SCRIPT =
+      "(function(names) {"
+          + "var bridge = window.__flutterJavascriptChannels;"
+          + "if (!bridge) {"
+          + "  var port = null, queue = [];"
+          + "  var send = function(data) {"
+          + "    if (port) { port.postMessage(data); } else { queue.push(data); }"
+          + "  };"
+          + "  window.addEventListener('message', function(event) {"
+          + "    if (event.data !== '" + PORT_MESSAGE + "'"
+          + "        || !event.ports || !event.ports.length) {"
+          + "      return;"
+          + "    }"
+          + "    port = event.ports[0];"
+          + "    port.onmessage = function(message) {"
+          + "      var data = JSON.parse(message.data);"
+          + "      var channel = window[data[0]];"
+          + "      if (channel && typeof channel.onmessage === 'function') {"
+          + "        channel.onmessage({data: data[1]});"
+          + "      }"
+          + "    };"
+          + "    queue.forEach(function(data) { port.postMessage(data); });"
+          + "    queue = [];"
+          + "  });"
+          + "  bridge = window.__flutterJavascriptChannels = {"
+          + "    hasPort: function() { return port !== null; },"
+          + "    define: function(name) {"
+          + "      if (window[name] && window[name].__flutterChannel) { return; }"
+          + "      window[name] = {"
+          + "        __flutterChannel: true,"
+          + "        onmessage: null,"
+          + "        postMessage: function(message, key) {"
+          + "          send(JSON.stringify([name, String(message),"
+          + "              key === undefined || key === null ? null : String(key)]));"
+          + "        }"
+          + "      };"
+          + "    }"
+          + "  };"
+          + "}"
+          + "names.forEach(bridge.define);"
+          + "return bridge.hasPort();"
+          + "})(";
+
+  private static final String REMOVE_SCRIPT =
+      "(function(names) {"
+          + "names.forEach(function(name) {"
+          + "  if (window[name] && window[name].__flutterChannel) { delete window[name]; }"
+          + "});"
+          + "})(";
+
+  private final WebView webView;
+  private final JavaScriptMessageDispatcher dispatcher;
+  private final Set<String> channelNames = new LinkedHashSet<>();
+  private WebMessagePortCompat port;
+
+  private final WebMessagePortCompat.WebMessageCallbackCompat messageCallback =
+      new WebMessagePortCompat.WebMessageCallbackCompat() {
+        @SuppressLint("RequiresFeature")
+        @Override
+        public void onMessage(WebMessagePortCompat port, WebMessageCompat message) {
+          onPageMessage(message.getData());
+        }
+      };
+
+  WebMessageChannelTransport(WebView webView, JavaScriptMessageDispatcher dispatcher) {
+    this.webView = webView;
+    this.dispatcher = dispatcher;
+  }
+
+  /** Whether the installed WebView supports the message port APIs this transport relies on. */
+  static boolean isSupported() {
+    return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+        && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE);
+  }
+
+  void addChannels(Iterable<String> names) {
+    for (String name : names) {
+      channelNames.add(name);
+    }
+    install();
+  }
+
+  void removeChannels(Iterable<String> names) {
+    JSONArray removed = new JSONArray();
+    for (String name : names) {
+      channelNames.remove(name);
+      removed.put(name);
+    }
+    webView.evaluateJavascript(REMOVE_SCRIPT + removed.toString() + ")", null);
+  }
+
+  /**
+   * Sends `message` to the `onmessage` handler of the page's `channel` object.
+   *
+   * @return false when the current page hasn't received its port yet
+   */
+  @SuppressLint("RequiresFeature")
+  boolean postMessageToPage(String channel, String message) {
+    if (port == null) {
+      return false;
+    }
+    JSONArray data = new JSONArray();
+    data.put(channel);
+    data.put(message);
+    port.postMessage(new WebMessageCompat(data.toString()));
+    return true;
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url) {
+    // The port belonged to the previous document.
+    closePort();
+    // Defines the channels while the document is parsed, messages are queued until the port
+    // arrives.
+    install();
+  }
+
+  @Override
+  public void onPageFinished(WebView view, String url) {
+    install();
+  }
+
+  @SuppressLint("RequiresFeature")
+  void dispose() {
+    closePort();
+  }
+
+  private void install() {
+    if (channelNames.isEmpty()) {
+      return;
+    }
+    JSONArray names = new JSONArray();
+    for (String name : channelNames) {
+      names.put(name);
+    }
+    webView.evaluateJavascript(
+        INSTALL_SCRIPT + names.toString() + ")",
+        new ValueCallback<String>() {
+          @Override
+          public void onReceiveValue(String hasPort) {
+            if ("false".equals(hasPort)) {
+              connect();
+            }
+          }
+        });
+  }
+
+  @SuppressLint("RequiresFeature")
+  private void connect() {
+    closePort();
+    WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+    port = ports[0];
+    port.setWebMessageCallback(messageCallback);
+    WebViewCompat.postWebMessage(
+        webView,
+        new WebMessageCompat(PORT_MESSAGE, new WebMessagePortCompat[] {ports[1]}),
+        Uri.parse("*"));
+  }
+
+  @SuppressLint("RequiresFeature")
+  private void closePort() {
+    if (port != null) {
+      port.close();
+      port = null;
+    }
+  }
+
+  private void onPageMessage(String data) {
+    try {
+      JSONArray message = new JSONArray(data);
+      String channel = message.getString(0);
+      if (!channelNames.contains(channel)) {
+        return;
+      }
+      dispatcher.dispatch(
+          channel, message.getString(1), message.isNull(2) ? null : message.getString(2));
+    } catch (JSONException e) {
+      Log.w(TAG, "Ignoring a malformed JavaScript channel message", e);
+    }
+  }
+}
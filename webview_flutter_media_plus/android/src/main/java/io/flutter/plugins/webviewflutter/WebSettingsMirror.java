@@ -0,0 +1,99 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mirrors the settings last applied to a webview, so that settings updates only apply the values
+ * that actually changed.
+ *
+ * <p>Dart sends the settings it considers changed, but values can still repeat, e.g. a user agent
+ * re-sent with every rebuild or a setting toggled back within a batch. Applying those again costs
+ * WebSettings calls, and for some settings a new WebViewClient or discarded prerenders.
+ *
+ * <p>Changes are only mirrored once {@link #commit} confirms they were applied, so a setting that
+ * failed to apply is applied again by the next update. Process-global settings, e.g.
+ * `debuggingEnabled`, can be changed by any webview and are never mirrored.
+ */
+class WebSettingsMirror {
+  private static final Set<String> KEYS =
+      new HashSet<>(
+          Arrays.asList(
+              "jsMode",
+              "hasNavigationDelegate",
+              "debuggingEnabled",
+              "gestureNavigationEnabled",
+              "userAgent"));
+  private static final Set<String> PROCESS_GLOBAL_KEYS =
+      new HashSet<>(Arrays.asList("debuggingEnabled"));
+
+  // Keys are only present once applied, a null value is an applied null, e.g. the default user
+  // agent.
+  private final Map<String, Object> applied = new HashMap<>();
+  private int appliedChanges;
+  private int skippedChanges;
+
+  /** Returns whether `key` is a setting of every webview of the process. */
+  static boolean isProcessGlobal(String key) {
+    return PROCESS_GLOBAL_KEYS.contains(key);
+  }
+
+  /**
+   * Returns the settings of `settings` whose values differ from the mirrored ones, and the
+   * process-global ones, in their order.
+   *
+   * @throws IllegalArgumentException when `settings` has an unknown setting
+   */
+  Map<String, Object> diff(Map<String, Object> settings) {
+    for (String key : settings.keySet()) {
+      if (!KEYS.contains(key)) {
+        throw new IllegalArgumentException("Unknown WebView setting: " + key);
+      }
+    }
+    Map<String, Object> changes = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : settings.entrySet()) {
+      if (!isMirrored(entry.getKey(), entry.getValue())) {
+        changes.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return changes;
+  }
+
+  /** Mirrors `settings`, a map passed to {@link #diff}, once its changes were applied. */
+  void commit(Map<String, Object> settings) {
+    for (Map.Entry<String, Object> entry : settings.entrySet()) {
+      String key = entry.getKey();
+      if (isMirrored(key, entry.getValue())) {
+        skippedChanges++;
+        continue;
+      }
+      if (!isProcessGlobal(key)) {
+        applied.put(key, entry.getValue());
+      }
+      appliedChanges++;
+    }
+  }
+
+  Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("appliedChanges", appliedChanges);
+    stats.put("skippedChanges", skippedChanges);
+    return stats;
+  }
+
+  private boolean isMirrored(String key, Object value) {
+    return applied.containsKey(key) && equal(applied.get(key), value);
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
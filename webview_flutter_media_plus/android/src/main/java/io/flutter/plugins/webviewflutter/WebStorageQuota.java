@@ -0,0 +1,248 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.webkit.ValueCallback;
+import android.webkit.WebStorage;
+import android.webkit.WebView;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Accounts the web storage of every origin, and keeps its total within a quota shared by all
+ * webviews.
+ *
+ * <p>The time every origin was last navigated to is recorded from the page events of all webviews,
+ * and persisted across restarts. When the total storage reported by {@link WebStorage} exceeds the
+ * quota, the storage of the least recently used origins is deleted until it fits again, except for
+ * protected origins and for the origins currently shown by a webview. The quota is checked when it
+ * is set, and a short while after pages finished loading, since that is when pages write storage.
+ *
+ * <p>The quota is configured through the `plugins.flutter.io/webview_storage` channel. All methods
+ * must be called on the platform thread.
+ */
+class WebStorageQuota implements MethodCallHandler, FlutterWebViewClient.PageLifecycleListener {
+  private static final String PREFERENCES = "io.flutter.plugins.webviewflutter.storage_last_use";
+  private static final long ENFORCE_DELAY_MS = 5000;
+
+  private final MethodChannel methodChannel;
+  private final SharedPreferences lastUsePreferences;
+  private final Handler platformThreadHandler = new Handler(Looper.getMainLooper());
+  private final Map<String, Long> lastUseTimes = new HashMap<>();
+  // The origin shown by every webview, weakly in case one is collected without being released.
+  private final Map<WebView, String> shownOrigins = new WeakHashMap<>();
+  private final Set<String> protectedOrigins = new HashSet<>();
+  // No quota when negative.
+  private long maxBytes = -1;
+  private boolean enforceScheduled;
+
+  private final Runnable enforce =
+      new Runnable() {
+        @Override
+        public void run() {
+          enforceScheduled = false;
+          enforce(null);
+        }
+      };
+
+  WebStorageQuota(BinaryMessenger messenger, Context applicationContext) {
+    lastUsePreferences = applicationContext.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    for (Map.Entry<String, ?> entry : lastUsePreferences.getAll().entrySet()) {
+      if (entry.getValue() instanceof Long) {
+        lastUseTimes.put(entry.getKey(), (Long) entry.getValue());
+      }
+    }
+    methodChannel = new MethodChannel(messenger, "plugins.flutter.io/webview_storage");
+    methodChannel.setMethodCallHandler(this);
+  }
+
+  @Override
+  public void onMethodCall(MethodCall methodCall, Result result) {
+    switch (methodCall.method) {
+      case "getUsage":
+        getUsage(result);
+        break;
+      case "setQuota":
+        setQuota(
+            (Number) methodCall.argument("maxBytes"),
+            methodCall.<List<String>>argument("protectedOrigins"));
+        enforce(result);
+        break;
+      case "enforceQuota":
+        enforce(result);
+        break;
+      default:
+        result.notImplemented();
+    }
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url) {
+    String origin = WebsiteDataRemover.originOf(url);
+    if (origin == null) {
+      // E.g. about:blank, the previous origin's storage is no longer in use.
+      shownOrigins.remove(view);
+      return;
+    }
+    shownOrigins.put(view, origin);
+    long now = System.currentTimeMillis();
+    lastUseTimes.put(origin, now);
+    lastUsePreferences.edit().putLong(origin, now).apply();
+  }
+
+  @Override
+  public void onPageFinished(WebView view, String url) {
+    if (maxBytes >= 0 && !enforceScheduled) {
+      enforceScheduled = true;
+      platformThreadHandler.postDelayed(enforce, ENFORCE_DELAY_MS);
+    }
+  }
+
+  /**
+   * Stops protecting the origin shown by `view`, called when it is disposed or released to the
+   * {@link WebViewPool} where it stays alive.
+   */
+  void releaseWebView(WebView view) {
+    shownOrigins.remove(view);
+  }
+
+  void dispose() {
+    methodChannel.setMethodCallHandler(null);
+    platformThreadHandler.removeCallbacks(enforce);
+  }
+
+  /** @param maxBytes null to remove the quota */
+  private void setQuota(Number maxBytes, List<String> protectedOrigins) {
+    this.maxBytes = maxBytes == null ? -1 : maxBytes.longValue();
+    this.protectedOrigins.clear();
+    if (protectedOrigins != null) {
+      for (String origin : protectedOrigins) {
+        this.protectedOrigins.add(WebsiteDataRemover.originOf(origin));
+      }
+    }
+  }
+
+  /** Replies with the storage usage, quota and last use time of every origin that has storage. */
+  private void getUsage(final Result result) {
+    WebStorage.getInstance()
+        .getOrigins(
+            new ValueCallback<Map>() {
+              @Override
+              public void onReceiveValue(Map storedOrigins) {
+                List<Map<String, Object>> usages = new ArrayList<>();
+                for (WebStorage.Origin origin : origins(storedOrigins)) {
+                  Map<String, Object> usage = new HashMap<>();
+                  usage.put("origin", origin.getOrigin());
+                  usage.put("usageBytes", origin.getUsage());
+                  usage.put("quotaBytes", origin.getQuota());
+                  usage.put("lastUsedMs", lastUseTimes.get(originOf(origin)));
+                  usages.add(usage);
+                }
+                result.success(usages);
+              }
+            });
+  }
+
+  /**
+   * Deletes the storage of the least recently used origins until the total usage is within the
+   * quota, and replies to `result`, when not null, with the origins evicted and the bytes freed.
+   */
+  private void enforce(final Result result) {
+    if (maxBytes < 0) {
+      if (result != null) {
+        result.success(evictionResult(Collections.<String>emptyList(), 0));
+      }
+      return;
+    }
+    final long quota = maxBytes;
+    final WebStorage webStorage = WebStorage.getInstance();
+    webStorage.getOrigins(
+        new ValueCallback<Map>() {
+          @Override
+          public void onReceiveValue(Map storedOrigins) {
+            List<WebStorage.Origin> origins = origins(storedOrigins);
+            long totalBytes = 0;
+            for (WebStorage.Origin origin : origins) {
+              totalBytes += origin.getUsage();
+            }
+            Collections.sort(
+                origins,
+                new Comparator<WebStorage.Origin>() {
+                  @Override
+                  public int compare(WebStorage.Origin a, WebStorage.Origin b) {
+                    long lastUseA = lastUseTime(originOf(a));
+                    long lastUseB = lastUseTime(originOf(b));
+                    return lastUseA < lastUseB ? -1 : (lastUseA == lastUseB ? 0 : 1);
+                  }
+                });
+            List<String> evicted = new ArrayList<>();
+            long freedBytes = 0;
+            SharedPreferences.Editor editor = lastUsePreferences.edit();
+            for (WebStorage.Origin origin : origins) {
+              if (totalBytes - freedBytes <= quota) {
+                break;
+              }
+              String normalizedOrigin = originOf(origin);
+              if (protectedOrigins.contains(normalizedOrigin)
+                  || shownOrigins.containsValue(normalizedOrigin)) {
+                continue;
+              }
+              webStorage.deleteOrigin(origin.getOrigin());
+              evicted.add(origin.getOrigin());
+              freedBytes += origin.getUsage();
+              lastUseTimes.remove(normalizedOrigin);
+              editor.remove(normalizedOrigin);
+            }
+            editor.apply();
+            if (result != null) {
+              result.success(evictionResult(evicted, freedBytes));
+            }
+          }
+        });
+  }
+
+  private static Map<String, Object> evictionResult(List<String> evicted, long freedBytes) {
+    Map<String, Object> eviction = new HashMap<>();
+    eviction.put("evictedOrigins", evicted);
+    eviction.put("bytesFreed", freedBytes);
+    return eviction;
+  }
+
+  // Origins never navigated to since their last use was recorded come first.
+  private long lastUseTime(String origin) {
+    Long lastUse = lastUseTimes.get(origin);
+    return lastUse == null ? 0 : lastUse;
+  }
+
+  private static String originOf(WebStorage.Origin origin) {
+    return WebsiteDataRemover.originOf(origin.getOrigin());
+  }
+
+  private static List<WebStorage.Origin> origins(Map storedOrigins) {
+    List<WebStorage.Origin> origins = new ArrayList<>();
+    if (storedOrigins != null) {
+      for (Object origin : storedOrigins.values()) {
+        origins.add((WebStorage.Origin) origin);
+      }
+    }
+    return origins;
+  }
+}
@@ -0,0 +1,221 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.os.Handler;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends a webview's events to Dart over a single `plugins.flutter.io/webview_events_<id>` event
+ * channel, in a compact binary layout.
+ *
+ * <p>Events are appended to a buffer that is sent as one `byte[]` per platform thread turn, so all
+ * event types keep their relative order and a burst of events costs a single platform message.
+ * Every event is a tag byte followed by its fields: strings, unsigned and zigzag encoded varints,
+ * and booleans as a byte. Strings are interned per stream, the first occurrence of a string carries
+ * its UTF-8 bytes and later ones only its index, which makes repeated URLs and channel names cheap.
+ *
+ * <p>String markers are varints: 0 is a string added to the table, 1 a string that isn't, 2 a null
+ * string, and any other value `n` refers to the table entry `n - 3`. The decoder in
+ * `webview_method_channel.dart` must be kept in sync with this layout.
+ *
+ * <p>Events emitted before Dart listens are buffered. All methods must be called on the platform
+ * thread.
+ */
+class WebViewEventStream implements EventChannel.StreamHandler {
+  static final int PAGE_STARTED = 1;
+  static final int PAGE_FINISHED = 2;
+  static final int PAGE_FAILED = 3;
+  static final int VIDEO_FULL_SCREEN = 4;
+  static final int JAVASCRIPT_CHANNEL_MESSAGE = 5;
+  static final int VIDEO_EVENTS = 6;
+
+  private static final int STRING_INTERNED = 0;
+  private static final int STRING_LITERAL = 1;
+  private static final int STRING_NULL = 2;
+  private static final int STRING_REFERENCE_BASE = 3;
+  // Longer strings, e.g. JavaScript channel messages, rarely repeat.
+  private static final int MAX_INTERNED_LENGTH = 256;
+  private static final int MAX_INTERNED_STRINGS = 1024;
+  // Bounds the events kept while nobody listens.
+  private static final int MAX_BUFFERED_BYTES = 256 * 1024;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final EventChannel eventChannel;
+  private final Handler platformThreadHandler;
+  private final Map<String, Integer> strings = new HashMap<>();
+  private byte[] buffer = new byte[1024];
+  private int size;
+  private EventChannel.EventSink eventSink;
+  private boolean flushScheduled;
+
+  private final Runnable flush =
+      new Runnable() {
+        @Override
+        public void run() {
+          flushScheduled = false;
+          flush();
+        }
+      };
+
+  WebViewEventStream(BinaryMessenger messenger, int id, Handler platformThreadHandler) {
+    this.platformThreadHandler = platformThreadHandler;
+    eventChannel = new EventChannel(messenger, "plugins.flutter.io/webview_events_" + id);
+    eventChannel.setStreamHandler(this);
+  }
+
+  @Override
+  public void onListen(Object arguments, EventChannel.EventSink events) {
+    eventSink = events;
+    flush();
+  }
+
+  @Override
+  public void onCancel(Object arguments) {
+    eventSink = null;
+    // A new listener starts with a new decoder.
+    reset();
+  }
+
+  void pageStarted(String url) {
+    writeVarint(PAGE_STARTED);
+    writeString(url);
+    scheduleFlush();
+  }
+
+  void pageFinished(String url) {
+    writeVarint(PAGE_FINISHED);
+    writeString(url);
+    scheduleFlush();
+  }
+
+  /** @param errorCode null when the error has no code */
+  void pageFailed(String url, String type, Integer errorCode, String description) {
+    writeVarint(PAGE_FAILED);
+    writeString(url);
+    writeString(type);
+    writeBoolean(errorCode != null);
+    if (errorCode != null) {
+      writeVarint((errorCode << 1) ^ (errorCode >> 31));
+    }
+    writeString(description);
+    scheduleFlush();
+  }
+
+  /** @param latencyMs -1 when the latency is unknown */
+  void videoFullScreen(boolean fullscreen, long latencyMs) {
+    writeVarint(VIDEO_FULL_SCREEN);
+    writeBoolean(fullscreen);
+    writeBoolean(latencyMs >= 0);
+    if (latencyMs >= 0) {
+      writeVarint((int) Math.min(latencyMs, Integer.MAX_VALUE));
+    }
+    scheduleFlush();
+  }
+
+  void javascriptChannelMessage(String channel, String message) {
+    writeVarint(JAVASCRIPT_CHANNEL_MESSAGE);
+    writeString(channel);
+    writeString(message);
+    scheduleFlush();
+  }
+
+  /** Writes a batch of {@link VideoTracker} events, the count followed by every event's fields. */
+  void videoEvents(List<Map<String, Object>> events) {
+    writeVarint(VIDEO_EVENTS);
+    writeVarint(events.size());
+    for (Map<String, Object> event : events) {
+      writeVarint((Integer) event.get("id"));
+      writeString((String) event.get("type"));
+      writeVarint((Integer) event.get("positionMs"));
+      writeString((String) event.get("src"));
+    }
+    scheduleFlush();
+  }
+
+  void dispose() {
+    platformThreadHandler.removeCallbacks(flush);
+    eventChannel.setStreamHandler(null);
+    eventSink = null;
+  }
+
+  private void scheduleFlush() {
+    if (eventSink == null) {
+      if (size > MAX_BUFFERED_BYTES) {
+        // Nobody is listening, drop the backlog rather than growing without bounds.
+        reset();
+      }
+      return;
+    }
+    if (!flushScheduled) {
+      flushScheduled = true;
+      platformThreadHandler.post(flush);
+    }
+  }
+
+  private void flush() {
+    if (eventSink == null || size == 0) {
+      return;
+    }
+    byte[] events = Arrays.copyOf(buffer, size);
+    size = 0;
+    eventSink.success(events);
+  }
+
+  private void reset() {
+    size = 0;
+    strings.clear();
+  }
+
+  private void writeString(String value) {
+    if (value == null) {
+      writeVarint(STRING_NULL);
+      return;
+    }
+    Integer index = strings.get(value);
+    if (index != null) {
+      writeVarint(STRING_REFERENCE_BASE + index);
+      return;
+    }
+    if (value.length() <= MAX_INTERNED_LENGTH && strings.size() < MAX_INTERNED_STRINGS) {
+      strings.put(value, strings.size());
+      writeVarint(STRING_INTERNED);
+    } else {
+      writeVarint(STRING_LITERAL);
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    writeVarint(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+  }
+
+  private void writeBoolean(boolean value) {
+    ensureCapacity(1);
+    buffer[size++] = (byte) (value ? 1 : 0);
+  }
+
+  // Writes the unsigned value 7 bits at a time, least significant group first.
+  private void writeVarint(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7f) != 0) {
+      buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    buffer[size++] = (byte) value;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (size + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+    }
+  }
+}
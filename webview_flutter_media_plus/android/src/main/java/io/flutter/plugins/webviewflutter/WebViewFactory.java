@@ -5,7 +5,6 @@
 package io.flutter.plugins.webviewflutter;
 
 import android.content.Context;
-import android.view.View;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.StandardMessageCodec;
 import io.flutter.plugin.platform.PlatformView;
@@ -14,18 +13,45 @@ import java.util.Map;
 
 public final class WebViewFactory extends PlatformViewFactory {
   private final BinaryMessenger messenger;
-  private final View containerView;
+  private final WebViewPool webViewPool;
+  private final ResourceCache resourceCache;
+  private final ContentBlocker contentBlocker;
+  private final WebStorageQuota webStorageQuota;
+  private final MediaSuspensionCoordinator mediaSuspensionCoordinator;
 
-  WebViewFactory(BinaryMessenger messenger, View containerView) {
+  /**
+   * @param resourceCache the cache shared by all webviews, null before Lollipop
+   * @param contentBlocker the filter list shared by all webviews, null before Lollipop
+   */
+  WebViewFactory(
+      BinaryMessenger messenger,
+      WebViewPool webViewPool,
+      ResourceCache resourceCache,
+      ContentBlocker contentBlocker,
+      WebStorageQuota webStorageQuota,
+      MediaSuspensionCoordinator mediaSuspensionCoordinator) {
     super(StandardMessageCodec.INSTANCE);
     this.messenger = messenger;
-    this.containerView = containerView;
+    this.webViewPool = webViewPool;
+    this.resourceCache = resourceCache;
+    this.contentBlocker = contentBlocker;
+    this.webStorageQuota = webStorageQuota;
+    this.mediaSuspensionCoordinator = mediaSuspensionCoordinator;
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public PlatformView create(Context context, int id, Object args) {
     Map<String, Object> params = (Map<String, Object>) args;
-    return new FlutterWebView(context, messenger, id, params, containerView);
+    return new FlutterWebView(
+        context,
+        messenger,
+        id,
+        params,
+        webViewPool,
+        resourceCache,
+        contentBlocker,
+        webStorageQuota,
+        mediaSuspensionCoordinator);
   }
 }
@@ -4,6 +4,8 @@
 
 package io.flutter.plugins.webviewflutter;
 
+import android.content.Context;
+import android.os.Build;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.PluginRegistry.Registrar;
@@ -21,6 +23,11 @@ import io.flutter.plugins.webviewflutter.*;
 public class WebViewFlutterPlugin implements FlutterPlugin {
 
   private FlutterCookieManager flutterCookieManager;
+  private WebViewPool webViewPool;
+  private ResourceCache resourceCache;
+  private ContentBlocker contentBlocker;
+  private WebStorageQuota webStorageQuota;
+  private MediaSuspensionCoordinator mediaSuspensionCoordinator;
 
   /**
    * Add an instance of this to {@link io.flutter.embedding.engine.plugins.PluginRegistry} to
@@ -44,28 +51,76 @@ public class WebViewFlutterPlugin implements FlutterPlugin {
    * won't react to changes in activity or context, unlike {@link CameraPlugin}.
    */
   public static void registerWith(Registrar registrar) {
+    WebViewPool webViewPool =
+        new WebViewPool(registrar.messenger(), registrar.context(), registrar.view());
+    ResourceCache resourceCache = createResourceCache(registrar.messenger(), registrar.context());
+    ContentBlocker contentBlocker = createContentBlocker(registrar.messenger());
+    WebStorageQuota webStorageQuota =
+        new WebStorageQuota(registrar.messenger(), registrar.context().getApplicationContext());
+    MediaSuspensionCoordinator mediaSuspensionCoordinator =
+        new MediaSuspensionCoordinator(registrar.context().getApplicationContext());
     registrar
         .platformViewRegistry()
         .registerViewFactory(
             "plugins.flutter.io/webview",
-            new WebViewFactory(registrar.messenger(), registrar.view()));
+            new WebViewFactory(
+                registrar.messenger(),
+                webViewPool,
+                resourceCache,
+                contentBlocker,
+                webStorageQuota,
+                mediaSuspensionCoordinator));
     new FlutterCookieManager(registrar.messenger());
   }
 
   @Override
   public void onAttachedToEngine(FlutterPluginBinding binding) {
     BinaryMessenger messenger = binding.getFlutterEngine().getDartExecutor();
+    webViewPool =
+        new WebViewPool(messenger, binding.getApplicationContext(), /*containerView=*/ null);
+    resourceCache = createResourceCache(messenger, binding.getApplicationContext());
+    contentBlocker = createContentBlocker(messenger);
+    webStorageQuota = new WebStorageQuota(messenger, binding.getApplicationContext());
+    mediaSuspensionCoordinator = new MediaSuspensionCoordinator(binding.getApplicationContext());
     binding
         .getFlutterEngine()
         .getPlatformViewsController()
         .getRegistry()
         .registerViewFactory(
-            "plugins.flutter.io/webview", new WebViewFactory(messenger, /*containerView=*/ null));
+            "plugins.flutter.io/webview",
+            new WebViewFactory(
+                messenger,
+                webViewPool,
+                resourceCache,
+                contentBlocker,
+                webStorageQuota,
+                mediaSuspensionCoordinator));
     flutterCookieManager = new FlutterCookieManager(messenger);
   }
 
   @Override
   public void onDetachedFromEngine(FlutterPluginBinding binding) {
+    if (webViewPool != null) {
+      webViewPool.dispose();
+      webViewPool = null;
+    }
+    if (resourceCache != null) {
+      resourceCache.dispose();
+      resourceCache = null;
+    }
+    if (contentBlocker != null) {
+      contentBlocker.dispose();
+      contentBlocker = null;
+    }
+    if (webStorageQuota != null) {
+      webStorageQuota.dispose();
+      webStorageQuota = null;
+    }
+    if (mediaSuspensionCoordinator != null) {
+      mediaSuspensionCoordinator.dispose();
+      mediaSuspensionCoordinator = null;
+    }
+
     if (flutterCookieManager == null) {
       return;
     }
@@ -73,4 +128,20 @@ public class WebViewFlutterPlugin implements FlutterPlugin {
     flutterCookieManager.dispose();
     flutterCookieManager = null;
   }
+
+  // Requests can only be intercepted with their headers from Lollipop.
+  private static ResourceCache createResourceCache(BinaryMessenger messenger, Context context) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return null;
+    }
+    return new ResourceCache(messenger, context.getApplicationContext());
+  }
+
+  // Requests can only be intercepted with their frame from Lollipop.
+  private static ContentBlocker createContentBlocker(BinaryMessenger messenger) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return null;
+    }
+    return new ContentBlocker(messenger);
+  }
 }
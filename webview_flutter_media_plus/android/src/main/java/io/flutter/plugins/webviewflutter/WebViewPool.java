@@ -0,0 +1,234 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.WebSettings;
+import android.webkit.WebViewClient;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a small number of pre-constructed {@link InputAwareWebView}s around so that creating a
+ * {@link FlutterWebView} doesn't have to pay for the WebView construction on the UI thread.
+ *
+ * <p>Pooled webviews are created with a {@link MutableContextWrapper} around the application
+ * context. When a webview is handed out its base context is swapped for the context of the platform
+ * view that is being created, and swapped back when the webview is released so that the pool never
+ * holds on to a virtual display's context.
+ *
+ * <p>The pool is filled from a {@link MessageQueue.IdleHandler} on the main looper, one webview per
+ * idle pass, and is emptied when the system asks the application to trim its memory.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+@TargetApi(Build.VERSION_CODES.KITKAT)
+class WebViewPool implements MethodCallHandler {
+  private static final String BLANK_URL = "about:blank";
+
+  private final Context applicationContext;
+  private final View containerView;
+  private final MethodChannel methodChannel;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final ArrayDeque<InputAwareWebView> idleWebViews = new ArrayDeque<>();
+
+  private int capacity;
+  private int hits;
+  private int misses;
+  private boolean fillScheduled;
+
+  private final MessageQueue.IdleHandler fillHandler =
+      new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+          if (idleWebViews.size() < capacity) {
+            idleWebViews.addLast(createWebView(applicationContext));
+          }
+          fillScheduled = idleWebViews.size() < capacity;
+          return fillScheduled;
+        }
+      };
+
+  private final ComponentCallbacks2 memoryCallbacks =
+      new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+          if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trim(0);
+          }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {}
+
+        @Override
+        public void onLowMemory() {
+          trim(0);
+        }
+      };
+
+  /**
+   * @param messenger the messenger used for the pool's configuration channel
+   * @param applicationContext the context idle webviews are bound to while they are in the pool
+   * @param containerView the container view that is passed to every webview the pool creates
+   */
+  WebViewPool(BinaryMessenger messenger, Context applicationContext, View containerView) {
+    this.applicationContext = applicationContext;
+    this.containerView = containerView;
+    methodChannel = new MethodChannel(messenger, "plugins.flutter.io/webview_pool");
+    methodChannel.setMethodCallHandler(this);
+    applicationContext.registerComponentCallbacks(memoryCallbacks);
+  }
+
+  @Override
+  public void onMethodCall(MethodCall methodCall, Result result) {
+    switch (methodCall.method) {
+      case "setCapacity":
+        setCapacity((Integer) methodCall.arguments);
+        result.success(null);
+        break;
+      case "getStats":
+        result.success(getStats());
+        break;
+      default:
+        result.notImplemented();
+    }
+  }
+
+  /**
+   * Sets the number of idle webviews the pool keeps.
+   *
+   * <p>Growing the pool schedules the missing webviews to be created when the main looper is idle,
+   * shrinking it destroys the surplus idle webviews right away.
+   */
+  void setCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("The pool capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    trim(capacity);
+    scheduleFill();
+  }
+
+  /**
+   * Returns an idle webview bound to {@code context}, or a newly constructed one when the pool is
+   * empty.
+   */
+  InputAwareWebView acquire(Context context) {
+    InputAwareWebView webView = idleWebViews.pollFirst();
+    if (webView == null) {
+      misses++;
+      webView = createWebView(context);
+    } else {
+      hits++;
+      ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+    }
+    scheduleFill();
+    return webView;
+  }
+
+  /**
+   * Hands a webview that is no longer used back to the pool.
+   *
+   * <p>The webview is detached from its parent and its clients, page and settings are reset. It is
+   * destroyed instead when the pool is full.
+   */
+  void release(InputAwareWebView webView) {
+    ViewParent parent = webView.getParent();
+    if (parent instanceof ViewGroup) {
+      ((ViewGroup) parent).removeView(webView);
+    }
+    if (idleWebViews.size() >= capacity
+        || !(webView.getContext() instanceof MutableContextWrapper)) {
+      webView.destroy();
+      return;
+    }
+
+    webView.stopLoading();
+    webView.setWebChromeClient(null);
+    webView.setWebViewClient(new WebViewClient());
+    webView.loadUrl(BLANK_URL);
+    webView.clearHistory();
+    resetSettings(webView.getSettings());
+    ((MutableContextWrapper) webView.getContext()).setBaseContext(applicationContext);
+    idleWebViews.addLast(webView);
+  }
+
+  Map<String, Object> getStats() {
+    Map<String, Object> stats = new HashMap<>();
+    stats.put("capacity", capacity);
+    stats.put("idle", idleWebViews.size());
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    return stats;
+  }
+
+  void dispose() {
+    methodChannel.setMethodCallHandler(null);
+    applicationContext.unregisterComponentCallbacks(memoryCallbacks);
+    trim(0);
+  }
+
+  private InputAwareWebView createWebView(Context context) {
+    DisplayListenerProxy displayListenerProxy = new DisplayListenerProxy();
+    DisplayManager displayManager =
+        (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+    displayListenerProxy.onPreWebViewInitialization(displayManager);
+    InputAwareWebView webView =
+        new InputAwareWebView(new MutableContextWrapper(context), containerView);
+    displayListenerProxy.onPostWebViewInitialization(displayManager);
+    resetSettings(webView.getSettings());
+    return webView;
+  }
+
+  private void scheduleFill() {
+    if (fillScheduled || idleWebViews.size() >= capacity) {
+      return;
+    }
+    fillScheduled = true;
+    // Looper#getQueue is only available from API 23, so the idle handler is registered from a
+    // message running on the main looper instead.
+    mainHandler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            Looper.myQueue().addIdleHandler(fillHandler);
+          }
+        });
+  }
+
+  private void trim(int maxIdle) {
+    while (idleWebViews.size() > maxIdle) {
+      idleWebViews.pollLast().destroy();
+    }
+  }
+
+  // Restores the settings FlutterWebView relies on being the WebView defaults.
+  private static void resetSettings(WebSettings settings) {
+    settings.setJavaScriptEnabled(false);
+    settings.setDomStorageEnabled(true);
+    settings.setJavaScriptCanOpenWindowsAutomatically(true);
+    settings.setMediaPlaybackRequiresUserGesture(true);
+    settings.setUserAgentString(null);
+  }
+}
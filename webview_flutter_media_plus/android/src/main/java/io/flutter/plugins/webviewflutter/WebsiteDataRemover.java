@@ -0,0 +1,188 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.webkit.ValueCallback;
+import android.webkit.WebStorage;
+import android.webkit.WebView;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Clears chosen types of website data, for all origins or only for chosen ones, without blocking
+ * the platform thread.
+ *
+ * <p>Web storage is enumerated and deleted per origin through {@link WebStorage}, whose callbacks
+ * report the bytes each origin used. The plugin's {@link ResourceCache} deletes its files on a
+ * background thread. The WebView's HTTP cache is shared by all origins and doesn't report its size,
+ * it is only cleared when no origins are chosen.
+ *
+ * <p>All methods must be called on the platform thread.
+ */
+class WebsiteDataRemover {
+  // The indices of the Dart WebViewDataType values.
+  static final int HTTP_CACHE = 0;
+  static final int WEB_STORAGE = 1;
+  static final int RESOURCE_CACHE = 2;
+
+  private final ResourceCache resourceCache;
+  private final Handler platformThreadHandler;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  /** @param resourceCache null when the webview doesn't use the resource cache */
+  WebsiteDataRemover(ResourceCache resourceCache, Handler platformThreadHandler) {
+    this.resourceCache = resourceCache;
+    this.platformThreadHandler = platformThreadHandler;
+  }
+
+  /**
+   * Clears the data of `types` for `origins`, or for all origins when it is null, and replies with
+   * whether the HTTP cache was cleared and the bytes freed per type.
+   */
+  void remove(
+      WebView webView, Collection<Integer> types, Collection<String> origins, Result result) {
+    Set<String> normalizedOrigins = null;
+    if (origins != null) {
+      normalizedOrigins = new HashSet<>();
+      for (String origin : origins) {
+        normalizedOrigins.add(originOf(origin));
+      }
+    }
+    Removal removal = new Removal(result, true);
+    if (types.contains(HTTP_CACHE) && normalizedOrigins == null) {
+      webView.clearCache(true);
+      removal.httpCacheCleared = true;
+    }
+    if (types.contains(WEB_STORAGE)) {
+      removeWebStorage(normalizedOrigins, removal);
+    }
+    if (types.contains(RESOURCE_CACHE)
+        && resourceCache != null
+        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      removeResourceCache(normalizedOrigins, removal);
+    }
+    // Replies right away when nothing is cleared asynchronously.
+    removal.complete();
+  }
+
+  /** Clears the HTTP cache and the web storage of all origins, and replies with null. */
+  void removeAll(WebView webView, Result result) {
+    Removal removal = new Removal(result, false);
+    webView.clearCache(true);
+    removeWebStorage(null, removal);
+    removal.complete();
+  }
+
+  void dispose() {
+    executor.shutdown();
+  }
+
+  /**
+   * Returns the `scheme://host[:port]` origin of `url` as WebStorage reports it, with the scheme's
+   * default port left out, or null when `url` has no host.
+   */
+  static String originOf(String url) {
+    Uri uri = Uri.parse(url);
+    String scheme = uri.getScheme();
+    String host = uri.getHost();
+    if (scheme == null || host == null) {
+      return null;
+    }
+    scheme = scheme.toLowerCase(Locale.US);
+    int port = uri.getPort();
+    boolean defaultPort =
+        port == -1
+            || (port == 80 && scheme.equals("http"))
+            || (port == 443 && scheme.equals("https"));
+    return scheme + "://" + host.toLowerCase(Locale.US) + (defaultPort ? "" : ":" + port);
+  }
+
+  private void removeWebStorage(final Set<String> origins, final Removal removal) {
+    removal.pending++;
+    final WebStorage webStorage = WebStorage.getInstance();
+    webStorage.getOrigins(
+        new ValueCallback<Map>() {
+          @Override
+          public void onReceiveValue(Map storedOrigins) {
+            long freed = 0;
+            if (storedOrigins != null) {
+              for (Object value : storedOrigins.values()) {
+                WebStorage.Origin origin = (WebStorage.Origin) value;
+                if (origins == null || origins.contains(originOf(origin.getOrigin()))) {
+                  freed += origin.getUsage();
+                  webStorage.deleteOrigin(origin.getOrigin());
+                }
+              }
+            }
+            if (origins == null) {
+              // Also deletes the storage that isn't reported per origin.
+              webStorage.deleteAllData();
+            }
+            removal.webStorageBytes = freed;
+            removal.complete();
+          }
+        });
+  }
+
+  private void removeResourceCache(final Set<String> origins, final Removal removal) {
+    removal.pending++;
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            final long freed = resourceCache.remove(origins);
+            platformThreadHandler.post(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    removal.resourceCacheBytes = freed;
+                    removal.complete();
+                  }
+                });
+          }
+        });
+  }
+
+  /** A `clearData` call, replying once all of its types are cleared. */
+  private static class Removal {
+    private final Result result;
+    private final boolean reportCounts;
+    // Counts the asynchronous removals, and the remove call itself.
+    private int pending = 1;
+    private boolean httpCacheCleared;
+    private long webStorageBytes;
+    private long resourceCacheBytes;
+
+    Removal(Result result, boolean reportCounts) {
+      this.result = result;
+      this.reportCounts = reportCounts;
+    }
+
+    void complete() {
+      if (--pending != 0) {
+        return;
+      }
+      if (!reportCounts) {
+        result.success(null);
+        return;
+      }
+      Map<String, Object> counts = new HashMap<>();
+      counts.put("httpCacheCleared", httpCacheCleared);
+      counts.put("webStorageBytes", webStorageBytes);
+      counts.put("resourceCacheBytes", resourceCacheBytes);
+      result.success(counts);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class AssetServerTest {
+  @Test
+  public void parseRangeReturnsInclusiveBounds() {
+    assertArrayEquals(new long[] {0, 99}, AssetServer.parseRange("bytes=0-99", 1000));
+    assertArrayEquals(new long[] {0, 0}, AssetServer.parseRange(" Bytes= 0-0 ", 1000));
+  }
+
+  @Test
+  public void parseRangeClampsToTheLength() {
+    assertArrayEquals(new long[] {900, 999}, AssetServer.parseRange("bytes=900-", 1000));
+    assertArrayEquals(new long[] {500, 999}, AssetServer.parseRange("bytes=500-5000", 1000));
+  }
+
+  @Test
+  public void parseRangeSupportsSuffixRanges() {
+    assertArrayEquals(new long[] {900, 999}, AssetServer.parseRange("bytes=-100", 1000));
+    assertArrayEquals(new long[] {0, 999}, AssetServer.parseRange("bytes=-2000", 1000));
+  }
+
+  @Test
+  public void parseRangeRejectsUnsatisfiableRanges() {
+    assertNull(AssetServer.parseRange("bytes=1000-", 1000));
+    assertNull(AssetServer.parseRange("bytes=5-4", 1000));
+    assertNull(AssetServer.parseRange("bytes=-0", 1000));
+    assertNull(AssetServer.parseRange("bytes=0-", 0));
+  }
+
+  @Test
+  public void parseRangeRejectsUnsupportedRanges() {
+    assertNull(AssetServer.parseRange("bytes=0-1,5-6", 1000));
+    assertNull(AssetServer.parseRange("items=0-1", 1000));
+    assertNull(AssetServer.parseRange("bytes=5", 1000));
+    assertNull(AssetServer.parseRange("bytes=a-b", 1000));
+  }
+}
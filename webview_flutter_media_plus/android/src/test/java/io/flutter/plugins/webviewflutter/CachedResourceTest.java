@@ -0,0 +1,76 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class CachedResourceTest {
+  private static final long NOW = 1000000;
+  // Thu, 01 Jan 2099 00:00:00 GMT
+  private static final long YEAR_2099 = 4070908800000L;
+
+  @Test
+  public void noStoreIsNotStorable() {
+    assertEquals(
+        CachedResource.NOT_STORABLE,
+        CachedResource.expiresAt(headers("cache-control", "max-age=60, No-Store"), NOW));
+  }
+
+  @Test
+  public void maxAgeSetsTheExpiry() {
+    assertEquals(
+        NOW + 60000, CachedResource.expiresAt(headers("cache-control", "public, max-age=60"), NOW));
+  }
+
+  @Test
+  public void maxAgeTakesPrecedenceOverExpires() {
+    Map<String, String> headers = headers("cache-control", "max-age=60");
+    headers.put("expires", "Thu, 01 Jan 2099 00:00:00 GMT");
+
+    assertEquals(NOW + 60000, CachedResource.expiresAt(headers, NOW));
+  }
+
+  @Test
+  public void expiresSetsTheExpiry() {
+    assertEquals(
+        YEAR_2099,
+        CachedResource.expiresAt(headers("expires", "Thu, 01 Jan 2099 00:00:00 GMT"), NOW));
+    assertEquals(
+        YEAR_2099,
+        CachedResource.expiresAt(
+            headers("cache-control", "public", "expires", "Thu, 01 Jan 2099 00:00:00 GMT"), NOW));
+  }
+
+  @Test
+  public void responsesWithoutFreshnessAreStale() {
+    assertEquals(NOW, CachedResource.expiresAt(new HashMap<String, String>(), NOW));
+    assertEquals(NOW, CachedResource.expiresAt(headers("cache-control", "no-cache"), NOW));
+    assertEquals(NOW, CachedResource.expiresAt(headers("cache-control", "max-age=soon"), NOW));
+    assertEquals(NOW, CachedResource.expiresAt(headers("expires", "0"), NOW));
+  }
+
+  @Test
+  public void requestsCanBypassCaches() {
+    assertTrue(CachedResource.bypassesCache(headers("Cache-Control", "no-cache")));
+    assertTrue(CachedResource.bypassesCache(headers("cache-control", "max-age=0, no-store")));
+    assertTrue(CachedResource.bypassesCache(headers("Pragma", "no-cache")));
+    assertFalse(CachedResource.bypassesCache(headers("Cache-Control", "max-age=0")));
+    assertFalse(CachedResource.bypassesCache(headers("Accept", "no-cache")));
+  }
+
+  private static Map<String, String> headers(String... namesAndValues) {
+    Map<String, String> headers = new HashMap<>();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      headers.put(namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class ContentFilterTest {
+  @Test
+  public void hostRulesBlockTheHostAndItsSubdomains() {
+    ContentFilter filter = hostFilter("tracker.com");
+
+    assertTrue(filter.matches("tracker.com", "https://tracker.com/"));
+    assertTrue(filter.matches("ads.tracker.com", "https://ads.tracker.com/"));
+    assertTrue(filter.matches("a.b.TRACKER.com", "https://a.b.tracker.com/"));
+    assertFalse(filter.matches("nottracker.com", "https://nottracker.com/"));
+    assertFalse(filter.matches("tracker.com.example.org", "https://tracker.com.example.org/"));
+    assertFalse(filter.matches("com", "https://com/"));
+  }
+
+  @Test
+  public void hostRulesAreNormalized() {
+    ContentFilter filter = hostFilter("*.ads.net", ".cdn.net", " Example.ORG. ", "ads.net");
+
+    assertTrue(filter.matches("x.ads.net", "https://x.ads.net/"));
+    assertTrue(filter.matches("cdn.net", "https://cdn.net/"));
+    assertTrue(filter.matches("www.example.org", "https://www.example.org/"));
+    // The first and the last rules are the same host.
+    assertEquals(3, filter.hostRuleCount());
+  }
+
+  @Test
+  public void allowedHostsTakePrecedence() {
+    ContentFilter filter =
+        new ContentFilter(
+            Collections.singletonList("tracker.com"),
+            Collections.singletonList("/ads/"),
+            Collections.singletonList("ok.tracker.com"));
+
+    assertTrue(filter.matches("tracker.com", "https://tracker.com/"));
+    assertFalse(filter.matches("ok.tracker.com", "https://ok.tracker.com/"));
+    assertFalse(filter.matches("cdn.ok.tracker.com", "https://cdn.ok.tracker.com/ads/1.js"));
+  }
+
+  @Test
+  public void urlRulesMatchAnywhereInTheUrl() {
+    ContentFilter filter = urlFilter("/ads/", "banner", "&utm_");
+
+    assertTrue(filter.matches("example.com", "https://example.com/ads/1.js"));
+    assertTrue(filter.matches("example.com", "https://example.com/img/BANNER.png"));
+    assertTrue(filter.matches("example.com", "https://example.com/?a=1&utm_source=x"));
+    assertFalse(filter.matches("example.com", "https://example.com/ad/1.js"));
+    assertFalse(filter.matches(null, "about:blank"));
+  }
+
+  @Test
+  public void urlRulesFollowFailureLinks() {
+    // Reading "abc" of "abce" leads towards "abcd", the match of "bce" is found through the
+    // failure link to "bc".
+    ContentFilter filter = urlFilter("abcd", "bce");
+
+    assertTrue(filter.matches(null, "xabcex"));
+    assertTrue(filter.matches(null, "abcd"));
+    assertFalse(filter.matches(null, "abcbc"));
+  }
+
+  @Test
+  public void emptyRulesAreIgnored() {
+    ContentFilter filter =
+        new ContentFilter(
+            Arrays.asList("", " "), Collections.singletonList(""), Collections.singletonList(""));
+
+    assertTrue(filter.isEmpty());
+    assertFalse(filter.matches("example.com", "https://example.com/"));
+    assertTrue(ContentFilter.EMPTY.isEmpty());
+    assertFalse(ContentFilter.EMPTY.matches("example.com", "https://example.com/"));
+  }
+
+  private static ContentFilter hostFilter(String... hosts) {
+    return new ContentFilter(
+        Arrays.asList(hosts), Collections.<String>emptyList(), Collections.<String>emptyList());
+  }
+
+  private static ContentFilter urlFilter(String... rules) {
+    return new ContentFilter(
+        Collections.<String>emptyList(), Arrays.asList(rules), Collections.<String>emptyList());
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** An HTTP server on the loopback interface serving canned responses to the tests. */
+class LocalHttpServer {
+  private static final String HOST = "127.0.0.1";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /** Answers a request, e.g. by calling {@link #respond}. */
+  interface Handler {
+    void handle(HttpExchange exchange) throws IOException;
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+  LocalHttpServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(HOST, 0), 0);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /** Handles the requests for `path` with `handler`. */
+  void route(final String path, final Handler handler) {
+    requestCounts.put(path, new AtomicInteger());
+    server.createContext(
+        path,
+        new HttpHandler() {
+          @Override
+          public void handle(HttpExchange exchange) throws IOException {
+            requestCounts.get(path).incrementAndGet();
+            try {
+              handler.handle(exchange);
+            } finally {
+              exchange.close();
+            }
+          }
+        });
+  }
+
+  /** Serves `body` for `path` with the given response headers. */
+  void route(String path, final String body, final String... headerNamesAndValues) {
+    route(
+        path,
+        new Handler() {
+          @Override
+          public void handle(HttpExchange exchange) throws IOException {
+            respond(exchange, body, headerNamesAndValues);
+          }
+        });
+  }
+
+  /** Returns how many requests were made for `path`. */
+  int requestCount(String path) {
+    return requestCounts.get(path).get();
+  }
+
+  String url(String path) {
+    return "http://" + HOST + ":" + server.getAddress().getPort() + path;
+  }
+
+  void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  static void respond(HttpExchange exchange, String body, String... headerNamesAndValues)
+      throws IOException {
+    for (int i = 0; i < headerNamesAndValues.length; i += 2) {
+      exchange.getResponseHeaders().add(headerNamesAndValues[i], headerNamesAndValues[i + 1]);
+    }
+    byte[] bytes = body.getBytes(UTF_8);
+    exchange.sendResponseHeaders(200, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+}
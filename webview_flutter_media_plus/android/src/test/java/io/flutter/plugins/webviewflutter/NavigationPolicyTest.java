@@ -0,0 +1,143 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import android.net.Uri;
+import android.os.Build;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class NavigationPolicyTest {
+  private final NavigationPolicy policy = new NavigationPolicy();
+
+  @Test
+  public void noRulesMatchNothing() {
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com/"));
+
+    policy.setRules(null);
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com/"));
+  }
+
+  @Test
+  public void theFirstMatchingRuleDecides() {
+    policy.setRules(
+        rules(
+            rule(NavigationPolicy.NAVIGATE, null, "example.com", "/allowed", null),
+            rule(NavigationPolicy.PREVENT, null, "example.com", null, null)));
+
+    assertEquals(NavigationPolicy.NAVIGATE, evaluate("https://example.com/allowed/page"));
+    assertEquals(NavigationPolicy.PREVENT, evaluate("https://example.com/other"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.org/allowed"));
+  }
+
+  @Test
+  public void schemesAreCaseInsensitive() {
+    policy.setRules(
+        rules(rule(NavigationPolicy.PREVENT, Arrays.asList("Intent", "market"), null, null, null)));
+
+    assertEquals(NavigationPolicy.PREVENT, evaluate("intent://scan/#Intent;end"));
+    assertEquals(NavigationPolicy.PREVENT, evaluate("MARKET://details?id=app"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com/"));
+  }
+
+  @Test
+  public void wildcardHostsMatchSubdomains() {
+    policy.setRules(rules(rule(NavigationPolicy.NAVIGATE, null, "*.example.com", null, null)));
+
+    assertEquals(NavigationPolicy.NAVIGATE, evaluate("https://example.com/"));
+    assertEquals(NavigationPolicy.NAVIGATE, evaluate("https://a.b.EXAMPLE.com/"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://badexample.com/"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com.evil.org/"));
+  }
+
+  @Test
+  public void hostsWithoutWildcardMatchExactly() {
+    policy.setRules(rules(rule(NavigationPolicy.NAVIGATE, null, "Example.com", null, null)));
+
+    assertEquals(NavigationPolicy.NAVIGATE, evaluate("https://example.com/"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://www.example.com/"));
+  }
+
+  @Test
+  public void patternsAreFoundAnywhereInTheUrl() {
+    policy.setRules(rules(rule(NavigationPolicy.PREVENT, null, null, null, "[?&]download=1")));
+
+    assertEquals(NavigationPolicy.PREVENT, evaluate("https://example.com/file?download=1"));
+    assertEquals(NavigationPolicy.PREVENT, evaluate("https://example.com/file?a=b&download=1"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com/download=1"));
+  }
+
+  @Test
+  public void allConditionsOfARuleMustMatch() {
+    policy.setRules(
+        rules(
+            rule(
+                NavigationPolicy.NAVIGATE,
+                Arrays.asList("https"),
+                "example.com",
+                "/docs",
+                "\\.html$")));
+
+    assertEquals(NavigationPolicy.NAVIGATE, evaluate("https://example.com/docs/a.html"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("http://example.com/docs/a.html"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com/docs/a.pdf"));
+    assertEquals(NavigationPolicy.NO_MATCH, evaluate("https://example.com/blog/a.html"));
+  }
+
+  @Test
+  public void invalidRulesLeaveTheRulesUnchanged() {
+    policy.setRules(rules(rule(NavigationPolicy.PREVENT, null, "example.com", null, null)));
+
+    try {
+      policy.setRules(
+          rules(
+              rule(NavigationPolicy.NAVIGATE, null, "example.com", null, null),
+              rule(NavigationPolicy.NAVIGATE, null, null, null, "(unclosed")));
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+    try {
+      policy.setRules(rules(rule(7, null, "example.com", null, null)));
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+
+    assertEquals(NavigationPolicy.PREVENT, evaluate("https://example.com/"));
+  }
+
+  private int evaluate(String url) {
+    return policy.evaluate(Uri.parse(url));
+  }
+
+  @SafeVarargs
+  private static List<Map<String, Object>> rules(Map<String, Object>... rules) {
+    return new ArrayList<>(Arrays.asList(rules));
+  }
+
+  private static Map<String, Object> rule(
+      int decision, List<String> schemes, String host, String pathPrefix, String pattern) {
+    Map<String, Object> rule = new HashMap<>();
+    rule.put("decision", decision);
+    rule.put("schemes", schemes);
+    rule.put("host", host);
+    rule.put("pathPrefix", pathPrefix);
+    rule.put("pattern", pattern);
+    return rule;
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+import com.sun.net.httpserver.HttpExchange;
+import io.flutter.plugin.common.BinaryMessenger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class ResourceCacheTest {
+  private static final long MAX_BYTES = 1024 * 1024;
+
+  private LocalHttpServer server;
+  private ResourceCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new LocalHttpServer();
+    cache = new ResourceCache(new NoOpBinaryMessenger(), RuntimeEnvironment.application);
+  }
+
+  @After
+  public void tearDown() {
+    cache.dispose();
+    server.stop();
+  }
+
+  @Test
+  public void freshResponsesAreStored() throws IOException {
+    server.route("/app.js", "app()", "Cache-Control", "max-age=600");
+    String url = server.url("/app.js");
+
+    CachedResource resource = prefetch(url, requestHeaders());
+
+    assertNotNull(resource);
+    assertEquals("app()", new String(resource.body, "UTF-8"));
+    assertTrue(cache.contains(url, requestHeaders(), false));
+  }
+
+  @Test
+  public void responsesThatMustNotBeStoredAreNot() throws IOException {
+    server.route("/no-store.js", "a()", "Cache-Control", "no-store, max-age=600");
+    server.route("/stale.js", "b()", "Cache-Control", "max-age=0");
+
+    assertNull(prefetch(server.url("/no-store.js"), requestHeaders()));
+    assertNull(prefetch(server.url("/stale.js"), requestHeaders()));
+    assertFalse(cache.contains(server.url("/no-store.js"), requestHeaders(), false));
+    assertFalse(cache.contains(server.url("/stale.js"), requestHeaders(), false));
+  }
+
+  @Test
+  public void responsesAreKeyedByTheRequestHeadersTheyVaryBy() throws IOException {
+    server.route(
+        "/greeting.txt",
+        new LocalHttpServer.Handler() {
+          @Override
+          public void handle(HttpExchange exchange) throws IOException {
+            String language = exchange.getRequestHeaders().getFirst("Accept-Language");
+            LocalHttpServer.respond(
+                exchange,
+                "fr".equals(language) ? "bonjour" : "hello",
+                "Cache-Control",
+                "max-age=600",
+                "Vary",
+                "Accept-Language, Accept-Encoding");
+          }
+        });
+    String url = server.url("/greeting.txt");
+    Map<String, String> english = requestHeaders("Accept-Language", "en");
+    Map<String, String> french = requestHeaders("Accept-Language", "fr");
+
+    assertEquals("hello", new String(prefetch(url, english).body, "UTF-8"));
+
+    assertTrue(cache.contains(url, english, false));
+    // Header names are case insensitive, headers the response doesn't vary by are ignored.
+    assertTrue(
+        cache.contains(url, requestHeaders("accept-language", "en", "Accept", "*/*"), false));
+    assertFalse(cache.contains(url, french, false));
+    assertFalse(cache.contains(url, requestHeaders(), false));
+
+    assertEquals("bonjour", new String(prefetch(url, french).body, "UTF-8"));
+
+    assertTrue(cache.contains(url, english, false));
+    assertTrue(cache.contains(url, french, false));
+    assertEquals(2, server.requestCount("/greeting.txt"));
+  }
+
+  @Test
+  public void responsesVaryingByEverythingAreNotStored() throws IOException {
+    server.route("/any.js", "a()", "Cache-Control", "max-age=600", "Vary", "*");
+
+    assertNull(prefetch(server.url("/any.js"), requestHeaders()));
+  }
+
+  @Test
+  public void subresourcesAreNotServedAsPrefetchedDocuments() throws IOException {
+    server.route("/app.js", "app()", "Cache-Control", "max-age=600");
+    String url = server.url("/app.js");
+
+    prefetch(url, requestHeaders());
+
+    assertTrue(cache.contains(url, requestHeaders(), false));
+    assertFalse(cache.contains(url, requestHeaders(), true));
+  }
+
+  private CachedResource prefetch(String url, Map<String, String> requestHeaders)
+      throws IOException {
+    return cache.prefetch(url, url, requestHeaders, false, MAX_BYTES);
+  }
+
+  private static Map<String, String> requestHeaders(String... namesAndValues) {
+    Map<String, String> headers = new HashMap<>();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      headers.put(namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return headers;
+  }
+
+  static class NoOpBinaryMessenger implements BinaryMessenger {
+    @Override
+    public void send(String channel, ByteBuffer message) {}
+
+    @Override
+    public void send(String channel, ByteBuffer message, BinaryReply callback) {}
+
+    @Override
+    public void setMessageHandler(String channel, BinaryMessageHandler handler) {}
+  }
+}
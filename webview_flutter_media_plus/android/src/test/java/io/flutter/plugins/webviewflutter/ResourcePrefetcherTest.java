@@ -0,0 +1,321 @@
+// Copyright 2019 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.webviewflutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import android.net.Uri;
+import android.os.Build;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import com.sun.net.httpserver.HttpExchange;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class ResourcePrefetcherTest {
+  private static final long TIMEOUT_MS = 10000;
+  private static final long MAX_BYTES = 1024 * 1024;
+
+  private final Object owner = new Object();
+  private LocalHttpServer server;
+  private ResourceCache cache;
+  private ResourcePrefetcher prefetcher;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new LocalHttpServer();
+    cache =
+        new ResourceCache(
+            new ResourceCacheTest.NoOpBinaryMessenger(), RuntimeEnvironment.application);
+    prefetcher = cache.getPrefetcher();
+  }
+
+  @After
+  public void tearDown() {
+    cache.dispose();
+    server.stop();
+  }
+
+  @Test
+  public void runsAtMostTwoFetchesAtATime() throws Exception {
+    BlockingRoutes routes = new BlockingRoutes("/a", "/b", "/c", "/d");
+    CountsResult result = new CountsResult();
+
+    prefetcher.prefetch(
+        owner, routes.urls(), 0, MAX_BYTES, false, Collections.<String, String>emptyMap(), result);
+    routes.awaitInFlight(2);
+    // Give a third fetch the time to start if it could.
+    Thread.sleep(200);
+    assertEquals(2, routes.started.get());
+    routes.release();
+    Map<String, Object> counts = result.await();
+
+    assertEquals(2, routes.maxInFlight.get());
+    assertEquals(4, routes.started.get());
+    assertEquals(4, counts.get("requested"));
+    assertEquals(4, counts.get("fetched"));
+    assertEquals(false, counts.get("cancelled"));
+  }
+
+  @Test
+  public void stopsFetchingOnceTheByteBudgetIsSpent() throws Exception {
+    String kilobyte = kilobyte();
+    String document =
+        "<script src=\"a.js\"></script><link rel=\"stylesheet\" href=\"/b.css\">" + kilobyte;
+    server.route("/index.html", document, "Content-Type", "text/html; charset=utf-8");
+    server.route("/a.js", kilobyte, "Cache-Control", "max-age=600");
+    server.route("/b.css", kilobyte, "Cache-Control", "max-age=600");
+    CountsResult result = new CountsResult();
+
+    prefetcher.prefetch(
+        owner,
+        Arrays.asList(server.url("/index.html")),
+        0,
+        2048,
+        true,
+        Collections.<String, String>emptyMap(),
+        result);
+    Map<String, Object> counts = result.await();
+
+    // Both subresources are found, but less than a kilobyte of the budget is left for them.
+    assertEquals(3, counts.get("requested"));
+    assertEquals(1, counts.get("fetched"));
+    assertEquals(2, counts.get("skipped"));
+    assertEquals((long) document.length(), counts.get("bytes"));
+    assertFalse(cache.contains(server.url("/a.js"), Collections.<String, String>emptyMap(), false));
+  }
+
+  @Test
+  public void cancelSkipsTheFetchesThatDidNotStart() throws Exception {
+    BlockingRoutes routes = new BlockingRoutes("/a", "/b", "/c", "/d");
+    CountsResult result = new CountsResult();
+    CountsResult otherOwnersResult = new CountsResult();
+    server.route("/other", "other", "Cache-Control", "max-age=600");
+
+    prefetcher.prefetch(
+        owner, routes.urls(), 0, MAX_BYTES, false, Collections.<String, String>emptyMap(), result);
+    routes.awaitInFlight(2);
+    prefetcher.prefetch(
+        new Object(),
+        Arrays.asList(server.url("/other")),
+        0,
+        MAX_BYTES,
+        false,
+        Collections.<String, String>emptyMap(),
+        otherOwnersResult);
+    prefetcher.cancel(owner);
+    routes.release();
+    Map<String, Object> counts = result.await();
+
+    // The fetches in flight still complete.
+    assertEquals(2, routes.started.get());
+    assertEquals(2, counts.get("fetched"));
+    assertEquals(2, counts.get("skipped"));
+    assertEquals(true, counts.get("cancelled"));
+    assertEquals(1, otherOwnersResult.await().get("fetched"));
+  }
+
+  @Test
+  public void prefetchedDocumentsAreServedOnce() throws Exception {
+    server.route("/page.html", "<p>prefetched</p>", "Content-Type", "text/html; charset=utf-8");
+    String url = server.url("/page.html");
+    CountsResult result = new CountsResult();
+
+    prefetcher.prefetch(
+        owner,
+        Arrays.asList(url),
+        0,
+        MAX_BYTES,
+        false,
+        Collections.<String, String>emptyMap(),
+        result);
+    assertEquals(1, result.await().get("fetched"));
+
+    WebView webView = new WebView(RuntimeEnvironment.application);
+    WebResourceResponse response = cache.intercept(webView, new MainFrameRequest(url));
+
+    assertNotNull(response);
+    assertEquals(200, response.getStatusCode());
+    assertEquals("text/html", response.getMimeType());
+    assertEquals("utf-8", response.getEncoding());
+    assertEquals("<p>prefetched</p>", read(response.getData()));
+    assertEquals(1, server.requestCount("/page.html"));
+    assertEquals(1L, cache.getStats().get("prefetchedDocumentHits"));
+
+    // Later navigations are left to the WebView.
+    assertNull(cache.intercept(webView, new MainFrameRequest(url)));
+  }
+
+  private static String kilobyte() {
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < 1024) {
+      builder.append('x');
+    }
+    return builder.toString();
+  }
+
+  private static String read(InputStream stream) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int read;
+    while ((read = stream.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    stream.close();
+    return out.toString("UTF-8");
+  }
+
+  /** Routes whose responses are held back until released, counting the requests in flight. */
+  private class BlockingRoutes {
+    final AtomicInteger started = new AtomicInteger();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final List<String> urls = new ArrayList<>();
+
+    BlockingRoutes(String... paths) {
+      for (String path : paths) {
+        urls.add(server.url(path));
+        server.route(
+            path,
+            new LocalHttpServer.Handler() {
+              @Override
+              public void handle(HttpExchange exchange) throws IOException {
+                started.incrementAndGet();
+                int current = inFlight.incrementAndGet();
+                while (true) {
+                  int max = maxInFlight.get();
+                  if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                    break;
+                  }
+                }
+                try {
+                  released.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                  throw new IOException(e);
+                }
+                inFlight.decrementAndGet();
+                LocalHttpServer.respond(exchange, "blocked", "Content-Type", "text/plain");
+              }
+            });
+      }
+    }
+
+    List<String> urls() {
+      return urls;
+    }
+
+    void awaitInFlight(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (inFlight.get() < count) {
+        if (System.currentTimeMillis() > deadline) {
+          fail("Timed out waiting for " + count + " fetches");
+        }
+        Thread.sleep(10);
+      }
+    }
+
+    void release() {
+      released.countDown();
+    }
+  }
+
+  /** Collects the counts a batch replies with, the replies are posted to the main looper. */
+  private static class CountsResult implements Result {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Map<String, Object> counts;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void success(Object result) {
+      counts = (Map<String, Object>) result;
+      done.countDown();
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+      fail("Unexpected error " + errorCode);
+    }
+
+    @Override
+    public void notImplemented() {
+      fail("Unexpected notImplemented");
+    }
+
+    Map<String, Object> await() throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (!done.await(10, TimeUnit.MILLISECONDS)) {
+        ShadowLooper.idleMainLooper();
+        if (System.currentTimeMillis() > deadline) {
+          fail("Timed out waiting for the batch to complete");
+        }
+      }
+      return counts;
+    }
+  }
+
+  private static class MainFrameRequest implements WebResourceRequest {
+    private final Uri url;
+
+    MainFrameRequest(String url) {
+      this.url = Uri.parse(url);
+    }
+
+    @Override
+    public Uri getUrl() {
+      return url;
+    }
+
+    @Override
+    public boolean isForMainFrame() {
+      return true;
+    }
+
+    @Override
+    public boolean isRedirect() {
+      return false;
+    }
+
+    @Override
+    public boolean hasGesture() {
+      return false;
+    }
+
+    @Override
+    public String getMethod() {
+      return "GET";
+    }
+
+    @Override
+    public Map<String, String> getRequestHeaders() {
+      return Collections.singletonMap("Accept", "text/html");
+    }
+  }
+}
@@ -6,6 +6,7 @@ import 'dart:async';
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter/gestures.dart';
+import 'package:flutter/services.dart';
 import 'package:flutter/widgets.dart';
 
 import 'webview_flutter.dart';
@@ -18,6 +19,10 @@ abstract class WebViewPlatformCallbacksHandler {
   /// Invoked by [WebViewPlatformController] when a JavaScript channel message is received.
   void onJavaScriptChannelMessage(String channel, String message);
 
+  /// Invoked by [WebViewPlatformController] when messages of a JavaScript channel were dropped or
+  /// coalesced because of the channel's [JavascriptChannelQueuePolicy].
+  void onJavaScriptChannelOverflow(String channel, int dropped, int coalesced);
+
   /// Invoked by [WebViewPlatformController] when a navigation request is pending.
   ///
   /// If true is returned the navigation is allowed, otherwise it is blocked.
@@ -33,7 +38,35 @@ abstract class WebViewPlatformCallbacksHandler {
   void onPageFailed(String url, dynamic error);
 
   /// Invoked by [WebViewPlatformController] when video layout changed via interaction.
-  void onVideoFullScreen(bool fullscreen);
+  ///
+  /// `latency` is the time from the change to the first frame drawn after it, null when it couldn't
+  /// be measured, e.g. when the webview isn't attached to a window.
+  void onVideoFullScreen(bool fullscreen, Duration latency);
+
+  /// Invoked by [WebViewPlatformController] with a batch of playback events of the page's videos
+  /// when [CreationParams.trackVideos] is set.
+  void onVideoEvents(List<VideoEvent> events);
+
+  /// Invoked by [WebViewPlatformController] with the playback quality of the page's videos once per
+  /// [VideoQualityReporting.interval] when [CreationParams.videoQualityReporting] is set.
+  void onVideoQuality(List<VideoPlaybackQuality> qualities);
+
+  /// Invoked by [WebViewPlatformController] when requests of the page at `url` were blocked by the
+  /// content blocker.
+  ///
+  /// `blockedCount` is the total number of requests blocked since the page started loading.
+  void onContentBlocked(String url, int blockedCount);
+
+  /// Invoked by [WebViewPlatformController] at the end of every window of
+  /// [SubframeNavigationMode.summarize] reporting that had subframe navigation requests.
+  ///
+  /// `requestCounts` maps every distinct URL requested during the window to the number of times it
+  /// was requested, in first requested order.
+  void onSubframeNavigationSummary(Map<String, int> requestCounts);
+
+  /// Invoked by [WebViewPlatformController] when a page finished loading and
+  /// [CreationParams.reportPagePerformance] is set.
+  void onPagePerformance(PagePerformance performance);
 }
 
 /// Interface for talking to the webview's platform implementation.
@@ -54,6 +87,11 @@ abstract class WebViewPlatformController {
   /// The `handler` parameter must not be null.
   WebViewPlatformController(WebViewPlatformCallbacksHandler handler);
 
+  /// Releases the resources of the controller once its [WebView] is disposed.
+  ///
+  /// No callbacks are made to the `handler` afterwards. The default does nothing.
+  void dispose() {}
+
   /// Loads the specified URL.
   ///
   /// If `headers` is not null and the URL is an HTTP URL, the key value paris in `headers` will
@@ -134,6 +172,15 @@ abstract class WebViewPlatformController {
         "WebView clearCache is not implemented on the current platform");
   }
 
+  /// Clears the website data of `types`, for `origins` or for all origins when it is null.
+  ///
+  /// See also: [WebViewController.clearData].
+  Future<ClearDataResult> clearData(
+      Set<WebViewDataType> types, List<String> origins) {
+    throw UnimplementedError(
+        "WebView clearData is not implemented on the current platform");
+  }
+
   /// Evaluates a JavaScript expression in the context of the current page.
   ///
   /// The Future completes with an error if a JavaScript error occurred, or if the type of the
@@ -168,6 +215,105 @@ abstract class WebViewPlatformController {
         "WebView removeJavascriptChannels is not implemented on the current platform");
   }
 
+  /// Updates the queue policies of JavaScript channels.
+  ///
+  /// `policies` is keyed by channel name, a null policy removes the limit of the channel.
+  ///
+  /// See also: [CreationParams.javascriptChannelQueuePolicies].
+  Future<void> updateJavascriptChannelQueuePolicies(
+      Map<String, JavascriptChannelQueuePolicy> policies) {
+    throw UnimplementedError(
+        "WebView updateJavascriptChannelQueuePolicies is not implemented on the current platform");
+  }
+
+  /// Returns the counters and latencies of the decisions made by
+  /// [WebViewPlatformCallbacksHandler.onNavigationRequest].
+  Future<NavigationDecisionStats> getNavigationDecisionStats() {
+    throw UnimplementedError(
+        "WebView getNavigationDecisionStats is not implemented on the current platform");
+  }
+
+  /// Returns the aggregate performance of the most recent page loads.
+  Future<PagePerformanceStats> getPerformanceStats() {
+    throw UnimplementedError(
+        "WebView getPerformanceStats is not implemented on the current platform");
+  }
+
+  /// Loads `url` in a hidden webview, a later [loadUrl] of the same `url` and `headers` shows it.
+  ///
+  /// The events of the prerendered page are delivered once it is shown.
+  ///
+  /// See also: [CreationParams.maxPrerenders].
+  Future<void> prerender(String url, Map<String, String> headers) {
+    throw UnimplementedError(
+        "WebView prerender is not implemented on the current platform");
+  }
+
+  /// Discards the pages loaded by [prerender].
+  Future<void> cancelPrerenders() {
+    throw UnimplementedError(
+        "WebView cancelPrerenders is not implemented on the current platform");
+  }
+
+  /// Returns the counters of the pages loaded by [prerender].
+  Future<PrerenderStats> getPrerenderStats() {
+    throw UnimplementedError(
+        "WebView getPrerenderStats is not implemented on the current platform");
+  }
+
+  /// Reports whether the webview is visible within the app.
+  ///
+  /// See also: [CreationParams.suspendMediaWhenHidden].
+  Future<void> setVisible(bool visible) {
+    throw UnimplementedError(
+        "WebView setVisible is not implemented on the current platform");
+  }
+
+  /// Returns the counters of the webview's media suspensions.
+  Future<MediaSuspensionStats> getMediaSuspensionStats() {
+    throw UnimplementedError(
+        "WebView getMediaSuspensionStats is not implemented on the current platform");
+  }
+
+  /// Returns the counters of the settings changes applied to and skipped by the platform's webview.
+  Future<SettingsUpdateStats> getSettingsUpdateStats() {
+    throw UnimplementedError(
+        "WebView getSettingsUpdateStats is not implemented on the current platform");
+  }
+
+  /// Fetches the documents at `urls`, and their subresources when `includeSubresources` is true,
+  /// into the resource cache within a budget of `maxBytes` body bytes.
+  ///
+  /// See also: [CreationParams.useResourceCache].
+  Future<PrefetchResult> prefetch(List<String> urls, PrefetchPriority priority,
+      int maxBytes, bool includeSubresources) {
+    throw UnimplementedError(
+        "WebView prefetch is not implemented on the current platform");
+  }
+
+  /// Skips the fetches of the pending [prefetch] calls that didn't start yet.
+  Future<void> cancelPrefetch() {
+    throw UnimplementedError(
+        "WebView cancelPrefetch is not implemented on the current platform");
+  }
+
+  /// Replaces the rules that decide navigations without asking
+  /// [WebViewPlatformCallbacksHandler.onNavigationRequest].
+  ///
+  /// See also: [CreationParams.navigationRules].
+  Future<void> updateNavigationRules(List<NavigationRule> rules) {
+    throw UnimplementedError(
+        "WebView updateNavigationRules is not implemented on the current platform");
+  }
+
+  /// Delivers `message` to the `onmessage` handler of the page's JavaScript channel named `channel`.
+  ///
+  /// See also: [CreationParams.javascriptChannelTransport].
+  Future<void> postMessageToJavascript(String channel, String message) {
+    throw UnimplementedError(
+        "WebView postMessageToJavascript is not implemented on the current platform");
+  }
+
   /// Returns the title of the currently loaded page.
   Future<String> getTitle() {
     throw UnimplementedError(
@@ -178,6 +324,80 @@ abstract class WebViewPlatformController {
     throw UnimplementedError(
         "WebView getTitle is not implemented on the current platform");
   }
+
+  /// Runs `commands` in order.
+  ///
+  /// When `stopOnError` is true, a command only runs once the previous one has succeeded, and the
+  /// commands following a failed command are reported as [WebViewCommandStatus.skipped].
+  /// Otherwise all commands run regardless of the outcome of the previous ones.
+  ///
+  /// The returned list holds one [WebViewCommandResult] per command, in the order of `commands`.
+  ///
+  /// Platform implementations should override this to run all the commands with a single call to
+  /// the platform. The default implementation runs every command with the matching method of this
+  /// controller.
+  Future<List<WebViewCommandResult>> batch(List<WebViewCommand> commands,
+      {bool stopOnError = true}) {
+    return runCommandsSeparately(this, commands, stopOnError: stopOnError);
+  }
+
+  /// Runs `commands` in order with the matching methods of `controller`, as described in [batch].
+  ///
+  /// This is the default implementation of [batch]. Platform implementations that can't run
+  /// commands with a single call on every platform fall back to it.
+  static Future<List<WebViewCommandResult>> runCommandsSeparately(
+      WebViewPlatformController controller, List<WebViewCommand> commands,
+      {bool stopOnError = true}) async {
+    final List<WebViewCommandResult> results = <WebViewCommandResult>[];
+    bool failed = false;
+    for (WebViewCommand command in commands) {
+      if (failed && stopOnError) {
+        results.add(const WebViewCommandResult.skipped());
+        continue;
+      }
+      try {
+        results.add(WebViewCommandResult.success(
+            await _runCommand(controller, command)));
+      } on PlatformException catch (e) {
+        failed = true;
+        results.add(WebViewCommandResult.error(e.code, e.message));
+      } on MissingPluginException catch (e) {
+        failed = true;
+        results.add(WebViewCommandResult.error('notImplemented', e.message));
+      } catch (e) {
+        failed = true;
+        results.add(WebViewCommandResult.error(
+            e.runtimeType.toString(), e.toString()));
+      }
+    }
+    return results;
+  }
+
+  static Future<dynamic> _runCommand(
+      WebViewPlatformController controller, WebViewCommand command) {
+    switch (command.type) {
+      case WebViewCommandType.loadUrl:
+        return controller.loadUrl(
+            command.arguments['url'], command.arguments['headers']);
+      case WebViewCommandType.updateSettings:
+        return controller.updateSettings(command.arguments);
+      case WebViewCommandType.evaluateJavascript:
+        return controller.evaluateJavascript(command.arguments);
+      case WebViewCommandType.addJavascriptChannels:
+        return controller.addJavascriptChannels(command.arguments);
+      case WebViewCommandType.removeJavascriptChannels:
+        return controller.removeJavascriptChannels(command.arguments);
+      case WebViewCommandType.reload:
+        return controller.reload();
+      case WebViewCommandType.goBack:
+        return controller.goBack();
+      case WebViewCommandType.goForward:
+        return controller.goForward();
+      case WebViewCommandType.clearCache:
+        return controller.clearCache();
+    }
+    throw ArgumentError('Unknown command type: ${command.type}');
+  }
 }
 
 /// A single setting for configuring a WebViewPlatform which may be absent.
@@ -293,7 +513,26 @@ class CreationParams {
     this.userAgent,
     this.autoMediaPlaybackPolicy =
         AutoMediaPlaybackPolicy.require_user_action_for_all_media_types,
-  }) : assert(autoMediaPlaybackPolicy != null);
+    this.javascriptMessageBatching,
+    this.javascriptChannelQueuePolicies,
+    this.javascriptChannelTransport =
+        JavascriptChannelTransport.javascriptInterface,
+    this.navigationRules,
+    this.navigationDeadline,
+    this.subframeNavigationReporting,
+    this.useResourceCache = false,
+    this.assetServer,
+    this.contentBlocking = false,
+    this.reportPagePerformance = false,
+    this.trackVideos = false,
+    this.videoQualityReporting,
+    this.suspendMediaWhenHidden = false,
+    this.eventTransport = WebViewEventTransport.methodChannel,
+    this.maxPrerenders = 0,
+  })  : assert(autoMediaPlaybackPolicy != null),
+        assert(javascriptChannelTransport != null),
+        assert(eventTransport != null),
+        assert(maxPrerenders != null);
 
   /// The initialUrl to load in the webview.
   ///
@@ -326,6 +565,80 @@ class CreationParams {
   /// Which restrictions apply on automatic media playback.
   final AutoMediaPlaybackPolicy autoMediaPlaybackPolicy;
 
+  /// How JavaScript channel messages are batched, null when every message is delivered on its own.
+  ///
+  /// Platforms that batch messages deliver them with
+  /// [WebViewPlatformCallbacksHandler.onJavaScriptChannelMessage], once per message and in posting
+  /// order.
+  final JavascriptMessageBatching javascriptMessageBatching;
+
+  /// The initial queue policies of the JavaScript channels, keyed by channel name.
+  ///
+  /// Channels without a policy don't limit the number of their messages waiting to be delivered.
+  ///
+  /// This can later be updated with
+  /// [WebViewPlatformController.updateJavascriptChannelQueuePolicies].
+  final Map<String, JavascriptChannelQueuePolicy> javascriptChannelQueuePolicies;
+
+  /// How the JavaScript channels are exposed to the page.
+  final JavascriptChannelTransport javascriptChannelTransport;
+
+  /// How the platform sends the webview's events.
+  final WebViewEventTransport eventTransport;
+
+  /// The initial rules that decide navigations without asking
+  /// [WebViewPlatformCallbacksHandler.onNavigationRequest], null when there are none.
+  ///
+  /// This can later be updated with [WebViewPlatformController.updateNavigationRules].
+  final List<NavigationRule> navigationRules;
+
+  /// How long main frame navigations wait for
+  /// [WebViewPlatformCallbacksHandler.onNavigationRequest], null when there is no deadline.
+  final NavigationDeadline navigationDeadline;
+
+  /// How navigation requests targeted to subframes are reported, null when every request is
+  /// reported on its own.
+  ///
+  /// Depending on the mode, subframe requests are reported through
+  /// [WebViewPlatformCallbacksHandler.onNavigationRequest] one by one
+  /// ([SubframeNavigationMode.all]), not at all ([SubframeNavigationMode.suppress]) or only for the
+  /// first request of a URL within the window ([SubframeNavigationMode.deduplicate]).
+  /// [SubframeNavigationMode.summarize] doesn't call `onNavigationRequest` for them, the platform
+  /// calls [WebViewPlatformCallbacksHandler.onSubframeNavigationSummary] at the end of the window
+  /// with the number of times each URL was requested.
+  final SubframeNavigationReporting subframeNavigationReporting;
+
+  /// Whether the webview's subresources are loaded through the resource cache shared by all
+  /// webviews.
+  ///
+  /// See also: [WebViewPlatform.configureResourceCache].
+  final bool useResourceCache;
+
+  /// Serves local content under a virtual host, null when there is no asset server.
+  final WebViewAssetServer assetServer;
+
+  /// Whether the webview's requests are matched against the content blocker's filter list.
+  ///
+  /// See also: [WebViewPlatform.setContentBlockingRules].
+  final bool contentBlocking;
+
+  /// Whether [WebViewPlatformCallbacksHandler.onPagePerformance] is invoked for every page load.
+  final bool reportPagePerformance;
+
+  /// Whether [WebViewPlatformCallbacksHandler.onVideoEvents] is invoked with the events of the
+  /// page's videos.
+  final bool trackVideos;
+
+  /// How the playback quality of the page's videos is sampled, null when it isn't reported.
+  final VideoQualityReporting videoQualityReporting;
+
+  /// Whether the page's media is paused and the webview suspended while it is hidden.
+  final bool suspendMediaWhenHidden;
+
+  /// How many pages [WebViewPlatformController.prerender] may keep loaded at once, 0 when the
+  /// webview doesn't prerender pages.
+  final int maxPrerenders;
+
   @override
   String toString() {
     return '$runtimeType(initialUrl: $initialUrl, settings: $webSettings, javascriptChannelNames: $javascriptChannelNames, UserAgent: $userAgent)';
@@ -380,4 +693,124 @@ abstract class WebViewPlatform {
     throw UnimplementedError(
         "WebView clearCookies is not implemented on the current platform");
   }
+
+  /// Sets `cookies` for all [WebView] instances.
+  ///
+  /// See also: [CookieManager.setCookies].
+  Future<void> setCookies(List<WebViewCookie> cookies) {
+    throw UnimplementedError(
+        "WebView setCookies is not implemented on the current platform");
+  }
+
+  /// Returns the names and values of the cookies sent along with requests to each of `urls`.
+  ///
+  /// See also: [CookieManager.getCookies].
+  Future<Map<String, Map<String, String>>> getCookies(List<String> urls) {
+    throw UnimplementedError(
+        "WebView getCookies is not implemented on the current platform");
+  }
+
+  /// Removes the cookies, or only those named in `names`, sent along with requests to `urls`.
+  ///
+  /// Returns the number of cookies removed.
+  Future<int> removeCookies(List<String> urls, {Set<String> names}) {
+    throw UnimplementedError(
+        "WebView removeCookies is not implemented on the current platform");
+  }
+
+  /// Returns a snapshot of the cookies of `origins`, ignored by [restoreCookies] after `maxAge`.
+  ///
+  /// See also: [CookieManager.exportCookies].
+  Future<Uint8List> exportCookies(List<String> origins, {Duration maxAge}) {
+    throw UnimplementedError(
+        "WebView exportCookies is not implemented on the current platform");
+  }
+
+  /// Sets the cookies of a `snapshot` returned by [exportCookies].
+  ///
+  /// Cookies whose attributes the snapshot doesn't hold are restored as HttpOnly when `httpOnly` is
+  /// true.
+  ///
+  /// Returns the number of cookies restored.
+  ///
+  /// See also: [CookieManager.restoreCookies].
+  Future<int> restoreCookies(Uint8List snapshot, {bool httpOnly}) {
+    throw UnimplementedError(
+        "WebView restoreCookies is not implemented on the current platform");
+  }
+
+  /// Sets how many pre-constructed platform webviews are kept ready for new [WebView]s.
+  ///
+  /// The idle webviews are created when the platform thread is idle. A `capacity` of 0 disables
+  /// the pool.
+  Future<void> setWebViewPoolCapacity(int capacity) {
+    throw UnimplementedError(
+        "WebView setWebViewPoolCapacity is not implemented on the current platform");
+  }
+
+  /// Returns the usage counters of the pool of pre-constructed platform webviews.
+  Future<WebViewPoolStats> getWebViewPoolStats() {
+    throw UnimplementedError(
+        "WebView getWebViewPoolStats is not implemented on the current platform");
+  }
+
+  /// Sets the byte budgets of the memory and disk tiers of the shared resource cache.
+  ///
+  /// See also: [CreationParams.useResourceCache].
+  Future<void> configureResourceCache(int memoryCapacity, int diskCapacity) {
+    throw UnimplementedError(
+        "WebView configureResourceCache is not implemented on the current platform");
+  }
+
+  /// Returns the usage counters of the shared resource cache.
+  Future<ResourceCacheStats> getResourceCacheStats() {
+    throw UnimplementedError(
+        "WebView getResourceCacheStats is not implemented on the current platform");
+  }
+
+  /// Removes all resources from the shared resource cache.
+  Future<void> clearResourceCache() {
+    throw UnimplementedError(
+        "WebView clearResourceCache is not implemented on the current platform");
+  }
+
+  /// Replaces the filter list shared by the webviews that block content.
+  ///
+  /// The returned future completes once the new list is in use.
+  ///
+  /// See also: [CreationParams.contentBlocking].
+  Future<void> setContentBlockingRules(List<String> blockedHosts,
+      List<String> urlFilters, List<String> allowedHosts) {
+    throw UnimplementedError(
+        "WebView setContentBlockingRules is not implemented on the current platform");
+  }
+
+  /// Returns the counters of the content blocker.
+  Future<ContentBlockerStats> getContentBlockerStats() {
+    throw UnimplementedError(
+        "WebView getContentBlockerStats is not implemented on the current platform");
+  }
+
+  /// Returns the web storage usage of every origin.
+  ///
+  /// See also: [WebStorageManager.getUsage].
+  Future<List<OriginStorageUsage>> getWebStorageUsage() {
+    throw UnimplementedError(
+        "WebView getWebStorageUsage is not implemented on the current platform");
+  }
+
+  /// Sets the quota on the total web storage of all origins, null for none, and enforces it.
+  ///
+  /// See also: [WebStorageManager.setQuota].
+  Future<WebStorageEviction> setWebStorageQuota(
+      int maxBytes, List<String> protectedOrigins) {
+    throw UnimplementedError(
+        "WebView setWebStorageQuota is not implemented on the current platform");
+  }
+
+  /// Evicts the least recently used origins until the total web storage is within the quota.
+  Future<WebStorageEviction> enforceWebStorageQuota() {
+    throw UnimplementedError(
+        "WebView enforceWebStorageQuota is not implemented on the current platform");
+  }
 }
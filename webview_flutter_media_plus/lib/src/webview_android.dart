@@ -10,6 +10,7 @@ import 'package:flutter/services.dart';
 import 'package:flutter/widgets.dart';
 
 import '../platform_interface.dart';
+import '../webview_flutter.dart';
 import 'webview_method_channel.dart';
 
 /// Builds an Android webview.
@@ -44,7 +45,8 @@ class AndroidWebView implements WebViewPlatform {
             return;
           }
           onWebViewPlatformCreated(MethodChannelWebViewPlatform(
-              id, webViewPlatformCallbacksHandler));
+              id, webViewPlatformCallbacksHandler,
+              eventTransport: creationParams.eventTransport));
         },
         gestureRecognizers: gestureRecognizers,
         // WebView content is not affected by the Android view's layout direction,
@@ -60,4 +62,69 @@ class AndroidWebView implements WebViewPlatform {
 
   @override
   Future<bool> clearCookies() => MethodChannelWebViewPlatform.clearCookies();
+
+  @override
+  Future<void> setCookies(List<WebViewCookie> cookies) =>
+      MethodChannelWebViewPlatform.setCookies(cookies);
+
+  @override
+  Future<Map<String, Map<String, String>>> getCookies(List<String> urls) =>
+      MethodChannelWebViewPlatform.getCookies(urls);
+
+  @override
+  Future<int> removeCookies(List<String> urls, {Set<String> names}) =>
+      MethodChannelWebViewPlatform.removeCookies(urls, names: names);
+
+  @override
+  Future<Uint8List> exportCookies(List<String> origins, {Duration maxAge}) =>
+      MethodChannelWebViewPlatform.exportCookies(origins, maxAge: maxAge);
+
+  @override
+  Future<int> restoreCookies(Uint8List snapshot, {bool httpOnly}) =>
+      MethodChannelWebViewPlatform.restoreCookies(snapshot, httpOnly: httpOnly);
+
+  @override
+  Future<void> setWebViewPoolCapacity(int capacity) =>
+      MethodChannelWebViewPlatform.setWebViewPoolCapacity(capacity);
+
+  @override
+  Future<WebViewPoolStats> getWebViewPoolStats() =>
+      MethodChannelWebViewPlatform.getWebViewPoolStats();
+
+  @override
+  Future<void> configureResourceCache(int memoryCapacity, int diskCapacity) =>
+      MethodChannelWebViewPlatform.configureResourceCache(
+          memoryCapacity, diskCapacity);
+
+  @override
+  Future<ResourceCacheStats> getResourceCacheStats() =>
+      MethodChannelWebViewPlatform.getResourceCacheStats();
+
+  @override
+  Future<void> clearResourceCache() =>
+      MethodChannelWebViewPlatform.clearResourceCache();
+
+  @override
+  Future<void> setContentBlockingRules(List<String> blockedHosts,
+          List<String> urlFilters, List<String> allowedHosts) =>
+      MethodChannelWebViewPlatform.setContentBlockingRules(
+          blockedHosts, urlFilters, allowedHosts);
+
+  @override
+  Future<ContentBlockerStats> getContentBlockerStats() =>
+      MethodChannelWebViewPlatform.getContentBlockerStats();
+
+  @override
+  Future<List<OriginStorageUsage>> getWebStorageUsage() =>
+      MethodChannelWebViewPlatform.getWebStorageUsage();
+
+  @override
+  Future<WebStorageEviction> setWebStorageQuota(
+          int maxBytes, List<String> protectedOrigins) =>
+      MethodChannelWebViewPlatform.setWebStorageQuota(
+          maxBytes, protectedOrigins);
+
+  @override
+  Future<WebStorageEviction> enforceWebStorageQuota() =>
+      MethodChannelWebViewPlatform.enforceWebStorageQuota();
 }
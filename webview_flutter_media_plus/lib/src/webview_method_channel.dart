@@ -3,28 +3,61 @@
 // found in the LICENSE file.
 
 import 'dart:async';
+import 'dart:convert';
+import 'dart:typed_data';
 
+import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
 import '../platform_interface.dart';
+import '../webview_flutter.dart';
 
 /// A [WebViewPlatformController] that uses a method channel to control the webview.
 class MethodChannelWebViewPlatform implements WebViewPlatformController {
   /// Constructs an instance that will listen for webviews broadcasting to the
   /// given [id], using the given [WebViewPlatformCallbacksHandler].
-  MethodChannelWebViewPlatform(int id, this._platformCallbacksHandler)
+  ///
+  /// The `eventTransport` must match the [CreationParams.eventTransport] the webview was created
+  /// with.
+  MethodChannelWebViewPlatform(
+    int id,
+    this._platformCallbacksHandler, {
+    WebViewEventTransport eventTransport = WebViewEventTransport.methodChannel,
+  })
       : assert(_platformCallbacksHandler != null),
+        assert(eventTransport != null),
         _channel = MethodChannel('plugins.flutter.io/webview_$id') {
     _channel.setMethodCallHandler(_onMethodCall);
+    if (eventTransport == WebViewEventTransport.eventChannel) {
+      final _WebViewEventDecoder decoder =
+          _WebViewEventDecoder(_platformCallbacksHandler);
+      _eventSubscription = EventChannel('plugins.flutter.io/webview_events_$id')
+          .receiveBroadcastStream()
+          .listen((dynamic events) => decoder.decode(events));
+    }
   }
 
   final WebViewPlatformCallbacksHandler _platformCallbacksHandler;
 
   final MethodChannel _channel;
 
+  StreamSubscription<dynamic> _eventSubscription;
+
   static const MethodChannel _cookieManagerChannel =
       MethodChannel('plugins.flutter.io/cookie_manager');
 
+  static const MethodChannel _webViewPoolChannel =
+      MethodChannel('plugins.flutter.io/webview_pool');
+
+  static const MethodChannel _resourceCacheChannel =
+      MethodChannel('plugins.flutter.io/webview_resource_cache');
+
+  static const MethodChannel _contentBlockerChannel =
+      MethodChannel('plugins.flutter.io/webview_content_blocker');
+
+  static const MethodChannel _webStorageChannel =
+      MethodChannel('plugins.flutter.io/webview_storage');
+
   Future<bool> _onMethodCall(MethodCall call) async {
     switch (call.method) {
       case 'javascriptChannelMessage':
@@ -32,11 +65,35 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
         final String message = call.arguments['message'];
         _platformCallbacksHandler.onJavaScriptChannelMessage(channel, message);
         return true;
+      case 'javascriptChannelMessages':
+        final List<dynamic> channels = call.arguments['channels'];
+        final List<dynamic> messages = call.arguments['messages'];
+        for (int i = 0; i < messages.length; i++) {
+          _platformCallbacksHandler.onJavaScriptChannelMessage(
+              channels[i], messages[i]);
+        }
+        return true;
+      case 'javascriptChannelOverflow':
+        _platformCallbacksHandler.onJavaScriptChannelOverflow(
+          call.arguments['channel'],
+          call.arguments['dropped'],
+          call.arguments['coalesced'],
+        );
+        return true;
       case 'navigationRequest':
         return await _platformCallbacksHandler.onNavigationRequest(
           url: call.arguments['url'],
           isForMainFrame: call.arguments['isForMainFrame'],
         );
+      case 'subframeNavigationSummary':
+        final List<dynamic> urls = call.arguments['urls'];
+        final List<dynamic> counts = call.arguments['counts'];
+        final Map<String, int> requestCounts = <String, int>{};
+        for (int i = 0; i < urls.length; i++) {
+          requestCounts[urls[i]] = counts[i];
+        }
+        _platformCallbacksHandler.onSubframeNavigationSummary(requestCounts);
+        return null;
       case 'onPageFinished':
         _platformCallbacksHandler.onPageFinished(call.arguments['url']);
         return null;
@@ -47,13 +104,43 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
         _platformCallbacksHandler.onPageFailed(call.arguments['url'], call.arguments['error']);
         return null;
       case 'onVideoFullScreen':
-        _platformCallbacksHandler.onVideoFullScreen(call.arguments['fullscreen']);
+        final int latencyMs = call.arguments['latencyMs'];
+        _platformCallbacksHandler.onVideoFullScreen(
+          call.arguments['fullscreen'],
+          latencyMs == null ? null : Duration(milliseconds: latencyMs),
+        );
+        return null;
+      case 'onVideoEvents':
+        _platformCallbacksHandler.onVideoEvents(call.arguments
+            .map<VideoEvent>((dynamic event) => _videoEventFromMap(event))
+            .toList());
+        return null;
+      case 'onVideoQuality':
+        _platformCallbacksHandler.onVideoQuality(call.arguments
+            .map<VideoPlaybackQuality>(
+                (dynamic quality) => _videoPlaybackQualityFromMap(quality))
+            .toList());
+        return null;
+      case 'onPagePerformance':
+        _platformCallbacksHandler
+            .onPagePerformance(_pagePerformanceFromMap(call.arguments));
+        return null;
+      case 'onContentBlocked':
+        _platformCallbacksHandler.onContentBlocked(
+            call.arguments['url'], call.arguments['blockedCount']);
         return null;
     }
     throw MissingPluginException(
         '${call.method} was invoked but has no handler');
   }
 
+  @override
+  void dispose() {
+    // The callbacks handler belongs to a disposed widget.
+    _eventSubscription?.cancel();
+    _eventSubscription = null;
+  }
+
   @override
   Future<void> loadUrl(
     String url,
@@ -87,6 +174,28 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
   @override
   Future<void> clearCache() => _channel.invokeMethod<void>("clearCache");
 
+  @override
+  Future<ClearDataResult> clearData(
+      Set<WebViewDataType> types, List<String> origins) async {
+    Map<dynamic, dynamic> result;
+    try {
+      result = await _channel
+          .invokeMethod<Map<dynamic, dynamic>>('clearData', <String, dynamic>{
+        'types': types.map((WebViewDataType type) => type.index).toList(),
+        'origins': origins,
+      });
+    } on MissingPluginException {
+      // The iOS plugin doesn't handle clearData.
+      throw UnimplementedError(
+          'WebView clearData is not implemented on the current platform');
+    }
+    return ClearDataResult(
+      httpCacheCleared: result['httpCacheCleared'],
+      webStorageBytes: result['webStorageBytes'],
+      resourceCacheBytes: result['resourceCacheBytes'],
+    );
+  }
+
   @override
   Future<void> updateSettings(WebSettings settings) {
     final Map<String, dynamic> updatesMap = _webSettingsToMap(settings);
@@ -114,12 +223,160 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
         'removeJavascriptChannels', javascriptChannelNames.toList());
   }
 
+  @override
+  Future<void> updateJavascriptChannelQueuePolicies(
+      Map<String, JavascriptChannelQueuePolicy> policies) {
+    return _channel.invokeMethod<void>('updateJavascriptChannelQueuePolicies',
+        _queuePoliciesToMap(policies));
+  }
+
+  @override
+  Future<NavigationDecisionStats> getNavigationDecisionStats() async {
+    final Map<dynamic, dynamic> stats = await _channel
+        .invokeMethod<Map<dynamic, dynamic>>('getNavigationDecisionStats');
+    return NavigationDecisionStats(
+      decisions: stats['decisions'],
+      timedOut: stats['timedOut'],
+      lateAllowed: stats['lateAllowed'],
+      lateReverted: stats['lateReverted'],
+      p50: Duration(milliseconds: stats['p50Ms']),
+      p90: Duration(milliseconds: stats['p90Ms']),
+      p99: Duration(milliseconds: stats['p99Ms']),
+    );
+  }
+
+  @override
+  Future<PagePerformanceStats> getPerformanceStats() async {
+    final Map<dynamic, dynamic> stats = await _channel
+        .invokeMethod<Map<dynamic, dynamic>>('getPerformanceStats');
+    return PagePerformanceStats(
+      pageLoads: stats['pageLoads'],
+      commitP50: Duration(milliseconds: stats['commitP50Ms']),
+      commitP90: Duration(milliseconds: stats['commitP90Ms']),
+      finishP50: Duration(milliseconds: stats['finishP50Ms']),
+      finishP90: Duration(milliseconds: stats['finishP90Ms']),
+      subresources: stats['subresources'],
+      interceptedBytes: stats['interceptedBytes'],
+      httpErrors: stats['httpErrors'],
+      redirects: stats['redirects'],
+    );
+  }
+
+  @override
+  Future<void> prerender(String url, Map<String, String> headers) {
+    return _channel.invokeMethod<void>('prerender', <String, dynamic>{
+      'url': url,
+      'headers': headers,
+    });
+  }
+
+  @override
+  Future<void> cancelPrerenders() =>
+      _channel.invokeMethod<void>('cancelPrerenders');
+
+  @override
+  Future<void> setVisible(bool visible) =>
+      _channel.invokeMethod<void>('setVisible', visible);
+
+  @override
+  Future<MediaSuspensionStats> getMediaSuspensionStats() async {
+    final Map<dynamic, dynamic> stats = await _channel
+        .invokeMethod<Map<dynamic, dynamic>>('getMediaSuspensionStats');
+    return MediaSuspensionStats(
+      suspended: stats['suspended'],
+      suspensions: stats['suspensions'],
+      suspendedTime: Duration(milliseconds: stats['suspendedMs']),
+      pausedMedia: stats['pausedMedia'],
+      resumedMedia: stats['resumedMedia'],
+      timersPausedTime: Duration(milliseconds: stats['timersPausedMs']),
+    );
+  }
+
+  @override
+  Future<SettingsUpdateStats> getSettingsUpdateStats() async {
+    final Map<dynamic, dynamic> stats =
+        await _channel.invokeMethod<Map<dynamic, dynamic>>('getSettingsStats');
+    return SettingsUpdateStats(
+      appliedChanges: stats['appliedChanges'],
+      skippedChanges: stats['skippedChanges'],
+    );
+  }
+
+  @override
+  Future<PrerenderStats> getPrerenderStats() async {
+    final Map<dynamic, dynamic> stats = await _channel
+        .invokeMethod<Map<dynamic, dynamic>>('getPrerenderStats');
+    if (stats == null) {
+      return const PrerenderStats(
+          pending: 0, started: 0, shown: 0, discarded: 0);
+    }
+    return PrerenderStats(
+      pending: stats['pending'],
+      started: stats['started'],
+      shown: stats['shown'],
+      discarded: stats['discarded'],
+    );
+  }
+
+  @override
+  Future<PrefetchResult> prefetch(List<String> urls, PrefetchPriority priority,
+      int maxBytes, bool includeSubresources) async {
+    final Map<dynamic, dynamic> result = await _channel
+        .invokeMethod<Map<dynamic, dynamic>>('prefetch', <String, dynamic>{
+      'urls': urls,
+      'priority': priority.index,
+      'maxBytes': maxBytes,
+      'includeSubresources': includeSubresources,
+    });
+    return PrefetchResult(
+      requested: result['requested'],
+      fetched: result['fetched'],
+      alreadyCached: result['alreadyCached'],
+      skipped: result['skipped'],
+      failed: result['failed'],
+      bytes: result['bytes'],
+      cancelled: result['cancelled'],
+    );
+  }
+
+  @override
+  Future<void> cancelPrefetch() =>
+      _channel.invokeMethod<void>('cancelPrefetch');
+
+  @override
+  Future<void> updateNavigationRules(List<NavigationRule> rules) {
+    return _channel.invokeMethod<void>(
+        'updateNavigationRules', _navigationRulesToList(rules));
+  }
+
+  @override
+  Future<void> postMessageToJavascript(String channel, String message) {
+    return _channel.invokeMethod<void>('postMessageToJavascript',
+        <String, String>{'channel': channel, 'message': message});
+  }
+
   @override
   Future<String> getTitle() => _channel.invokeMethod<String>("getTitle");
 
   @override
   Future<void> restoreOriginalVideo() => _channel.invokeMethod<void>("restoreOriginalVideo");
 
+  @override
+  Future<List<WebViewCommandResult>> batch(List<WebViewCommand> commands,
+      {bool stopOnError = true}) async {
+    if (defaultTargetPlatform != TargetPlatform.android) {
+      // Only the Android plugin handles `batch`, other platforms get one call per command.
+      return WebViewPlatformController.runCommandsSeparately(this, commands,
+          stopOnError: stopOnError);
+    }
+    final List<dynamic> replies =
+        await _channel.invokeMethod<List<dynamic>>('batch', <String, dynamic>{
+      'commands': commands.map(_commandToMap).toList(),
+      'stopOnError': stopOnError,
+    });
+    return replies.map<WebViewCommandResult>(_commandResultFromMap).toList();
+  }
+
   /// Method channel implementation for [WebViewPlatform.clearCookies].
   static Future<bool> clearCookies() {
     return _cookieManagerChannel
@@ -127,6 +384,180 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
         .then<bool>((dynamic result) => result);
   }
 
+  /// Method channel implementation for [WebViewPlatform.setCookies].
+  static Future<void> setCookies(List<WebViewCookie> cookies) {
+    return _cookieManagerChannel.invokeMethod<void>(
+        'setCookies',
+        cookies
+            .map((WebViewCookie cookie) => <String, dynamic>{
+                  'name': cookie.name,
+                  'value': cookie.value,
+                  'domain': cookie.domain,
+                  'path': cookie.path,
+                  'expiresMs': cookie.expires?.millisecondsSinceEpoch,
+                  'secure': cookie.secure,
+                  'httpOnly': cookie.httpOnly,
+                  'sameSite': cookie.sameSite,
+                })
+            .toList());
+  }
+
+  /// Method channel implementation for [WebViewPlatform.getCookies].
+  static Future<Map<String, Map<String, String>>> getCookies(
+      List<String> urls) async {
+    final Map<dynamic, dynamic> cookies =
+        await _cookieManagerChannel.invokeMethod<Map<dynamic, dynamic>>(
+            'getCookies', urls);
+    return cookies.map<String, Map<String, String>>(
+        (dynamic url, dynamic values) => MapEntry<String, Map<String, String>>(
+            url, Map<String, String>.from(values)));
+  }
+
+  /// Method channel implementation for [WebViewPlatform.removeCookies].
+  static Future<int> removeCookies(List<String> urls, {Set<String> names}) {
+    return _cookieManagerChannel
+        .invokeMethod<int>('removeCookies', <String, dynamic>{
+      'urls': urls,
+      'names': names?.toList(),
+    });
+  }
+
+  /// Method channel implementation for [WebViewPlatform.exportCookies].
+  static Future<Uint8List> exportCookies(List<String> origins,
+      {Duration maxAge}) {
+    return _cookieManagerChannel
+        .invokeMethod<Uint8List>('exportCookies', <String, dynamic>{
+      'origins': origins,
+      'maxAgeMs': maxAge.inMilliseconds,
+    });
+  }
+
+  /// Method channel implementation for [WebViewPlatform.restoreCookies].
+  static Future<int> restoreCookies(Uint8List snapshot, {bool httpOnly}) {
+    return _cookieManagerChannel
+        .invokeMethod<int>('restoreCookies', <String, dynamic>{
+      'snapshot': snapshot,
+      'httpOnly': httpOnly,
+    });
+  }
+
+  /// Method channel implementation for [WebViewPlatform.setWebViewPoolCapacity].
+  static Future<void> setWebViewPoolCapacity(int capacity) {
+    assert(capacity != null && capacity >= 0);
+    return _webViewPoolChannel.invokeMethod<void>('setCapacity', capacity);
+  }
+
+  /// Method channel implementation for [WebViewPlatform.getWebViewPoolStats].
+  static Future<WebViewPoolStats> getWebViewPoolStats() async {
+    final Map<dynamic, dynamic> stats =
+        await _webViewPoolChannel.invokeMethod<Map<dynamic, dynamic>>('getStats');
+    return WebViewPoolStats(
+      capacity: stats['capacity'],
+      idle: stats['idle'],
+      hits: stats['hits'],
+      misses: stats['misses'],
+    );
+  }
+
+  /// Method channel implementation for [WebViewPlatform.configureResourceCache].
+  static Future<void> configureResourceCache(
+      int memoryCapacity, int diskCapacity) {
+    return _resourceCacheChannel.invokeMethod<void>(
+        'configure', <String, int>{
+      'memoryCapacityBytes': memoryCapacity,
+      'diskCapacityBytes': diskCapacity,
+    });
+  }
+
+  /// Method channel implementation for [WebViewPlatform.getResourceCacheStats].
+  static Future<ResourceCacheStats> getResourceCacheStats() async {
+    final Map<dynamic, dynamic> stats = await _resourceCacheChannel
+        .invokeMethod<Map<dynamic, dynamic>>('getStats');
+    return ResourceCacheStats(
+      memoryHits: stats['memoryHits'],
+      diskHits: stats['diskHits'],
+      misses: stats['misses'],
+      revalidations: stats['revalidations'],
+      bytesServed: stats['bytesServed'],
+      memoryBytes: stats['memoryBytes'],
+      diskBytes: stats['diskBytes'],
+      diskEntries: stats['diskEntries'],
+      prefetched: stats['prefetched'],
+      prefetchedDocumentHits: stats['prefetchedDocumentHits'],
+    );
+  }
+
+  /// Method channel implementation for [WebViewPlatform.clearResourceCache].
+  static Future<void> clearResourceCache() {
+    return _resourceCacheChannel.invokeMethod<void>('clear');
+  }
+
+  /// Method channel implementation for [WebViewPlatform.setContentBlockingRules].
+  static Future<void> setContentBlockingRules(List<String> blockedHosts,
+      List<String> urlFilters, List<String> allowedHosts) {
+    return _contentBlockerChannel
+        .invokeMethod<void>('setRules', <String, List<String>>{
+      'blockedHosts': blockedHosts,
+      'urlFilters': urlFilters,
+      'allowedHosts': allowedHosts,
+    });
+  }
+
+  /// Method channel implementation for [WebViewPlatform.getContentBlockerStats].
+  static Future<ContentBlockerStats> getContentBlockerStats() async {
+    final Map<dynamic, dynamic> stats = await _contentBlockerChannel
+        .invokeMethod<Map<dynamic, dynamic>>('getStats');
+    return ContentBlockerStats(
+      hostRules: stats['hostRules'],
+      urlRules: stats['urlRules'],
+      checked: stats['checked'],
+      blocked: stats['blocked'],
+      averageMatchTime:
+          Duration(microseconds: stats['averageMatchNanos'] ~/ 1000),
+    );
+  }
+
+  /// Method channel implementation for [WebViewPlatform.getWebStorageUsage].
+  static Future<List<OriginStorageUsage>> getWebStorageUsage() async {
+    final List<dynamic> usages =
+        await _webStorageChannel.invokeMethod<List<dynamic>>('getUsage');
+    return usages.map<OriginStorageUsage>((dynamic usage) {
+      final int lastUsedMs = usage['lastUsedMs'];
+      return OriginStorageUsage(
+        origin: usage['origin'],
+        usageBytes: usage['usageBytes'],
+        quotaBytes: usage['quotaBytes'],
+        lastUsed: lastUsedMs == null
+            ? null
+            : DateTime.fromMillisecondsSinceEpoch(lastUsedMs),
+      );
+    }).toList();
+  }
+
+  /// Method channel implementation for [WebViewPlatform.setWebStorageQuota].
+  static Future<WebStorageEviction> setWebStorageQuota(
+      int maxBytes, List<String> protectedOrigins) async {
+    return _webStorageEvictionFromMap(await _webStorageChannel
+        .invokeMethod<Map<dynamic, dynamic>>('setQuota', <String, dynamic>{
+      'maxBytes': maxBytes,
+      'protectedOrigins': protectedOrigins,
+    }));
+  }
+
+  /// Method channel implementation for [WebViewPlatform.enforceWebStorageQuota].
+  static Future<WebStorageEviction> enforceWebStorageQuota() async {
+    return _webStorageEvictionFromMap(await _webStorageChannel
+        .invokeMethod<Map<dynamic, dynamic>>('enforceQuota'));
+  }
+
+  static WebStorageEviction _webStorageEvictionFromMap(
+      Map<dynamic, dynamic> eviction) {
+    return WebStorageEviction(
+      evictedOrigins: List<String>.from(eviction['evictedOrigins']),
+      bytesFreed: eviction['bytesFreed'],
+    );
+  }
+
   static Map<String, dynamic> _webSettingsToMap(WebSettings settings) {
     final Map<String, dynamic> map = <String, dynamic>{};
     void _addIfNonNull(String key, dynamic value) {
@@ -152,6 +583,58 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
     return map;
   }
 
+  static Map<String, dynamic> _commandToMap(WebViewCommand command) {
+    String method;
+    dynamic arguments = command.arguments;
+    switch (command.type) {
+      case WebViewCommandType.loadUrl:
+        method = 'loadUrl';
+        break;
+      case WebViewCommandType.updateSettings:
+        method = 'updateSettings';
+        arguments = _webSettingsToMap(command.arguments);
+        break;
+      case WebViewCommandType.evaluateJavascript:
+        method = 'evaluateJavascript';
+        break;
+      case WebViewCommandType.addJavascriptChannels:
+        method = 'addJavascriptChannels';
+        arguments = command.arguments.toList();
+        break;
+      case WebViewCommandType.removeJavascriptChannels:
+        method = 'removeJavascriptChannels';
+        arguments = command.arguments.toList();
+        break;
+      case WebViewCommandType.reload:
+        method = 'reload';
+        break;
+      case WebViewCommandType.goBack:
+        method = 'goBack';
+        break;
+      case WebViewCommandType.goForward:
+        method = 'goForward';
+        break;
+      case WebViewCommandType.clearCache:
+        method = 'clearCache';
+        break;
+    }
+    return <String, dynamic>{'method': method, 'arguments': arguments};
+  }
+
+  static WebViewCommandResult _commandResultFromMap(dynamic reply) {
+    switch (reply['status']) {
+      case 'success':
+        return WebViewCommandResult.success(reply['result']);
+      case 'skipped':
+        return const WebViewCommandResult.skipped();
+      case 'notImplemented':
+        return const WebViewCommandResult.error(
+            'notImplemented', 'The command is not implemented by the platform');
+      default:
+        return WebViewCommandResult.error(reply['code'], reply['message']);
+    }
+  }
+
   /// Converts a [CreationParams] object to a map as expected by `platform_views` channel.
   ///
   /// This is used for the `creationParams` argument of the platform views created by
@@ -164,6 +647,305 @@ class MethodChannelWebViewPlatform implements WebViewPlatformController {
       'javascriptChannelNames': creationParams.javascriptChannelNames.toList(),
       'userAgent': creationParams.userAgent,
       'autoMediaPlaybackPolicy': creationParams.autoMediaPlaybackPolicy.index,
+      'javascriptMessageBatching':
+          _javascriptMessageBatchingToMap(creationParams.javascriptMessageBatching),
+      'javascriptChannelQueuePolicies':
+          _queuePoliciesToMap(creationParams.javascriptChannelQueuePolicies),
+      'javascriptChannelTransport':
+          creationParams.javascriptChannelTransport.index,
+      'eventTransport': creationParams.eventTransport.index,
+      'navigationRules': _navigationRulesToList(creationParams.navigationRules),
+      'navigationDeadline':
+          _navigationDeadlineToMap(creationParams.navigationDeadline),
+      'subframeNavigationReporting': _subframeNavigationReportingToMap(
+          creationParams.subframeNavigationReporting),
+      'useResourceCache': creationParams.useResourceCache,
+      'assetServer': _assetServerToMap(creationParams.assetServer),
+      'contentBlocking': creationParams.contentBlocking,
+      'reportPagePerformance': creationParams.reportPagePerformance,
+      'trackVideos': creationParams.trackVideos,
+      'suspendMediaWhenHidden': creationParams.suspendMediaWhenHidden,
+      'videoQualityReporting':
+          _videoQualityReportingToMap(creationParams.videoQualityReporting),
+      'maxPrerenders': creationParams.maxPrerenders,
     };
   }
+
+  static VideoEvent _videoEventFromMap(Map<dynamic, dynamic> map) {
+    return VideoEvent(
+      videoId: map['id'],
+      type: _videoEventTypes[map['type']],
+      position: Duration(milliseconds: map['positionMs']),
+      src: map['src'],
+    );
+  }
+
+  static VideoPlaybackQuality _videoPlaybackQualityFromMap(
+      Map<dynamic, dynamic> map) {
+    return VideoPlaybackQuality(
+      videoId: map['id'],
+      src: map['src'],
+      period: Duration(milliseconds: map['periodMs']),
+      droppedFrames: map['droppedFrames'],
+      totalFrames: map['totalFrames'],
+      bufferingTime: Duration(milliseconds: map['bufferingMs']),
+      stalls: map['stalls'],
+      startupTime: map['startupMs'] == null
+          ? null
+          : Duration(milliseconds: map['startupMs']),
+      resolutionSwitches: map['resolutionSwitches'],
+      width: map['width'],
+      height: map['height'],
+      bitrate: map['bitrate'],
+    );
+  }
+
+  static PagePerformance _pagePerformanceFromMap(Map<dynamic, dynamic> map) {
+    Duration _duration(dynamic milliseconds) =>
+        milliseconds == null ? null : Duration(milliseconds: milliseconds);
+
+    final Map<dynamic, dynamic> timing =
+        map['navigationTiming'] ?? <dynamic, dynamic>{};
+    return PagePerformance(
+      url: map['url'],
+      commitTime: _duration(map['commitMs']),
+      finishTime: _duration(map['finishMs']),
+      subresources: map['subresources'],
+      interceptedBytes: map['interceptedBytes'],
+      httpErrors: map['httpErrors'],
+      redirects: map['redirects'],
+      responseStart: _duration(timing['responseStart']),
+      domInteractive: _duration(timing['domInteractive']),
+      domContentLoaded: _duration(timing['domContentLoaded']),
+      loadEvent: _duration(timing['loadEvent']),
+      firstContentfulPaint: _duration(timing['firstContentfulPaint']),
+    );
+  }
+
+  static Map<String, dynamic> _assetServerToMap(WebViewAssetServer server) {
+    if (server == null) {
+      return null;
+    }
+    return <String, dynamic>{
+      'host': server.host,
+      'mappings': server.mappings.map<Map<String, dynamic>>(
+          (WebViewAssetMapping mapping) => <String, dynamic>{
+                'pathPrefix': mapping.pathPrefix,
+                'source': mapping.source.index,
+                'root': mapping.root,
+              }).toList(),
+    };
+  }
+
+  static Map<String, dynamic> _subframeNavigationReportingToMap(
+      SubframeNavigationReporting reporting) {
+    if (reporting == null) {
+      return null;
+    }
+    return <String, dynamic>{
+      'mode': reporting.mode.index,
+      'windowMs': reporting.window.inMilliseconds,
+    };
+  }
+
+  static Map<String, dynamic> _videoQualityReportingToMap(
+      VideoQualityReporting reporting) {
+    if (reporting == null) {
+      return null;
+    }
+    return <String, dynamic>{
+      'intervalMs': reporting.interval.inMilliseconds,
+      'sampleIntervalMs': reporting.sampleInterval.inMilliseconds,
+    };
+  }
+
+  static Map<String, dynamic> _navigationDeadlineToMap(
+      NavigationDeadline deadline) {
+    if (deadline == null) {
+      return null;
+    }
+    return <String, dynamic>{
+      'timeoutMs': deadline.timeout.inMilliseconds,
+      'fallbackToNavigate':
+          deadline.fallbackDecision == NavigationDecision.navigate,
+    };
+  }
+
+  static List<Map<String, dynamic>> _navigationRulesToList(
+      List<NavigationRule> rules) {
+    if (rules == null) {
+      return null;
+    }
+    return rules.map<Map<String, dynamic>>((NavigationRule rule) {
+      if (rule.pattern != null) {
+        try {
+          RegExp(rule.pattern);
+        } on FormatException catch (e) {
+          throw ArgumentError.value(rule.pattern, 'pattern',
+              'Not a valid regular expression: ${e.message}');
+        }
+      }
+      return <String, dynamic>{
+        'decision': rule.decision.index,
+        'schemes': rule.schemes,
+        'host': rule.host,
+        'pathPrefix': rule.pathPrefix,
+        'pattern': rule.pattern,
+      };
+    }).toList();
+  }
+
+  static Map<String, dynamic> _queuePoliciesToMap(
+      Map<String, JavascriptChannelQueuePolicy> policies) {
+    if (policies == null) {
+      return null;
+    }
+    return policies.map<String, dynamic>(
+        (String channel, JavascriptChannelQueuePolicy policy) {
+      return MapEntry<String, dynamic>(
+          channel,
+          policy == null
+              ? null
+              : <String, dynamic>{
+                  'maxPendingMessages': policy.maxPendingMessages,
+                  'overflowPolicy': policy.overflowPolicy.index,
+                });
+    });
+  }
+
+  static Map<String, dynamic> _javascriptMessageBatchingToMap(
+      JavascriptMessageBatching batching) {
+    if (batching == null) {
+      return null;
+    }
+    return <String, dynamic>{
+      'flushIntervalMs': batching.flushInterval.inMilliseconds,
+      'capacity': batching.maxBufferedMessages,
+    };
+  }
+}
+
+// The DOM media event types reported by the platform's VideoTracker.
+const Map<String, VideoEventType> _videoEventTypes = <String, VideoEventType>{
+  'play': VideoEventType.play,
+  'pause': VideoEventType.pause,
+  'ended': VideoEventType.ended,
+  'waiting': VideoEventType.waiting,
+  'error': VideoEventType.error,
+};
+
+// Decodes the events sent by the platform's WebViewEventStream, see its documentation for the
+// layout. A decoder must only be used for a single stream subscription since the string table
+// spans all the events of the subscription.
+class _WebViewEventDecoder {
+  _WebViewEventDecoder(this._handler);
+
+  static const int _pageStarted = 1;
+  static const int _pageFinished = 2;
+  static const int _pageFailed = 3;
+  static const int _videoFullScreen = 4;
+  static const int _javascriptChannelMessage = 5;
+  static const int _videoEvents = 6;
+
+  static const int _stringInterned = 0;
+  static const int _stringLiteral = 1;
+  static const int _stringNull = 2;
+  static const int _stringReferenceBase = 3;
+
+  final WebViewPlatformCallbacksHandler _handler;
+  final List<String> _strings = <String>[];
+  Uint8List _bytes;
+  int _offset;
+
+  void decode(Uint8List events) {
+    _bytes = events;
+    _offset = 0;
+    while (_offset < _bytes.length) {
+      final int tag = _readVarint();
+      switch (tag) {
+        case _pageStarted:
+          _handler.onPageStarted(_readString());
+          break;
+        case _pageFinished:
+          _handler.onPageFinished(_readString());
+          break;
+        case _pageFailed:
+          final String url = _readString();
+          final Map<String, dynamic> error = <String, dynamic>{
+            'type': _readString(),
+          };
+          if (_readBool()) {
+            final int zigzag = _readVarint();
+            error['errorCode'] = (zigzag >> 1) ^ -(zigzag & 1);
+          }
+          final String description = _readString();
+          if (description != null) {
+            error['description'] = description;
+          }
+          _handler.onPageFailed(url, error);
+          break;
+        case _videoFullScreen:
+          final bool fullscreen = _readBool();
+          final Duration latency =
+              _readBool() ? Duration(milliseconds: _readVarint()) : null;
+          _handler.onVideoFullScreen(fullscreen, latency);
+          break;
+        case _javascriptChannelMessage:
+          final String channel = _readString();
+          final String message = _readString();
+          _handler.onJavaScriptChannelMessage(channel, message);
+          break;
+        case _videoEvents:
+          final int count = _readVarint();
+          final List<VideoEvent> events = <VideoEvent>[];
+          for (int i = 0; i < count; i++) {
+            final int videoId = _readVarint();
+            final VideoEventType type = _videoEventTypes[_readString()];
+            final int positionMs = _readVarint();
+            events.add(VideoEvent(
+              videoId: videoId,
+              type: type,
+              position: Duration(milliseconds: positionMs),
+              src: _readString(),
+            ));
+          }
+          _handler.onVideoEvents(events);
+          break;
+        default:
+          throw StateError('Unknown webview event: $tag');
+      }
+    }
+  }
+
+  int _readVarint() {
+    int value = 0;
+    int shift = 0;
+    int byte;
+    do {
+      byte = _bytes[_offset++];
+      value |= (byte & 0x7f) << shift;
+      shift += 7;
+    } while (byte & 0x80 != 0);
+    return value;
+  }
+
+  bool _readBool() => _bytes[_offset++] != 0;
+
+  String _readString() {
+    final int marker = _readVarint();
+    if (marker == _stringNull) {
+      return null;
+    }
+    if (marker >= _stringReferenceBase) {
+      return _strings[marker - _stringReferenceBase];
+    }
+    final int length = _readVarint();
+    final String value = utf8.decode(Uint8List.view(
+        _bytes.buffer, _bytes.offsetInBytes + _offset, length));
+    _offset += length;
+    if (marker == _stringInterned) {
+      _strings.add(value);
+    }
+    return value;
+  }
 }
@@ -6,6 +6,7 @@ import 'dart:async';
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter/gestures.dart';
+import 'package:flutter/services.dart';
 import 'package:flutter/widgets.dart';
 
 import 'platform_interface.dart';
@@ -73,6 +74,198 @@ enum NavigationDecision {
 typedef FutureOr<NavigationDecision> NavigationDelegate(
     NavigationRequest navigation);
 
+/// Bounds how long a main frame navigation waits for the [WebView.navigationDelegate].
+///
+/// The delegate runs on the UI isolate, so its decision can be held up by unrelated work (e.g.
+/// building a frame). When the delegate hasn't decided within [timeout], [fallbackDecision] is
+/// applied. The delegate's decision is still applied when it eventually arrives and differs from
+/// the fallback, as long as no other navigation was started in the meantime: a late
+/// [NavigationDecision.navigate] starts the navigation, a late [NavigationDecision.prevent] stops
+/// the page and goes back.
+///
+/// Navigation deadlines are currently only supported on Android.
+class NavigationDeadline {
+  /// Constructs a navigation deadline.
+  ///
+  /// The `timeout` and `fallbackDecision` parameters must not be null.
+  const NavigationDeadline({
+    @required this.timeout,
+    this.fallbackDecision = NavigationDecision.navigate,
+  })  : assert(timeout != null && timeout > Duration.zero),
+        assert(fallbackDecision != null);
+
+  /// How long the navigation waits for the delegate's decision.
+  final Duration timeout;
+
+  /// The decision that is applied when the delegate didn't decide within [timeout].
+  final NavigationDecision fallbackDecision;
+
+  @override
+  String toString() {
+    return '$runtimeType(timeout: $timeout, fallbackDecision: $fallbackDecision)';
+  }
+}
+
+/// Counters and latencies of the [WebView.navigationDelegate]'s decisions.
+///
+/// Latencies are measured by the platform, from when a navigation was sent to the delegate to when
+/// its decision arrived, over the most recent decisions.
+///
+/// See also: [WebViewController.getNavigationDecisionStats].
+class NavigationDecisionStats {
+  /// Constructs a snapshot of the navigation decision counters.
+  const NavigationDecisionStats({
+    this.decisions,
+    this.timedOut,
+    this.lateAllowed,
+    this.lateReverted,
+    this.p50,
+    this.p90,
+    this.p99,
+  });
+
+  /// The number of decisions the delegate made.
+  final int decisions;
+
+  /// The number of navigations the [NavigationDeadline] decided.
+  final int timedOut;
+
+  /// The number of navigations that were started by a late decision.
+  final int lateAllowed;
+
+  /// The number of navigations that were stopped by a late decision.
+  final int lateReverted;
+
+  /// The median decision latency.
+  final Duration p50;
+
+  /// The 90th percentile of the decision latency.
+  final Duration p90;
+
+  /// The 99th percentile of the decision latency.
+  final Duration p99;
+
+  @override
+  String toString() {
+    return '$runtimeType(decisions: $decisions, timedOut: $timedOut, lateAllowed: $lateAllowed, lateReverted: $lateReverted, p50: $p50, p90: $p90, p99: $p99)';
+  }
+}
+
+/// How navigation requests targeted to subframes are reported to the [WebView.navigationDelegate].
+///
+/// See also: [SubframeNavigationReporting].
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum SubframeNavigationMode {
+  /// Every subframe navigation request is reported.
+  all,
+
+  /// Subframe navigation requests are not reported.
+  suppress,
+
+  /// Requests for a URL that was already reported within the window are not reported.
+  deduplicate,
+
+  /// The distinct URLs requested during the window are reported together at the end of the window,
+  /// with the number of times each was requested, to [WebView.onSubframeNavigationSummary] instead
+  /// of the [WebView.navigationDelegate].
+  summarize,
+}
+
+/// Configures how navigation requests targeted to subframes are reported to the
+/// [WebView.navigationDelegate].
+///
+/// The delegate can't prevent subframe navigations on Android, yet pages with many frames (e.g.
+/// ads) report hundreds of them per page load. Main frame navigation requests are always reported
+/// as they happen.
+///
+/// Subframe navigation reporting is currently only supported on Android.
+class SubframeNavigationReporting {
+  /// Constructs a subframe navigation reporting configuration.
+  ///
+  /// The `mode` and `window` parameters must not be null.
+  const SubframeNavigationReporting({
+    this.mode = SubframeNavigationMode.deduplicate,
+    this.window = const Duration(seconds: 1),
+  })  : assert(mode != null),
+        assert(window != null);
+
+  /// How subframe navigation requests are reported.
+  final SubframeNavigationMode mode;
+
+  /// The window [SubframeNavigationMode.deduplicate] and [SubframeNavigationMode.summarize] apply
+  /// to.
+  final Duration window;
+
+  @override
+  String toString() {
+    return '$runtimeType(mode: $mode, window: $window)';
+  }
+}
+
+/// A navigation rule that is evaluated by the platform without calling the
+/// [WebView.navigationDelegate].
+///
+/// A rule matches a URL when all of its non null conditions match. The first rule in
+/// [WebView.navigationRules] that matches a URL decides its navigation.
+///
+/// Navigation rules are currently only supported on Android.
+class NavigationRule {
+  /// Constructs a navigation rule.
+  ///
+  /// The `decision` parameter must not be null.
+  const NavigationRule({
+    @required this.decision,
+    this.schemes,
+    this.host,
+    this.pathPrefix,
+    this.pattern,
+  }) : assert(decision != null);
+
+  /// How navigations to URLs matched by this rule are handled.
+  final NavigationDecision decision;
+
+  /// The URL schemes this rule matches, e.g. `['http', 'https']`, compared case insensitively.
+  final List<String> schemes;
+
+  /// The URL host this rule matches, compared case insensitively.
+  ///
+  /// A host starting with `*.`, e.g. `*.example.com`, also matches all subdomains of the host.
+  final String host;
+
+  /// A prefix of the URL paths this rule matches, e.g. `/articles/`.
+  final String pathPrefix;
+
+  /// A regular expression that must be found in the URL for this rule to match.
+  ///
+  /// The expression is evaluated by the platform, so it should stick to syntax that is common to
+  /// Dart and Java regular expressions. Rules with a pattern that isn't a valid Dart regular
+  /// expression are rejected with an [ArgumentError]. When the platform can't compile a pattern
+  /// of the initial [WebView.navigationRules] no rule applies, and when it can't compile one of
+  /// updated rules the previous rules stay in effect.
+  final String pattern;
+
+  @override
+  bool operator ==(Object other) {
+    if (other.runtimeType != runtimeType) return false;
+    final NavigationRule typedOther = other;
+    return typedOther.decision == decision &&
+        listEquals(typedOther.schemes, schemes) &&
+        typedOther.host == host &&
+        typedOther.pathPrefix == pathPrefix &&
+        typedOther.pattern == pattern;
+  }
+
+  @override
+  int get hashCode =>
+      hashValues(decision, hashList(schemes), host, pathPrefix, pattern);
+
+  @override
+  String toString() {
+    return '$runtimeType(decision: $decision, schemes: $schemes, host: $host, pathPrefix: $pathPrefix, pattern: $pattern)';
+  }
+}
+
 /// Signature for when a [WebView] has started loading a page.
 typedef void PageStartedCallback(String url);
 
@@ -83,6 +276,297 @@ typedef void PageFailedCallback(String url, dynamic error);
 
 typedef void VideoFullScreenCallback(bool fullscreen);
 
+/// Signature for when a video of a [WebView] entered or exited full-screen, with the time it took.
+///
+/// `latency` is the time from the change to the first frame drawn after it, it is null when it
+/// couldn't be measured.
+typedef void VideoFullScreenLatencyCallback(bool fullscreen, Duration latency);
+
+/// Signature for when the [ContentBlocker] blocked requests of a page.
+///
+/// `blockedCount` is the total number of requests blocked since the page at `url` started loading.
+typedef void ContentBlockedCallback(String url, int blockedCount);
+
+/// Signature for when a window of [SubframeNavigationMode.summarize] reporting ended.
+///
+/// `requestCounts` maps every distinct URL requested by subframes during the window to the number
+/// of times it was requested.
+typedef void SubframeNavigationSummaryCallback(Map<String, int> requestCounts);
+
+/// Signature for when a [WebView] has measured a page load.
+typedef void PagePerformanceCallback(PagePerformance performance);
+
+/// The performance of a single page load, measured by the platform.
+///
+/// Durations are measured from when the page started loading. The Navigation Timing values are
+/// read from the page once it finished loading, they are null when the page didn't reach them or
+/// doesn't support the Navigation Timing API, e.g. when JavaScript is disabled.
+///
+/// See also: [WebView.onPagePerformance].
+class PagePerformance {
+  /// Constructs a page load record.
+  const PagePerformance({
+    this.url,
+    this.commitTime,
+    this.finishTime,
+    this.subresources,
+    this.interceptedBytes,
+    this.httpErrors,
+    this.redirects,
+    this.responseStart,
+    this.domInteractive,
+    this.domContentLoaded,
+    this.loadEvent,
+    this.firstContentfulPaint,
+  });
+
+  /// The URL of the page.
+  final String url;
+
+  /// When the page's content became visible, null when the platform doesn't report it (before
+  /// Android M).
+  final Duration commitTime;
+
+  /// When the page finished loading.
+  final Duration finishTime;
+
+  /// The number of subresource and subframe requests the page made.
+  final int subresources;
+
+  /// The number of body bytes served by the plugin, e.g. by the [ResourceCache] or the
+  /// [WebViewAssetServer], rather than by the webview's network stack.
+  final int interceptedBytes;
+
+  /// The number of requests that were answered with an HTTP error status.
+  final int httpErrors;
+
+  /// The number of redirects the main frame went through (from Android N).
+  final int redirects;
+
+  /// When the first byte of the document's response arrived.
+  final Duration responseStart;
+
+  /// When the document became interactive.
+  final Duration domInteractive;
+
+  /// When the document's `DOMContentLoaded` handlers finished.
+  final Duration domContentLoaded;
+
+  /// When the document's `load` handlers finished.
+  final Duration loadEvent;
+
+  /// When the first content was painted.
+  final Duration firstContentfulPaint;
+
+  @override
+  String toString() {
+    return '$runtimeType(url: $url, commitTime: $commitTime, finishTime: $finishTime, subresources: $subresources, interceptedBytes: $interceptedBytes, httpErrors: $httpErrors, redirects: $redirects, responseStart: $responseStart, domInteractive: $domInteractive, domContentLoaded: $domContentLoaded, loadEvent: $loadEvent, firstContentfulPaint: $firstContentfulPaint)';
+  }
+}
+
+/// Signature for when a [WebView] reports a batch of [VideoEvent]s.
+typedef void VideoEventsCallback(List<VideoEvent> events);
+
+/// The playback events reported for the `<video>` elements of a page.
+// The method channel implementation is marshalling this enum to the value's name, so the names
+// must match the DOM media event types.
+enum VideoEventType {
+  /// Playback started or resumed, also reported for videos that were already playing when the page
+  /// was first tracked.
+  play,
+
+  /// Playback was paused.
+  pause,
+
+  /// Playback reached the end of the video.
+  ended,
+
+  /// Playback stopped because the next frame isn't available yet.
+  waiting,
+
+  /// The video failed to load or to decode.
+  error,
+}
+
+/// A playback event of a single `<video>` element.
+///
+/// See also: [WebView.onVideoEvents].
+class VideoEvent {
+  /// Constructs a video event.
+  const VideoEvent({this.videoId, this.type, this.position, this.src});
+
+  /// Identifies the video element within its page, every element added to the page gets a new id.
+  final int videoId;
+
+  /// What happened.
+  final VideoEventType type;
+
+  /// The playback position of the video when the event happened.
+  final Duration position;
+
+  /// The URL of the media being played, null when the video has no source yet.
+  final String src;
+
+  @override
+  String toString() {
+    return '$runtimeType(videoId: $videoId, type: $type, position: $position, src: $src)';
+  }
+}
+
+/// Signature for when a [WebView] reports the playback quality of the page's videos.
+typedef void VideoQualityCallback(List<VideoPlaybackQuality> qualities);
+
+/// Configures how the playback quality of a [WebView]'s videos is sampled and reported.
+///
+/// Pages sample their playing videos every [sampleInterval], the platform aggregates the samples
+/// and reports them once every [interval]. Longer intervals cost fewer platform messages.
+///
+/// See also: [WebView.onVideoQuality].
+class VideoQualityReporting {
+  /// Constructs a playback quality reporting configuration.
+  ///
+  /// The `interval` and `sampleInterval` parameters must not be null.
+  const VideoQualityReporting({
+    this.interval = const Duration(seconds: 10),
+    this.sampleInterval = const Duration(seconds: 1),
+  })  : assert(interval != null),
+        assert(sampleInterval != null);
+
+  /// How often the aggregate playback quality is reported.
+  final Duration interval;
+
+  /// How often the page samples its playing videos.
+  final Duration sampleInterval;
+
+  @override
+  String toString() {
+    return '$runtimeType(interval: $interval, sampleInterval: $sampleInterval)';
+  }
+}
+
+/// The playback quality of a single `<video>` element during a reporting period.
+///
+/// Counters cover the period, the dimensions are the video's latest ones.
+///
+/// See also: [WebView.onVideoQuality].
+class VideoPlaybackQuality {
+  /// Constructs a playback quality record.
+  const VideoPlaybackQuality({
+    this.videoId,
+    this.src,
+    this.period,
+    this.droppedFrames,
+    this.totalFrames,
+    this.bufferingTime,
+    this.stalls,
+    this.startupTime,
+    this.resolutionSwitches,
+    this.width,
+    this.height,
+    this.bitrate,
+  });
+
+  /// Identifies the video element within its page, matches [VideoEvent.videoId].
+  final int videoId;
+
+  /// The URL of the media being played, null when the video has no source.
+  final String src;
+
+  /// How long the period the counters cover lasted.
+  final Duration period;
+
+  /// How many frames were dropped, e.g. because they were decoded too late.
+  final int droppedFrames;
+
+  /// How many frames were decoded, including the dropped ones.
+  final int totalFrames;
+
+  /// How long playback was stalled waiting for data, after it first started.
+  final Duration bufferingTime;
+
+  /// How many times playback stalled waiting for data, after it first started.
+  final int stalls;
+
+  /// The time from the first play request to the first frame, null unless the video started
+  /// during the period.
+  final Duration startupTime;
+
+  /// How many times the video's resolution changed, e.g. by adaptive streaming.
+  final int resolutionSwitches;
+
+  /// The video's width in pixels, 0 when it isn't known yet.
+  final int width;
+
+  /// The video's height in pixels, 0 when it isn't known yet.
+  final int height;
+
+  /// The bits of video decoded per second of media played, null when nothing was played or the
+  /// platform doesn't expose the decoded bytes.
+  final int bitrate;
+
+  /// The share of decoded frames that were dropped, null when no frames were decoded.
+  double get droppedFrameRatio => totalFrames == null || totalFrames == 0
+      ? null
+      : droppedFrames / totalFrames;
+
+  @override
+  String toString() {
+    return '$runtimeType(videoId: $videoId, src: $src, period: $period, droppedFrames: $droppedFrames, totalFrames: $totalFrames, bufferingTime: $bufferingTime, stalls: $stalls, startupTime: $startupTime, resolutionSwitches: $resolutionSwitches, width: $width, height: $height, bitrate: $bitrate)';
+  }
+}
+
+/// The aggregate performance of a [WebView]'s page loads.
+///
+/// Percentiles are computed over the most recent page loads, counters over all of them.
+///
+/// See also: [WebViewController.getPerformanceStats].
+class PagePerformanceStats {
+  /// Constructs a snapshot of the page load counters.
+  const PagePerformanceStats({
+    this.pageLoads,
+    this.commitP50,
+    this.commitP90,
+    this.finishP50,
+    this.finishP90,
+    this.subresources,
+    this.interceptedBytes,
+    this.httpErrors,
+    this.redirects,
+  });
+
+  /// The number of pages that finished loading.
+  final int pageLoads;
+
+  /// The median time until a page's content became visible.
+  final Duration commitP50;
+
+  /// The 90th percentile of the time until a page's content became visible.
+  final Duration commitP90;
+
+  /// The median time until a page finished loading.
+  final Duration finishP50;
+
+  /// The 90th percentile of the time until a page finished loading.
+  final Duration finishP90;
+
+  /// The number of subresource and subframe requests of all pages.
+  final int subresources;
+
+  /// The number of body bytes served by the plugin for all pages.
+  final int interceptedBytes;
+
+  /// The number of requests of all pages answered with an HTTP error status.
+  final int httpErrors;
+
+  /// The number of main frame redirects of all pages.
+  final int redirects;
+
+  @override
+  String toString() {
+    return '$runtimeType(pageLoads: $pageLoads, commitP50: $commitP50, commitP90: $commitP90, finishP50: $finishP50, finishP90: $finishP90, subresources: $subresources, interceptedBytes: $interceptedBytes, httpErrors: $httpErrors, redirects: $redirects)';
+  }
+}
+
 /// Specifies possible restrictions on automatic media playback.
 ///
 /// This is typically used in [WebView.initialMediaPlaybackPolicy].
@@ -102,8 +586,227 @@ enum AutoMediaPlaybackPolicy {
   always_allow,
 }
 
+/// The operations that can be part of a [WebViewController.batch] call.
+enum WebViewCommandType {
+  /// See [WebViewController.loadUrl].
+  loadUrl,
+
+  /// Updates the platform webview's [WebSettings].
+  updateSettings,
+
+  /// See [WebViewController.evaluateJavascript].
+  evaluateJavascript,
+
+  /// Adds JavaScript channels, see [WebViewPlatformController.addJavascriptChannels].
+  addJavascriptChannels,
+
+  /// Removes JavaScript channels, see [WebViewPlatformController.removeJavascriptChannels].
+  removeJavascriptChannels,
+
+  /// See [WebViewController.reload].
+  reload,
+
+  /// See [WebViewController.goBack].
+  goBack,
+
+  /// See [WebViewController.goForward].
+  goForward,
+
+  /// Clears the webview's caches, without the reload done by [WebViewController.clearCache].
+  clearCache,
+}
+
+/// A single operation of a [WebViewController.batch] call.
+class WebViewCommand {
+  const WebViewCommand._(this.type, [this.arguments]);
+
+  /// Loads `url`, see [WebViewController.loadUrl].
+  factory WebViewCommand.loadUrl(String url, {Map<String, String> headers}) {
+    assert(url != null);
+    return WebViewCommand._(WebViewCommandType.loadUrl,
+        <String, dynamic>{'url': url, 'headers': headers});
+  }
+
+  /// Applies the non null fields of `settings` to the webview.
+  factory WebViewCommand.updateSettings(WebSettings settings) {
+    assert(settings != null);
+    return WebViewCommand._(WebViewCommandType.updateSettings, settings);
+  }
+
+  /// Evaluates `javascriptString`, see [WebViewController.evaluateJavascript].
+  ///
+  /// The command's result is the evaluation result.
+  factory WebViewCommand.evaluateJavascript(String javascriptString) {
+    assert(javascriptString != null);
+    return WebViewCommand._(
+        WebViewCommandType.evaluateJavascript, javascriptString);
+  }
+
+  /// Adds the JavaScript channels named `javascriptChannelNames`.
+  factory WebViewCommand.addJavascriptChannels(
+      Set<String> javascriptChannelNames) {
+    return WebViewCommand._(
+        WebViewCommandType.addJavascriptChannels, javascriptChannelNames);
+  }
+
+  /// Removes the JavaScript channels named `javascriptChannelNames`.
+  factory WebViewCommand.removeJavascriptChannels(
+      Set<String> javascriptChannelNames) {
+    return WebViewCommand._(
+        WebViewCommandType.removeJavascriptChannels, javascriptChannelNames);
+  }
+
+  /// Reloads the current URL.
+  const WebViewCommand.reload() : this._(WebViewCommandType.reload);
+
+  /// Goes back in the history of the webview.
+  const WebViewCommand.goBack() : this._(WebViewCommandType.goBack);
+
+  /// Goes forward in the history of the webview.
+  const WebViewCommand.goForward() : this._(WebViewCommandType.goForward);
+
+  /// Clears the webview's caches.
+  const WebViewCommand.clearCache() : this._(WebViewCommandType.clearCache);
+
+  /// The operation to run.
+  final WebViewCommandType type;
+
+  /// The operation's arguments, their type depends on [type].
+  final dynamic arguments;
+
+  @override
+  String toString() => '$runtimeType($type, $arguments)';
+}
+
+/// The outcome of a [WebViewCommand] that was part of a [WebViewController.batch] call.
+enum WebViewCommandStatus {
+  /// The command ran successfully.
+  success,
+
+  /// The command failed.
+  error,
+
+  /// The command did not run because a previous command of the batch failed.
+  skipped,
+}
+
+/// The result of a [WebViewCommand] that was part of a [WebViewController.batch] call.
+class WebViewCommandResult {
+  /// Constructs the result of a successful command.
+  const WebViewCommandResult.success(this.value)
+      : status = WebViewCommandStatus.success,
+        errorCode = null,
+        errorMessage = null;
+
+  /// Constructs the result of a failed command.
+  const WebViewCommandResult.error(this.errorCode, this.errorMessage)
+      : status = WebViewCommandStatus.error,
+        value = null;
+
+  /// Constructs the result of a command that did not run.
+  const WebViewCommandResult.skipped()
+      : status = WebViewCommandStatus.skipped,
+        value = null,
+        errorCode = null,
+        errorMessage = null;
+
+  /// Whether the command ran successfully.
+  final WebViewCommandStatus status;
+
+  /// The value the command completed with, e.g the evaluation result of
+  /// [WebViewCommand.evaluateJavascript].
+  final dynamic value;
+
+  /// An error code when [status] is [WebViewCommandStatus.error].
+  final String errorCode;
+
+  /// A human readable error message when [status] is [WebViewCommandStatus.error].
+  final String errorMessage;
+
+  @override
+  String toString() {
+    return '$runtimeType(status: $status, value: $value, errorCode: $errorCode, errorMessage: $errorMessage)';
+  }
+}
+
 final RegExp _validChannelNames = RegExp('^[a-zA-Z_][a-zA-Z0-9_]*\$');
 
+/// Callback type for being notified of messages a [JavascriptChannel] did not deliver.
+///
+/// `dropped` is the number of messages that were dropped, and `coalesced` the number of messages
+/// that were replaced by a newer message of the same key, since the previous notification.
+typedef void JavascriptChannelOverflowCallback(int dropped, int coalesced);
+
+/// What happens to a message posted to a [JavascriptChannel] whose queue is full.
+///
+/// See also: [JavascriptChannelQueuePolicy].
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum JavascriptChannelOverflowPolicy {
+  /// The oldest queued message of the channel is dropped to make room for the new one.
+  dropOldest,
+
+  /// The new message is dropped.
+  dropNewest,
+
+  /// The new message replaces the queued message of the channel that has the same key.
+  ///
+  /// JavaScript provides the key as the second argument of `postMessage`:
+  ///
+  /// ```javascript
+  /// Scroll.postMessage(JSON.stringify(position), 'position');
+  /// ```
+  ///
+  /// Messages posted without a key share the same key. When no queued message has the same key
+  /// the oldest queued message is dropped.
+  coalesceByKey,
+
+  /// The JavaScript code posting the message is blocked until the queue has room, for at most a
+  /// second, after which the new message is dropped.
+  ///
+  /// Messages posted from the platform thread are never blocked and are dropped right away.
+  blockJavascript,
+}
+
+/// Limits the number of messages of a [JavascriptChannel] that can wait to be delivered.
+///
+/// This prevents a page that posts messages faster than they are handled from growing the
+/// platform's message queue without bounds.
+///
+/// Queue policies are currently only supported on Android.
+class JavascriptChannelQueuePolicy {
+  /// Constructs a queue policy.
+  ///
+  /// The `maxPendingMessages` and `overflowPolicy` parameters must not be null.
+  const JavascriptChannelQueuePolicy({
+    @required this.maxPendingMessages,
+    this.overflowPolicy = JavascriptChannelOverflowPolicy.dropOldest,
+  })  : assert(maxPendingMessages != null && maxPendingMessages > 0),
+        assert(overflowPolicy != null);
+
+  /// The maximal number of the channel's messages waiting to be delivered.
+  final int maxPendingMessages;
+
+  /// What happens to messages posted while [maxPendingMessages] messages are waiting.
+  final JavascriptChannelOverflowPolicy overflowPolicy;
+
+  @override
+  bool operator ==(Object other) {
+    if (other.runtimeType != runtimeType) return false;
+    final JavascriptChannelQueuePolicy typedOther = other;
+    return typedOther.maxPendingMessages == maxPendingMessages &&
+        typedOther.overflowPolicy == overflowPolicy;
+  }
+
+  @override
+  int get hashCode => hashValues(maxPendingMessages, overflowPolicy);
+
+  @override
+  String toString() {
+    return '$runtimeType(maxPendingMessages: $maxPendingMessages, overflowPolicy: $overflowPolicy)';
+  }
+}
+
 /// A named channel for receiving messaged from JavaScript code running inside a web view.
 class JavascriptChannel {
   /// Constructs a Javascript channel.
@@ -112,6 +815,8 @@ class JavascriptChannel {
   JavascriptChannel({
     @required this.name,
     @required this.onMessageReceived,
+    this.queuePolicy,
+    this.onOverflow,
   })  : assert(name != null),
         assert(onMessageReceived != null),
         assert(_validChannelNames.hasMatch(name));
@@ -131,38 +836,246 @@ class JavascriptChannel {
 
   /// A callback that's invoked when a message is received through the channel.
   final JavascriptMessageHandler onMessageReceived;
-}
 
-/// A web view widget for showing html content.
-class WebView extends StatefulWidget {
-  /// Creates a new web view.
-  ///
-  /// The web view can be controlled using a `WebViewController` that is passed to the
-  /// `onWebViewCreated` callback once the web view is created.
+  /// Limits the number of the channel's messages waiting to be delivered.
   ///
-  /// The `javascriptMode` and `autoMediaPlaybackPolicy` parameters must not be null.
-  const WebView({
-    Key key,
-    this.onWebViewCreated,
-    this.initialUrl,
-    this.javascriptMode = JavascriptMode.disabled,
-    this.javascriptChannels,
-    this.navigationDelegate,
-    this.gestureRecognizers,
-    this.onPageStarted,
-    this.onPageFinished,
-    this.onPageFailed,
-    this.onVideoFullScreen,
-    this.debuggingEnabled = false,
-    this.gestureNavigationEnabled = false,
-    this.userAgent,
-    this.initialMediaPlaybackPolicy =
-        AutoMediaPlaybackPolicy.require_user_action_for_all_media_types,
-  })  : assert(javascriptMode != null),
-        assert(initialMediaPlaybackPolicy != null),
-        super(key: key);
+  /// When null the number of waiting messages is not limited.
+  final JavascriptChannelQueuePolicy queuePolicy;
 
-  static WebViewPlatform _platform;
+  /// Invoked after messages were dropped or coalesced because of [queuePolicy].
+  final JavascriptChannelOverflowCallback onOverflow;
+}
+
+/// Configures how messages posted to [JavascriptChannel]s are batched before being delivered.
+///
+/// Without batching every message posted by JavaScript is delivered with its own platform
+/// message. Pages that post many messages (e.g scroll or analytics events) can instead have their
+/// messages buffered and delivered together, which keeps the platform thread from being flooded.
+///
+/// Messages are always delivered to [JavascriptChannel.onMessageReceived] in the order they were
+/// posted, across all channels.
+///
+/// Batching is currently only supported on Android.
+class JavascriptMessageBatching {
+  /// Constructs a batching configuration.
+  ///
+  /// The `flushInterval` and `maxBufferedMessages` parameters must not be null.
+  const JavascriptMessageBatching({
+    this.flushInterval = Duration.zero,
+    this.maxBufferedMessages = 256,
+  })  : assert(flushInterval != null),
+        assert(maxBufferedMessages != null && maxBufferedMessages > 0);
+
+  /// How long messages are buffered before they are delivered.
+  ///
+  /// [Duration.zero], the default, delivers the buffered messages once per frame.
+  final Duration flushInterval;
+
+  /// The number of buffered messages that triggers a delivery regardless of [flushInterval].
+  final int maxBufferedMessages;
+
+  @override
+  String toString() {
+    return '$runtimeType(flushInterval: $flushInterval, maxBufferedMessages: $maxBufferedMessages)';
+  }
+}
+
+/// Where a [WebViewAssetMapping] serves files from.
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum WebViewAssetSource {
+  /// [WebViewAssetMapping.root] is a directory of the Flutter asset bundle, e.g. `assets/www/`.
+  flutterAssets,
+
+  /// [WebViewAssetMapping.root] is an absolute path of a directory on the device, e.g. a directory
+  /// an offline bundle was downloaded to.
+  directory,
+}
+
+/// Serves the URL paths starting with [pathPrefix] from [root].
+///
+/// See also: [WebViewAssetServer].
+class WebViewAssetMapping {
+  /// Constructs an asset mapping.
+  ///
+  /// The `pathPrefix`, `source` and `root` parameters must not be null. `pathPrefix` must start
+  /// and end with a `/`.
+  const WebViewAssetMapping({
+    @required this.pathPrefix,
+    @required this.source,
+    @required this.root,
+  })  : assert(pathPrefix != null),
+        assert(source != null),
+        assert(root != null);
+
+  /// The URL path prefix this mapping serves, e.g. `/` or `/bundle/`.
+  final String pathPrefix;
+
+  /// Where the files are served from.
+  final WebViewAssetSource source;
+
+  /// The directory the path following [pathPrefix] is resolved against.
+  final String root;
+
+  @override
+  String toString() {
+    return '$runtimeType(pathPrefix: $pathPrefix, source: $source, root: $root)';
+  }
+}
+
+/// Serves local content to a [WebView] under a virtual `https` host.
+///
+/// Loading local content from `file://` or data URLs is slow for large bundles, and breaks web
+/// APIs that depend on the page's origin (e.g. storage, `fetch` and service workers). The asset
+/// server instead answers the requests for `https://` [host] URLs from the Flutter asset bundle or
+/// from directories on the device, without any network access:
+///
+/// ```dart
+/// WebView(
+///   initialUrl: 'https://appassets.local/index.html',
+///   assetServer: WebViewAssetServer(
+///     mappings: <WebViewAssetMapping>[
+///       WebViewAssetMapping(
+///         pathPrefix: '/',
+///         source: WebViewAssetSource.flutterAssets,
+///         root: 'assets/www/',
+///       ),
+///     ],
+///   ),
+/// )
+/// ```
+///
+/// Files are streamed to the webview with MIME types derived from their extension, and range
+/// requests are supported so that media can seek. Paths ending with `/` serve `index.html`.
+///
+/// The asset server is currently only supported on Android Lollipop and above.
+class WebViewAssetServer {
+  /// Constructs an asset server configuration.
+  ///
+  /// The `host` and `mappings` parameters must not be null.
+  const WebViewAssetServer({
+    this.host = 'appassets.local',
+    @required this.mappings,
+  })  : assert(host != null),
+        assert(mappings != null);
+
+  /// The host the content is served under.
+  ///
+  /// Requests for this host never reach the network, so it should not be a real host name.
+  final String host;
+
+  /// The mappings the request paths are matched against, in order.
+  final List<WebViewAssetMapping> mappings;
+
+  @override
+  String toString() {
+    return '$runtimeType(host: $host, mappings: $mappings)';
+  }
+}
+
+/// How the platform sends a [WebView]'s events, e.g. [WebView.onPageStarted] or JavaScript channel
+/// messages, to Dart.
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum WebViewEventTransport {
+  /// Every event is a method channel call with a map of arguments.
+  methodChannel,
+
+  /// Events are sent over an event channel in a compact binary encoding.
+  ///
+  /// Events emitted within the same platform thread turn are sent together as a single platform
+  /// message, and repeated strings (e.g. URLs and channel names) are only sent once. This reduces
+  /// the per event allocations and codec work on both sides for pages that emit many events.
+  ///
+  /// Page started, finished and failed events, video fullscreen changes and JavaScript channel
+  /// messages are sent over the event channel and keep their relative order. Events that expect
+  /// a reply, e.g. navigation requests, are still method channel calls.
+  ///
+  /// Only supported on Android, [methodChannel] is used otherwise.
+  eventChannel,
+}
+
+/// How [JavascriptChannel]s are exposed to JavaScript code.
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum JavascriptChannelTransport {
+  /// Every channel is a platform object injected into the page.
+  ///
+  /// Channels added after the page was loaded are only available after the page is reloaded.
+  javascriptInterface,
+
+  /// Channels are JavaScript objects that post messages over an HTML5 message port.
+  ///
+  /// Channels are available as soon as they are added, messages are delivered with less overhead,
+  /// and messages can also be sent from Dart to the page with
+  /// [WebViewController.postMessageToJavascript].
+  ///
+  /// Channels are defined once the page started loading, not before the page's first script runs
+  /// like [javascriptInterface] channels. Scripts that run early, e.g. inline scripts at the top of
+  /// the document, may not find the channels yet, they should post their messages on
+  /// `DOMContentLoaded` or later. Messages posted before the page received its port are queued and
+  /// delivered once it did.
+  ///
+  /// Only supported on Android, where it requires a WebView implementation with message port
+  /// support, [javascriptInterface] is used otherwise.
+  webMessage,
+}
+
+/// A web view widget for showing html content.
+class WebView extends StatefulWidget {
+  /// Creates a new web view.
+  ///
+  /// The web view can be controlled using a `WebViewController` that is passed to the
+  /// `onWebViewCreated` callback once the web view is created.
+  ///
+  /// The `javascriptMode` and `autoMediaPlaybackPolicy` parameters must not be null.
+  const WebView({
+    Key key,
+    this.onWebViewCreated,
+    this.initialUrl,
+    this.javascriptMode = JavascriptMode.disabled,
+    this.javascriptChannels,
+    this.navigationDelegate,
+    this.navigationRules,
+    this.navigationDeadline,
+    this.subframeNavigationReporting,
+    this.onSubframeNavigationSummary,
+    this.useResourceCache = false,
+    this.assetServer,
+    this.contentBlocking = false,
+    this.onContentBlocked,
+    this.onPagePerformance,
+    this.gestureRecognizers,
+    this.onPageStarted,
+    this.onPageFinished,
+    this.onPageFailed,
+    this.onVideoFullScreen,
+    this.onVideoFullScreenLatency,
+    this.onVideoEvents,
+    this.videoQualityReporting,
+    this.onVideoQuality,
+    this.suspendMediaWhenHidden = false,
+    this.debuggingEnabled = false,
+    this.gestureNavigationEnabled = false,
+    this.userAgent,
+    this.initialMediaPlaybackPolicy =
+        AutoMediaPlaybackPolicy.require_user_action_for_all_media_types,
+    this.javascriptMessageBatching,
+    this.javascriptChannelTransport =
+        JavascriptChannelTransport.javascriptInterface,
+    this.eventTransport = WebViewEventTransport.methodChannel,
+    this.maxPrerenders = 0,
+  })  : assert(javascriptMode != null),
+        assert(initialMediaPlaybackPolicy != null),
+        assert(javascriptChannelTransport != null),
+        assert(eventTransport != null),
+        assert(useResourceCache != null),
+        assert(contentBlocking != null),
+        assert(suspendMediaWhenHidden != null),
+        assert(maxPrerenders != null && maxPrerenders >= 0),
+        super(key: key);
+
+  static WebViewPlatform _platform;
 
   /// Sets a custom [WebViewPlatform].
   ///
@@ -268,6 +1181,84 @@ class WebView extends StatefulWidget {
   ///     * When a navigationDelegate is set HTTP requests do not include the HTTP referer header.
   final NavigationDelegate navigationDelegate;
 
+  /// Rules that decide navigations without calling [navigationDelegate].
+  ///
+  /// Asking the [navigationDelegate] holds the navigation until the delegate's decision made it
+  /// back to the platform, and on Android restarts the navigation when it is allowed. Navigations
+  /// that can be decided from their URL alone can instead be decided by the platform right away.
+  ///
+  /// Navigations that no rule matches are decided by the [navigationDelegate], or allowed when it
+  /// is null. Unlike the [navigationDelegate], rules also apply to navigations targeted to
+  /// subframes.
+  ///
+  /// Navigation rules are currently only supported on Android.
+  final List<NavigationRule> navigationRules;
+
+  /// Bounds how long main frame navigations wait for [navigationDelegate].
+  ///
+  /// When null, the default, navigations wait for the delegate's decision for as long as it takes.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  final NavigationDeadline navigationDeadline;
+
+  /// How navigation requests targeted to subframes are reported to [navigationDelegate].
+  ///
+  /// When null, the default, every subframe navigation request is reported. With
+  /// [SubframeNavigationMode.summarize] they are reported to [onSubframeNavigationSummary] instead.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  final SubframeNavigationReporting subframeNavigationReporting;
+
+  /// Invoked with the subframe navigation requests of every window when
+  /// [subframeNavigationReporting] uses [SubframeNavigationMode.summarize].
+  final SubframeNavigationSummaryCallback onSubframeNavigationSummary;
+
+  /// Whether subresources are loaded through the [ResourceCache] shared by all [WebView]s.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  ///
+  /// Cookies are only sent and stored for subresources of the same site as the main frame, where
+  /// hosts count as the same site when they are equal or one is a subdomain of the other. Other
+  /// subresources are loaded by the webview itself, unless it doesn't accept third-party cookies
+  /// and the cache can load them without cookies.
+  ///
+  /// By default `useResourceCache` is false. The resource cache is currently only supported on
+  /// Android Lollipop and above, where this is ignored on earlier versions.
+  final bool useResourceCache;
+
+  /// Serves local content under a virtual host, see [WebViewAssetServer].
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  final WebViewAssetServer assetServer;
+
+  /// Whether subresource and subframe requests matching the [ContentBlocker]'s filter list are
+  /// blocked.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  ///
+  /// By default `contentBlocking` is false. Content blocking is currently only supported on
+  /// Android Lollipop and above, where this is ignored on earlier versions.
+  final bool contentBlocking;
+
+  /// Invoked when requests of the current page were blocked, see [contentBlocking].
+  ///
+  /// Reports are coalesced, the callback is invoked at most a couple of times per second while the
+  /// page is loading, and once when it finished loading.
+  final ContentBlockedCallback onContentBlocked;
+
+  /// Invoked with the performance of every page that finished loading.
+  ///
+  /// Whether the platform measures the Navigation Timing values of the pages and reports them is
+  /// decided when the platform's webview is created, setting this callback later on has no effect
+  /// (as long as the state of the [WebView] is preserved). The aggregate performance is available
+  /// from [WebViewController.getPerformanceStats] either way.
+  final PagePerformanceCallback onPagePerformance;
+
   /// Invoked when a page starts loading.
   final PageStartedCallback onPageStarted;
 
@@ -287,6 +1278,52 @@ class WebView extends StatefulWidget {
 
   final VideoFullScreenCallback onVideoFullScreen;
 
+  /// Invoked along with [onVideoFullScreen], with the time it took to show or hide the full-screen
+  /// video.
+  ///
+  /// Full-screen latency is currently only measured on Android.
+  final VideoFullScreenLatencyCallback onVideoFullScreenLatency;
+
+  /// Invoked with the playback events of every `<video>` element of the page, in batches.
+  ///
+  /// Whether the platform tracks the videos of the pages and reports their events is decided when
+  /// the platform's webview is created, setting this callback later on has no effect (as long as
+  /// the state of the [WebView] is preserved).
+  final VideoEventsCallback onVideoEvents;
+
+  /// How the playback quality reported to [onVideoQuality] is sampled.
+  ///
+  /// Defaults to [VideoQualityReporting]'s defaults when null. This value is applied to the
+  /// platform's webview upon creation. Any following changes to this parameter are ignored (as long
+  /// as the state of the [WebView] is preserved).
+  final VideoQualityReporting videoQualityReporting;
+
+  /// Invoked once per [VideoQualityReporting.interval] with the playback quality of the page's
+  /// videos that were playing or changed state during the interval.
+  ///
+  /// Whether the platform samples the playback quality is decided when the platform's webview is
+  /// created, setting this callback later on has no effect (as long as the state of the [WebView]
+  /// is preserved).
+  ///
+  /// Playback quality reporting is currently only supported on Android.
+  final VideoQualityCallback onVideoQuality;
+
+  /// Whether the page's media is paused and the platform's webview suspended while the webview is
+  /// hidden.
+  ///
+  /// The webview is hidden while the app is in the background, and while it was reported hidden
+  /// with [WebViewController.setVisible], e.g. when it is scrolled away or in an inactive tab. The
+  /// media paused by the suspension plays again once the webview is visible. The JavaScript timers
+  /// of all webviews are paused while all of them are suspended, so a webview that doesn't set this
+  /// keeps the timers of the others running.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  ///
+  /// By default `suspendMediaWhenHidden` is false. Media suspension is currently only supported on
+  /// Android.
+  final bool suspendMediaWhenHidden;
+
   /// Controls whether WebView debugging is enabled.
   ///
   /// Setting this to true enables [WebView debugging on Android](https://developers.google.com/web/tools/chrome-devtools/remote-debugging/).
@@ -329,6 +1366,42 @@ class WebView extends StatefulWidget {
   /// The default policy is [AutoMediaPlaybackPolicy.require_user_action_for_all_media_types].
   final AutoMediaPlaybackPolicy initialMediaPlaybackPolicy;
 
+  /// How messages posted to [javascriptChannels] are batched.
+  ///
+  /// When null, the default, every message is delivered as soon as it is posted.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  final JavascriptMessageBatching javascriptMessageBatching;
+
+  /// How [javascriptChannels] are exposed to JavaScript code.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  ///
+  /// The default is [JavascriptChannelTransport.javascriptInterface].
+  final JavascriptChannelTransport javascriptChannelTransport;
+
+  /// How the platform sends this web view's events.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  ///
+  /// The default is [WebViewEventTransport.methodChannel].
+  final WebViewEventTransport eventTransport;
+
+  /// How many pages [WebViewController.prerender] may keep loaded in hidden webviews at once.
+  ///
+  /// Every prerendered page costs as much memory as a visible one. When the limit is reached the
+  /// oldest prerender is discarded, prerenders that aren't navigated to within a minute are
+  /// discarded too. A value of 0 disables prerendering.
+  ///
+  /// This value is applied to the platform's webview upon creation. Any following changes to this
+  /// parameter are ignored (as long as the state of the [WebView] is preserved).
+  ///
+  /// The default is 0, prerendering is opt-in.
+  final int maxPrerenders;
+
   @override
   State<StatefulWidget> createState() => _WebViewState();
 }
@@ -363,8 +1436,24 @@ class _WebViewState extends State<WebView> {
     _assertJavascriptChannelNamesAreUnique();
     _controller.future.then((WebViewController controller) {
       _platformCallbacksHandler._widget = widget;
-      controller._updateWidget(widget);
+      return controller._updateWidget(widget);
+    }).catchError((dynamic exception, StackTrace stack) {
+      // There is no caller to return the error to, the update runs after the rebuild.
+      FlutterError.reportError(FlutterErrorDetails(
+        exception: exception,
+        stack: stack,
+        library: 'webview_flutter',
+        context: ErrorDescription('while updating the webview'),
+      ));
+    });
+  }
+
+  @override
+  void dispose() {
+    _controller.future.then((WebViewController controller) {
+      controller._webViewPlatformController.dispose();
     });
+    super.dispose();
   }
 
   void _onWebViewPlatformCreated(WebViewPlatformController webViewPlatform) {
@@ -393,6 +1482,24 @@ CreationParams _creationParamsfromWidget(WebView widget) {
     javascriptChannelNames: _extractChannelNames(widget.javascriptChannels),
     userAgent: widget.userAgent,
     autoMediaPlaybackPolicy: widget.initialMediaPlaybackPolicy,
+    javascriptMessageBatching: widget.javascriptMessageBatching,
+    javascriptChannelQueuePolicies:
+        _extractChannelQueuePolicies(widget.javascriptChannels),
+    javascriptChannelTransport: widget.javascriptChannelTransport,
+    eventTransport: widget.eventTransport,
+    navigationRules: widget.navigationRules,
+    navigationDeadline: widget.navigationDeadline,
+    subframeNavigationReporting: widget.subframeNavigationReporting,
+    useResourceCache: widget.useResourceCache,
+    assetServer: widget.assetServer,
+    contentBlocking: widget.contentBlocking,
+    reportPagePerformance: widget.onPagePerformance != null,
+    trackVideos: widget.onVideoEvents != null,
+    suspendMediaWhenHidden: widget.suspendMediaWhenHidden,
+    videoQualityReporting: widget.onVideoQuality == null
+        ? null
+        : widget.videoQualityReporting ?? const VideoQualityReporting(),
+    maxPrerenders: widget.maxPrerenders,
   );
 }
 
@@ -443,6 +1550,15 @@ WebSettings _clearUnchangedWebSettings(
   );
 }
 
+// Whether applying `update`, as returned by `_clearUnchangedWebSettings`, changes anything.
+bool _hasChanges(WebSettings update) {
+  return update.javascriptMode != null ||
+      update.hasNavigationDelegate != null ||
+      update.debuggingEnabled != null ||
+      update.gestureNavigationEnabled != null ||
+      update.userAgent.isPresent;
+}
+
 Set<String> _extractChannelNames(Set<JavascriptChannel> channels) {
   final Set<String> channelNames = channels == null
       // TODO(iskakaushik): Remove this when collection literals makes it to stable.
@@ -452,6 +1568,21 @@ Set<String> _extractChannelNames(Set<JavascriptChannel> channels) {
   return channelNames;
 }
 
+Map<String, JavascriptChannelQueuePolicy> _extractChannelQueuePolicies(
+    Set<JavascriptChannel> channels) {
+  final Map<String, JavascriptChannelQueuePolicy> policies =
+      <String, JavascriptChannelQueuePolicy>{};
+  if (channels == null) {
+    return policies;
+  }
+  for (JavascriptChannel channel in channels) {
+    if (channel.queuePolicy != null) {
+      policies[channel.name] = channel.queuePolicy;
+    }
+  }
+  return policies;
+}
+
 class _PlatformCallbacksHandler implements WebViewPlatformCallbacksHandler {
   _PlatformCallbacksHandler(this._widget) {
     _updateJavascriptChannelsFromSet(_widget.javascriptChannels);
@@ -468,6 +1599,14 @@ class _PlatformCallbacksHandler implements WebViewPlatformCallbacksHandler {
     _javascriptChannels[channel].onMessageReceived(JavascriptMessage(message));
   }
 
+  @override
+  void onJavaScriptChannelOverflow(String channel, int dropped, int coalesced) {
+    final JavascriptChannel javascriptChannel = _javascriptChannels[channel];
+    if (javascriptChannel != null && javascriptChannel.onOverflow != null) {
+      javascriptChannel.onOverflow(dropped, coalesced);
+    }
+  }
+
   @override
   FutureOr<bool> onNavigationRequest({String url, bool isForMainFrame}) async {
     final NavigationRequest request =
@@ -500,10 +1639,48 @@ class _PlatformCallbacksHandler implements WebViewPlatformCallbacksHandler {
   }
 
   @override
-  void onVideoFullScreen(bool fullscreen) {
+  void onVideoFullScreen(bool fullscreen, Duration latency) {
     if(_widget.onVideoFullScreen != null) {
       _widget.onVideoFullScreen(fullscreen);
     }
+    if (_widget.onVideoFullScreenLatency != null) {
+      _widget.onVideoFullScreenLatency(fullscreen, latency);
+    }
+  }
+
+  @override
+  void onVideoEvents(List<VideoEvent> events) {
+    if (_widget.onVideoEvents != null) {
+      _widget.onVideoEvents(events);
+    }
+  }
+
+  @override
+  void onVideoQuality(List<VideoPlaybackQuality> qualities) {
+    if (_widget.onVideoQuality != null) {
+      _widget.onVideoQuality(qualities);
+    }
+  }
+
+  @override
+  void onPagePerformance(PagePerformance performance) {
+    if (_widget.onPagePerformance != null) {
+      _widget.onPagePerformance(performance);
+    }
+  }
+
+  @override
+  void onContentBlocked(String url, int blockedCount) {
+    if (_widget.onContentBlocked != null) {
+      _widget.onContentBlocked(url, blockedCount);
+    }
+  }
+
+  @override
+  void onSubframeNavigationSummary(Map<String, int> requestCounts) {
+    if (_widget.onSubframeNavigationSummary != null) {
+      _widget.onSubframeNavigationSummary(requestCounts);
+    }
   }
 
   void _updateJavascriptChannelsFromSet(Set<JavascriptChannel> channels) {
@@ -616,21 +1793,91 @@ class WebViewController {
     return reload();
   }
 
+  /// Clears the website data of `types`, for `origins` or for all origins when it is null.
+  ///
+  /// All types are cleared when `types` is null.
+  ///
+  /// Origins are given as URLs, e.g. `https://flutter.dev`, and their path is ignored. Unlike
+  /// [clearCache] the page isn't reloaded, and the data is cleared off the platform thread. The
+  /// returned future completes once all of it is cleared.
+  ///
+  /// The WebView's HTTP cache is shared by all origins, [WebViewDataType.httpCache] is only cleared
+  /// when `origins` is null.
+  ///
+  /// This is currently only supported on Android.
+  Future<ClearDataResult> clearData(
+      {Set<WebViewDataType> types, List<String> origins}) {
+    return _webViewPlatformController.clearData(
+        types ?? WebViewDataType.values.toSet(), origins);
+  }
+
+  // Settings and JavaScript channel updates are sent to the platform as a single batch, the error
+  // of the first failed command is thrown.
   Future<void> _updateWidget(WebView widget) async {
+    final List<NavigationRule> currentNavigationRules = _widget.navigationRules;
     _widget = widget;
-    await _updateSettings(_webSettingsFromWidget(widget));
-    await _updateJavascriptChannels(widget.javascriptChannels);
+    if (!listEquals(currentNavigationRules, widget.navigationRules)) {
+      await _webViewPlatformController
+          .updateNavigationRules(widget.navigationRules);
+    }
+    final Map<String, JavascriptChannelQueuePolicy> policyUpdates =
+        _changedQueuePolicies(widget.javascriptChannels);
+    if (policyUpdates.isNotEmpty) {
+      await _webViewPlatformController
+          .updateJavascriptChannelQueuePolicies(policyUpdates);
+    }
+    final List<WebViewCommand> commands = <WebViewCommand>[];
+    _updateSettings(_webSettingsFromWidget(widget), commands);
+    _updateJavascriptChannels(widget.javascriptChannels, commands);
+    if (commands.isEmpty) {
+      return;
+    }
+    final List<WebViewCommandResult> results =
+        await _webViewPlatformController.batch(commands);
+    for (WebViewCommandResult result in results) {
+      if (result.status == WebViewCommandStatus.error) {
+        throw PlatformException(
+            code: result.errorCode, message: result.errorMessage);
+      }
+    }
   }
 
-  Future<void> _updateSettings(WebSettings newSettings) {
+  void _updateSettings(
+      WebSettings newSettings, List<WebViewCommand> commands) {
     final WebSettings update =
         _clearUnchangedWebSettings(_settings, newSettings);
     _settings = newSettings;
-    return _webViewPlatformController.updateSettings(update);
+    if (_hasChanges(update)) {
+      commands.add(WebViewCommand.updateSettings(update));
+    }
+  }
+
+  // Returns the queue policies that differ from the current channels', a null policy removes
+  // the limit of a channel.
+  Map<String, JavascriptChannelQueuePolicy> _changedQueuePolicies(
+      Set<JavascriptChannel> newChannels) {
+    final Map<String, JavascriptChannelQueuePolicy> currentPolicies =
+        _extractChannelQueuePolicies(
+            _platformCallbacksHandler._javascriptChannels.values.toSet());
+    final Map<String, JavascriptChannelQueuePolicy> newPolicies =
+        _extractChannelQueuePolicies(newChannels);
+    final Map<String, JavascriptChannelQueuePolicy> changes =
+        <String, JavascriptChannelQueuePolicy>{};
+    for (String name in currentPolicies.keys) {
+      if (!newPolicies.containsKey(name)) {
+        changes[name] = null;
+      }
+    }
+    newPolicies.forEach((String name, JavascriptChannelQueuePolicy policy) {
+      if (currentPolicies[name] != policy) {
+        changes[name] = policy;
+      }
+    });
+    return changes;
   }
 
-  Future<void> _updateJavascriptChannels(
-      Set<JavascriptChannel> newChannels) async {
+  void _updateJavascriptChannels(
+      Set<JavascriptChannel> newChannels, List<WebViewCommand> commands) {
     final Set<String> currentChannels =
         _platformCallbacksHandler._javascriptChannels.keys.toSet();
     final Set<String> newChannelNames = _extractChannelNames(newChannels);
@@ -639,11 +1886,10 @@ class WebViewController {
     final Set<String> channelsToRemove =
         currentChannels.difference(newChannelNames);
     if (channelsToRemove.isNotEmpty) {
-      await _webViewPlatformController
-          .removeJavascriptChannels(channelsToRemove);
+      commands.add(WebViewCommand.removeJavascriptChannels(channelsToRemove));
     }
     if (channelsToAdd.isNotEmpty) {
-      await _webViewPlatformController.addJavascriptChannels(channelsToAdd);
+      commands.add(WebViewCommand.addJavascriptChannels(channelsToAdd));
     }
     _platformCallbacksHandler._updateJavascriptChannelsFromSet(newChannels);
   }
@@ -684,11 +1930,214 @@ class WebViewController {
     return _webViewPlatformController.getTitle();
   }
 
+  /// Runs `commands` in order with a single call to the platform.
+  ///
+  /// This saves a platform round trip per command when several operations are issued back to
+  /// back, e.g when a screen loads a URL and evaluates some JavaScript right away.
+  ///
+  /// When `stopOnError` is true, a command only runs once the previous one has succeeded, and the
+  /// commands following a failed command are reported as [WebViewCommandStatus.skipped].
+  /// Otherwise all commands run regardless of the outcome of the previous ones.
+  ///
+  /// The returned list holds one [WebViewCommandResult] per command, in the order of `commands`.
+  ///
+  /// JavaScript channels and settings are driven by the [WebView] widget, so `commands` must not
+  /// contain [WebViewCommandType.updateSettings], [WebViewCommandType.addJavascriptChannels] or
+  /// [WebViewCommandType.removeJavascriptChannels] commands.
+  Future<List<WebViewCommandResult>> batch(List<WebViewCommand> commands,
+      {bool stopOnError = true}) {
+    assert(commands != null);
+    assert(stopOnError != null);
+    for (WebViewCommand command in commands) {
+      assert(command.type != WebViewCommandType.updateSettings &&
+          command.type != WebViewCommandType.addJavascriptChannels &&
+          command.type != WebViewCommandType.removeJavascriptChannels);
+      if (command.type == WebViewCommandType.loadUrl) {
+        _validateUrlString(command.arguments['url']);
+      }
+      if (command.type == WebViewCommandType.evaluateJavascript &&
+          _settings.javascriptMode == JavascriptMode.disabled) {
+        return Future<List<WebViewCommandResult>>.error(FlutterError(
+            'JavaScript mode must be enabled/unrestricted when calling evaluateJavascript.'));
+      }
+    }
+    return _webViewPlatformController.batch(commands,
+        stopOnError: stopOnError);
+  }
+
+  /// Returns the counters and latencies of the [WebView.navigationDelegate]'s decisions.
+  ///
+  /// This is useful to tune [WebView.navigationDeadline].
+  Future<NavigationDecisionStats> getNavigationDecisionStats() {
+    return _webViewPlatformController.getNavigationDecisionStats();
+  }
+
+  /// Returns the aggregate performance of the most recent page loads.
+  Future<PagePerformanceStats> getPerformanceStats() {
+    return _webViewPlatformController.getPerformanceStats();
+  }
+
+  /// Loads `url` in a hidden webview, so that a later [loadUrl] of the same URL and `headers` shows
+  /// the page right away.
+  ///
+  /// The hidden webview has the settings and JavaScript channels this webview has when the prerender
+  /// starts, changing them discards the prerendered pages. The page's events, e.g.
+  /// [WebView.onPageFinished] and JavaScript channel messages, are delivered once it is shown. Its
+  /// navigation requests are still sent to [WebView.navigationDelegate] right away. The webview's
+  /// back history starts over with the shown page.
+  ///
+  /// Prerendering requires a positive [WebView.maxPrerenders] and the
+  /// [JavascriptChannelTransport.javascriptInterface] transport. It is currently only supported on
+  /// Android.
+  Future<void> prerender(String url, {Map<String, String> headers}) {
+    assert(url != null);
+    _validateUrlString(url);
+    return _webViewPlatformController.prerender(url, headers);
+  }
+
+  /// Discards the pages loaded by [prerender].
+  Future<void> cancelPrerenders() {
+    return _webViewPlatformController.cancelPrerenders();
+  }
+
+  /// Returns the counters of the pages loaded by [prerender].
+  Future<PrerenderStats> getPrerenderStats() {
+    return _webViewPlatformController.getPrerenderStats();
+  }
+
+  /// Reports whether the webview is visible within the app.
+  ///
+  /// A [WebView] can't tell when it is scrolled away or in an inactive tab, apps that know should
+  /// report it so that hidden webviews are suspended, see [WebView.suspendMediaWhenHidden].
+  /// Webviews are visible until reported otherwise.
+  Future<void> setVisible(bool visible) {
+    assert(visible != null);
+    return _webViewPlatformController.setVisible(visible);
+  }
+
+  /// Returns the counters of the webview's media suspensions, see [WebView.suspendMediaWhenHidden].
+  Future<MediaSuspensionStats> getMediaSuspensionStats() {
+    return _webViewPlatformController.getMediaSuspensionStats();
+  }
+
+  /// Returns the counters of the settings changes the platform applied and skipped.
+  ///
+  /// The platform's webview keeps the values of the settings it applied, and skips settings updates
+  /// that don't change them. Meant for debugging redundant [WebView] rebuilds.
+  Future<SettingsUpdateStats> getSettingsUpdateStats() {
+    return _webViewPlatformController.getSettingsUpdateStats();
+  }
+
+  /// Fetches the documents at `urls` into the [ResourceCache] ahead of navigations to them.
+  ///
+  /// When `includeSubresources` is true the scripts, stylesheets and preloaded resources referenced
+  /// by the start of each document are fetched as well. All the fetches of a call share a budget of
+  /// `maxBytes` body bytes, resources that would exceed it are skipped. Prefetches of all webviews
+  /// are fetched a few at a time, in the order of their `priority`.
+  ///
+  /// A prefetched document is served to the next navigation to it within 5 minutes, e.g. by
+  /// [loadUrl], regardless of its cache headers. The returned future completes once all the fetches
+  /// completed.
+  ///
+  /// The webview must set [WebView.useResourceCache]. Prefetching is currently only supported on
+  /// Android Lollipop and above.
+  Future<PrefetchResult> prefetch(
+    List<String> urls, {
+    PrefetchPriority priority = PrefetchPriority.normal,
+    int maxBytes = 4 * 1024 * 1024,
+    bool includeSubresources = true,
+  }) {
+    assert(urls != null);
+    assert(priority != null);
+    assert(maxBytes != null && maxBytes > 0);
+    assert(includeSubresources != null);
+    urls.forEach(_validateUrlString);
+    return _webViewPlatformController.prefetch(
+        urls, priority, maxBytes, includeSubresources);
+  }
+
+  /// Skips the fetches of this webview's [prefetch] calls that didn't start yet.
+  Future<void> cancelPrefetch() {
+    return _webViewPlatformController.cancelPrefetch();
+  }
+
+  /// Sends `message` to the JavaScript channel named `channelName`.
+  ///
+  /// The message is delivered to the channel object's `onmessage` handler, for example for a
+  /// channel named `Foo`:
+  ///
+  /// ```javascript
+  /// Foo.onmessage = function(event) { console.log(event.data); };
+  /// ```
+  ///
+  /// Requires [WebView.javascriptChannelTransport] to be [JavascriptChannelTransport.webMessage].
+  /// The returned future completes with an error when the platform doesn't support that transport
+  /// or the current page hasn't finished connecting its channels.
+  Future<void> postMessageToJavascript(String channelName, String message) {
+    assert(channelName != null);
+    assert(message != null);
+    return _webViewPlatformController.postMessageToJavascript(
+        channelName, message);
+  }
+
   Future<void> restoreVideo () {
     return _webViewPlatformController.restoreOriginalVideo();
   }
 }
 
+/// A cookie to set with [CookieManager.setCookies].
+class WebViewCookie {
+  /// Constructs a cookie.
+  ///
+  /// The `name`, `value`, `domain` and `path` parameters must not be null.
+  const WebViewCookie({
+    @required this.name,
+    @required this.value,
+    @required this.domain,
+    this.path = '/',
+    this.expires,
+    this.secure = false,
+    this.httpOnly = false,
+    this.sameSite,
+  })  : assert(name != null),
+        assert(value != null),
+        assert(domain != null),
+        assert(path != null);
+
+  /// The cookie's name.
+  final String name;
+
+  /// The cookie's value.
+  final String value;
+
+  /// The host the cookie is set for.
+  ///
+  /// A domain starting with a `.`, e.g. `.example.com`, also sends the cookie to the domain's
+  /// subdomains. Otherwise the cookie is only sent to the host itself.
+  final String domain;
+
+  /// The URL path the cookie is sent to, including its subpaths.
+  final String path;
+
+  /// When the cookie expires, null for a session cookie.
+  final DateTime expires;
+
+  /// Whether the cookie is only sent over `https`.
+  final bool secure;
+
+  /// Whether the cookie is hidden from the pages' JavaScript.
+  final bool httpOnly;
+
+  /// The cookie's `SameSite` attribute, `Strict`, `Lax` or `None`, or null for the default.
+  final String sameSite;
+
+  @override
+  String toString() {
+    return '$runtimeType(name: $name, domain: $domain, path: $path, expires: $expires, '
+        'secure: $secure, httpOnly: $httpOnly, sameSite: $sameSite)';
+  }
+}
+
 /// Manages cookies pertaining to all [WebView]s.
 class CookieManager {
   /// Creates a [CookieManager] -- returns the instance if it's already been called.
@@ -706,6 +2155,599 @@ class CookieManager {
   ///
   /// Returns true if cookies were present before clearing, else false.
   Future<bool> clearCookies() => WebView.platform.clearCookies();
+
+  /// Sets `cookies` for all [WebView] instances.
+  ///
+  /// All the cookies are set with a single platform call, off the platform thread, and persisted
+  /// once they are all set. The returned future completes once the cookies are visible to the
+  /// requests of all [WebView]s.
+  ///
+  /// This is currently only supported on Android.
+  Future<void> setCookies(List<WebViewCookie> cookies) {
+    assert(cookies != null);
+    return WebView.platform.setCookies(cookies);
+  }
+
+  /// Returns the names and values of the cookies sent along with requests to each of `urls`.
+  ///
+  /// Unlike reading `document.cookie`, the result includes [WebViewCookie.httpOnly] cookies. The
+  /// cookie attributes, e.g. their domain or expiry, aren't available.
+  ///
+  /// This is currently only supported on Android.
+  Future<Map<String, Map<String, String>>> getCookies(List<String> urls) {
+    assert(urls != null);
+    return WebView.platform.getCookies(urls);
+  }
+
+  /// Removes the cookies sent along with requests to each of `urls`.
+  ///
+  /// When `names` is not null only the cookies with these names are removed.
+  ///
+  /// Returns the number of cookies removed.
+  ///
+  /// This is currently only supported on Android.
+  Future<int> removeCookies(List<String> urls, {Set<String> names}) {
+    assert(urls != null);
+    return WebView.platform.removeCookies(urls, names: names);
+  }
+
+  /// Returns a snapshot of the cookies sent along with requests to each of `origins`.
+  ///
+  /// The snapshot can be stored by the app, and passed to [restoreCookies] on a later start to
+  /// restore the session with a single platform call instead of re-authenticating. It is ignored
+  /// by [restoreCookies] once `maxAge` elapsed.
+  ///
+  /// The platform only reads back the names and values of cookies. The snapshot keeps the
+  /// attributes of the cookies set through [setCookies] since the app started, or restored with
+  /// their attributes. The attributes of other cookies, e.g. set by the pages, are lost: the
+  /// domain they were scoped to, their path, [WebViewCookie.httpOnly], [WebViewCookie.sameSite]
+  /// and their expiry, session cookies included. See [restoreCookies] for how they are restored.
+  ///
+  /// This is currently only supported on Android.
+  Future<Uint8List> exportCookies(List<String> origins,
+      {Duration maxAge = const Duration(days: 1)}) {
+    assert(origins != null);
+    assert(maxAge != null);
+    return WebView.platform.exportCookies(origins, maxAge: maxAge);
+  }
+
+  /// Sets the cookies of a `snapshot` returned by [exportCookies].
+  ///
+  /// Should be awaited before the first [WebView] is created, so that its first requests carry the
+  /// restored cookies. Expired snapshots, and snapshots of another version of the plugin's format,
+  /// are ignored.
+  ///
+  /// Cookies the snapshot holds the attributes of are restored with them, and skipped when they
+  /// expired. Other cookies are restored for the origin's host and the `/` path,
+  /// [WebViewCookie.secure] for `https` origins, and expire with the snapshot, session cookies
+  /// included. They are [WebViewCookie.httpOnly] unless `httpOnly` is false, as cookies that
+  /// pages can't read are the safer default for session tokens.
+  ///
+  /// Returns the number of cookies restored.
+  ///
+  /// This is currently only supported on Android.
+  Future<int> restoreCookies(Uint8List snapshot, {bool httpOnly = true}) {
+    assert(snapshot != null);
+    assert(httpOnly != null);
+    return WebView.platform.restoreCookies(snapshot, httpOnly: httpOnly);
+  }
+}
+
+/// Usage counters of the pool of pre-constructed platform webviews.
+///
+/// See also: [WebViewPool].
+class WebViewPoolStats {
+  /// Constructs a snapshot of the pool's counters.
+  const WebViewPoolStats({this.capacity, this.idle, this.hits, this.misses});
+
+  /// The number of idle webviews the pool tries to keep.
+  final int capacity;
+
+  /// The number of idle webviews currently in the pool.
+  final int idle;
+
+  /// How many [WebView]s were created with a webview taken from the pool.
+  final int hits;
+
+  /// How many [WebView]s had to construct their webview because the pool was empty.
+  final int misses;
+
+  @override
+  String toString() {
+    return '$runtimeType(capacity: $capacity, idle: $idle, hits: $hits, misses: $misses)';
+  }
+}
+
+/// Manages the pool of pre-constructed platform webviews that new [WebView]s are created with.
+///
+/// Constructing a platform webview is expensive and happens on the platform thread. When the pool
+/// has a non zero capacity, idle webviews are constructed ahead of time whenever the platform
+/// thread is idle, and the webviews of disposed [WebView]s are reset and kept for reuse.
+///
+/// The pool is currently only supported on Android.
+class WebViewPool {
+  /// Creates a [WebViewPool] -- returns the instance if it's already been called.
+  factory WebViewPool() {
+    return _instance ??= WebViewPool._();
+  }
+
+  WebViewPool._();
+
+  static WebViewPool _instance;
+
+  /// Sets how many idle webviews the pool keeps.
+  ///
+  /// A `capacity` of 0, the default, disables the pool.
+  Future<void> setCapacity(int capacity) {
+    assert(capacity != null && capacity >= 0);
+    return WebView.platform.setWebViewPoolCapacity(capacity);
+  }
+
+  /// Returns the pool's usage counters.
+  Future<WebViewPoolStats> getStats() => WebView.platform.getWebViewPoolStats();
+}
+
+/// The kinds of website data cleared by [WebViewController.clearData].
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum WebViewDataType {
+  /// The WebView's HTTP cache, shared by all origins.
+  httpCache,
+
+  /// The pages' local storage, IndexedDB and Web SQL databases, application cache and Cache API
+  /// caches.
+  webStorage,
+
+  /// The responses stored by the [ResourceCache].
+  resourceCache,
+}
+
+/// What a [WebViewController.clearData] call cleared.
+class ClearDataResult {
+  /// Constructs the result of a [WebViewController.clearData] call.
+  const ClearDataResult({
+    this.httpCacheCleared,
+    this.webStorageBytes,
+    this.resourceCacheBytes,
+  });
+
+  /// Whether the WebView's HTTP cache was cleared.
+  ///
+  /// The size of the HTTP cache isn't known, and isn't part of [bytesFreed].
+  final bool httpCacheCleared;
+
+  /// The number of bytes of web storage that were deleted.
+  final int webStorageBytes;
+
+  /// The number of bytes of [ResourceCache] files that were deleted.
+  final int resourceCacheBytes;
+
+  /// The total number of bytes freed.
+  int get bytesFreed => webStorageBytes + resourceCacheBytes;
+
+  @override
+  String toString() {
+    return '$runtimeType(httpCacheCleared: $httpCacheCleared, '
+        'webStorageBytes: $webStorageBytes, resourceCacheBytes: $resourceCacheBytes)';
+  }
+}
+
+/// Usage counters of the [ResourceCache].
+class ResourceCacheStats {
+  /// Constructs a snapshot of the resource cache's counters.
+  const ResourceCacheStats({
+    this.memoryHits,
+    this.diskHits,
+    this.misses,
+    this.revalidations,
+    this.bytesServed,
+    this.memoryBytes,
+    this.diskBytes,
+    this.diskEntries,
+    this.prefetched,
+    this.prefetchedDocumentHits,
+  });
+
+  /// The number of requests served from the memory tier.
+  final int memoryHits;
+
+  /// The number of requests served from the disk tier.
+  final int diskHits;
+
+  /// The number of requests that had to go to the network.
+  final int misses;
+
+  /// The number of misses that were answered by a `304 Not Modified` response.
+  final int revalidations;
+
+  /// The number of body bytes served from the memory or disk tier, not counting the bytes of
+  /// [misses] fetched from the network.
+  final int bytesServed;
+
+  /// The number of body bytes held by the memory tier.
+  final int memoryBytes;
+
+  /// The number of body bytes held by the disk tier.
+  final int diskBytes;
+
+  /// The number of resources held by the disk tier.
+  final int diskEntries;
+
+  /// The number of resources stored by [WebViewController.prefetch].
+  final int prefetched;
+
+  /// The number of navigations served from a prefetched document.
+  final int prefetchedDocumentHits;
+
+  @override
+  String toString() {
+    return '$runtimeType(memoryHits: $memoryHits, diskHits: $diskHits, misses: $misses, revalidations: $revalidations, bytesServed: $bytesServed, memoryBytes: $memoryBytes, diskBytes: $diskBytes, diskEntries: $diskEntries, prefetched: $prefetched, prefetchedDocumentHits: $prefetchedDocumentHits)';
+  }
+}
+
+/// Counters of the pages loaded by [WebViewController.prerender].
+class PrerenderStats {
+  /// Constructs a snapshot of the prerender counters.
+  const PrerenderStats({
+    this.pending,
+    this.started,
+    this.shown,
+    this.discarded,
+  });
+
+  /// The number of prerendered pages waiting to be shown.
+  final int pending;
+
+  /// The number of pages that were prerendered.
+  final int started;
+
+  /// The number of prerendered pages that were shown.
+  final int shown;
+
+  /// The number of prerendered pages discarded without being shown.
+  ///
+  /// Either because they expired, because of [WebView.maxPrerenders], because the system ran low on
+  /// memory or because the webview's settings changed.
+  final int discarded;
+
+  @override
+  String toString() {
+    return '$runtimeType(pending: $pending, started: $started, shown: $shown, discarded: $discarded)';
+  }
+}
+
+/// Counters of a [WebView]'s media suspensions, see [WebView.suspendMediaWhenHidden].
+class MediaSuspensionStats {
+  /// Constructs a snapshot of the media suspension counters.
+  const MediaSuspensionStats({
+    this.suspended,
+    this.suspensions,
+    this.suspendedTime,
+    this.pausedMedia,
+    this.resumedMedia,
+    this.timersPausedTime,
+  });
+
+  /// Whether the webview is currently suspended.
+  final bool suspended;
+
+  /// The number of times the webview was suspended.
+  final int suspensions;
+
+  /// How long the webview was suspended, including the current suspension.
+  final Duration suspendedTime;
+
+  /// The number of playing media elements the suspensions paused.
+  final int pausedMedia;
+
+  /// The number of media elements that played again when the webview was resumed.
+  final int resumedMedia;
+
+  /// How long the JavaScript timers of all webviews were paused because all of them were
+  /// suspended.
+  final Duration timersPausedTime;
+
+  @override
+  String toString() {
+    return '$runtimeType(suspended: $suspended, suspensions: $suspensions, suspendedTime: $suspendedTime, pausedMedia: $pausedMedia, resumedMedia: $resumedMedia, timersPausedTime: $timersPausedTime)';
+  }
+}
+
+/// Counters of the settings changes sent to a [WebView]'s platform webview, see
+/// [WebViewController.getSettingsUpdateStats].
+class SettingsUpdateStats {
+  /// Constructs a snapshot of the settings update counters.
+  const SettingsUpdateStats({
+    this.appliedChanges,
+    this.skippedChanges,
+  });
+
+  /// The number of settings applied because their value changed, including the initial ones.
+  final int appliedChanges;
+
+  /// The number of settings skipped because their value was already applied.
+  ///
+  /// [WebView.debuggingEnabled] applies to all webviews of the app on Android, it is always applied
+  /// and never skipped.
+  final int skippedChanges;
+
+  @override
+  String toString() {
+    return '$runtimeType(appliedChanges: $appliedChanges, skippedChanges: $skippedChanges)';
+  }
+}
+
+/// The order in which [WebViewController.prefetch] calls are fetched.
+// The method channel implementation is marshalling this enum to the value's index, so the order
+// is important.
+enum PrefetchPriority {
+  /// Fetched once the other prefetches are done, e.g. for links the user may follow.
+  low,
+
+  /// The default priority.
+  normal,
+
+  /// Fetched before the other prefetches, e.g. for the page the user is about to open.
+  high,
+}
+
+/// The outcome of a [WebViewController.prefetch] call.
+class PrefetchResult {
+  /// Constructs the counts of a prefetch.
+  const PrefetchResult({
+    this.requested,
+    this.fetched,
+    this.alreadyCached,
+    this.skipped,
+    this.failed,
+    this.bytes,
+    this.cancelled,
+  });
+
+  /// The number of documents and subresources the prefetch considered.
+  final int requested;
+
+  /// The number of resources fetched and stored in the [ResourceCache].
+  final int fetched;
+
+  /// The number of resources the [ResourceCache] already had.
+  final int alreadyCached;
+
+  /// The number of resources that weren't stored.
+  ///
+  /// Either because they can't be cached, because they didn't fit in the byte budget or because the
+  /// prefetch was cancelled.
+  final int skipped;
+
+  /// The number of resources that couldn't be fetched.
+  final int failed;
+
+  /// The number of body bytes fetched.
+  final int bytes;
+
+  /// Whether [WebViewController.cancelPrefetch] was called before the prefetch completed.
+  final bool cancelled;
+
+  @override
+  String toString() {
+    return '$runtimeType(requested: $requested, fetched: $fetched, alreadyCached: $alreadyCached, skipped: $skipped, failed: $failed, bytes: $bytes, cancelled: $cancelled)';
+  }
+}
+
+/// Manages the HTTP cache shared by the [WebView]s that set [WebView.useResourceCache].
+///
+/// The cache stores the GET subresources of the pages (e.g. scripts, stylesheets and images) in a
+/// memory tier backed by a disk tier, and serves them for as long as their `Cache-Control` or
+/// `Expires` headers allow. Unlike the webview's own HTTP cache its size can be configured, and its
+/// hit rate observed.
+///
+/// The resource cache is currently only supported on Android Lollipop and above.
+class ResourceCache {
+  /// Creates a [ResourceCache] -- returns the instance if it's already been called.
+  factory ResourceCache() {
+    return _instance ??= ResourceCache._();
+  }
+
+  ResourceCache._();
+
+  static ResourceCache _instance;
+
+  /// Sets the byte budgets of the memory and disk tiers.
+  ///
+  /// The defaults are 8MB for the memory tier and 64MB for the disk tier. Shrinking a tier evicts
+  /// its least recently used resources right away.
+  Future<void> configure({
+    @required int memoryCapacity,
+    @required int diskCapacity,
+  }) {
+    assert(memoryCapacity != null && memoryCapacity >= 0);
+    assert(diskCapacity != null && diskCapacity >= 0);
+    return WebView.platform.configureResourceCache(memoryCapacity, diskCapacity);
+  }
+
+  /// Returns the cache's usage counters.
+  Future<ResourceCacheStats> getStats() =>
+      WebView.platform.getResourceCacheStats();
+
+  /// Removes all resources from the cache.
+  Future<void> clear() => WebView.platform.clearResourceCache();
+}
+
+/// Counters of the [ContentBlocker].
+class ContentBlockerStats {
+  /// Constructs a snapshot of the content blocker's counters.
+  const ContentBlockerStats({
+    this.hostRules,
+    this.urlRules,
+    this.checked,
+    this.blocked,
+    this.averageMatchTime,
+  });
+
+  /// The number of distinct blocked hosts in the filter list.
+  final int hostRules;
+
+  /// The number of distinct URL filters in the filter list.
+  final int urlRules;
+
+  /// The number of requests matched against the filter list.
+  final int checked;
+
+  /// The number of requests that were blocked.
+  final int blocked;
+
+  /// The average time it took to match a request against the filter list.
+  final Duration averageMatchTime;
+
+  @override
+  String toString() {
+    return '$runtimeType(hostRules: $hostRules, urlRules: $urlRules, checked: $checked, blocked: $blocked, averageMatchTime: $averageMatchTime)';
+  }
+}
+
+/// Manages the filter list shared by the [WebView]s that set [WebView.contentBlocking].
+///
+/// Requests whose host is one of the blocked hosts or one of their subdomains, or whose URL
+/// contains one of the URL filters, are answered with an empty response instead of going to the
+/// network. Allowed hosts, and their subdomains, are never blocked. Main frame navigations are
+/// never blocked.
+///
+/// ```dart
+/// await ContentBlocker().setRules(
+///   blockedHosts: <String>['doubleclick.net', 'tracker.example.com'],
+///   urlFilters: <String>['/ads/', '/pixel.gif?'],
+/// );
+/// ```
+///
+/// Filter lists are compiled into a matcher whose cost per request doesn't depend on the size of
+/// the list, so lists with tens of thousands of rules can be used.
+///
+/// Content blocking is currently only supported on Android Lollipop and above.
+class ContentBlocker {
+  /// Creates a [ContentBlocker] -- returns the instance if it's already been called.
+  factory ContentBlocker() {
+    return _instance ??= ContentBlocker._();
+  }
+
+  ContentBlocker._();
+
+  static ContentBlocker _instance;
+
+  /// Replaces the filter list.
+  ///
+  /// Hosts can be given as `example.com`, `.example.com` or `*.example.com`, they all match the
+  /// host and its subdomains. URL filters are matched as plain substrings of the URL. Matching is
+  /// case insensitive.
+  ///
+  /// The returned future completes once the new list is in use, requests are matched against the
+  /// previous list while it is compiled.
+  Future<void> setRules({
+    List<String> blockedHosts = const <String>[],
+    List<String> urlFilters = const <String>[],
+    List<String> allowedHosts = const <String>[],
+  }) {
+    assert(blockedHosts != null);
+    assert(urlFilters != null);
+    assert(allowedHosts != null);
+    return WebView.platform
+        .setContentBlockingRules(blockedHosts, urlFilters, allowedHosts);
+  }
+
+  /// Returns the content blocker's counters.
+  Future<ContentBlockerStats> getStats() =>
+      WebView.platform.getContentBlockerStats();
+}
+
+/// The web storage an origin uses, see [WebStorageManager.getUsage].
+class OriginStorageUsage {
+  /// Constructs the storage usage of an origin.
+  const OriginStorageUsage({
+    this.origin,
+    this.usageBytes,
+    this.quotaBytes,
+    this.lastUsed,
+  });
+
+  /// The origin, e.g. `https://flutter.dev`.
+  final String origin;
+
+  /// The number of bytes of storage the origin uses.
+  final int usageBytes;
+
+  /// The number of bytes of storage the WebView allows the origin to use.
+  final int quotaBytes;
+
+  /// When a [WebView] last navigated to the origin, null when that wasn't recorded.
+  final DateTime lastUsed;
+
+  @override
+  String toString() {
+    return '$runtimeType(origin: $origin, usageBytes: $usageBytes, quotaBytes: $quotaBytes, lastUsed: $lastUsed)';
+  }
+}
+
+/// The origins whose storage was deleted to enforce the [WebStorageManager]'s quota.
+class WebStorageEviction {
+  /// Constructs the result of enforcing the quota.
+  const WebStorageEviction({this.evictedOrigins, this.bytesFreed});
+
+  /// The origins whose storage was deleted, least recently used first.
+  final List<String> evictedOrigins;
+
+  /// The number of bytes of storage freed.
+  final int bytesFreed;
+
+  @override
+  String toString() {
+    return '$runtimeType(evictedOrigins: $evictedOrigins, bytesFreed: $bytesFreed)';
+  }
+}
+
+/// Accounts the web storage of every origin, and keeps its total within a quota.
+///
+/// The local storage, IndexedDB and Web SQL databases of the pages loaded in [WebView]s are kept
+/// until they are cleared. When a quota is set, the storage of the least recently used origins is
+/// deleted whenever the total exceeds it:
+///
+/// ```dart
+/// await WebStorageManager().setQuota(
+///   50 * 1024 * 1024,
+///   protectedOrigins: <String>['https://app.example.com'],
+/// );
+/// ```
+///
+/// When an origin was last used is recorded from the navigations of all [WebView]s, and persisted
+/// across app restarts. The quota is checked when it is set, and shortly after pages finished
+/// loading. Origins shown by a [WebView] and protected origins are never evicted.
+///
+/// The web storage manager is currently only supported on Android.
+class WebStorageManager {
+  /// Creates a [WebStorageManager] -- returns the instance if it's already been called.
+  factory WebStorageManager() {
+    return _instance ??= WebStorageManager._();
+  }
+
+  WebStorageManager._();
+
+  static WebStorageManager _instance;
+
+  /// Returns the storage usage of every origin that has web storage.
+  Future<List<OriginStorageUsage>> getUsage() =>
+      WebView.platform.getWebStorageUsage();
+
+  /// Sets the total number of bytes of web storage all origins may use, and enforces it.
+  ///
+  /// A null `maxBytes` removes the quota. The storage of `protectedOrigins` is never evicted.
+  Future<WebStorageEviction> setQuota(int maxBytes,
+      {List<String> protectedOrigins = const <String>[]}) {
+    assert(maxBytes == null || maxBytes >= 0);
+    assert(protectedOrigins != null);
+    return WebView.platform.setWebStorageQuota(maxBytes, protectedOrigins);
+  }
+
+  /// Evicts the least recently used origins until the total storage is within the quota.
+  Future<WebStorageEviction> enforceQuota() =>
+      WebView.platform.enforceWebStorageQuota();
 }
 
 // Throws an ArgumentError if `url` is not a valid URL string.
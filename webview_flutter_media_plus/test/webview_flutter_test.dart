@@ -5,6 +5,7 @@
 import 'dart:math';
 import 'dart:typed_data';
 
+import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter/src/foundation/basic_types.dart';
 import 'package:flutter/src/gestures/recognizer.dart';
@@ -166,6 +167,38 @@ void main() {
     expect(fakePlatformViewsController.lastCreatedView.hasCache, false);
   });
 
+  testWidgets("Clear data", (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final ClearDataResult result = await controller.clearData(
+      types: <WebViewDataType>[WebViewDataType.webStorage].toSet(),
+      origins: <String>['https://flutter.dev'],
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+    expect(platformWebView.clearDataRequests.single, <String, dynamic>{
+      'types': <int>[WebViewDataType.webStorage.index],
+      'origins': <String>['https://flutter.dev'],
+    });
+    expect(result.httpCacheCleared, false);
+    expect(result.bytesFreed, 2048);
+    expect(platformWebView.hasCache, true);
+
+    await controller.clearData();
+
+    expect(platformWebView.clearDataRequests.last['types'], <int>[0, 1, 2]);
+    expect(platformWebView.clearDataRequests.last['origins'], isNull);
+    expect(platformWebView.hasCache, false);
+  });
+
   testWidgets("Can't go back with no history", (WidgetTester tester) async {
     WebViewController controller;
     await tester.pumpWidget(
@@ -381,6 +414,122 @@ void main() {
     );
   });
 
+  testWidgets('Batch', (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://flutter.io',
+        javascriptMode: JavascriptMode.unrestricted,
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    final List<WebViewCommandResult> results =
+        await controller.batch(<WebViewCommand>[
+      WebViewCommand.loadUrl('https://youtube.com'),
+      WebViewCommand.evaluateJavascript('fake js string'),
+    ]);
+
+    expect(platformWebView.batchCount, 1);
+    expect(platformWebView.currentUrl, 'https://youtube.com');
+    expect(results, hasLength(2));
+    expect(results[0].status, WebViewCommandStatus.success);
+    expect(results[1].value, 'fake js string');
+  });
+
+  testWidgets('Settings and JavaScript channels are updated in one batch',
+      (WidgetTester tester) async {
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.disabled,
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.unrestricted,
+        javascriptChannels: <JavascriptChannel>[
+          JavascriptChannel(
+              name: 'Tts', onMessageReceived: (JavascriptMessage msg) {}),
+        ].toSet(),
+      ),
+    );
+
+    expect(platformWebView.batchCount, 1);
+    expect(platformWebView.javascriptMode, JavascriptMode.unrestricted);
+    expect(platformWebView.javascriptChannelNames, <String>['Tts']);
+  });
+
+  testWidgets('A failed batched update is reported',
+      (WidgetTester tester) async {
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.disabled,
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+    platformWebView.failingBatchMethod = 'updateSettings';
+
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.unrestricted,
+      ),
+    );
+
+    expect(platformWebView.batchCount, 1);
+    final dynamic exception = tester.takeException();
+    expect(exception, const TypeMatcher<PlatformException>());
+    expect(exception.code, 'failed');
+  });
+
+  testWidgets('Settings and JavaScript channels are updated separately on iOS',
+      (WidgetTester tester) async {
+    debugDefaultTargetPlatformOverride = TargetPlatform.iOS;
+
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.disabled,
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.unrestricted,
+        userAgent: 'UA',
+        javascriptChannels: <JavascriptChannel>[
+          JavascriptChannel(
+              name: 'Tts', onMessageReceived: (JavascriptMessage msg) {}),
+        ].toSet(),
+      ),
+    );
+
+    expect(platformWebView.batchCount, 0);
+    expect(platformWebView.javascriptMode, JavascriptMode.unrestricted);
+    expect(platformWebView.userAgent, 'UA');
+    expect(platformWebView.javascriptChannelNames, <String>['Tts']);
+
+    debugDefaultTargetPlatformOverride = null;
+  });
+
   testWidgets('evaluate Javascript with JavascriptMode disabled',
       (WidgetTester tester) async {
     WebViewController controller;
@@ -403,29 +552,696 @@ void main() {
     );
   });
 
-  testWidgets('Cookies can be cleared once', (WidgetTester tester) async {
-    await tester.pumpWidget(
-      const WebView(
-        initialUrl: 'https://flutter.io',
-      ),
-    );
-    final CookieManager cookieManager = CookieManager();
-    final bool hasCookies = await cookieManager.clearCookies();
-    expect(hasCookies, true);
+  testWidgets('Cookies can be cleared once', (WidgetTester tester) async {
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://flutter.io',
+      ),
+    );
+    final CookieManager cookieManager = CookieManager();
+    final bool hasCookies = await cookieManager.clearCookies();
+    expect(hasCookies, true);
+  });
+
+  testWidgets('Second cookie clear does not have cookies',
+      (WidgetTester tester) async {
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://flutter.io',
+      ),
+    );
+    final CookieManager cookieManager = CookieManager();
+    final bool hasCookies = await cookieManager.clearCookies();
+    expect(hasCookies, true);
+    final bool hasCookiesSecond = await cookieManager.clearCookies();
+    expect(hasCookiesSecond, false);
+  });
+
+  testWidgets('Cookies are set, read and removed in bulk',
+      (WidgetTester tester) async {
+    final CookieManager cookieManager = CookieManager();
+    await cookieManager.setCookies(<WebViewCookie>[
+      const WebViewCookie(name: 'session', value: 'a1', domain: '.flutter.io'),
+      const WebViewCookie(
+          name: 'token', value: 'b2', domain: 'flutter.io', httpOnly: true),
+    ]);
+    expect(
+      await cookieManager.getCookies(<String>['https://flutter.io']),
+      <String, Map<String, String>>{
+        'https://flutter.io': <String, String>{'session': 'a1', 'token': 'b2'},
+      },
+    );
+
+    expect(
+        await cookieManager.removeCookies(<String>['https://flutter.io'],
+            names: <String>['token'].toSet()),
+        1);
+    expect(_fakeCookieManager.cookies, <String, String>{'session': 'a1'});
+    expect(await cookieManager.removeCookies(<String>['https://flutter.io']),
+        1);
+    expect(_fakeCookieManager.cookies, isEmpty);
+  });
+
+  testWidgets('Cookie snapshots', (WidgetTester tester) async {
+    final CookieManager cookieManager = CookieManager();
+    final Uint8List snapshot = await cookieManager.exportCookies(
+        <String>['https://flutter.io', 'https://dart.dev'],
+        maxAge: const Duration(hours: 2));
+    expect(_fakeCookieManager.exportArguments, <String, dynamic>{
+      'origins': <String>['https://flutter.io', 'https://dart.dev'],
+      'maxAgeMs': 2 * 60 * 60 * 1000,
+    });
+
+    expect(await cookieManager.restoreCookies(snapshot), 2);
+    expect(_fakeCookieManager.restoredSnapshot, <int>[1, 2, 3]);
+    expect(_fakeCookieManager.restoredHttpOnly, isTrue);
+
+    await cookieManager.restoreCookies(snapshot, httpOnly: false);
+    expect(_fakeCookieManager.restoredHttpOnly, isFalse);
+  });
+
+  testWidgets('WebView pool capacity and stats', (WidgetTester tester) async {
+    final List<MethodCall> poolCalls = <MethodCall>[];
+    const MethodChannel('plugins.flutter.io/webview_pool', StandardMethodCodec())
+        .setMockMethodCallHandler((MethodCall call) async {
+      poolCalls.add(call);
+      if (call.method == 'getStats') {
+        return <dynamic, dynamic>{
+          'capacity': 2,
+          'idle': 1,
+          'hits': 3,
+          'misses': 4,
+        };
+      }
+      return null;
+    });
+
+    final WebViewPool pool = WebViewPool();
+    await pool.setCapacity(2);
+    final WebViewPoolStats stats = await pool.getStats();
+
+    expect(poolCalls.first.method, 'setCapacity');
+    expect(poolCalls.first.arguments, 2);
+    expect(stats.capacity, 2);
+    expect(stats.idle, 1);
+    expect(stats.hits, 3);
+    expect(stats.misses, 4);
+  });
+
+  testWidgets('Resource cache', (WidgetTester tester) async {
+    final List<MethodCall> cacheCalls = <MethodCall>[];
+    const MethodChannel(
+            'plugins.flutter.io/webview_resource_cache', StandardMethodCodec())
+        .setMockMethodCallHandler((MethodCall call) async {
+      cacheCalls.add(call);
+      if (call.method == 'getStats') {
+        return <dynamic, dynamic>{
+          'memoryHits': 5,
+          'diskHits': 2,
+          'misses': 3,
+          'revalidations': 1,
+          'bytesServed': 4096,
+          'memoryBytes': 1024,
+          'diskBytes': 2048,
+          'diskEntries': 4,
+        };
+      }
+      return null;
+    });
+
+    await tester.pumpWidget(const WebView(
+      initialUrl: 'https://youtube.com',
+      useResourceCache: true,
+    ));
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.useResourceCache, true);
+
+    final ResourceCache cache = ResourceCache();
+    await cache.configure(memoryCapacity: 1024, diskCapacity: 4096);
+    final ResourceCacheStats stats = await cache.getStats();
+
+    expect(cacheCalls.first.method, 'configure');
+    expect(cacheCalls.first.arguments, <dynamic, dynamic>{
+      'memoryCapacityBytes': 1024,
+      'diskCapacityBytes': 4096,
+    });
+    expect(stats.memoryHits, 5);
+    expect(stats.diskHits, 2);
+    expect(stats.misses, 3);
+    expect(stats.bytesServed, 4096);
+    expect(stats.diskEntries, 4);
+  });
+
+  testWidgets('Event channel transport', (WidgetTester tester) async {
+    final List<String> events = <String>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        eventTransport: WebViewEventTransport.eventChannel,
+        javascriptChannels: <JavascriptChannel>[
+          JavascriptChannel(
+              name: 'Tts',
+              onMessageReceived: (JavascriptMessage message) {
+                events.add('message ${message.message}');
+              }),
+        ].toSet(),
+        onPageStarted: (String url) => events.add('started $url'),
+        onPageFinished: (String url) => events.add('finished $url'),
+        onPageFailed: (String url, dynamic error) => events.add(
+            'failed $url ${error['type']} ${error['errorCode']} ${error['description']}'),
+        onVideoFullScreen: (bool fullscreen) =>
+            events.add('fullscreen $fullscreen'),
+        onVideoFullScreenLatency: (bool fullscreen, Duration latency) =>
+            events.add('latency $fullscreen ${latency?.inMilliseconds}'),
+        onVideoEvents: (List<VideoEvent> videoEvents) => events.addAll(
+            videoEvents.map((VideoEvent event) =>
+                'video ${event.videoId} ${event.type} ${event.position.inMilliseconds} ${event.src}')),
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.eventTransport, 1);
+
+    List<int> string(String value) =>
+        <int>[0, value.length]..addAll(value.codeUnits);
+    platformWebView.fakeEvents(<int>[]
+      // Page started, with an interned URL.
+      ..add(1)
+      ..addAll(string('https://youtube.com'))
+      // JavaScript channel message, with an interned channel name.
+      ..add(5)
+      ..addAll(string('Tts'))
+      ..addAll(<int>[1, 2]..addAll('hi'.codeUnits))
+      // Page finished, referencing the URL.
+      ..addAll(<int>[2, 3])
+      // Video fullscreen, with a latency of 150ms, then exited with none.
+      ..addAll(<int>[4, 1, 1, 0x96, 0x01])
+      ..addAll(<int>[4, 0, 0])
+      // Page failed with error code -2 and no description.
+      ..addAll(<int>[3, 3])
+      ..addAll(string('Error'))
+      ..addAll(<int>[1, 3, 2])
+      // Two video events, the second one referencing the type and without a source.
+      ..addAll(<int>[6, 2, 1])
+      ..addAll(string('play'))
+      ..addAll(<int>[0])
+      ..addAll(string('a.mp4'))
+      ..addAll(<int>[2, 6, 0x90, 0x4e, 2]));
+    await tester.pump();
+
+    expect(events, <String>[
+      'started https://youtube.com',
+      'message hi',
+      'finished https://youtube.com',
+      'fullscreen true',
+      'latency true 150',
+      'fullscreen false',
+      'latency false null',
+      'failed https://youtube.com Error -2 null',
+      'video 1 VideoEventType.play 0 a.mp4',
+      'video 2 VideoEventType.play 10000 null',
+    ]);
+
+    await tester.pumpWidget(Container());
+
+    expect(platformWebView.eventChannelCalls, <String>['listen', 'cancel']);
+  });
+
+  testWidgets('Video full-screen latency', (WidgetTester tester) async {
+    final List<String> events = <String>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        onVideoFullScreen: (bool fullscreen) =>
+            events.add('fullscreen $fullscreen'),
+        onVideoFullScreenLatency: (bool fullscreen, Duration latency) =>
+            events.add('latency $fullscreen ${latency?.inMilliseconds}'),
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    platformWebView.fakeVideoFullScreen(true, 48);
+    platformWebView.fakeVideoFullScreen(false, null);
+    await tester.pump();
+
+    expect(events, <String>[
+      'fullscreen true',
+      'latency true 48',
+      'fullscreen false',
+      'latency false null',
+    ]);
+  });
+
+  testWidgets('Video events', (WidgetTester tester) async {
+    final List<VideoEvent> events = <VideoEvent>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        onVideoEvents: (List<VideoEvent> videoEvents) {
+          events.addAll(videoEvents);
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.trackVideos, true);
+
+    platformWebView.fakeVideoEvents(<Map<String, dynamic>>[
+      <String, dynamic>{
+        'id': 1,
+        'type': 'waiting',
+        'positionMs': 1500,
+        'src': 'https://youtube.com/a.mp4',
+      },
+      <String, dynamic>{
+        'id': 2,
+        'type': 'ended',
+        'positionMs': 30000,
+        'src': null,
+      },
+    ]);
+    await tester.pump();
+
+    expect(events, hasLength(2));
+    expect(events[0].videoId, 1);
+    expect(events[0].type, VideoEventType.waiting);
+    expect(events[0].position, const Duration(milliseconds: 1500));
+    expect(events[0].src, 'https://youtube.com/a.mp4');
+    expect(events[1].type, VideoEventType.ended);
+    expect(events[1].src, isNull);
+
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+      ),
+    );
+
+    expect(platformWebView.trackVideos, true);
+  });
+
+  testWidgets('Page performance', (WidgetTester tester) async {
+    WebViewController controller;
+    final List<PagePerformance> records = <PagePerformance>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+        onPagePerformance: (PagePerformance performance) {
+          records.add(performance);
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.reportPagePerformance, true);
+
+    platformWebView.fakePagePerformance(<String, dynamic>{
+      'url': 'https://youtube.com',
+      'finishMs': 900,
+      'subresources': 42,
+      'interceptedBytes': 1024,
+      'httpErrors': 1,
+      'redirects': 0,
+      'navigationTiming': <String, dynamic>{
+        'responseStart': 120,
+        'domContentLoaded': 600,
+      },
+    });
+    await tester.pump();
+
+    expect(records, hasLength(1));
+    expect(records.single.url, 'https://youtube.com');
+    expect(records.single.commitTime, isNull);
+    expect(records.single.finishTime, const Duration(milliseconds: 900));
+    expect(records.single.subresources, 42);
+    expect(records.single.responseStart, const Duration(milliseconds: 120));
+    expect(records.single.loadEvent, isNull);
+
+    final PagePerformanceStats stats = await controller.getPerformanceStats();
+
+    expect(stats.pageLoads, 3);
+    expect(stats.commitP50, const Duration(milliseconds: 250));
+    expect(stats.finishP90, const Duration(milliseconds: 1800));
+    expect(stats.httpErrors, 2);
+  });
+
+  testWidgets('Video quality', (WidgetTester tester) async {
+    final List<VideoPlaybackQuality> qualities = <VideoPlaybackQuality>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        videoQualityReporting: const VideoQualityReporting(
+          interval: Duration(seconds: 30),
+        ),
+        onVideoQuality: (List<VideoPlaybackQuality> reported) {
+          qualities.addAll(reported);
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.videoQualityReporting, <dynamic, dynamic>{
+      'intervalMs': 30000,
+      'sampleIntervalMs': 1000,
+    });
+
+    platformWebView.fakeVideoQuality(<Map<String, dynamic>>[
+      <String, dynamic>{
+        'id': 3,
+        'src': 'https://youtube.com/a.mp4',
+        'periodMs': 30000,
+        'droppedFrames': 45,
+        'totalFrames': 900,
+        'bufferingMs': 1200,
+        'stalls': 2,
+        'startupMs': 350,
+        'resolutionSwitches': 1,
+        'width': 1280,
+        'height': 720,
+        'bitrate': 2500000,
+      },
+    ]);
+    await tester.pump();
+
+    expect(qualities, hasLength(1));
+    expect(qualities.single.videoId, 3);
+    expect(qualities.single.period, const Duration(seconds: 30));
+    expect(qualities.single.droppedFrameRatio, 0.05);
+    expect(qualities.single.bufferingTime, const Duration(milliseconds: 1200));
+    expect(qualities.single.stalls, 2);
+    expect(qualities.single.startupTime, const Duration(milliseconds: 350));
+    expect(qualities.single.resolutionSwitches, 1);
+    expect(qualities.single.height, 720);
+    expect(qualities.single.bitrate, 2500000);
+  });
+
+  testWidgets('Media suspension', (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        suspendMediaWhenHidden: true,
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.suspendMediaWhenHidden, true);
+
+    await controller.setVisible(false);
+
+    expect(platformWebView.visible, false);
+
+    final MediaSuspensionStats stats =
+        await controller.getMediaSuspensionStats();
+
+    expect(stats.suspended, true);
+    expect(stats.suspensions, 1);
+    expect(stats.suspendedTime, const Duration(seconds: 3));
+    expect(stats.pausedMedia, 2);
+    expect(stats.timersPausedTime, Duration.zero);
+
+    await controller.setVisible(true);
+
+    expect(platformWebView.visible, true);
+  });
+
+  testWidgets('Settings update stats', (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    final SettingsUpdateStats initialStats =
+        await controller.getSettingsUpdateStats();
+
+    expect(initialStats.appliedChanges,
+        platformWebView.appliedSettings.length);
+    expect(initialStats.skippedChanges, 0);
+
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        debuggingEnabled: true,
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final SettingsUpdateStats stats = await controller.getSettingsUpdateStats();
+
+    expect(platformWebView.debuggingEnabled, true);
+    expect(stats.appliedChanges, initialStats.appliedChanges + 1);
+    expect(stats.skippedChanges, 0);
+  });
+
+  testWidgets('Prerender', (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        maxPrerenders: 2,
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.maxPrerenders, 2);
+
+    await controller.prerender('https://flutter.dev',
+        headers: <String, String>{'Referer': 'https://youtube.com'});
+
+    expect(platformWebView.prerenderedUrls, <String>['https://flutter.dev']);
+
+    final PrerenderStats stats = await controller.getPrerenderStats();
+
+    expect(stats.pending, 1);
+    expect(stats.started, 1);
+
+    await controller.cancelPrerenders();
+
+    expect(platformWebView.prerenderedUrls, isEmpty);
+    expect(() => controller.prerender('flutter.dev'), throwsArgumentError);
+  });
+
+  testWidgets('Prefetch', (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        useResourceCache: true,
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    final PrefetchResult result = await controller.prefetch(
+      <String>['https://flutter.dev', 'https://flutter.dev/docs'],
+      priority: PrefetchPriority.high,
+      maxBytes: 1024 * 1024,
+    );
+
+    expect(platformWebView.prefetchRequests, hasLength(1));
+    expect(platformWebView.prefetchRequests.single['urls'],
+        <String>['https://flutter.dev', 'https://flutter.dev/docs']);
+    expect(platformWebView.prefetchRequests.single['priority'],
+        PrefetchPriority.high.index);
+    expect(platformWebView.prefetchRequests.single['maxBytes'], 1024 * 1024);
+    expect(platformWebView.prefetchRequests.single['includeSubresources'],
+        true);
+    expect(result.requested, 2);
+    expect(result.fetched, 2);
+    expect(result.bytes, 2048);
+    expect(result.cancelled, false);
+
+    await controller.cancelPrefetch();
+
+    expect(platformWebView.prefetchCancelled, true);
+  });
+
+  testWidgets('Content blocker', (WidgetTester tester) async {
+    final List<MethodCall> blockerCalls = <MethodCall>[];
+    const MethodChannel(
+            'plugins.flutter.io/webview_content_blocker', StandardMethodCodec())
+        .setMockMethodCallHandler((MethodCall call) async {
+      blockerCalls.add(call);
+      if (call.method == 'getStats') {
+        return <dynamic, dynamic>{
+          'hostRules': 2,
+          'urlRules': 1,
+          'checked': 40,
+          'blocked': 12,
+          'averageMatchNanos': 3000,
+        };
+      }
+      return null;
+    });
+
+    final List<String> blockedUrls = <String>[];
+    final List<int> blockedCounts = <int>[];
+    await tester.pumpWidget(WebView(
+      initialUrl: 'https://youtube.com',
+      contentBlocking: true,
+      onContentBlocked: (String url, int blockedCount) {
+        blockedUrls.add(url);
+        blockedCounts.add(blockedCount);
+      },
+    ));
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.contentBlocking, true);
+
+    await ContentBlocker().setRules(
+      blockedHosts: <String>['doubleclick.net', '*.tracker.com'],
+      urlFilters: <String>['/ads/'],
+    );
+    final ContentBlockerStats stats = await ContentBlocker().getStats();
+
+    expect(blockerCalls.first.method, 'setRules');
+    expect(blockerCalls.first.arguments, <dynamic, dynamic>{
+      'blockedHosts': <dynamic>['doubleclick.net', '*.tracker.com'],
+      'urlFilters': <dynamic>['/ads/'],
+      'allowedHosts': <dynamic>[],
+    });
+    expect(stats.hostRules, 2);
+    expect(stats.blocked, 12);
+    expect(stats.averageMatchTime, const Duration(microseconds: 3));
+
+    platformWebView.fakeContentBlocked('https://youtube.com', 3);
+    await tester.pump();
+
+    expect(blockedUrls, <String>['https://youtube.com']);
+    expect(blockedCounts, <int>[3]);
+  });
+
+  testWidgets('Web storage quota', (WidgetTester tester) async {
+    final List<MethodCall> storageCalls = <MethodCall>[];
+    const MethodChannel(
+            'plugins.flutter.io/webview_storage', StandardMethodCodec())
+        .setMockMethodCallHandler((MethodCall call) async {
+      storageCalls.add(call);
+      if (call.method == 'getUsage') {
+        return <dynamic>[
+          <dynamic, dynamic>{
+            'origin': 'https://a.example.com',
+            'usageBytes': 4096,
+            'quotaBytes': 10 * 1024 * 1024,
+            'lastUsedMs': 1000,
+          },
+          <dynamic, dynamic>{
+            'origin': 'https://b.example.com',
+            'usageBytes': 1024,
+            'quotaBytes': 10 * 1024 * 1024,
+            'lastUsedMs': null,
+          },
+        ];
+      }
+      return <dynamic, dynamic>{
+        'evictedOrigins': <dynamic>['https://b.example.com'],
+        'bytesFreed': 1024,
+      };
+    });
+
+    final List<OriginStorageUsage> usage = await WebStorageManager().getUsage();
+
+    expect(usage, hasLength(2));
+    expect(usage.first.origin, 'https://a.example.com');
+    expect(usage.first.usageBytes, 4096);
+    expect(usage.first.lastUsed, DateTime.fromMillisecondsSinceEpoch(1000));
+    expect(usage.last.lastUsed, isNull);
+
+    final WebStorageEviction eviction = await WebStorageManager().setQuota(
+        4096,
+        protectedOrigins: <String>['https://a.example.com']);
+
+    expect(storageCalls.last.method, 'setQuota');
+    expect(storageCalls.last.arguments, <dynamic, dynamic>{
+      'maxBytes': 4096,
+      'protectedOrigins': <dynamic>['https://a.example.com'],
+    });
+    expect(eviction.evictedOrigins, <String>['https://b.example.com']);
+    expect(eviction.bytesFreed, 1024);
+
+    await WebStorageManager().enforceQuota();
+
+    expect(storageCalls.last.method, 'enforceQuota');
   });
 
-  testWidgets('Second cookie clear does not have cookies',
-      (WidgetTester tester) async {
-    await tester.pumpWidget(
-      const WebView(
-        initialUrl: 'https://flutter.io',
+  testWidgets('Asset server', (WidgetTester tester) async {
+    await tester.pumpWidget(const WebView(
+      initialUrl: 'https://appassets.local/index.html',
+      assetServer: WebViewAssetServer(
+        mappings: <WebViewAssetMapping>[
+          WebViewAssetMapping(
+            pathPrefix: '/media/',
+            source: WebViewAssetSource.directory,
+            root: '/data/user/0/app/files/media',
+          ),
+          WebViewAssetMapping(
+            pathPrefix: '/',
+            source: WebViewAssetSource.flutterAssets,
+            root: 'assets/www/',
+          ),
+        ],
       ),
-    );
-    final CookieManager cookieManager = CookieManager();
-    final bool hasCookies = await cookieManager.clearCookies();
-    expect(hasCookies, true);
-    final bool hasCookiesSecond = await cookieManager.clearCookies();
-    expect(hasCookiesSecond, false);
+    ));
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.assetServer, <dynamic, dynamic>{
+      'host': 'appassets.local',
+      'mappings': <dynamic>[
+        <dynamic, dynamic>{
+          'pathPrefix': '/media/',
+          'source': 1,
+          'root': '/data/user/0/app/files/media',
+        },
+        <dynamic, dynamic>{
+          'pathPrefix': '/',
+          'source': 0,
+          'root': 'assets/www/',
+        },
+      ],
+    });
   });
 
   testWidgets('Initial JavaScript channels', (WidgetTester tester) async {
@@ -601,6 +1417,268 @@ void main() {
     expect(ttsMessagesReceived, <String>['Hello', 'World']);
   });
 
+  testWidgets('Batched JavaScript channel messages',
+      (WidgetTester tester) async {
+    final List<String> messagesReceived = <String>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMessageBatching: const JavascriptMessageBatching(
+          flushInterval: Duration(milliseconds: 100),
+          maxBufferedMessages: 10,
+        ),
+        // TODO(iskakaushik): Remove this when collection literals makes it to stable.
+        // ignore: prefer_collection_literals
+        javascriptChannels: <JavascriptChannel>[
+          JavascriptChannel(
+              name: 'Tts',
+              onMessageReceived: (JavascriptMessage msg) {
+                messagesReceived.add('Tts:${msg.message}');
+              }),
+          JavascriptChannel(
+              name: 'Alarm',
+              onMessageReceived: (JavascriptMessage msg) {
+                messagesReceived.add('Alarm:${msg.message}');
+              }),
+        ].toSet(),
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.javascriptMessageBatching,
+        <dynamic, dynamic>{'flushIntervalMs': 100, 'capacity': 10});
+
+    platformWebView.fakeJavascriptPostMessages(
+        <String>['Tts', 'Alarm', 'Tts'], <String>['Hello', 'Wake', 'World']);
+
+    expect(messagesReceived, <String>['Tts:Hello', 'Alarm:Wake', 'Tts:World']);
+  });
+
+  testWidgets('JavaScript channel queue policies',
+      (WidgetTester tester) async {
+    final List<int> overflows = <int>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        // TODO(iskakaushik): Remove this when collection literals makes it to stable.
+        // ignore: prefer_collection_literals
+        javascriptChannels: <JavascriptChannel>[
+          JavascriptChannel(
+            name: 'Scroll',
+            onMessageReceived: (JavascriptMessage msg) {},
+            queuePolicy: const JavascriptChannelQueuePolicy(
+              maxPendingMessages: 4,
+              overflowPolicy: JavascriptChannelOverflowPolicy.coalesceByKey,
+            ),
+            onOverflow: (int dropped, int coalesced) {
+              overflows..add(dropped)..add(coalesced);
+            },
+          ),
+        ].toSet(),
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.javascriptChannelQueuePolicies, <dynamic, dynamic>{
+      'Scroll': <dynamic, dynamic>{
+        'maxPendingMessages': 4,
+        'overflowPolicy': 2,
+      },
+    });
+
+    platformWebView.fakeJavascriptChannelOverflow('Scroll', 1, 5);
+
+    expect(overflows, <int>[1, 5]);
+  });
+
+  testWidgets('Navigation rules', (WidgetTester tester) async {
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        navigationRules: <NavigationRule>[
+          NavigationRule(
+            decision: NavigationDecision.prevent,
+            host: '*.ads.example.com',
+          ),
+          NavigationRule(
+            decision: NavigationDecision.navigate,
+            schemes: <String>['https'],
+            pathPrefix: '/watch',
+          ),
+        ],
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.navigationRules, <dynamic>[
+      <dynamic, dynamic>{
+        'decision': 0,
+        'schemes': null,
+        'host': '*.ads.example.com',
+        'pathPrefix': null,
+        'pattern': null,
+      },
+      <dynamic, dynamic>{
+        'decision': 1,
+        'schemes': <dynamic>['https'],
+        'host': null,
+        'pathPrefix': '/watch',
+        'pattern': null,
+      },
+    ]);
+
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        navigationRules: <NavigationRule>[
+          NavigationRule(
+            decision: NavigationDecision.prevent,
+            pattern: r'\.apk$',
+          ),
+        ],
+      ),
+    );
+
+    expect(platformWebView.navigationRules, <dynamic>[
+      <dynamic, dynamic>{
+        'decision': 0,
+        'schemes': null,
+        'host': null,
+        'pathPrefix': null,
+        'pattern': r'\.apk$',
+      },
+    ]);
+  });
+
+  testWidgets('Navigation rules with an invalid pattern',
+      (WidgetTester tester) async {
+    await tester.pumpWidget(
+      const WebView(
+        initialUrl: 'https://youtube.com',
+        navigationRules: <NavigationRule>[
+          NavigationRule(
+            decision: NavigationDecision.prevent,
+            pattern: r'(\.apk$',
+          ),
+        ],
+      ),
+    );
+
+    expect(tester.takeException(), isArgumentError);
+  });
+
+  testWidgets('Navigation deadline and decision stats',
+      (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        navigationDelegate: (NavigationRequest request) =>
+            NavigationDecision.navigate,
+        navigationDeadline: const NavigationDeadline(
+          timeout: Duration(milliseconds: 300),
+          fallbackDecision: NavigationDecision.prevent,
+        ),
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.navigationDeadline, <dynamic, dynamic>{
+      'timeoutMs': 300,
+      'fallbackToNavigate': false,
+    });
+
+    final NavigationDecisionStats stats =
+        await controller.getNavigationDecisionStats();
+
+    expect(stats.decisions, 10);
+    expect(stats.timedOut, 1);
+    expect(stats.p50, const Duration(milliseconds: 12));
+    expect(stats.p99, const Duration(milliseconds: 310));
+  });
+
+  testWidgets('Summarized subframe navigation requests',
+      (WidgetTester tester) async {
+    final List<String> requests = <String>[];
+    final List<Map<String, int>> summaries = <Map<String, int>>[];
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        navigationDelegate: (NavigationRequest request) {
+          requests.add('${request.url}:${request.isForMainFrame}');
+          return NavigationDecision.navigate;
+        },
+        subframeNavigationReporting: const SubframeNavigationReporting(
+          mode: SubframeNavigationMode.summarize,
+          window: Duration(milliseconds: 500),
+        ),
+        onSubframeNavigationSummary: (Map<String, int> requestCounts) {
+          summaries.add(requestCounts);
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.subframeNavigationReporting, <dynamic, dynamic>{
+      'mode': 3,
+      'windowMs': 500,
+    });
+
+    platformWebView.fakeSubframeNavigationSummary(
+        <String>['https://a.com', 'https://b.com'], <int>[3, 1]);
+    await tester.pump();
+
+    expect(requests, isEmpty);
+    expect(summaries, <Map<String, int>>[
+      <String, int>{'https://a.com': 3, 'https://b.com': 1},
+    ]);
+  });
+
+  testWidgets('Post message to JavaScript over web message channels',
+      (WidgetTester tester) async {
+    WebViewController controller;
+    await tester.pumpWidget(
+      WebView(
+        initialUrl: 'https://youtube.com',
+        javascriptMode: JavascriptMode.unrestricted,
+        javascriptChannelTransport: JavascriptChannelTransport.webMessage,
+        // TODO(iskakaushik): Remove this when collection literals makes it to stable.
+        // ignore: prefer_collection_literals
+        javascriptChannels: <JavascriptChannel>[
+          JavascriptChannel(
+              name: 'Tts', onMessageReceived: (JavascriptMessage msg) {}),
+        ].toSet(),
+        onWebViewCreated: (WebViewController webViewController) {
+          controller = webViewController;
+        },
+      ),
+    );
+
+    final FakePlatformWebView platformWebView =
+        fakePlatformViewsController.lastCreatedView;
+
+    expect(platformWebView.javascriptChannelTransport,
+        JavascriptChannelTransport.webMessage.index);
+
+    await controller.postMessageToJavascript('Tts', 'Hello');
+
+    expect(platformWebView.messagesPostedToJavascript,
+        <String>['Tts:Hello']);
+  });
+
   group('$PageStartedCallback', () {
     testWidgets('onPageStarted is not null', (WidgetTester tester) async {
       String returnedUrl;
@@ -900,6 +1978,28 @@ class FakePlatformWebView {
         currentPosition++;
       }
     }
+    javascriptMessageBatching = params['javascriptMessageBatching'];
+    javascriptChannelQueuePolicies = params['javascriptChannelQueuePolicies'];
+    javascriptChannelTransport = params['javascriptChannelTransport'];
+    navigationRules = params['navigationRules'];
+    navigationDeadline = params['navigationDeadline'];
+    subframeNavigationReporting = params['subframeNavigationReporting'];
+    useResourceCache = params['useResourceCache'];
+    assetServer = params['assetServer'];
+    contentBlocking = params['contentBlocking'];
+    reportPagePerformance = params['reportPagePerformance'];
+    trackVideos = params['trackVideos'];
+    suspendMediaWhenHidden = params['suspendMediaWhenHidden'];
+    videoQualityReporting = params['videoQualityReporting'];
+    eventTransport = params['eventTransport'];
+    maxPrerenders = params['maxPrerenders'];
+    if (eventTransport == 1) {
+      eventChannel = MethodChannel(
+          'plugins.flutter.io/webview_events_$id', const StandardMethodCodec());
+      eventChannel.setMockMethodCallHandler((MethodCall call) async {
+        eventChannelCalls.add(call.method);
+      });
+    }
     if (params.containsKey('javascriptChannelNames')) {
       javascriptChannelNames =
           List<String>.from(params['javascriptChannelNames']);
@@ -909,6 +2009,7 @@ class FakePlatformWebView {
         params['settings']['hasNavigationDelegate'] ?? false;
     debuggingEnabled = params['settings']['debuggingEnabled'];
     userAgent = params['settings']['userAgent'];
+    _mirrorSettings(params['settings']);
     channel = MethodChannel(
         'plugins.flutter.io/webview_$id', const StandardMethodCodec());
     channel.setMockMethodCallHandler(onMethodCall);
@@ -919,15 +2020,58 @@ class FakePlatformWebView {
   List<String> history = <String>[];
   int currentPosition = -1;
   int amountOfReloadsOnCurrentUrl = 0;
+  int batchCount = 0;
+  // Batched calls of this method reply with an error.
+  String failingBatchMethod;
   bool hasCache = true;
 
   String get currentUrl => history.isEmpty ? null : history[currentPosition];
   JavascriptMode javascriptMode;
   List<String> javascriptChannelNames;
+  Map<dynamic, dynamic> javascriptMessageBatching;
+  Map<dynamic, dynamic> javascriptChannelQueuePolicies;
+  int javascriptChannelTransport;
+  List<dynamic> navigationRules;
+  Map<dynamic, dynamic> navigationDeadline;
+  Map<dynamic, dynamic> subframeNavigationReporting;
+  bool useResourceCache;
+  Map<dynamic, dynamic> assetServer;
+  bool contentBlocking;
+  bool reportPagePerformance;
+  bool trackVideos;
+  bool suspendMediaWhenHidden;
+  bool visible = true;
+  Map<dynamic, dynamic> videoQualityReporting;
+  int eventTransport;
+  int maxPrerenders;
+  MethodChannel eventChannel;
+  List<String> eventChannelCalls = <String>[];
+  List<String> messagesPostedToJavascript = <String>[];
+  List<Map<dynamic, dynamic>> prefetchRequests = <Map<dynamic, dynamic>>[];
+  List<Map<dynamic, dynamic>> clearDataRequests = <Map<dynamic, dynamic>>[];
+  bool prefetchCancelled = false;
+  List<String> prerenderedUrls = <String>[];
 
   bool hasNavigationDelegate;
   bool debuggingEnabled;
   String userAgent;
+  Map<dynamic, dynamic> appliedSettings = <dynamic, dynamic>{};
+  int appliedSettingsChanges = 0;
+  int skippedSettingsChanges = 0;
+
+  void _mirrorSettings(Map<dynamic, dynamic> settings) {
+    settings.forEach((dynamic key, dynamic value) {
+      // debuggingEnabled is process-global, and always applied.
+      if (key != 'debuggingEnabled' &&
+          appliedSettings.containsKey(key) &&
+          appliedSettings[key] == value) {
+        skippedSettingsChanges++;
+      } else {
+        appliedSettings[key] = value;
+        appliedSettingsChanges++;
+      }
+    });
+  }
 
   Future<dynamic> onMethodCall(MethodCall call) {
     switch (call.method) {
@@ -946,6 +2090,7 @@ class FakePlatformWebView {
           debuggingEnabled = call.arguments['debuggingEnabled'];
         }
         userAgent = call.arguments['userAgent'];
+        _mirrorSettings(call.arguments);
         break;
       case 'canGoBack':
         return Future<bool>.sync(() => currentPosition > 0);
@@ -982,10 +2127,184 @@ class FakePlatformWebView {
       case 'clearCache':
         hasCache = false;
         return Future<void>.sync(() {});
+      case 'clearData':
+        clearDataRequests.add(call.arguments);
+        final bool clearsHttpCache = call.arguments['origins'] == null &&
+            call.arguments['types'].contains(0);
+        if (clearsHttpCache) {
+          hasCache = false;
+        }
+        return Future<Map<String, dynamic>>.sync(() => <String, dynamic>{
+              'httpCacheCleared': clearsHttpCache,
+              'webStorageBytes': 2048,
+              'resourceCacheBytes': 0,
+            });
+      case 'prerender':
+        prerenderedUrls.add(call.arguments['url']);
+        return Future<void>.sync(() {});
+      case 'cancelPrerenders':
+        prerenderedUrls.clear();
+        return Future<void>.sync(() {});
+      case 'setVisible':
+        visible = call.arguments;
+        return Future<void>.sync(() {});
+      case 'getMediaSuspensionStats':
+        return Future<Map<String, dynamic>>.value(<String, dynamic>{
+          'suspended': !visible,
+          'suspensions': visible ? 0 : 1,
+          'suspendedMs': visible ? 0 : 3000,
+          'pausedMedia': visible ? 0 : 2,
+          'resumedMedia': 0,
+          'timersPausedMs': 0,
+        });
+      case 'getSettingsStats':
+        return Future<Map<String, dynamic>>.value(<String, dynamic>{
+          'appliedChanges': appliedSettingsChanges,
+          'skippedChanges': skippedSettingsChanges,
+        });
+      case 'getPrerenderStats':
+        return Future<Map<String, dynamic>>.value(<String, dynamic>{
+          'pending': prerenderedUrls.length,
+          'started': prerenderedUrls.length,
+          'shown': 0,
+          'discarded': 0,
+        });
+      case 'prefetch':
+        final Map<dynamic, dynamic> request = call.arguments;
+        prefetchRequests.add(request);
+        return Future<Map<String, dynamic>>.value(<String, dynamic>{
+          'requested': request['urls'].length,
+          'fetched': request['urls'].length,
+          'alreadyCached': 0,
+          'skipped': 0,
+          'failed': 0,
+          'bytes': 1024 * request['urls'].length,
+          'cancelled': prefetchCancelled,
+        });
+      case 'cancelPrefetch':
+        prefetchCancelled = true;
+        return Future<void>.sync(() {});
+      case 'getPerformanceStats':
+        return Future<Map<String, dynamic>>.value(<String, dynamic>{
+          'pageLoads': 3,
+          'commitP50Ms': 250,
+          'commitP90Ms': 400,
+          'finishP50Ms': 900,
+          'finishP90Ms': 1800,
+          'subresources': 120,
+          'interceptedBytes': 4096,
+          'httpErrors': 2,
+          'redirects': 1,
+        });
+      case 'getNavigationDecisionStats':
+        return Future<Map<String, dynamic>>.value(<String, dynamic>{
+          'decisions': 10,
+          'timedOut': 1,
+          'lateAllowed': 0,
+          'lateReverted': 0,
+          'p50Ms': 12,
+          'p90Ms': 40,
+          'p99Ms': 310,
+        });
+      case 'updateNavigationRules':
+        navigationRules = call.arguments;
+        return Future<void>.sync(() {});
+      case 'postMessageToJavascript':
+        messagesPostedToJavascript
+            .add('${call.arguments['channel']}:${call.arguments['message']}');
+        return Future<void>.sync(() {});
+      case 'batch':
+        return _runBatch(call.arguments);
     }
     return Future<void>.sync(() {});
   }
 
+  Future<List<dynamic>> _runBatch(Map<dynamic, dynamic> arguments) async {
+    batchCount++;
+    final List<dynamic> replies = <dynamic>[];
+    for (Map<dynamic, dynamic> command in arguments['commands']) {
+      if (command['method'] == failingBatchMethod) {
+        replies.add(<String, dynamic>{
+          'status': 'error',
+          'code': 'failed',
+          'message': '${command['method']} failed',
+        });
+        continue;
+      }
+      final dynamic result = await onMethodCall(
+          MethodCall(command['method'], command['arguments']));
+      replies.add(<String, dynamic>{'status': 'success', 'result': result});
+    }
+    return replies;
+  }
+
+  void fakeSubframeNavigationSummary(List<String> urls, List<int> counts) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final Map<String, dynamic> arguments = <String, dynamic>{
+      'urls': urls,
+      'counts': counts,
+    };
+    final ByteData data = codec
+        .encodeMethodCall(MethodCall('subframeNavigationSummary', arguments));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
+  void fakeEvents(List<int> events) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final ByteData data =
+        codec.encodeSuccessEnvelope(Uint8List.fromList(events));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(eventChannel.name, data, (ByteData data) {});
+  }
+
+  void fakeVideoFullScreen(bool fullscreen, int latencyMs) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final ByteData data = codec.encodeMethodCall(MethodCall(
+        'onVideoFullScreen', <String, dynamic>{
+      'fullscreen': fullscreen,
+      'latencyMs': latencyMs,
+    }));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
+  void fakeVideoEvents(List<Map<String, dynamic>> events) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final ByteData data =
+        codec.encodeMethodCall(MethodCall('onVideoEvents', events));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
+  void fakeVideoQuality(List<Map<String, dynamic>> qualities) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final ByteData data =
+        codec.encodeMethodCall(MethodCall('onVideoQuality', qualities));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
+  void fakePagePerformance(Map<String, dynamic> record) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final ByteData data =
+        codec.encodeMethodCall(MethodCall('onPagePerformance', record));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
+  void fakeContentBlocked(String url, int blockedCount) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final Map<String, dynamic> arguments = <String, dynamic>{
+      'url': url,
+      'blockedCount': blockedCount,
+    };
+    final ByteData data =
+        codec.encodeMethodCall(MethodCall('onContentBlocked', arguments));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
   void fakeJavascriptPostMessage(String jsChannel, String message) {
     final StandardMethodCodec codec = const StandardMethodCodec();
     final Map<String, dynamic> arguments = <String, dynamic>{
@@ -998,6 +2317,33 @@ class FakePlatformWebView {
         .handlePlatformMessage(channel.name, data, (ByteData data) {});
   }
 
+  void fakeJavascriptPostMessages(
+      List<String> jsChannels, List<String> messages) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final Map<String, dynamic> arguments = <String, dynamic>{
+      'channels': jsChannels,
+      'messages': messages,
+    };
+    final ByteData data = codec
+        .encodeMethodCall(MethodCall('javascriptChannelMessages', arguments));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
+  void fakeJavascriptChannelOverflow(
+      String jsChannel, int dropped, int coalesced) {
+    final StandardMethodCodec codec = const StandardMethodCodec();
+    final Map<String, dynamic> arguments = <String, dynamic>{
+      'channel': jsChannel,
+      'dropped': dropped,
+      'coalesced': coalesced,
+    };
+    final ByteData data = codec
+        .encodeMethodCall(MethodCall('javascriptChannelOverflow', arguments));
+    ServicesBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage(channel.name, data, (ByteData data) {});
+  }
+
   // Fakes a main frame navigation that was initiated by the webview, e.g when
   // the user clicks a link in the currently loaded page.
   void fakeNavigate(String url) {
@@ -1102,9 +2448,35 @@ class _FakeCookieManager {
   }
 
   bool hasCookies = true;
+  Map<String, String> cookies = <String, String>{};
+  Map<dynamic, dynamic> exportArguments;
+  Uint8List restoredSnapshot;
+  bool restoredHttpOnly;
 
-  Future<bool> onMethodCall(MethodCall call) {
+  Future<dynamic> onMethodCall(MethodCall call) {
     switch (call.method) {
+      case 'setCookies':
+        for (Map<dynamic, dynamic> cookie in call.arguments) {
+          cookies[cookie['name']] = cookie['value'];
+        }
+        return Future<void>.sync(() {});
+      case 'getCookies':
+        return Future<Map<String, dynamic>>.sync(() =>
+            Map<String, dynamic>.fromIterable(call.arguments,
+                value: (dynamic url) => cookies));
+      case 'removeCookies':
+        final List<dynamic> names = call.arguments['names'];
+        final int count = cookies.length;
+        cookies.removeWhere((String name, String value) =>
+            names == null || names.contains(name));
+        return Future<int>.sync(() => count - cookies.length);
+      case 'exportCookies':
+        exportArguments = call.arguments;
+        return Future<Uint8List>.sync(() => Uint8List.fromList(<int>[1, 2, 3]));
+      case 'restoreCookies':
+        restoredSnapshot = call.arguments['snapshot'];
+        restoredHttpOnly = call.arguments['httpOnly'];
+        return Future<int>.sync(() => 2);
       case 'clearCookies':
         bool hadCookies = false;
         if (hasCookies) {
@@ -1121,10 +2493,13 @@ class _FakeCookieManager {
 
   void reset() {
     hasCookies = true;
+    cookies = <String, String>{};
+    exportArguments = null;
+    restoredSnapshot = null;
   }
 }
 
-class MyWebViewPlatform implements WebViewPlatform {
+class MyWebViewPlatform extends WebViewPlatform {
   MyWebViewPlatformController lastPlatformBuilt;
 
   @override